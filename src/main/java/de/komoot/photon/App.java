@@ -6,24 +6,30 @@ import de.komoot.photon.config.*;
 import de.komoot.photon.json.JsonDumper;
 import de.komoot.photon.json.JsonReader;
 import de.komoot.photon.metrics.MetricsConfig;
+import de.komoot.photon.nominatim.ContinuousUpdater;
+import de.komoot.photon.nominatim.ImportPartition;
 import de.komoot.photon.nominatim.ImportThread;
 import de.komoot.photon.nominatim.NominatimImporter;
 import de.komoot.photon.nominatim.NominatimUpdater;
+import de.komoot.photon.nominatim.SharedAddressCaches;
+import de.komoot.photon.opensearch.CountryRouting;
 import de.komoot.photon.query.*;
-import de.komoot.photon.searcher.GeoJsonFormatter;
-import de.komoot.photon.searcher.TagFilter;
+import de.komoot.photon.searcher.*;
 import io.javalin.Javalin;
 import io.javalin.http.ContentType;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
-import org.locationtech.jts.geom.Envelope;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static de.komoot.photon.metrics.MetricsConfig.setupMetrics;
@@ -34,8 +40,13 @@ import static de.komoot.photon.metrics.MetricsConfig.setupMetrics;
 @NullMarked
 public class App {
     private static final Logger LOGGER = LogManager.getLogger();
+    /** Interval in which the serving API checks the database for a changed import date. */
+    private static final int IMPORT_DATE_CHECK_INTERVAL_SEC = 60;
     private static final AtomicReference<@Nullable Server> esServer = new AtomicReference<>();
     @Nullable private static Javalin photonServer;
+    @Nullable private static ScheduledExecutorService importDateWatcher;
+    @Nullable private static ExecutorService searchExecutor;
+    @Nullable private static ContinuousUpdater continuousUpdater;
 
     public static void main(String[] rawArgs) throws Exception {
         PhotonCli cli = new PhotonCli();
@@ -62,6 +73,18 @@ public class App {
             photonServer.stop();
             photonServer = null;
         }
+        if (importDateWatcher != null) {
+            importDateWatcher.shutdownNow();
+            importDateWatcher = null;
+        }
+        if (searchExecutor != null) {
+            searchExecutor.shutdownNow();
+            searchExecutor = null;
+        }
+        if (continuousUpdater != null) {
+            continuousUpdater.stop();
+            continuousUpdater = null;
+        }
         final Server temp = esServer.getAndSet(null);
         if (temp != null) {
             temp.shutdown();
@@ -89,10 +112,24 @@ public class App {
             return true;
         }
 
+        if (command == Commands.CMD_OPTIMIZE) {
+            server.optimizeIndex(cli.getOptimizeConfig().isExpungeDeletes());
+            return true;
+        }
+
+        if (command == Commands.CMD_ROLLBACK) {
+            final String index = server.rollbackIndex();
+            LOGGER.info("Database index {} is now in use.", index);
+            return true;
+        }
+
         if (command == Commands.CMD_UPDATE) {
             startNominatimUpdate(
-                    setupNominatimUpdater(cli.getPostgresqlConfig(), cli.getImportFilterConfig(), server),
+                    setupNominatimUpdater(cli.getPostgresqlConfig(), cli.getImportFilterConfig(),
+                            cli.getGeneralConfig().getThreads(), server),
                     server);
+            // Don't leave a refresh behind that is scheduled for later.
+            server.getRefreshScheduler().flush();
             return true;
         }
 
@@ -100,7 +137,10 @@ public class App {
         startApi(
                 cli.getApiServerConfig(),
                 server,
-                cli.getApiServerConfig().isEnableUpdateApi() ? setupNominatimUpdater(cli.getPostgresqlConfig(), cli.getImportFilterConfig(), server) : null);
+                cli.getApiServerConfig().isEnableUpdateApi() || cli.getApiServerConfig().isContinuousUpdates()
+                        ? setupNominatimUpdater(cli.getPostgresqlConfig(), cli.getImportFilterConfig(),
+                                                cli.getGeneralConfig().getThreads(), server)
+                        : null);
 
         return false;
     }
@@ -146,21 +186,24 @@ public class App {
         final var importFilterConfig = cli.getImportFilterConfig();
         final var dbProperties = importFilterConfig.getDatabaseProperties();
 
+        final String index;
         try {
-            LOGGER.info("Reinitializing database index with languages {}.", String.join(",", dbProperties.getLanguages()));
-            esServer.recreateIndex(dbProperties);
+            index = esServer.createImportIndex(dbProperties);
+            LOGGER.info("Importing into new database index {} with languages {}.",
+                    index, String.join(",", dbProperties.getLanguages()));
         } catch (IOException ex) {
             LOGGER.error("Cannot initialize database", ex);
             return;
         }
 
         final int maxConcurrentBulks = Math.max(1, cli.getGeneralConfig().getThreads());
-        final var importThread = new ImportThread(esServer.createImporter(dbProperties, maxConcurrentBulks));
+        final var importThread = new ImportThread(esServer.createImporter(dbProperties, index, maxConcurrentBulks));
 
         Date importDate = null;
         try {
             if (cli.getImportFileConfig().isEnabled()) {
-                importDate = importFromFile(cli.getImportFileConfig(), importFilterConfig, importThread);
+                importDate = importFromFile(cli.getImportFileConfig(), importFilterConfig,
+                        cli.getGeneralConfig().getThreads(), importThread);
             } else {
                 importDate = importFromDatabase(
                         cli.getPostgresqlConfig(),
@@ -182,12 +225,19 @@ public class App {
 
         dbProperties.setImportDate(importDate);
         try {
-            esServer.saveToDatabase(dbProperties);
+            esServer.saveToDatabase(dbProperties, index);
         } catch (IOException ex) {
             LOGGER.error("Failed to save database properties after import", ex);
             return;
         }
 
+        try {
+            esServer.activateIndex(index);
+        } catch (IOException ex) {
+            LOGGER.error("Failed to put new database index {} into use", index, ex);
+            return;
+        }
+
         LOGGER.info("Database has been successfully set up with the following properties:\n{}", dbProperties);
     }
 
@@ -214,7 +264,9 @@ public class App {
                 connector.readCountry(country, importThread);
             }
         } else {
-            final Queue<String> todolist = new ConcurrentLinkedQueue<>(List.of(countries));
+            final var partitions = connector.makePartitions(countries, numThreads);
+            final Queue<ImportPartition> todolist = new ConcurrentLinkedQueue<>(partitions);
+            final var addressCaches = new SharedAddressCaches(partitions);
 
             final List<Thread> readerThreads = new ArrayList<>(numThreads);
 
@@ -228,11 +280,21 @@ public class App {
                 }
                 final int threadno = i;
                 Runnable runner = () -> {
-                    String nextCc = todolist.poll();
-                    while (nextCc != null) {
-                        LOGGER.info("Thread {}: reading country '{}'", threadno, nextCc);
-                        threadConnector.readCountry(nextCc, importThread);
-                        nextCc = todolist.poll();
+                    ImportPartition next = todolist.poll();
+                    while (next != null) {
+                        LOGGER.info("Thread {}: reading {}", threadno, next);
+                        final String cc = next.countryCode();
+                        try {
+                            // Check the country first, so that no address cache is loaded for nothing.
+                            final var cnames = threadConnector.findCountryNames(cc);
+                            if (cnames != null) {
+                                threadConnector.readPartition(next, cnames,
+                                        addressCaches.acquire(cc, threadConnector::loadAddressCache), importThread);
+                            }
+                        } finally {
+                            addressCaches.release(cc);
+                        }
+                        next = todolist.poll();
                     }
                 };
                 Thread thread = new Thread(runner);
@@ -256,7 +318,8 @@ public class App {
     }
 
     @Nullable
-    private static Date importFromFile(ImportFileConfig importFileConfig, ImportFilterConfig args, ImportThread importerThread) throws IOException {
+    private static Date importFromFile(ImportFileConfig importFileConfig, ImportFilterConfig args, int numThreads,
+                                       ImportThread importerThread) throws IOException {
         JsonReader reader;
         final String importFile = importFileConfig.getImportFile();
         if ("-".equals(importFile)) {
@@ -269,6 +332,7 @@ public class App {
         reader.setExtraTags(args.getExtraTags());
         reader.setCountryFilter(args.getCountryCodes());
         reader.setLanguages(args.getLanguages());
+        reader.setThreads(numThreads);
 
         reader.readHeader();
         final var importDate = reader.getImportDate();
@@ -289,7 +353,10 @@ public class App {
 
     private static void startNominatimUpdate(NominatimUpdater nominatimUpdater, Server esServer) {
         nominatimUpdater.update();
+        saveImportDate(nominatimUpdater, esServer);
+    }
 
+    private static void saveImportDate(NominatimUpdater nominatimUpdater, Server esServer) {
         try {
             DatabaseProperties dbProperties = esServer.loadFromDatabase();
             Date importDate = nominatimUpdater.getLastImportDate();
@@ -306,6 +373,7 @@ public class App {
      */
     private static NominatimUpdater setupNominatimUpdater(PostgresqlConfig postgresqlConfig,
                                                           ImportFilterConfig importFilterConfig,
+                                                          int threads,
                                                           Server server) throws IOException {
         // Get database properties and ensure that the version is compatible.
         DatabaseProperties dbProperties = server.loadFromDatabase();
@@ -315,7 +383,8 @@ public class App {
         }
 
         NominatimUpdater nominatimUpdater = new NominatimUpdater(postgresqlConfig, dbProperties);
-        nominatimUpdater.setUpdater(server.createUpdater(dbProperties));
+        nominatimUpdater.setUpdater(server.createUpdater(dbProperties, threads));
+        nominatimUpdater.setWorkerCount(threads);
         return nominatimUpdater;
     }
 
@@ -342,6 +411,64 @@ public class App {
         MetricsConfig metrics = setupMetrics(args.getMetrics(), server.getClient());
         final var formatter = new GeoJsonFormatter();
 
+        final List<ResultCache<?, ?>> resultCaches = new ArrayList<>();
+        ResultCache<String, List<PhotonResult>> searchCache = null;
+        if (args.getResultCacheSize() > 0) {
+            searchCache = new ResultCache<>(args.getResultCacheSize(), args.getResultCacheTtl(), List::size);
+            metrics.registerResultCache("search", searchCache);
+            resultCaches.add(searchCache);
+        }
+        SearchHandler<ReverseRequest> reverseHandler = server.createReverseHandler(args.getQueryTimeout());
+        if (args.getReverseCacheSize() > 0) {
+            final var cachingHandler = server.createCachingReverseHandler(args.getQueryTimeout(),
+                    args.getReverseCacheSize(), args.getResultCacheTtl(), args.getReverseCachePrecision());
+            metrics.registerResultCache("reverse", cachingHandler.getCache());
+            resultCaches.add(cachingHandler.getCache());
+            reverseHandler = cachingHandler;
+        }
+        if (!resultCaches.isEmpty()) {
+            for (var cache : resultCaches) {
+                cache.setGeneration(dbProperties.getImportDate());
+            }
+            importDateWatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+                final var thread = new Thread(r, "photon-import-date-watcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            importDateWatcher.scheduleWithFixedDelay(() -> checkImportDate(server, resultCaches),
+                    IMPORT_DATE_CHECK_INTERVAL_SEC, IMPORT_DATE_CHECK_INTERVAL_SEC, TimeUnit.SECONDS);
+            // The import date is saved before the updates are visible to searches.
+            // Drop whatever has been cached in between once they are.
+            server.getRefreshScheduler().setAfterRefresh(() -> invalidateCaches(resultCaches));
+        }
+        if (updater != null) {
+            metrics.registerRefreshScheduler(server.getRefreshScheduler());
+            if (!updater.isSetUpForUpdates()) {
+                throw new UsageException("Updates enabled, but Nominatim database is not prepared. Run -nominatim-update-init-for first.");
+            }
+            if (args.isContinuousUpdates()) {
+                final var updateRecorder = metrics.updateStatsRecorder();
+                final var loop = new ContinuousUpdater(updater,
+                        args.getContinuousUpdateWindow() * 1000L, args.getContinuousUpdateBatch(),
+                        summary -> {
+                            if (summary.changes() > 0) {
+                                saveImportDate(updater, server);
+                            }
+                            updateRecorder.accept(summary);
+                        });
+                final var thread = new Thread(loop, "photon-continuous-update");
+                thread.setDaemon(true);
+                thread.start();
+                continuousUpdater = loop;
+            }
+        }
+        if (args.isVirtualThreads()) {
+            searchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        }
+        final var executor = searchExecutor;
+        final var finalSearchCache = searchCache;
+        final var finalReverseHandler = reverseHandler;
+
         photonServer = Javalin.create(config -> {
             config.router.ignoreTrailingSlashes = true;
             config.http.defaultContentType = ContentType.APPLICATION_JSON.toString();
@@ -371,26 +498,6 @@ public class App {
                     }
                 });
             }
-            config.validation.register(TagFilter.class, TagFilter::buildOsmTagFilter);
-            config.validation.register(Envelope.class, BoundingBoxParamConverter::apply);
-            config.validation.register(Boolean.class, b -> {
-                if (b == null) {
-                    return null;
-                }
-                final var lower = b.toLowerCase();
-                return "1".equals(lower) || "yes".equals(lower) || "true".equals(lower);
-            });
-            config.validation.register(Double.class, s -> {
-                if (s != null) {
-                    final var d = Double.parseDouble(s);
-                    if (Double.isNaN(d)) {
-                        throw new NumberFormatException();
-                    }
-                    return d;
-                }
-                return null;
-            });
-
             config.routes.exception(Exception.class, (e, ctx) ->
                     ctx.status(400)
                             .result(formatter.formatError(e.getMessage()))
@@ -410,41 +517,56 @@ public class App {
 
             config.routes.get("/status", new StatusRequestHandler(server));
 
+            final var reverseFactory = new ReverseRequestFactory(
+                    dbProperties.getLanguages(),
+                    args.getDefaultLanguage(),
+                    args.getMaxReverseResults(),
+                    dbProperties.getSupportGeometries());
+
             if (!dbProperties.getReverseOnly()) {
+                final var searchFactory = new SimpleSearchRequestFactory(
+                        dbProperties.getLanguages(),
+                        args.getDefaultLanguage(),
+                        args.getMaxResults(),
+                        dbProperties.getSupportGeometries());
+                final var countryRouting = CountryRouting.of(dbProperties);
+                final var searchHandler =
+                        withCache(server.createSearchHandler(args.getQueryTimeout(), countryRouting,
+                                args.getSpeculativeLenientLength(), args.getSpeculativeLenientEmptyRate()),
+                                finalSearchCache);
+                final var structuredFactory = new StructuredSearchRequestFactory(
+                        dbProperties.getLanguages(),
+                        args.getDefaultLanguage(),
+                        args.getMaxResults(),
+                        dbProperties.getSupportGeometries());
+                final var structuredHandler =
+                        withCache(server.createStructuredSearchHandler(args.getQueryTimeout(), countryRouting),
+                                finalSearchCache);
+
                 config.routes.get("/api", new GenericSearchHandler<>(
-                        new SimpleSearchRequestFactory(
-                                dbProperties.getLanguages(),
-                                args.getDefaultLanguage(),
-                                args.getMaxResults(),
-                                dbProperties.getSupportGeometries()),
-                        server.createSearchHandler(args.getQueryTimeout()),
-                        formatter));
+                        searchFactory, searchHandler, formatter, executor,
+                        metrics.searchStatsRecorder("api")));
+                config.routes.post("/api/batch", new GenericBatchSearchHandler<>(
+                        searchFactory, searchHandler, formatter, args.getMaxBatchSize(), executor,
+                        metrics.searchStatsRecorder("api_batch")));
 
                 config.routes.get("/structured", new GenericSearchHandler<>(
-                        new StructuredSearchRequestFactory(
-                                dbProperties.getLanguages(),
-                                args.getDefaultLanguage(),
-                                args.getMaxResults(),
-                                dbProperties.getSupportGeometries()),
-                        server.createStructuredSearchHandler(args.getQueryTimeout()),
-                        formatter));
+                        structuredFactory, structuredHandler, formatter, executor,
+                        metrics.searchStatsRecorder("structured")));
+                config.routes.post("/structured/batch", new GenericBatchSearchHandler<>(
+                        structuredFactory, structuredHandler, formatter, args.getMaxBatchSize(), executor,
+                        metrics.searchStatsRecorder("structured_batch")));
             }
 
             config.routes.get("/reverse", new GenericSearchHandler<>(
-                    new ReverseRequestFactory(
-                            dbProperties.getLanguages(),
-                            args.getDefaultLanguage(),
-                            args.getMaxReverseResults(),
-                            dbProperties.getSupportGeometries()),
-                    server.createReverseHandler(args.getQueryTimeout()),
-                    formatter));
-
-            if (updater != null) {
-                // setup update API
-                if (!updater.isSetUpForUpdates()) {
-                    throw new UsageException("Update API enabled, but Nominatim database is not prepared. Run -nominatim-update-init-for first.");
-                }
+                    reverseFactory, finalReverseHandler, formatter, executor,
+                    metrics.searchStatsRecorder("reverse")));
+            config.routes.post("/reverse/batch", new GenericBatchSearchHandler<>(
+                    reverseFactory, finalReverseHandler, formatter, args.getMaxBatchSize(), executor,
+                    metrics.searchStatsRecorder("reverse_batch")));
 
+            if (updater != null && args.isEnableUpdateApi()) {
+                // setup update API
                 config.routes.get("/nominatim-update/status", ctx ->
                         ctx.status(200).json(updater.isBusy() ? "BUSY" : "OK")
                 );
@@ -469,4 +591,42 @@ public class App {
 
         photonServer.start(args.getIp(), args.getPort());
     }
+
+    private static <T extends RequestBase> SearchHandler<T> withCache(
+            SearchHandler<T> handler, @Nullable ResultCache<String, List<PhotonResult>> cache) {
+        return cache == null ? handler : new CachingSearchHandler<>(handler, cache);
+    }
+
+    /**
+     * Drop the content of the result caches after updates have become
+     * visible to searches.
+     */
+    private static void invalidateCaches(List<ResultCache<?, ?>> caches) {
+        for (var cache : caches) {
+            cache.invalidateAll();
+        }
+        LOGGER.debug("Result caches cleared after refresh.");
+    }
+
+    /**
+     * Drop the content of the result caches when the import date of the
+     * database has changed, i.e. when updates have been applied.
+     */
+    private static void checkImportDate(Server server, List<ResultCache<?, ?>> caches) {
+        if (caches.isEmpty()) {
+            return;
+        }
+        try {
+            final var importDate = server.loadFromDatabase().getImportDate();
+            boolean dropped = false;
+            for (var cache : caches) {
+                dropped |= cache.setGeneration(importDate);
+            }
+            if (dropped) {
+                LOGGER.info("Import date changed to {}. Result caches cleared.", importDate);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Cannot check import date of database.", e);
+        }
+    }
 }
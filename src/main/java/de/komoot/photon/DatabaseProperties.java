@@ -26,6 +26,10 @@ public class DatabaseProperties {
     private boolean synonymsInstalled = false;
     private ConfigExtraTags extraTags = new ConfigExtraTags();
     private boolean reverseOnly = false;
+    private boolean geoSort = false;
+    private boolean geoSortImportance = false;
+    private boolean countryRouting = false;
+    private Map<String, Integer> countryRoutingSplits = Map.of();
 
     @SuppressWarnings("unused")
     public void setDatabaseVersion(String version) {
@@ -120,6 +124,10 @@ public class DatabaseProperties {
                 ", supportGeometries=" + supportGeometries +
                 ", synonymsInstalled=" + synonymsInstalled +
                 ", extraTags=" + extraTags +
+                ", geoSort=" + geoSort +
+                ", geoSortImportance=" + geoSortImportance +
+                ", countryRouting=" + countryRouting +
+                ", countryRoutingSplits=" + countryRoutingSplits +
                 '}';
     }
 
@@ -130,4 +138,51 @@ public class DatabaseProperties {
     public boolean getReverseOnly() {
         return reverseOnly;
     }
+
+    /**
+     * Set if the index should be sorted by the location of the places.
+     */
+    public void setGeoSort(boolean geoSort) {
+        this.geoSort = geoSort;
+    }
+
+    public boolean getGeoSort() {
+        return geoSort;
+    }
+
+    /**
+     * Set if places at the same location should be sorted by descending importance.
+     * Only has an effect together with {@link #setGeoSort}.
+     */
+    public void setGeoSortImportance(boolean geoSortImportance) {
+        this.geoSortImportance = geoSortImportance;
+    }
+
+    public boolean getGeoSortImportance() {
+        return geoSortImportance;
+    }
+
+    /**
+     * Set if documents should be routed to the shards by their country.
+     */
+    public void setCountryRouting(boolean countryRouting) {
+        this.countryRouting = countryRouting;
+    }
+
+    public boolean getCountryRouting() {
+        return countryRouting;
+    }
+
+    /**
+     * Set the number of routing values to use for large countries.
+     * Countries which are not in the map use a single routing value.
+     * Only has an effect together with {@link #setCountryRouting}.
+     */
+    public void setCountryRoutingSplits(Map<String, Integer> countryRoutingSplits) {
+        this.countryRoutingSplits = countryRoutingSplits;
+    }
+
+    public Map<String, Integer> getCountryRoutingSplits() {
+        return countryRoutingSplits;
+    }
 }
@@ -0,0 +1,215 @@
+package de.komoot.photon;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.komoot.photon.query.BadRequestException;
+import de.komoot.photon.query.RequestBase;
+import de.komoot.photon.query.RequestFactory;
+import de.komoot.photon.query.RequestParameters;
+import de.komoot.photon.searcher.PhotonResult;
+import de.komoot.photon.searcher.ResultFormatter;
+import de.komoot.photon.searcher.SearchHandler;
+import de.komoot.photon.searcher.SearchStats;
+import de.komoot.photon.searcher.StreetDupesRemover;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import io.javalin.http.Header;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Handler for POST requests that contain a list of searches.
+ * <p>
+ * The body must be a JSON array of objects, each one containing the query
+ * parameters for a single search as accepted by the corresponding GET
+ * endpoint. Parameters given in the URL of the request are used for all
+ * entries, unless the entry sets them itself. The response is a JSON array
+ * with one FeatureCollection per entry.
+ */
+@NullMarked
+public class GenericBatchSearchHandler<T extends RequestBase> implements Handler {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final RequestFactory<T> requestFactory;
+    private final SearchHandler<T> requestHandler;
+    private final ResultFormatter formatter;
+    private final int maxBatchSize;
+    @Nullable private final Executor executor;
+    private final Consumer<SearchStats> statsRecorder;
+
+    /**
+     * Create a new handler.
+     *
+     * @param executor When set, searches are run asynchronously on this executor.
+     */
+    public GenericBatchSearchHandler(RequestFactory<T> requestFactory, SearchHandler<T> requestHandler,
+                                     ResultFormatter formatter, int maxBatchSize, @Nullable Executor executor) {
+        this(requestFactory, requestHandler, formatter, maxBatchSize, executor, stats -> {});
+    }
+
+    /**
+     * Create a new handler.
+     *
+     * @param executor When set, searches are run asynchronously on this executor.
+     * @param statsRecorder Receives the processing statistics of each entry of a batch.
+     */
+    public GenericBatchSearchHandler(RequestFactory<T> requestFactory, SearchHandler<T> requestHandler,
+                                     ResultFormatter formatter, int maxBatchSize, @Nullable Executor executor,
+                                     Consumer<SearchStats> statsRecorder) {
+        this.requestFactory = requestFactory;
+        this.requestHandler = requestHandler;
+        this.formatter = formatter;
+        this.maxBatchSize = maxBatchSize;
+        this.executor = executor;
+        this.statsRecorder = statsRecorder;
+    }
+
+    @Override
+    public void handle(Context context) throws IOException {
+        final List<T> searchRequests = parseRequests(context);
+
+        if (executor == null) {
+            writeResults(context, searchRequests);
+        } else {
+            context.future(() -> CompletableFuture.runAsync(() -> {
+                try {
+                    writeResults(context, searchRequests);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+        }
+    }
+
+    private void writeResults(Context context, List<T> searchRequests) throws IOException {
+        final var results = requestHandler.searchBatch(searchRequests);
+
+        context.status(200).contentType(ContentType.APPLICATION_JSON);
+        final var out = new WriteTrackingOutputStream(context.outputStream());
+        try {
+            writeEntries(out, searchRequests, results);
+        } catch (IOException e) {
+            if (!out.hasWritten()) {
+                throw e;
+            }
+            // Part of the response is already on its way, an error body would only corrupt it.
+            LOGGER.error("Error while writing batch response, response is incomplete.", e);
+            GenericSearchHandler.closeIncompleteResponse(context);
+        }
+    }
+
+    private void writeEntries(OutputStream out, List<T> searchRequests,
+                              List<Stream<PhotonResult>> results) throws IOException {
+        out.write('[');
+        for (int i = 0; i < searchRequests.size(); ++i) {
+            final var searchRequest = searchRequests.get(i);
+            final var stats = searchRequest.getStats();
+            var entryResults = results.get(i);
+
+            @Nullable StreetDupesRemover dupesRemover = null;
+            if (searchRequest.getDedupe()) {
+                dupesRemover = new StreetDupesRemover();
+                entryResults = entryResults.filter(dupesRemover);
+            }
+
+            final var resultList = entryResults.limit(searchRequest.getLimit()).toList();
+            if (dupesRemover != null) {
+                stats.addDedupeDropped(dupesRemover.getRemoved());
+            }
+
+            final long start = SearchStats.start();
+            String debugInfo = null;
+            if (searchRequest.getDebug()) {
+                debugInfo = GenericSearchHandler.debugInfo(requestHandler.dumpQuery(searchRequest), stats);
+            }
+
+            if (i > 0) {
+                out.write(',');
+            }
+            formatter.write(out,
+                    resultList,
+                    searchRequest.getLanguage(),
+                    searchRequest.getDefaultLanguage(),
+                    searchRequest.getReturnGeometry(),
+                    searchRequest.getDebug(), debugInfo);
+            stats.stop(SearchStats.Stage.FORMAT, start);
+
+            statsRecorder.accept(stats);
+        }
+        out.write(']');
+    }
+
+    private List<T> parseRequests(Context context) {
+        final JsonNode body;
+        try {
+            body = MAPPER.readTree(context.body());
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException(400, "Request body is not valid JSON.");
+        }
+
+        if (body == null || !body.isArray()) {
+            throw new BadRequestException(400, "Request body must be a JSON array of query parameter objects.");
+        }
+        if (body.size() > maxBatchSize) {
+            throw new BadRequestException(400, "Too many entries in batch request. At most "
+                    + maxBatchSize + " are allowed.");
+        }
+
+        final List<T> searchRequests = new ArrayList<>(body.size());
+        for (var entry : body) {
+            final long start = SearchStats.start();
+            final T searchRequest = requestFactory.create(new RequestParameters(
+                    parseParameters(context, entry), context.header(Header.ACCEPT_LANGUAGE)));
+            searchRequest.getStats().stop(SearchStats.Stage.PARSE, start);
+            searchRequests.add(searchRequest);
+        }
+
+        return searchRequests;
+    }
+
+    private static Map<String, List<String>> parseParameters(Context context, JsonNode entry) {
+        if (!entry.isObject()) {
+            throw new BadRequestException(400, "Entries of a batch request must be JSON objects.");
+        }
+
+        final Map<String, List<String>> parameters = new HashMap<>(context.queryParamMap());
+        for (var field : entry.properties()) {
+            final var value = field.getValue();
+            final List<String> values = new ArrayList<>();
+            if (value.isArray()) {
+                for (var element : value) {
+                    values.add(parameterValue(field.getKey(), element));
+                }
+            } else {
+                values.add(parameterValue(field.getKey(), value));
+            }
+            parameters.put(field.getKey(), values);
+        }
+
+        return parameters;
+    }
+
+    private static String parameterValue(String key, JsonNode value) {
+        if (!value.isValueNode() || value.isNull()) {
+            throw new BadRequestException(400, "Invalid value for parameter '" + key + "' in batch request.");
+        }
+        return value.asText();
+    }
+}
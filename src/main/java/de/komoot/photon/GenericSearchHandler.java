@@ -1,56 +1,158 @@
 package de.komoot.photon;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.komoot.photon.query.RequestBase;
 import de.komoot.photon.query.RequestFactory;
+import de.komoot.photon.searcher.PhotonResult;
 import de.komoot.photon.searcher.ResultFormatter;
 import de.komoot.photon.searcher.SearchHandler;
+import de.komoot.photon.searcher.SearchStats;
 import de.komoot.photon.searcher.StreetDupesRemover;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @NullMarked
 public class GenericSearchHandler<T extends RequestBase> implements Handler {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     private final RequestFactory<T> requestFactory;
     private final SearchHandler<T> requestHandler;
     private final ResultFormatter formatter;
+    @Nullable private final Executor executor;
+    private final Consumer<SearchStats> statsRecorder;
 
     public GenericSearchHandler(RequestFactory<T> requestFactory, SearchHandler<T> requestHandler,
                                 ResultFormatter formatter) {
+        this(requestFactory, requestHandler, formatter, null);
+    }
+
+    /**
+     * Create a new handler.
+     *
+     * @param executor When set, searches are run asynchronously on this executor
+     *                 and the web server thread is released while waiting for
+     *                 the database.
+     */
+    public GenericSearchHandler(RequestFactory<T> requestFactory, SearchHandler<T> requestHandler,
+                                ResultFormatter formatter, @Nullable Executor executor) {
+        this(requestFactory, requestHandler, formatter, executor, stats -> {});
+    }
+
+    /**
+     * Create a new handler.
+     *
+     * @param executor When set, searches are run asynchronously on this executor.
+     * @param statsRecorder Receives the processing statistics of each finished request.
+     */
+    public GenericSearchHandler(RequestFactory<T> requestFactory, SearchHandler<T> requestHandler,
+                                ResultFormatter formatter, @Nullable Executor executor,
+                                Consumer<SearchStats> statsRecorder) {
         this.requestFactory = requestFactory;
         this.requestHandler = requestHandler;
         this.formatter = formatter;
+        this.executor = executor;
+        this.statsRecorder = statsRecorder;
     }
 
     @Override
     public void handle(Context context) {
+        final long start = SearchStats.start();
         final T searchRequest = requestFactory.create(context);
+        searchRequest.getStats().stop(SearchStats.Stage.PARSE, start);
+
+        if (executor == null) {
+            writeResults(context, searchRequest, requestHandler.search(searchRequest));
+        } else {
+            context.future(() -> requestHandler.searchAsync(searchRequest, executor)
+                    .thenAccept(results -> writeResults(context, searchRequest, results.stream())));
+        }
+    }
 
-        var results = requestHandler.search(searchRequest);
+    private void writeResults(Context context, T searchRequest, Stream<PhotonResult> results) {
+        final var stats = searchRequest.getStats();
 
+        @Nullable StreetDupesRemover dupesRemover = null;
         if (searchRequest.getDedupe()) {
-            results = results.filter(new StreetDupesRemover());
+            dupesRemover = new StreetDupesRemover();
+            results = results.filter(dupesRemover);
         }
 
-        results = results.limit(searchRequest.getLimit());
+        final var resultList = results.limit(searchRequest.getLimit()).toList();
+        if (dupesRemover != null) {
+            stats.addDedupeDropped(dupesRemover.getRemoved());
+        }
+
+        final long start = SearchStats.start();
+        @Nullable WriteTrackingOutputStream out = null;
+        try {
+            String debugInfo = null;
+            if (searchRequest.getDebug()) {
+                debugInfo = debugInfo(requestHandler.dumpQuery(searchRequest), stats);
+            }
 
-        String debugInfo = null;
-        if (searchRequest.getDebug()) {
-            debugInfo = requestHandler.dumpQuery(searchRequest);
+            context.status(200);
+            out = new WriteTrackingOutputStream(context.outputStream());
+            formatter.write(out,
+                    resultList, searchRequest.getLanguage(),
+                    searchRequest.getDefaultLanguage(),
+                    searchRequest.getReturnGeometry(),
+                    searchRequest.getDebug(), debugInfo);
+        } catch (IOException e) {
+            if (out == null || !out.hasWritten()) {
+                context.status(400)
+                        .result("{\"message\": \"Error creating json.\"}");
+            } else {
+                // Part of the response is already on its way, an error body would only corrupt it.
+                LOGGER.error("Error while writing response, response is incomplete.", e);
+                closeIncompleteResponse(context);
+            }
         }
+        stats.stop(SearchStats.Stage.FORMAT, start);
+
+        statsRecorder.accept(stats);
+    }
 
+    /**
+     * Give up on a response of which a part has already been written. The
+     * output is closed without completing the body, so that the client gets
+     * an unparsable response instead of one with an error body appended.
+     */
+    static void closeIncompleteResponse(Context context) {
         try {
-            context.status(200)
-                    .result(formatter.convert(
-                            results.toList(), searchRequest.getLanguage(),
-                            searchRequest.getDefaultLanguage(),
-                            searchRequest.getReturnGeometry(),
-                            searchRequest.getDebug(), debugInfo));
+            context.res().getOutputStream().close();
         } catch (IOException e) {
-            context.status(400)
-                    .result("{\"message\": \"Error creating json.\"}");
+            LOGGER.debug("Closing incomplete response failed.", e);
         }
     }
+
+    /**
+     * Add the processing statistics gathered so far to the query dump of the
+     * search handler. The statistics go into an additional 'stats' field, so
+     * that the fields of the dump stay where they are.
+     */
+    static String debugInfo(@Nullable String queryDump, SearchStats stats) throws JsonProcessingException {
+        final ObjectNode node;
+        if (queryDump == null) {
+            node = MAPPER.createObjectNode();
+        } else if (MAPPER.readTree(queryDump) instanceof ObjectNode dump) {
+            node = dump;
+        } else {
+            return queryDump;
+        }
+        node.set("stats", MAPPER.valueToTree(stats.toDebugMap()));
+
+        return MAPPER.writeValueAsString(node);
+    }
 }
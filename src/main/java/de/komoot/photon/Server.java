@@ -43,8 +43,17 @@ public class Server {
 
     protected OpenSearchClient client;
     @Nullable private OpenSearchRunner runner = null;
+    private final int bulkSizeBytes;
+    private final int shards;
+    private final int replicas;
+    private final int maxSegments;
+    private final RefreshScheduler refreshScheduler;
 
     public Server(PhotonDBConfig config, boolean create) throws IOException {
+        bulkSizeBytes = config.getBulkSizeBytes();
+        shards = config.getShards();
+        replicas = config.getReplicas();
+        maxSegments = config.getMaxSegments();
         final File dataDirectory = new File(config.getDataDirectory(), "photon_data");
         if (!create && config.getTransportAddresses().isEmpty()) {
             if (!dataDirectory.isDirectory()) {
@@ -81,6 +90,8 @@ public class Server {
                 .build();
 
         client = new OpenSearchClient(transport);
+        refreshScheduler = new RefreshScheduler(client, PhotonIndex.NAME,
+                config.getUpdateRefreshInterval() * 1000L, config.isUpdateRefreshMergeFriendly());
 
         waitForReady();
     }
@@ -130,17 +141,68 @@ public class Server {
         }
     }
 
+    /**
+     * Delete all existing data and set up a new, empty index which is immediately in use.
+     */
     public void recreateIndex(DatabaseProperties dbProperties) throws IOException {
-        // delete any existing data
-        if (client.indices().exists(e -> e.index(PhotonIndex.NAME)).value()) {
-            client.indices().delete(d -> d.index(PhotonIndex.NAME));
-        }
+        final var versions = new IndexVersions(client);
+        versions.deleteAll();
 
-        new IndexSettingBuilder().setShards(5).createIndex(client, PhotonIndex.NAME);
+        final String index = createIndex(dbProperties, replicas);
+        versions.switchAlias(index);
+    }
 
-        new IndexMapping(dbProperties.getReverseOnly()).putMapping(client, PhotonIndex.NAME);
+    /**
+     * Create a new, empty index for an import. The index in use stays
+     * in place until the new index is activated with {@link #activateIndex}.
+     *
+     * @return The name of the new index.
+     */
+    public String createImportIndex(DatabaseProperties dbProperties) throws IOException {
+        return createIndex(dbProperties, 0);
+    }
 
-        saveToDatabase(dbProperties);
+    /**
+     * Optimize a freshly imported index, add the configured replicas and make it the
+     * index in use. The previously used index is kept for {@link #rollbackIndex}.
+     */
+    public void activateIndex(String index) throws IOException {
+        new IndexVersions(client).activate(index, replicas, maxSegments);
+    }
+
+    /**
+     * Merge the segments of the index in use and warm it up.
+     *
+     * @param expungeDeletes Only merge segments with deleted documents.
+     */
+    public void optimizeIndex(boolean expungeDeletes) throws IOException {
+        new IndexOptimizer(client).optimize(PhotonIndex.NAME, maxSegments, expungeDeletes);
+    }
+
+    /**
+     * Go back to the index that was in use before the last import.
+     *
+     * @return The name of the index now in use.
+     */
+    public String rollbackIndex() throws IOException {
+        return new IndexVersions(client).rollback();
+    }
+
+    private String createIndex(DatabaseProperties dbProperties, int numReplicas) throws IOException {
+        final String index = PhotonIndex.makeVersionedName();
+
+        new IndexSettingBuilder()
+                .setShards(shards)
+                .setReplicas(numReplicas)
+                .setGeoSort(dbProperties.getGeoSort(), dbProperties.getGeoSortImportance())
+                .setRequireRouting(dbProperties.getCountryRouting())
+                .createIndex(client, index);
+
+        new IndexMapping(dbProperties.getReverseOnly()).putMapping(client, index);
+
+        saveToDatabase(dbProperties, index);
+
+        return index;
     }
 
     public void updateIndexSettings(@Nullable String synonymFile) throws IOException {
@@ -171,17 +233,25 @@ public class Server {
     }
 
     public void saveToDatabase(DatabaseProperties dbProperties) throws IOException {
+        saveToDatabase(dbProperties, PhotonIndex.NAME);
+    }
+
+    public void saveToDatabase(DatabaseProperties dbProperties, String index) throws IOException {
         client.indices().putMapping(m -> m
-                .index(PhotonIndex.NAME)
+                .index(index)
                 .meta(PhotonIndex.META_DB_PROPERTIES, JsonData.of(dbProperties)));
     }
 
     public DatabaseProperties loadFromDatabase() throws IOException {
-        var meta = client.indices()
+        // The alias resolves to a single index but the response is keyed by the real name.
+        final var mappings = client.indices()
                 .getMapping(m -> m.index(PhotonIndex.NAME))
-                .get(PhotonIndex.NAME)
-                .mappings()
-                .meta();
+                .result()
+                .values();
+        if (mappings.isEmpty()) {
+            throw new UsageException("No photon index found.");
+        }
+        var meta = mappings.iterator().next().mappings().meta();
 
         if (!meta.containsKey(PhotonIndex.META_DB_PROPERTIES)) {
             throw new UsageException("Cannot access property meta data. Database too old?");
@@ -189,41 +259,81 @@ public class Server {
 
         final var mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        return meta.get(PhotonIndex.META_DB_PROPERTIES).to(DatabaseProperties.class, new JacksonJsonpMapper(mapper));
+        final var dbProperties = meta.get(PhotonIndex.META_DB_PROPERTIES)
+                .to(DatabaseProperties.class, new JacksonJsonpMapper(mapper));
+        return dbProperties;
     }
 
     public Importer createImporter(DatabaseProperties dbProperties) {
         // Tests use this path and drive refresh() explicitly; don't tune refresh_interval,
         // or the explicit refresh() calls would no-op against refresh_interval=-1.
-        return createImporter(dbProperties, 1, false);
+        registerPhotonDocSerializer(dbProperties);
+        return new de.komoot.photon.opensearch.Importer(client, PhotonIndex.NAME, 1, false, bulkSizeBytes,
+                CountryRouting.of(dbProperties));
     }
 
-    public Importer createImporter(DatabaseProperties dbProperties, int maxConcurrentRequests) {
-        return createImporter(dbProperties, maxConcurrentRequests, true);
+    public Importer createImporter(DatabaseProperties dbProperties, String index, int maxConcurrentRequests) {
+        registerPhotonDocSerializer(dbProperties);
+        return new de.komoot.photon.opensearch.Importer(client, index, maxConcurrentRequests, true, bulkSizeBytes,
+                CountryRouting.of(dbProperties));
     }
 
-    private Importer createImporter(DatabaseProperties dbProperties, int maxConcurrentRequests, boolean tuneRefresh) {
-        registerPhotonDocSerializer(dbProperties);
-        return new de.komoot.photon.opensearch.Importer(client, maxConcurrentRequests, tuneRefresh);
+    public RefreshScheduler getRefreshScheduler() {
+        return refreshScheduler;
     }
 
     public Updater createUpdater(DatabaseProperties dbProperties) {
+        return createUpdater(dbProperties, 1);
+    }
+
+    public Updater createUpdater(DatabaseProperties dbProperties, int maxConcurrentBulks) {
         registerPhotonDocSerializer(dbProperties);
-        return new de.komoot.photon.opensearch.Updater(client);
+        refreshScheduler.configureIndex(client, PhotonIndex.NAME);
+        return new de.komoot.photon.opensearch.Updater(client, CountryRouting.of(dbProperties), maxConcurrentBulks,
+                refreshScheduler);
     }
 
     public SearchHandler<SimpleSearchRequest> createSearchHandler(int queryTimeoutSec) {
-        return new OpenSearchSearchHandler(client, queryTimeoutSec);
+        return createSearchHandler(queryTimeoutSec, CountryRouting.NONE);
+    }
+
+    /**
+     * Create a handler for forward searches.
+     *
+     * @param countryRouting Distribution of the documents over the shards,
+     *                       as given by {@link CountryRouting#of} for the
+     *                       properties of the database.
+     */
+    public SearchHandler<SimpleSearchRequest> createSearchHandler(int queryTimeoutSec, CountryRouting countryRouting) {
+        return new OpenSearchSearchHandler(client, queryTimeoutSec, LenientSpeculation.disabled(), countryRouting);
+    }
+
+    public SearchHandler<SimpleSearchRequest> createSearchHandler(int queryTimeoutSec, CountryRouting countryRouting,
+                                                                  int speculativeMinLength,
+                                                                  double speculativeEmptyRate) {
+        return new OpenSearchSearchHandler(client, queryTimeoutSec,
+                new LenientSpeculation(speculativeMinLength, speculativeEmptyRate), countryRouting);
     }
 
     public SearchHandler<StructuredSearchRequest> createStructuredSearchHandler(int queryTimeoutSec) {
-        return new OpenSearchStructuredSearchHandler(client, queryTimeoutSec);
+        return createStructuredSearchHandler(queryTimeoutSec, CountryRouting.NONE);
+    }
+
+    public SearchHandler<StructuredSearchRequest> createStructuredSearchHandler(int queryTimeoutSec,
+                                                                                CountryRouting countryRouting) {
+        return new OpenSearchStructuredSearchHandler(client, queryTimeoutSec, countryRouting);
     }
 
     public SearchHandler<ReverseRequest> createReverseHandler(int queryTimeoutSec) {
         return new OpenSearchReverseHandler(client, queryTimeoutSec);
     }
 
+    public CachingReverseHandler createCachingReverseHandler(int queryTimeoutSec, int cacheSize,
+                                                             int cacheTtl, int cellPrecision) {
+        return new CachingReverseHandler(new OpenSearchReverseHandler(client, queryTimeoutSec),
+                cacheSize, cacheTtl, cellPrecision);
+    }
+
     protected OpenSearchClient getClient() {
         return client;
     }
@@ -0,0 +1,39 @@
+package de.komoot.photon;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream for a response body that remembers if anything has been
+ * written to it. Once that is the case, an error can no longer be reported
+ * with a status code and error body of its own.
+ */
+@NullMarked
+class WriteTrackingOutputStream extends FilterOutputStream {
+    private boolean written = false;
+
+    WriteTrackingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        written = true;
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > 0) {
+            written = true;
+        }
+        out.write(b, off, len);
+    }
+
+    boolean hasWritten() {
+        return written;
+    }
+}
@@ -28,6 +28,9 @@ public class CommandMain {
     @ParametersDelegate
     private final UpdateInitConfig updateInitConfig = new UpdateInitConfig();
 
+    @ParametersDelegate
+    private final OptimizeConfig optimizeConfig = new OptimizeConfig();
+
     @ParametersDelegate
     private final LegacyConfig legacyConfig = new LegacyConfig();
 
@@ -63,6 +66,10 @@ public class CommandMain {
         return updateInitConfig;
     }
 
+    OptimizeConfig getOptimizeConfig() {
+        return optimizeConfig;
+    }
+
     Commands guessCommand() {
         if (legacyConfig.isNominatimImport()) {
             if (exportDumpConfig.getExportFile() != null) {
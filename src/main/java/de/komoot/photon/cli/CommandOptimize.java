@@ -0,0 +1,35 @@
+package de.komoot.photon.cli;
+
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.ParametersDelegate;
+import de.komoot.photon.config.GeneralConfig;
+import de.komoot.photon.config.OptimizeConfig;
+import de.komoot.photon.config.PhotonDBConfig;
+
+@Parameters(commandDescription = """
+        Merge the segments of the Photon database and warm it up.
+        
+        The import already does this when it has finished. Run this command
+        when the database has received many updates since, so that the
+        segments are merged again and deleted documents are removed.
+        
+        Merging can take a long time on a large database and needs
+        additional disk space while it runs. Searches continue to work
+        in the meantime.
+        """)
+public class CommandOptimize {
+    public CommandOptimize(GeneralConfig gCfg, PhotonDBConfig dbCfg, OptimizeConfig optCfg) {
+        generalConfig = gCfg;
+        photonDBConfig = dbCfg;
+        optimizeConfig = optCfg;
+    }
+
+    @ParametersDelegate
+    private final GeneralConfig generalConfig;
+
+    @ParametersDelegate
+    private final PhotonDBConfig photonDBConfig;
+
+    @ParametersDelegate
+    private final OptimizeConfig optimizeConfig;
+}
@@ -0,0 +1,29 @@
+package de.komoot.photon.cli;
+
+import com.beust.jcommander.Parameters;
+import com.beust.jcommander.ParametersDelegate;
+import de.komoot.photon.config.GeneralConfig;
+import de.komoot.photon.config.PhotonDBConfig;
+
+@Parameters(commandDescription = """
+        Go back to the Photon database that was in use before the last import.
+        
+        An import writes into a new index and only switches over to it when
+        the import has finished successfully. The index that was in use
+        before is kept. This command switches back to that index.
+        
+        The switch is immediate. A running Photon server picks up the old
+        data with the next request.
+        """)
+public class CommandRollback {
+    public CommandRollback(GeneralConfig gCfg, PhotonDBConfig dbCfg) {
+        generalConfig = gCfg;
+        photonDBConfig = dbCfg;
+    }
+
+    @ParametersDelegate
+    private final GeneralConfig generalConfig;
+
+    @ParametersDelegate
+    private final PhotonDBConfig photonDBConfig;
+}
@@ -7,6 +7,8 @@ public enum Commands {
     CMD_UPDATE("update"),
     CMD_UPDATE_INIT("update-init"),
     CMD_JSON_DUMP("dump-nominatim-db"),
+    CMD_ROLLBACK("rollback"),
+    CMD_OPTIMIZE("optimize"),
     CMD_SERVE("serve");
 
     private final String cmd;
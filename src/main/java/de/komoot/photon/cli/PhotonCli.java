@@ -48,6 +48,17 @@ public class PhotonCli {
                                 cmdline.getPostgresqlConfig(),
                                 cmdline.getImportFilterConfig(),
                                 cmdline.getExportDumpConfig()))
+                .addCommand(
+                        Commands.CMD_ROLLBACK.getCmd(),
+                        new CommandRollback(
+                                cmdline.getGeneralConfig(),
+                                cmdline.getPhotonDBConfig()))
+                .addCommand(
+                        Commands.CMD_OPTIMIZE.getCmd(),
+                        new CommandOptimize(
+                                cmdline.getGeneralConfig(),
+                                cmdline.getPhotonDBConfig(),
+                                cmdline.getOptimizeConfig()))
                 .addCommand(
                         Commands.CMD_SERVE.getCmd(),
                         new CommandServe(
@@ -118,4 +129,8 @@ public class PhotonCli {
         return cmdline.getUpdateInitConfig();
     }
 
+    public OptimizeConfig getOptimizeConfig() {
+        return cmdline.getOptimizeConfig();
+    }
+
 }
@@ -39,6 +39,23 @@ public class ApiServerConfig {
             """)
     private boolean enableUpdateApi = false;
 
+    @Parameter(names = "-enable-continuous-updates", category = GROUP, description = """
+            Continuously apply updates from a nominatim database as soon as it reports changes;
+            make sure to also set the PostgreSQL connection parameters
+            """)
+    private boolean continuousUpdates = false;
+
+    @Parameter(names = "-continuous-update-window", category = GROUP, placeholder = "SEC", description = """
+            Time in seconds for which changes are collected before they are applied with continuous updates
+            """)
+    private int continuousUpdateWindow = 5;
+
+    @Parameter(names = "-continuous-update-batch", category = GROUP, placeholder = "NUM", description = """
+            Number of pending changes after which continuous updates are applied without waiting
+            for the end of the collection window
+            """)
+    private int continuousUpdateBatch = 10000;
+
     @Parameter(names = "-max-results", category = GROUP, placeholder = "NUM", description = """
             Maximum possible value for the 'limit' parameter for forward geocoding searches
             """)
@@ -49,6 +66,11 @@ public class ApiServerConfig {
             """)
     private int maxReverseResults = 50;
 
+    @Parameter(names = "-max-batch-size", category = GROUP, placeholder = "NUM", description = """
+            Maximum number of searches that may be sent in a single request to the batch endpoints
+            """)
+    private int maxBatchSize = 1000;
+
     @Parameter(names = "-metrics-enable", category = GROUP, placeholder = "TYPE", description = """
             Enable /metrics endpoint of the given type; currently only supports 'prometheus'
             """)
@@ -71,6 +93,46 @@ public class ApiServerConfig {
             """)
     private int queryTimeout = 7;
 
+    @Parameter(names = "-speculative-lenient-length", category = GROUP, placeholder = "NUM", description = """
+            Send the strict and the lenient query of a forward search together for queries
+            with at least this many characters; 0 disables
+            """)
+    private int speculativeLenientLength = 0;
+
+    @Parameter(names = "-speculative-lenient-empty-rate", category = GROUP, placeholder = "RATIO", description = """
+            Send the strict and the lenient query of a forward search together when at least
+            this fraction of recent queries with the same prefix found no strict results; 0 disables
+            """)
+    private double speculativeLenientEmptyRate = 0.0;
+
+    @Parameter(names = "-virtual-threads", category = GROUP, description = """
+            Run searches on virtual threads, so that requests waiting for the database
+            do not block the worker threads of the web server
+            """)
+    private boolean virtualThreads = false;
+
+    @Parameter(names = "-result-cache-size", category = GROUP, placeholder = "NUM", description = """
+            Maximum number of results to keep in the in-memory cache for forward searches;
+            0 disables the cache
+            """)
+    private int resultCacheSize = 0;
+
+    @Parameter(names = "-result-cache-ttl", category = GROUP, placeholder = "SEC", description = """
+            Time in seconds for which a cached result may be returned
+            """)
+    private int resultCacheTtl = 300;
+
+    @Parameter(names = "-reverse-cache-size", category = GROUP, placeholder = "NUM", description = """
+            Maximum number of candidate places to keep in the in-memory cache for reverse
+            geocoding; 0 disables the cache
+            """)
+    private int reverseCacheSize = 0;
+
+    @Parameter(names = "-reverse-cache-precision", category = GROUP, placeholder = "NUM", description = """
+            Length of the geohash of the cells in which reverse requests share cached results (1-12)
+            """)
+    private int reverseCachePrecision = 7;
+
     public int getPort() {
         return this.listenPort;
     }
@@ -91,6 +153,18 @@ public class ApiServerConfig {
         return this.enableUpdateApi;
     }
 
+    public boolean isContinuousUpdates() {
+        return continuousUpdates;
+    }
+
+    public int getContinuousUpdateWindow() {
+        return Integer.max(0, continuousUpdateWindow);
+    }
+
+    public int getContinuousUpdateBatch() {
+        return Integer.max(1, continuousUpdateBatch);
+    }
+
     public int getMaxReverseResults() {
         return maxReverseResults;
     }
@@ -99,6 +173,10 @@ public class ApiServerConfig {
         return maxResults;
     }
 
+    public int getMaxBatchSize() {
+        return Integer.max(1, maxBatchSize);
+    }
+
     public String getMetrics() {
         return metrics;
     }
@@ -114,4 +192,32 @@ public class ApiServerConfig {
     public int getQueryTimeout() {
         return this.queryTimeout;
     }
+
+    public int getSpeculativeLenientLength() {
+        return Integer.max(0, speculativeLenientLength);
+    }
+
+    public double getSpeculativeLenientEmptyRate() {
+        return Double.max(0.0, speculativeLenientEmptyRate);
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getResultCacheSize() {
+        return Integer.max(0, resultCacheSize);
+    }
+
+    public int getResultCacheTtl() {
+        return Integer.max(1, resultCacheTtl);
+    }
+
+    public int getReverseCacheSize() {
+        return Integer.max(0, reverseCacheSize);
+    }
+
+    public int getReverseCachePrecision() {
+        return Integer.min(12, Integer.max(1, reverseCachePrecision));
+    }
 }
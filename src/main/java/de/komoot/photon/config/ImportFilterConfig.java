@@ -3,13 +3,11 @@ package de.komoot.photon.config;
 import com.beust.jcommander.Parameter;
 import de.komoot.photon.ConfigExtraTags;
 import de.komoot.photon.DatabaseProperties;
+import de.komoot.photon.UsageException;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 @NullMarked
 public class ImportFilterConfig {
@@ -42,6 +40,27 @@ public class ImportFilterConfig {
             Set up database for reverse geocoding only""")
     private boolean reverseOnly = false;
 
+    @Parameter(names = "-geo-sort", category = GROUP, description = """
+            Sort the database by the location of the places; speeds up reverse and location-biased searches
+            """)
+    private boolean geoSort = false;
+
+    @Parameter(names = "-geo-sort-importance", category = GROUP, description = """
+            Like -geo-sort but additionally sort places close to each other by importance
+            """)
+    private boolean geoSortImportance = false;
+
+    @Parameter(names = "-country-routing", category = GROUP, description = """
+            Put all places of a country on the same shard of the database; speeds up searches restricted to a country
+            """)
+    private boolean countryRouting = false;
+
+    @Parameter(names = "-country-routing-split", category = GROUP, placeholder = "CC:NUM,...", description = """
+            Like -country-routing but spread the places of the given countries over the given number of parts;
+            comma-separated list of two-letter country codes with the number of parts
+            """)
+    private List<String> countryRoutingSplits = new ArrayList<>();
+
     public Set<String> getLanguages() {
         return new HashSet<>(languages);
     }
@@ -60,6 +79,26 @@ public class ImportFilterConfig {
         return importGeometryColumn;
     }
 
+    public Map<String, Integer> getCountryRoutingSplits() {
+        final Map<String, Integer> splits = new HashMap<>();
+        for (var split : countryRoutingSplits) {
+            final var parts = split.strip().split(" *: *", 2);
+            int num = 0;
+            if (parts.length == 2) {
+                try {
+                    num = Integer.parseInt(parts[1]);
+                } catch (NumberFormatException e) {
+                    // reported below
+                }
+            }
+            if (num < 1 || parts[0].length() != 2) {
+                throw new UsageException("Invalid country routing split '" + split + "'. Expected CC:NUM.");
+            }
+            splits.put(parts[0].toUpperCase(Locale.ROOT), num);
+        }
+        return splits;
+    }
+
     public DatabaseProperties getDatabaseProperties() {
         final var dbProps = new DatabaseProperties();
         if (!languages.isEmpty()) {
@@ -67,6 +106,10 @@ public class ImportFilterConfig {
         }
         dbProps.setSupportGeometries(importGeometryColumn);
         dbProps.setReverseOnly(reverseOnly);
+        dbProps.setGeoSort(geoSort || geoSortImportance);
+        dbProps.setGeoSortImportance(geoSortImportance);
+        dbProps.setCountryRouting(countryRouting || !countryRoutingSplits.isEmpty());
+        dbProps.setCountryRoutingSplits(getCountryRoutingSplits());
 
         if (extraTags != null) {
             dbProps.setExtraTags(extraTags);
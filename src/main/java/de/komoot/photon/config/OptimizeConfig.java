@@ -0,0 +1,19 @@
+package de.komoot.photon.config;
+
+import com.beust.jcommander.Parameter;
+import org.jspecify.annotations.NullMarked;
+
+@NullMarked
+public class OptimizeConfig {
+    public static final String GROUP = "Optimization options";
+
+    @Parameter(names = "-expunge-deletes", category = GROUP, description = """
+            Only merge segments which contain deleted documents instead of merging the whole index;
+            useful for databases which receive updates over a long time
+            """)
+    private boolean expungeDeletes = false;
+
+    public boolean isExpungeDeletes() {
+        return expungeDeletes;
+    }
+}
@@ -1,6 +1,7 @@
 package de.komoot.photon.config;
 
 import com.beust.jcommander.Parameter;
+import de.komoot.photon.UsageException;
 import org.jspecify.annotations.NullMarked;
 
 import java.io.File;
@@ -36,6 +37,39 @@ public class PhotonDBConfig {
             """)
     private String cluster = "photon";
 
+    @Parameter(names = "-shards", category = GROUP, placeholder = "NUM", description = """
+            Number of shards to create for a newly imported index
+            """)
+    private int shards = 5;
+
+    @Parameter(names = "-replicas", category = GROUP, placeholder = "NUM", description = """
+            Number of replicas to create for a newly imported index before it is put into use
+            """)
+    private int replicas = 0;
+
+    @Parameter(names = "-max-segments", category = GROUP, placeholder = "NUM", description = """
+            Number of segments per shard to merge the database down to after an import or when optimizing
+            """)
+    private int maxSegments = 1;
+
+    @Parameter(names = "-bulk-size", category = GROUP, placeholder = "MB", description = """
+            Send bulks of the given size in MB during import, using as many parallel requests as threads;
+            when 0, the bulk size and the number of parallel requests are adapted to the load of the database
+            """)
+    private int bulkSize = 0;
+
+    @Parameter(names = "-update-refresh-interval", category = GROUP, placeholder = "SEC", description = """
+            Minimum time in seconds between two refreshes of the database after updates;
+            updates finishing in between become visible together at the end of the interval
+            """)
+    private int updateRefreshInterval = 0;
+
+    @Parameter(names = "-update-refresh-merge-friendly", category = GROUP, description = """
+            Do not refresh the database after updates but let it refresh on its own
+            in the interval given with -update-refresh-interval, which must then be set
+            """)
+    private boolean updateRefreshMergeFriendly = false;
+
     public String getDataDirectory() {
         return this.dataDirectory;
     }
@@ -47,4 +81,31 @@ public class PhotonDBConfig {
     public List<String> getTransportAddresses() {
         return this.transportAddresses;
     }
+
+    public int getShards() {
+        return Integer.max(1, shards);
+    }
+
+    public int getReplicas() {
+        return Integer.max(0, replicas);
+    }
+
+    public int getMaxSegments() {
+        return Integer.max(1, maxSegments);
+    }
+
+    public int getBulkSizeBytes() {
+        return Integer.max(0, Integer.min(512, bulkSize)) * 1024 * 1024;
+    }
+
+    public int getUpdateRefreshInterval() {
+        return Integer.max(0, updateRefreshInterval);
+    }
+
+    public boolean isUpdateRefreshMergeFriendly() {
+        if (updateRefreshMergeFriendly && updateRefreshInterval <= 0) {
+            throw new UsageException("-update-refresh-merge-friendly requires a positive -update-refresh-interval.");
+        }
+        return updateRefreshMergeFriendly;
+    }
 }
@@ -33,6 +33,16 @@ public class PostgresqlConfig {
             """)
     @Nullable private String password = null;
 
+    @Parameter(names = "-binary-copy", category = GROUP, description = """
+            Read places from the database with COPY in binary format instead of regular queries
+            """)
+    private boolean binaryCopy = false;
+
+    @Parameter(names = "-update-chunk-size", category = GROUP, placeholder = "NUM", description = """
+            Number of changed places to read from the database with a single query during updates
+            """)
+    private int updateChunkSize = 1000;
+
     public String getHost() {
         return this.host;
     }
@@ -53,6 +63,14 @@ public class PostgresqlConfig {
         return this.password;
     }
 
+    public boolean isBinaryCopy() {
+        return binaryCopy;
+    }
+
+    public int getUpdateChunkSize() {
+        return Integer.max(1, updateChunkSize);
+    }
+
     @Override
     public String toString() {
         return String.format("database %s at %s:%d (user: %s)", database, host, port, user);
@@ -15,36 +15,49 @@ import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @NullMarked
 public class JsonReader {
     private static final Logger LOGGER = LogManager.getLogger();
 
+    // Number of documents per worker thread that may be waiting for processing.
+    private static final int PENDING_PER_THREAD = 256;
+
+    private final ObjectMapper mapper = configureObjectMapper();
+    private final RecordingInputStream input;
     private final JsonParser parser;
     @Nullable private NominatimDumpHeader header = null;
     private final Map<String, NameMap> countryNames = new HashMap<>();
     private final Map<String, AddressRow> addressCache = new HashMap<>();
+    private String currentCountry = "NONE";
 
     private boolean useFullGeometries = false;
     private ConfigExtraTags extraTags = new ConfigExtraTags();
     private String @Nullable [] countryFilter = null;
     private Set<String> languages = Set.of();
+    private int threads = 1;
 
     public JsonReader(File inputFile) throws IOException {
-        parser = configureObjectMapper().createParser(inputFile);
-        parser.nextToken();
+        this(new FileInputStream(inputFile));
     }
 
     public JsonReader(InputStream inputStream) throws IOException {
-        parser = configureObjectMapper().createParser(inputStream);
+        input = new RecordingInputStream(inputStream);
+        parser = mapper.createParser(input);
         parser.nextToken();
     }
 
-    private ObjectMapper configureObjectMapper() {
+    private static ObjectMapper configureObjectMapper() {
         final var mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         mapper.configure(DeserializationFeature.FAIL_ON_NULL_CREATOR_PROPERTIES, true);
@@ -73,6 +86,14 @@ public class JsonReader {
         this.languages = languages;
     }
 
+    /**
+     * Set the number of worker threads used for parsing and converting
+     * the places in the file.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
     public void readHeader() throws IOException {
         final String docType = readStartDocument();
 
@@ -95,88 +116,175 @@ public class JsonReader {
         return header.getDataTimestamp();
     }
 
+    /**
+     * Read all place documents from the file and hand them to the import thread.
+     * <p>
+     * With more than one thread, the file is processed in a pipeline:
+     * the calling thread only cuts the raw bytes of each place out of the
+     * input, a pool of workers deserializes the places and converts them into Photon documents
+     * and the results are sent to the importer from the worker threads.
+     * Address lines are still completed in file order, so that the address
+     * cache sees exactly the same places as with a single thread.
+     */
     public void readFile(ImportThread importThread) throws IOException {
+        if (threads > 1) {
+            readFileParallel(importThread);
+            return;
+        }
+
         String docType = readStartDocument();
-        String currentCountry = "NONE";
-        boolean isSortedByCountry = header != null && header.isSortedByCountry();
-        boolean hasAddressLines = header == null || header.hasAddressLines();
         while (docType != null) {
             if (NominatimPlaceDocument.DOCUMENT_TYPE.equals(docType)) {
-                NominatimPlaceDocument parseDoc = null;
-                Iterable<PhotonDoc> docs;
-                if (parser.isExpectedStartObjectToken()) {
-                    parseDoc = parsePlaceDocument();
-                    docs = parseDoc.asMultiAddressDocs(countryFilter, languages);
-                } else if (parser.isExpectedStartArrayToken()) {
-                    List<PhotonDoc> docList = new ArrayList<>();
-                    while (parser.nextToken() != JsonToken.END_ARRAY) {
-                        parseDoc = parsePlaceDocument();
-                        final var doc = parseDoc.asSimpleDoc(languages);
-                        if (doc.isUsefulForIndex()
-                                && (countryFilter == null
-                                    || (doc.getCountryCode() != null
-                                        && Arrays.binarySearch(countryFilter, doc.getCountryCode()) >= 0))) {
-                            docList.add(doc);
-                        }
-                    }
-                    docs = docList;
-                } else {
-                    LOGGER.error("Place document must contain object or an array of objects at {}", parser.currentLocation());
-                    throw new UsageException("Invalid json file.");
-                }
+                checkPlaceContent();
+                final var content = readPlaceContent(parser);
+                completeAddresses(content);
+                importThread.addDocument(toPhotonDocs(content));
+            } else if (CountryInfo.DOCUMENT_TYPE.equals(docType)) {
+                readCountryInfo();
+            } else {
+                LOGGER.warn("Unknown document type '{}'. Ignored.", docType);
+                parser.skipChildren();
+            }
 
-                if (parseDoc != null) {
-                    String cc = parseDoc.getCountryCode();
-                    if (isSortedByCountry && cc != null && !currentCountry.equals(cc)) {
-                        addressCache.clear();
-                        currentCountry = cc;
+            readEndDocument();
+            docType = readStartDocument();
+        }
+    }
+
+    private void readFileParallel(ImportThread importThread) throws IOException {
+        final int maxPending = threads * PENDING_PER_THREAD;
+        final var workers = Executors.newFixedThreadPool(threads);
+        final Deque<Future<PlaceContent>> parsing = new ArrayDeque<>();
+        final Deque<Future<?>> converting = new ArrayDeque<>();
+
+        try {
+            String docType = readStartDocument();
+            while (docType != null) {
+                if (NominatimPlaceDocument.DOCUMENT_TYPE.equals(docType)) {
+                    checkPlaceContent();
+                    final byte[] raw = cutCurrentContent();
+                    parsing.add(workers.submit(() -> parsePlaceContent(raw)));
+
+                    while (parsing.size() >= maxPending) {
+                        sequencePlaceContent(waitFor(parsing.poll()), workers, converting, importThread);
                     }
-                    if (hasAddressLines && parseDoc.getPlaceId() != null) {
-                        var row = parseDoc.asAddressRow(languages);
-                        if (row != null) {
-                            addressCache.put(parseDoc.getPlaceId(), row);
-                        }
+                    while (converting.size() >= maxPending) {
+                        waitFor(converting.poll());
                     }
+                } else if (CountryInfo.DOCUMENT_TYPE.equals(docType)) {
+                    // Country names are used during conversion, so all places
+                    // read so far must be finished before they change.
+                    drainPipeline(parsing, workers, converting, importThread);
+                    readCountryInfo();
+                } else {
+                    LOGGER.warn("Unknown document type '{}'. Ignored.", docType);
+                    parser.skipChildren();
                 }
 
-                var it = docs.iterator();
-                if (it.hasNext()) {
-                    while (it.hasNext()) {
-                        var doc = it.next();
-                        if (doc.getCountryCode() != null) {
-                            var names = countryNames.get(doc.getCountryCode());
-                            if (names != null) {
-                                doc.setCountry(names);
-                            }
-                        }
+                readEndDocument();
+                docType = readStartDocument();
+            }
 
-                    }
+            drainPipeline(parsing, workers, converting, importThread);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
 
-                    importThread.addDocument(docs);
-                }
-            } else if (CountryInfo.DOCUMENT_TYPE.equals(docType)) {
-                if (!parser.isExpectedStartArrayToken()) {
-                    LOGGER.error("CountryInfo document must contain an array of objects at {}", parser.currentLocation());
-                    throw new UsageException("Invalid json file.");
-                }
-                while (parser.nextToken() != JsonToken.END_ARRAY) {
-                    var cinfo = parser.readValueAs(CountryInfo.class);
-                    countryNames.put(cinfo.getCountryCode().toUpperCase(),
-                                     NameMap.makeForPlace(cinfo.getName(), languages));
-                }
-            } else {
-                LOGGER.warn("Unknown document type '{}'. Ignored.", docType);
-                parser.skipChildren();
+    private void drainPipeline(Deque<Future<PlaceContent>> parsing, ExecutorService workers,
+                               Deque<Future<?>> converting, ImportThread importThread) throws IOException {
+        while (!parsing.isEmpty()) {
+            sequencePlaceContent(waitFor(parsing.poll()), workers, converting, importThread);
+        }
+        while (!converting.isEmpty()) {
+            waitFor(converting.poll());
+        }
+    }
+
+    private void sequencePlaceContent(PlaceContent content, ExecutorService workers,
+                                      Deque<Future<?>> converting, ImportThread importThread) {
+        completeAddresses(content);
+        converting.add(workers.submit(() -> importThread.addDocument(toPhotonDocs(content))));
+    }
+
+    private static <T> T waitFor(@Nullable Future<T> future) throws IOException {
+        try {
+            return Objects.requireNonNull(future).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
             }
+            throw new RuntimeException(e.getCause());
+        }
+    }
 
-            readEndDocument();
-            docType = readStartDocument();
+    /**
+     * Cut the raw bytes of the content of the current document out of the
+     * input. The content is skipped over without decoding any values.
+     */
+    private byte[] cutCurrentContent() throws IOException {
+        final long from = parser.currentTokenLocation().getByteOffset();
+        if (from < 0) {
+            // Byte offsets are not available for inputs decoded by character.
+            return copyCurrentContent();
         }
+        parser.skipChildren();
+        return input.copyRange(from, parser.currentLocation().getByteOffset());
     }
 
-    private NominatimPlaceDocument parsePlaceDocument() throws IOException {
-        final var doc = parser.readValueAs(NominatimPlaceDocument.class);
+    /**
+     * Copy the content of the current document into a separate buffer
+     * without deserializing it.
+     */
+    private byte[] copyCurrentContent() throws IOException {
+        final var buffer = new ByteArrayOutputStream();
+        try (var generator = mapper.getFactory().createGenerator(buffer)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return buffer.toByteArray();
+    }
+
+    private PlaceContent parsePlaceContent(byte[] raw) throws IOException {
+        try (var contentParser = mapper.createParser(raw)) {
+            contentParser.nextToken();
+            return readPlaceContent(contentParser);
+        }
+    }
 
+    private void checkPlaceContent() {
+        if (!parser.isExpectedStartObjectToken() && !parser.isExpectedStartArrayToken()) {
+            LOGGER.error("Place document must contain object or an array of objects at {}", parser.currentLocation());
+            throw new UsageException("Invalid json file.");
+        }
+    }
+
+    /**
+     * Deserialize the content of a place document. The parser must be
+     * positioned at the start of the content.
+     * <p>
+     * Only works on the place itself and is therefore safe to be
+     * called from multiple threads.
+     */
+    private PlaceContent readPlaceContent(JsonParser contentParser) throws IOException {
+        if (contentParser.isExpectedStartObjectToken()) {
+            return new PlaceContent(List.of(parsePlaceDocument(contentParser)), false);
+        }
+
+        final List<NominatimPlaceDocument> places = new ArrayList<>();
+        while (contentParser.nextToken() != JsonToken.END_ARRAY) {
+            places.add(parsePlaceDocument(contentParser));
+        }
+        return new PlaceContent(places, true);
+    }
+
+    private NominatimPlaceDocument parsePlaceDocument(JsonParser contentParser) throws IOException {
+        final var doc = contentParser.readValueAs(NominatimPlaceDocument.class);
 
         if (!useFullGeometries) {
             doc.disableGeometries();
@@ -184,10 +292,86 @@ public class JsonReader {
 
         doc.filterExtraTags(extraTags);
 
-        doc.completeAddressLines(addressCache);
         return doc;
     }
 
+    /**
+     * Fill in the address lines from the address cache and remember the
+     * place for the following documents. Must be called in file order.
+     */
+    private void completeAddresses(PlaceContent content) {
+        if (content.places.isEmpty()) {
+            return;
+        }
+
+        for (var place : content.places) {
+            place.completeAddressLines(addressCache);
+        }
+
+        final var lastPlace = content.places.get(content.places.size() - 1);
+        final String cc = lastPlace.getCountryCode();
+        if (isSortedByCountry() && cc != null && !currentCountry.equals(cc)) {
+            addressCache.clear();
+            currentCountry = cc;
+        }
+        if (hasAddressLines() && lastPlace.getPlaceId() != null) {
+            var row = lastPlace.asAddressRow(languages);
+            if (row != null) {
+                addressCache.put(lastPlace.getPlaceId(), row);
+            }
+        }
+    }
+
+    private Iterable<PhotonDoc> toPhotonDocs(PlaceContent content) {
+        final Iterable<PhotonDoc> docs;
+        if (content.isArray) {
+            final List<PhotonDoc> docList = new ArrayList<>();
+            for (var place : content.places) {
+                final var doc = place.asSimpleDoc(languages);
+                if (doc.isUsefulForIndex()
+                        && (countryFilter == null
+                            || (doc.getCountryCode() != null
+                                && Arrays.binarySearch(countryFilter, doc.getCountryCode()) >= 0))) {
+                    docList.add(doc);
+                }
+            }
+            docs = docList;
+        } else {
+            docs = content.places.get(0).asMultiAddressDocs(countryFilter, languages);
+        }
+
+        for (var doc : docs) {
+            if (doc.getCountryCode() != null) {
+                var names = countryNames.get(doc.getCountryCode());
+                if (names != null) {
+                    doc.setCountry(names);
+                }
+            }
+        }
+
+        return docs;
+    }
+
+    private void readCountryInfo() throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            LOGGER.error("CountryInfo document must contain an array of objects at {}", parser.currentLocation());
+            throw new UsageException("Invalid json file.");
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            var cinfo = parser.readValueAs(CountryInfo.class);
+            countryNames.put(cinfo.getCountryCode().toUpperCase(),
+                             NameMap.makeForPlace(cinfo.getName(), languages));
+        }
+    }
+
+    private boolean isSortedByCountry() {
+        return header != null && header.isSortedByCountry();
+    }
+
+    private boolean hasAddressLines() {
+        return header == null || header.hasAddressLines();
+    }
+
     @Nullable
     private String readStartDocument() throws IOException {
         if (!parser.hasCurrentToken()) {
@@ -235,5 +419,11 @@ public class JsonReader {
             parser.skipChildren().nextToken();
         }
         parser.nextToken();
+
+        // Everything up to the next document has been dealt with.
+        final long offset = parser.currentTokenLocation().getByteOffset();
+        input.discardBefore(offset < 0 || !parser.hasCurrentToken() ? Long.MAX_VALUE : offset);
     }
+
+    private record PlaceContent(List<NominatimPlaceDocument> places, boolean isArray) {}
 }
@@ -0,0 +1,97 @@
+package de.komoot.photon.json;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Input stream which keeps the bytes it has read, so that the raw text
+ * of a document can still be cut out by its byte offsets after the parser
+ * has moved past it.
+ * <p>
+ * Bytes which are no longer needed must be released with {@link #discardBefore}.
+ * Not thread-safe.
+ */
+@NullMarked
+class RecordingInputStream extends FilterInputStream {
+    private byte[] buffer = new byte[64 * 1024];
+    // Kept bytes are buffer[start] to buffer[end - 1].
+    private int start = 0;
+    private int end = 0;
+    // Position of buffer[start] in the stream.
+    private long startOffset = 0;
+
+    RecordingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = in.read();
+        if (b >= 0) {
+            append(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int n = in.read(b, off, len);
+        if (n > 0) {
+            append(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes must be recorded as well to keep the offsets right.
+        final int read = read(new byte[(int) Math.min(n, 8192)]);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Get a copy of the bytes between the given stream offsets.
+     */
+    byte[] copyRange(long from, long to) {
+        if (from < startOffset || to > startOffset + (end - start) || from > to) {
+            throw new IllegalStateException("Byte range " + from + "-" + to + " is no longer available.");
+        }
+        final int first = start + (int) (from - startOffset);
+        return Arrays.copyOfRange(buffer, first, first + (int) (to - from));
+    }
+
+    /**
+     * Release all bytes before the given stream offset.
+     */
+    void discardBefore(long offset) {
+        final long drop = Math.min(offset - startOffset, end - start);
+        if (drop > 0) {
+            start += (int) drop;
+            startOffset += drop;
+        }
+    }
+
+    private void append(byte[] b, int off, int len) {
+        if (end + len > buffer.length) {
+            final int kept = end - start;
+            final byte[] target = kept + len > buffer.length / 2
+                    ? new byte[Math.max(2 * buffer.length, kept + len)]
+                    : buffer;
+            System.arraycopy(buffer, start, target, 0, kept);
+            buffer = target;
+            start = 0;
+            end = kept;
+        }
+        System.arraycopy(b, off, buffer, end, len);
+        end += len;
+    }
+}
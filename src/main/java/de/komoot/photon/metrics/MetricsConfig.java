@@ -1,5 +1,9 @@
 package de.komoot.photon.metrics;
 
+import de.komoot.photon.nominatim.NominatimUpdater;
+import de.komoot.photon.opensearch.RefreshScheduler;
+import de.komoot.photon.searcher.ResultCache;
+import de.komoot.photon.searcher.SearchStats;
 import io.javalin.micrometer.MicrometerPlugin;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -20,11 +24,14 @@ import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.opensearch.client.opensearch.OpenSearchClient;
 
+import java.util.function.Consumer;
+
 @NullMarked
 public class MetricsConfig {
     private static final Logger LOGGER = LogManager.getLogger();
     @Nullable private MicrometerPlugin micrometerPlugin;
     @Nullable private PrometheusMeterRegistry registry;
+    @Nullable private RefreshScheduler refreshScheduler;
     private final String path = "/metrics";
 
     private MetricsConfig() {
@@ -75,6 +82,53 @@ public class MetricsConfig {
         return micrometerPlugin;
     }
 
+    /**
+     * Export the statistics of the given cache, when metrics are enabled.
+     */
+    public void registerResultCache(String cacheName, ResultCache<?, ?> cache) {
+        if (registry != null) {
+            new ResultCacheMetrics(cacheName, cache).bindTo(registry);
+        }
+    }
+
+    /**
+     * Export the refreshes done after updates, when metrics are enabled.
+     * Must be called before the search statistics recorders are created,
+     * so that they relate the search latency to the refreshes.
+     */
+    public void registerRefreshScheduler(RefreshScheduler scheduler) {
+        if (registry != null) {
+            new RefreshMetrics(scheduler).bindTo(registry);
+            refreshScheduler = scheduler;
+        }
+    }
+
+    /**
+     * Create a receiver for the processing statistics of the given search
+     * endpoint. Statistics are dropped when metrics are disabled.
+     */
+    public Consumer<SearchStats> searchStatsRecorder(String endpoint) {
+        if (registry == null) {
+            return stats -> {};
+        }
+        final Consumer<SearchStats> recorder = new SearchStageMetrics(registry, endpoint);
+        if (refreshScheduler == null) {
+            return recorder;
+        }
+        return recorder.andThen(new RefreshLatencyMetrics(registry, endpoint, refreshScheduler));
+    }
+
+    /**
+     * Create a receiver for the summaries of the update runs. Summaries
+     * are dropped when metrics are disabled.
+     */
+    public Consumer<NominatimUpdater.UpdateSummary> updateStatsRecorder() {
+        if (registry == null) {
+            return summary -> {};
+        }
+        return new UpdateMetrics(registry);
+    }
+
     public PrometheusMeterRegistry getRegistry() {
         if (registry == null) {
             throw new IllegalStateException("PrometheusMeterRegistry not initialized.");
@@ -87,7 +87,9 @@ public class OpenSearchMetrics implements MeterBinder {
 
         try {
             documentCount = client.count(c -> c.index(PhotonIndex.NAME)).count();
-            var stats = client.indices().stats(s -> s.index(PhotonIndex.NAME)).indices().get(PhotonIndex.NAME);
+            // The statistics are keyed by the name of the index behind the alias.
+            var stats = client.indices().stats(s -> s.index(PhotonIndex.NAME)).indices().values().stream()
+                    .findFirst().orElse(null);
             if (stats != null) {
                 if (stats.primaries().store() != null) {
                     indexSizeBytes = stats.primaries().store().sizeInBytes();
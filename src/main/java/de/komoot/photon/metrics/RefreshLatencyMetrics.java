@@ -0,0 +1,51 @@
+package de.komoot.photon.metrics;
+
+import de.komoot.photon.opensearch.RefreshScheduler;
+import de.komoot.photon.searcher.SearchStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Records the processing time of searches separately for the time right
+ * after a refresh, when the caches of the database are cold, and the
+ * rest of the time.
+ */
+@NullMarked
+public class RefreshLatencyMetrics implements Consumer<SearchStats> {
+    /** Time after a refresh during which searches count as following the refresh. */
+    private static final long AFTER_REFRESH_MILLIS = 10_000;
+
+    private final RefreshScheduler scheduler;
+    private final Timer afterRefresh;
+    private final Timer steady;
+
+    public RefreshLatencyMetrics(MeterRegistry registry, String endpoint, RefreshScheduler scheduler) {
+        this.scheduler = scheduler;
+        afterRefresh = makeTimer(registry, endpoint, "after_refresh");
+        steady = makeTimer(registry, endpoint, "steady");
+    }
+
+    private static Timer makeTimer(MeterRegistry registry, String endpoint, String phase) {
+        return Timer.builder("photon.search.refresh.latency")
+                .description("Processing time of search requests depending on the time since the last refresh")
+                .tag("endpoint", endpoint)
+                .tag("phase", phase)
+                .register(registry);
+    }
+
+    @Override
+    public void accept(SearchStats stats) {
+        long nanos = 0;
+        for (var stage : SearchStats.Stage.values()) {
+            nanos += stats.getStageNanos(stage);
+        }
+
+        final long last = scheduler.getLastRefreshMillis();
+        final boolean recent = last > 0 && System.currentTimeMillis() - last < AFTER_REFRESH_MILLIS;
+        (recent ? afterRefresh : steady).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
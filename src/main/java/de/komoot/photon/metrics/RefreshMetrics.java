@@ -0,0 +1,42 @@
+package de.komoot.photon.metrics;
+
+import de.komoot.photon.opensearch.RefreshScheduler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the refresh events caused by updates.
+ */
+@NullMarked
+public class RefreshMetrics implements MeterBinder {
+    private final RefreshScheduler scheduler;
+
+    public RefreshMetrics(RefreshScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("photon.update.refresh.requests", scheduler, RefreshScheduler::getRequestCount)
+                .description("Number of update runs asking for their changes to become visible")
+                .register(registry);
+        FunctionTimer.builder("photon.update.refresh", scheduler,
+                        RefreshScheduler::getRefreshCount, RefreshScheduler::getRefreshSeconds, TimeUnit.SECONDS)
+                .description("Refreshes of the database done by photon after updates")
+                .register(registry);
+        Gauge.builder("photon.update.refresh.age", scheduler, RefreshMetrics::secondsSinceRefresh)
+                .description("Time in seconds since the last refresh done by photon")
+                .register(registry);
+    }
+
+    private static double secondsSinceRefresh(RefreshScheduler scheduler) {
+        final long last = scheduler.getLastRefreshMillis();
+        return last == 0 ? Double.NaN : (System.currentTimeMillis() - last) / 1000.0;
+    }
+}
@@ -0,0 +1,48 @@
+package de.komoot.photon.metrics;
+
+import de.komoot.photon.searcher.ResultCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Exports usage statistics of a result cache.
+ */
+@NullMarked
+public class ResultCacheMetrics implements MeterBinder {
+    private final String cacheName;
+    private final ResultCache<?, ?> cache;
+
+    public ResultCacheMetrics(String cacheName, ResultCache<?, ?> cache) {
+        this.cacheName = cacheName;
+        this.cache = cache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("photon.cache.hits", cache, ResultCache::getHitCount)
+                .tag("cache", cacheName).register(registry);
+        FunctionCounter.builder("photon.cache.misses", cache, ResultCache::getMissCount)
+                .tag("cache", cacheName).register(registry);
+        FunctionCounter.builder("photon.cache.evictions", cache, ResultCache::getEvictionCount)
+                .tag("cache", cacheName).register(registry);
+        FunctionCounter.builder("photon.cache.expirations", cache, ResultCache::getExpirationCount)
+                .tag("cache", cacheName).register(registry);
+        FunctionCounter.builder("photon.cache.invalidations", cache, ResultCache::getInvalidationCount)
+                .tag("cache", cacheName).register(registry);
+        Gauge.builder("photon.cache.hit.ratio", cache, ResultCacheMetrics::hitRatio)
+                .tag("cache", cacheName).register(registry);
+        Gauge.builder("photon.cache.size", cache, ResultCache::getSize)
+                .tag("cache", cacheName).register(registry);
+        Gauge.builder("photon.cache.weight", cache, ResultCache::getWeight)
+                .tag("cache", cacheName).register(registry);
+    }
+
+    private static double hitRatio(ResultCache<?, ?> cache) {
+        final long hits = cache.getHitCount();
+        final long total = hits + cache.getMissCount();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
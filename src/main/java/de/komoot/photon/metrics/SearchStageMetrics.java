@@ -0,0 +1,78 @@
+package de.komoot.photon.metrics;
+
+import de.komoot.photon.searcher.SearchStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Exports the per-stage statistics of the requests to one search endpoint.
+ */
+@NullMarked
+public class SearchStageMetrics implements Consumer<SearchStats> {
+    private final Map<SearchStats.Stage, Timer> stageTimers = new EnumMap<>(SearchStats.Stage.class);
+    private final Timer databaseTook;
+    private final Counter databaseRequests;
+    private final Counter lenientFallbacks;
+    private final DistributionSummary candidates;
+    private final Counter dedupeDropped;
+
+    public SearchStageMetrics(MeterRegistry registry, String endpoint) {
+        for (var stage : SearchStats.Stage.values()) {
+            stageTimers.put(stage, Timer.builder("photon.search.stage")
+                    .description("Time spent in the stages of processing a search request")
+                    .tag("endpoint", endpoint)
+                    .tag("stage", stage.getName())
+                    .register(registry));
+        }
+        databaseTook = Timer.builder("photon.search.database.took")
+                .description("Processing time of search requests as reported by the database")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        databaseRequests = Counter.builder("photon.search.database.requests")
+                .description("Number of requests sent to the database")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        lenientFallbacks = Counter.builder("photon.search.lenient.fallback")
+                .description("Number of searches which used the results of a lenient fallback query")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        candidates = DistributionSummary.builder("photon.search.candidates")
+                .description("Number of result candidates returned by the database per search")
+                .tag("endpoint", endpoint)
+                .register(registry);
+        dedupeDropped = Counter.builder("photon.search.dedupe.dropped")
+                .description("Number of results removed as duplicates")
+                .tag("endpoint", endpoint)
+                .register(registry);
+    }
+
+    @Override
+    public void accept(SearchStats stats) {
+        for (var entry : stageTimers.entrySet()) {
+            final long nanos = stats.getStageNanos(entry.getKey());
+            if (nanos > 0) {
+                entry.getValue().record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (stats.getDatabaseRequests() > 0) {
+            databaseTook.record(stats.getDatabaseTookMillis(), TimeUnit.MILLISECONDS);
+            databaseRequests.increment(stats.getDatabaseRequests());
+            candidates.record(stats.getCandidates());
+        }
+        if (stats.isLenientFallback()) {
+            lenientFallbacks.increment();
+        }
+        if (stats.getDedupeDropped() > 0) {
+            dedupeDropped.increment(stats.getDedupeDropped());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package de.komoot.photon.metrics;
+
+import de.komoot.photon.nominatim.NominatimUpdater;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jspecify.annotations.NullMarked;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Exports the statistics of the update runs.
+ */
+@NullMarked
+public class UpdateMetrics implements Consumer<NominatimUpdater.UpdateSummary> {
+    private final Timer lag;
+    private final Timer duration;
+    private final DistributionSummary batchSize;
+
+    public UpdateMetrics(MeterRegistry registry) {
+        lag = Timer.builder("photon.update.lag")
+                .description("Time between a change being recorded in the Nominatim database and being applied;"
+                        + " measured for the oldest change of each update run")
+                .register(registry);
+        duration = Timer.builder("photon.update.duration")
+                .description("Time needed for an update run")
+                .register(registry);
+        batchSize = DistributionSummary.builder("photon.update.batch.size")
+                .description("Number of changed places applied per update run")
+                .register(registry);
+    }
+
+    @Override
+    public void accept(NominatimUpdater.UpdateSummary summary) {
+        duration.record(summary.durationMillis(), TimeUnit.MILLISECONDS);
+        batchSize.record(summary.changes());
+        final var oldestChange = summary.oldestChange();
+        if (oldestChange != null) {
+            lag.record(Math.max(0, System.currentTimeMillis() - oldestChange.getTime()), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package de.komoot.photon.nominatim;
+
+import org.jspecify.annotations.NullMarked;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyInputStream;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Runs queries through PostgreSQL's COPY in binary format instead of
+ * fetching the rows through a regular JDBC result set.
+ * <p>
+ * The binary format avoids the conversion of all values into text on the
+ * server and the parsing of the text on the client. This is noticeably
+ * faster for the large reads of a full import, in particular for hstore
+ * columns and geometries.
+ */
+@NullMarked
+public class BinaryCopyReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String SETTING_PREFIX = "photon.copy_arg";
+
+    private final JdbcTemplate template;
+
+    public BinaryCopyReader(JdbcTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * Return the SQL expression to use in a query for the argument at the given
+     * position (starting with 1).
+     * <p>
+     * COPY does not support bind parameters. The arguments are therefore bound
+     * in a prepared statement to session settings of the connection, and the
+     * query reads them back from there.
+     */
+    public static String argument(int position, String sqlType) {
+        return "current_setting('" + SETTING_PREFIX + position + "')::" + sqlType;
+    }
+
+    /**
+     * Run the given query and hand every row to the row handler.
+     *
+     * @param sql  The query. It must refer to its arguments with {@link #argument(int, String)}.
+     * @param args Values of the arguments, in order of their position.
+     */
+    public void query(String sql, Object[] args, RowHandler handler) {
+        final DataSource dataSource = Objects.requireNonNull(template.getDataSource());
+        final var connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            bindArguments(connection, args);
+            final BinaryCopyRow row = describe(connection, sql);
+
+            final var copySql = "COPY (" + sql + ") TO STDOUT (FORMAT binary)";
+            try (var in = new DataInputStream(new BufferedInputStream(
+                    new PGCopyInputStream(connection.unwrap(PGConnection.class), copySql), BUFFER_SIZE))) {
+                BinaryCopyRow.readHeader(in);
+                while (row.next(in)) {
+                    handler.processRow(row);
+                }
+            }
+        } catch (SQLException | IOException e) {
+            throw new DataRetrievalFailureException("Binary copy failed for: " + sql, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static void bindArguments(Connection connection, Object[] args) throws SQLException {
+        if (args.length == 0) {
+            return;
+        }
+        try (var stmt = connection.prepareStatement("SELECT set_config(?, ?, false)")) {
+            for (int i = 0; i < args.length; ++i) {
+                stmt.setString(1, SETTING_PREFIX + (i + 1));
+                stmt.setString(2, args[i].toString());
+                stmt.execute();
+            }
+        }
+    }
+
+    /**
+     * Get names and types of the result columns without running the query.
+     */
+    private static BinaryCopyRow describe(Connection connection, String sql) throws SQLException {
+        try (var stmt = connection.createStatement();
+             var rs = stmt.executeQuery("SELECT * FROM (" + sql + ") AS copy_query LIMIT 0")) {
+            final var meta = rs.getMetaData();
+            final String[] names = new String[meta.getColumnCount()];
+            final BinaryCopyRow.ColumnType[] types = new BinaryCopyRow.ColumnType[names.length];
+            for (int i = 0; i < names.length; ++i) {
+                names[i] = meta.getColumnLabel(i + 1);
+                types[i] = BinaryCopyRow.ColumnType.fromTypeName(meta.getColumnTypeName(i + 1));
+            }
+            return new BinaryCopyRow(names, types);
+        }
+    }
+}
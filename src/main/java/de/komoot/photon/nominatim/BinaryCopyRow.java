@@ -0,0 +1,291 @@
+package de.komoot.photon.nominatim;
+
+import de.komoot.photon.nominatim.model.RowAccessor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+
+import java.io.DataInput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Current row of a PostgreSQL COPY in binary format.
+ * <p>
+ * The fields of the row are kept in their binary representation and
+ * only decoded when they are accessed. hstore columns and geometries are
+ * decoded directly from their binary representation.
+ */
+@NullMarked
+class BinaryCopyRow implements RowAccessor {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+    private static final byte[] SIGNATURE = "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+
+    enum ColumnType {
+        INT2, INT4, INT8, FLOAT4, FLOAT8, NUMERIC, BOOL, TEXT, JSONB, HSTORE, GEOMETRY, BYTEA;
+
+        /**
+         * Get the column type from the PostgreSQL type name.
+         *
+         * @throws IllegalArgumentException when the type cannot be decoded.
+         */
+        static ColumnType fromTypeName(String typeName) {
+            return switch (typeName.toLowerCase(Locale.ROOT)) {
+                case "int2", "smallint" -> INT2;
+                case "int4", "integer", "serial" -> INT4;
+                case "int8", "bigint", "bigserial" -> INT8;
+                case "float4", "real" -> FLOAT4;
+                case "float8", "double precision" -> FLOAT8;
+                case "numeric" -> NUMERIC;
+                case "bool", "boolean" -> BOOL;
+                case "text", "varchar", "bpchar", "char", "name", "json" -> TEXT;
+                case "jsonb" -> JSONB;
+                case "hstore" -> HSTORE;
+                case "geometry" -> GEOMETRY;
+                case "bytea" -> BYTEA;
+                default -> throw new IllegalArgumentException("Column type '" + typeName + "' not supported for binary copy.");
+            };
+        }
+    }
+
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final ColumnType[] types;
+    private final byte[] @Nullable [] fields;
+    private boolean lastWasNull = false;
+
+    BinaryCopyRow(String[] columnNames, ColumnType[] types) {
+        for (int i = 0; i < columnNames.length; ++i) {
+            columnIndex.putIfAbsent(columnNames[i].toLowerCase(Locale.ROOT), i);
+        }
+        this.types = types;
+        this.fields = new byte[types.length][];
+    }
+
+    /**
+     * Check and skip the header of a binary COPY stream.
+     */
+    static void readHeader(DataInput in) throws IOException {
+        final byte[] signature = new byte[SIGNATURE.length];
+        in.readFully(signature);
+        for (int i = 0; i < SIGNATURE.length; ++i) {
+            if (signature[i] != SIGNATURE[i]) {
+                throw new IOException("Not a binary COPY stream.");
+            }
+        }
+        in.readInt(); // flags
+        in.skipBytes(in.readInt()); // header extension
+    }
+
+    /**
+     * Read the next row from the stream.
+     *
+     * @return False, when the end of the data has been reached.
+     */
+    boolean next(DataInput in) throws IOException {
+        final short numFields;
+        try {
+            numFields = in.readShort();
+        } catch (EOFException e) {
+            return false;
+        }
+        if (numFields == -1) {
+            return false;
+        }
+        if (numFields != types.length) {
+            throw new IOException("Expected " + types.length + " fields in binary COPY row, got " + numFields);
+        }
+
+        for (int i = 0; i < numFields; ++i) {
+            final int len = in.readInt();
+            if (len < 0) {
+                fields[i] = null;
+            } else {
+                final byte[] field = new byte[len];
+                in.readFully(field);
+                fields[i] = field;
+            }
+        }
+
+        return true;
+    }
+
+    int findColumn(String columnName) throws SQLException {
+        final Integer idx = columnIndex.get(columnName.toLowerCase(Locale.ROOT));
+        if (idx == null) {
+            throw new SQLException("Unknown column '" + columnName + "'.");
+        }
+        return idx;
+    }
+
+    /**
+     * Return the raw binary content of the column or null if the column is NULL.
+     */
+    byte @Nullable [] getBytes(int idx) {
+        final byte[] field = fields[idx];
+        lastWasNull = field == null;
+        return field;
+    }
+
+    ColumnType getType(int idx) {
+        return types[idx];
+    }
+
+    @Override
+    public boolean wasNull() {
+        return lastWasNull;
+    }
+
+    @Nullable
+    Object getObject(int idx) throws SQLException {
+        final byte[] field = getBytes(idx);
+        if (field == null) {
+            return null;
+        }
+
+        final ByteBuffer buf = ByteBuffer.wrap(field);
+        return switch (types[idx]) {
+            case INT2 -> (int) buf.getShort();
+            case INT4 -> buf.getInt();
+            case INT8 -> buf.getLong();
+            case FLOAT4 -> buf.getFloat();
+            case FLOAT8 -> buf.getDouble();
+            case NUMERIC -> decodeNumeric(buf);
+            case BOOL -> field[0] != 0;
+            case TEXT -> new String(field, StandardCharsets.UTF_8);
+            // jsonb starts with a version byte, the rest is the text representation
+            case JSONB -> new String(field, 1, field.length - 1, StandardCharsets.UTF_8);
+            case HSTORE -> decodeHstore(buf);
+            case GEOMETRY, BYTEA -> field;
+        };
+    }
+
+    @Nullable
+    String getString(int idx) throws SQLException {
+        final Object value = getObject(idx);
+        return value == null ? null : value.toString();
+    }
+
+    long getLong(int idx) throws SQLException {
+        return getObject(idx) instanceof Number num ? num.longValue() : 0;
+    }
+
+    int getInt(int idx) throws SQLException {
+        return getObject(idx) instanceof Number num ? num.intValue() : 0;
+    }
+
+    double getDouble(int idx) throws SQLException {
+        return getObject(idx) instanceof Number num ? num.doubleValue() : 0.0;
+    }
+
+    boolean getBoolean(int idx) throws SQLException {
+        return getObject(idx) instanceof Boolean bool && bool;
+    }
+
+    @Override
+    public @Nullable String getString(String columnName) throws SQLException {
+        return getString(findColumn(columnName));
+    }
+
+    @Override
+    public long getLong(String columnName) throws SQLException {
+        return getLong(findColumn(columnName));
+    }
+
+    @Override
+    public int getInt(String columnName) throws SQLException {
+        return getInt(findColumn(columnName));
+    }
+
+    @Override
+    public double getDouble(String columnName) throws SQLException {
+        return getDouble(findColumn(columnName));
+    }
+
+    @Override
+    public @Nullable Object getObject(String columnName) throws SQLException {
+        return getObject(findColumn(columnName));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getMap(String columnName) throws SQLException {
+        final var map = (Map<String, String>) getObject(findColumn(columnName));
+
+        return map == null ? new HashMap<>() : map;
+    }
+
+    @Override
+    public @Nullable Geometry getGeometry(String columnName) throws SQLException {
+        final byte[] ewkb = getBytes(findColumn(columnName));
+        if (ewkb == null) {
+            return null;
+        }
+
+        try {
+            return new WKBReader(GEOMETRY_FACTORY).read(ewkb);
+        } catch (ParseException e) {
+            LOGGER.error("Cannot parse database geometry in column {}", columnName, e);
+            return null;
+        }
+    }
+
+    private static Map<String, String> decodeHstore(ByteBuffer buf) {
+        final int count = buf.getInt();
+        final Map<String, String> map = new HashMap<>(Math.max(4, count * 4 / 3 + 1));
+        for (int i = 0; i < count; ++i) {
+            final String key = readString(buf, buf.getInt());
+            final int valueLen = buf.getInt();
+            map.put(key, valueLen < 0 ? null : readString(buf, valueLen));
+        }
+        return map;
+    }
+
+    private static String readString(ByteBuffer buf, int len) {
+        final String s = new String(buf.array(), buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        return s;
+    }
+
+    /**
+     * Decode a numeric from its binary representation: a sequence
+     * of base-10000 digits with the weight of the first digit.
+     */
+    static Number decodeNumeric(ByteBuffer buf) {
+        final int ndigits = buf.getShort();
+        final int weight = buf.getShort();
+        final int sign = buf.getShort() & 0xFFFF;
+        final int dscale = buf.getShort();
+
+        if (sign == 0xC000) {
+            return Double.NaN;
+        }
+
+        BigInteger unscaled = BigInteger.ZERO;
+        for (int i = 0; i < ndigits; ++i) {
+            unscaled = unscaled.multiply(BigInteger.valueOf(10000)).add(BigInteger.valueOf(buf.getShort()));
+        }
+        // the last digit read has the weight (weight - ndigits + 1)
+        BigDecimal value = new BigDecimal(unscaled, 4 * (ndigits - weight - 1));
+        if (sign == 0x4000) {
+            value = value.negate();
+        }
+
+        return value.setScale(dscale, RoundingMode.DOWN);
+    }
+}
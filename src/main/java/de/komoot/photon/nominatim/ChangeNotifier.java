@@ -0,0 +1,23 @@
+package de.komoot.photon.nominatim;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.sql.SQLException;
+
+/**
+ * Source of notifications about new changes in the Nominatim database.
+ */
+@NullMarked
+public interface ChangeNotifier extends AutoCloseable {
+    /**
+     * Wait for new notifications. All notifications which have arrived
+     * are consumed.
+     *
+     * @param timeoutMillis Maximum time to wait.
+     * @return True, when at least one notification has arrived.
+     */
+    boolean await(long timeoutMillis) throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+}
@@ -0,0 +1,133 @@
+package de.komoot.photon.nominatim;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.NullMarked;
+
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Applies changes from the Nominatim database continuously.
+ * <p>
+ * The update triggers notify photon about new changes. The changes are
+ * collected for a short time window and then applied together, unless
+ * enough changes are pending to start right away. When no notification
+ * arrives for a while, the pending changes are checked anyway, so that no
+ * changes are left behind when notifications get lost or the triggers were
+ * created by an older version of photon.
+ */
+@NullMarked
+public class ContinuousUpdater implements Runnable {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Maximum time to wait for a notification before checking for changes anyway. */
+    private static final long POLL_INTERVAL_MS = 60_000;
+    /** Time to wait before listening again after an error. */
+    private static final long RETRY_DELAY_MS = 10_000;
+    /** Time to wait before trying again when another update run is in progress. */
+    private static final long BUSY_RETRY_DELAY_MS = 10_000;
+
+    private final NominatimUpdater updater;
+    private final long windowMillis;
+    private final int batchSize;
+    private final Consumer<NominatimUpdater.UpdateSummary> afterUpdate;
+    private volatile boolean stopped = false;
+
+    /**
+     * Create a new update loop.
+     *
+     * @param windowMillis Time to collect changes before applying them.
+     * @param batchSize Number of pending changes after which the changes are
+     *                  applied without waiting for the end of the time window.
+     * @param afterUpdate Called after each update run with a summary of the run.
+     */
+    public ContinuousUpdater(NominatimUpdater updater, long windowMillis, int batchSize,
+                             Consumer<NominatimUpdater.UpdateSummary> afterUpdate) {
+        this.updater = updater;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.afterUpdate = afterUpdate;
+    }
+
+    @Override
+    public void run() {
+        LOGGER.info("Listening for changes in the Nominatim database.");
+        while (!stopped) {
+            try (var notifier = updater.listenForChanges()) {
+                listen(notifier);
+            } catch (SQLException | RuntimeException e) {
+                if (stopped) {
+                    break;
+                }
+                LOGGER.error("Error during continuous updates. Retrying in {} seconds.", RETRY_DELAY_MS / 1000, e);
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        LOGGER.info("Stopped continuous updates.");
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    void listen(ChangeNotifier notifier) throws SQLException {
+        // Changes recorded before listening started have not been announced.
+        boolean pending = updater.countPendingChanges(1) > 0;
+
+        while (!stopped) {
+            if (pending) {
+                collectChanges(notifier);
+                if (!apply()) {
+                    waitWhileBusy(notifier);
+                }
+            } else {
+                notifier.await(POLL_INTERVAL_MS);
+            }
+            pending = !stopped && updater.countPendingChanges(1) > 0;
+        }
+    }
+
+    /**
+     * Wait until the time window is over or enough changes are pending.
+     */
+    private void collectChanges(ChangeNotifier notifier) throws SQLException {
+        final long deadline = System.currentTimeMillis() + windowMillis;
+        long remaining = windowMillis;
+        while (!stopped && remaining > 0 && updater.countPendingChanges(batchSize) < batchSize) {
+            notifier.await(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Give another update run, e.g. one started through the update API,
+     * time to finish instead of asking again right away.
+     */
+    private void waitWhileBusy(ChangeNotifier notifier) throws SQLException {
+        final long deadline = System.currentTimeMillis() + BUSY_RETRY_DELAY_MS;
+        long remaining = BUSY_RETRY_DELAY_MS;
+        while (!stopped && remaining > 0) {
+            notifier.await(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @return False, when the changes could not be applied because another
+     *         update run is in progress.
+     */
+    private boolean apply() {
+        final var summary = updater.update();
+        if (summary == null) {
+            return false;
+        }
+        afterUpdate.accept(summary);
+        return true;
+    }
+}
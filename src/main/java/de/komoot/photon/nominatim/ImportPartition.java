@@ -0,0 +1,90 @@
+package de.komoot.photon.nominatim;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Part of a country that can be read independently from the Nominatim database.
+ * <p>
+ * A partition covers all places of the country with a place ID
+ * between fromPlaceId (inclusive) and toPlaceId (exclusive).
+ * A missing bound means that the range is open on that side.
+ */
+@NullMarked
+public record ImportPartition(String countryCode, @Nullable Long fromPlaceId, @Nullable Long toPlaceId,
+                              long estimatedRows) {
+    // Countries smaller than this are never split.
+    static final long MIN_PARTITION_ROWS = 100_000;
+    // Aim for this many partitions per thread, so that the threads finish at about the same time.
+    static final int PARTITIONS_PER_THREAD = 4;
+
+    /**
+     * Create a partition covering the complete country.
+     */
+    public static ImportPartition forCountry(String countryCode) {
+        return new ImportPartition(countryCode, null, null, 0);
+    }
+
+    /**
+     * Split the given countries into partitions of roughly equal size.
+     *
+     * @param countries      Countries to import.
+     * @param estimatedRows  Estimated number of places per country.
+     * @param placeIdBounds  Sorted place IDs splitting the whole table into
+     *                       ranges of roughly equal size.
+     * @param numThreads     Number of threads reading in parallel.
+     * @return The partitions, largest first.
+     */
+    public static List<ImportPartition> plan(String[] countries, Map<String, Long> estimatedRows,
+                                             long[] placeIdBounds, int numThreads) {
+        long total = 0;
+        for (var country : countries) {
+            total += estimatedRows.getOrDefault(country, 0L);
+        }
+        final long targetRows = Math.max(MIN_PARTITION_ROWS,
+                total / ((long) Math.max(1, numThreads) * PARTITIONS_PER_THREAD));
+        final int numRanges = placeIdBounds.length - 1;
+
+        final List<ImportPartition> partitions = new ArrayList<>();
+        for (var country : countries) {
+            final long rows = estimatedRows.getOrDefault(country, 0L);
+            final int parts = (int) Math.max(1, Math.min(numRanges, (rows + targetRows - 1) / targetRows));
+
+            if (parts == 1) {
+                partitions.add(new ImportPartition(country, null, null, rows));
+            } else {
+                for (int i = 0; i < parts; ++i) {
+                    partitions.add(new ImportPartition(
+                            country,
+                            i == 0 ? null : placeIdBounds[(int) ((long) i * numRanges / parts)],
+                            i == parts - 1 ? null : placeIdBounds[(int) ((long) (i + 1) * numRanges / parts)],
+                            rows / parts));
+                }
+            }
+        }
+
+        partitions.sort(Comparator.comparingLong(ImportPartition::estimatedRows).reversed());
+
+        return partitions;
+    }
+
+    public boolean isCompleteCountry() {
+        return fromPlaceId == null && toPlaceId == null;
+    }
+
+    @Override
+    public String toString() {
+        if (isCompleteCountry()) {
+            return String.format("country '%s'", countryCode);
+        }
+
+        return String.format("country '%s' (place_id %s to %s)", countryCode,
+                fromPlaceId == null ? "start" : fromPlaceId,
+                toPlaceId == null ? "end" : toPlaceId);
+    }
+}
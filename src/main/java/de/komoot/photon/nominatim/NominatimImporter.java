@@ -9,10 +9,13 @@ import de.komoot.photon.nominatim.model.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
 import java.sql.Types;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Importer for data from a Nominatim database.
@@ -21,12 +24,15 @@ import java.util.Map;
 public class NominatimImporter extends NominatimConnector {
     private static final Logger LOGGER = LogManager.getLogger();
 
+    private final boolean useBinaryCopy;
+
     public NominatimImporter(PostgresqlConfig config, DatabaseProperties dbProperties) {
         this(config, new PostgisDataAdapter(), dbProperties);
     }
 
     public NominatimImporter(PostgresqlConfig config, DBDataAdapter dataAdapter, DatabaseProperties dbProperties) {
         super(config, dataAdapter, dbProperties);
+        useBinaryCopy = config.isBinaryCopy();
     }
 
 
@@ -35,43 +41,89 @@ public class NominatimImporter extends NominatimConnector {
      * for the given country. Also imports place from country-less places.
      */
     public void readCountry(String countryCode, ImportThread importThread) {
-        final var cnames = loadCountryNames(dbProperties.getLanguages()).get(countryCode);
+        final var cnames = findCountryNames(countryCode);
         if (cnames == null) {
-            LOGGER.warn("Unknown country code {}. Skipping.", countryCode);
             return;
         }
 
-        final String countrySQL;
-        final Object[] sqlArgs;
-        final int[] sqlArgTypes;
-        if (countryCode.isEmpty()) {
-            countrySQL = "country_code is null";
-            sqlArgs = new Object[0];
-            sqlArgTypes = new int[0];
-        } else {
-            countrySQL = "country_code = ?";
-            sqlArgs = new Object[]{countryCode};
-            sqlArgTypes = new int[]{Types.VARCHAR};
+        readPartition(ImportPartition.forCountry(countryCode), cnames, loadAddressCache(countryCode), importThread);
+    }
+
+    /**
+     * Look up the names of the given country.
+     *
+     * @return The country names or null, when the country is unknown
+     *         and should be skipped.
+     */
+    @Nullable
+    public NameMap findCountryNames(String countryCode) {
+        final var cnames = loadCountryNames(dbProperties.getLanguages()).get(countryCode);
+        if (cnames == null) {
+            LOGGER.warn("Unknown country code {}. Skipping.", countryCode);
         }
+        return cnames;
+    }
 
+    /**
+     * Load the address parts of the given country.
+     */
+    public NominatimAddressCache loadAddressCache(String countryCode) {
         NominatimAddressCache addressCache = new NominatimAddressCache(dbutils, dbProperties.getLanguages());
         addressCache.loadCountryAddresses(template, countryCode);
+        return addressCache;
+    }
+
+    /**
+     * Parse every relevant row in placex, location_osmline and location_postcodes
+     * that belongs to the given partition of a country.
+     *
+     * @param cnames       The names of the country as returned by {@link #findCountryNames}.
+     * @param addressCache The address cache of the country. It is only read,
+     *                     so it may be shared between partitions read in parallel.
+     */
+    public void readPartition(ImportPartition partition, NameMap cnames, NominatimAddressCache addressCache,
+                              ImportThread importThread) {
+        final String countryCode = partition.countryCode();
+
+        final List<Object> args = new ArrayList<>();
+        final List<Integer> argTypes = new ArrayList<>();
+        final StringBuilder where = new StringBuilder();
+        if (countryCode.isEmpty()) {
+            where.append("p.country_code is null");
+        } else {
+            args.add(countryCode);
+            where.append("p.country_code = ").append(placeholder(args.size(), "text"));
+            argTypes.add(Types.VARCHAR);
+        }
+        if (partition.fromPlaceId() != null) {
+            args.add(partition.fromPlaceId());
+            where.append(" AND p.place_id >= ").append(placeholder(args.size(), "bigint"));
+            argTypes.add(Types.BIGINT);
+        }
+        if (partition.toPlaceId() != null) {
+            args.add(partition.toPlaceId());
+            where.append(" AND p.place_id < ").append(placeholder(args.size(), "bigint"));
+            argTypes.add(Types.BIGINT);
+        }
+        final String partitionSQL = where.toString();
+        final Object[] sqlArgs = args.toArray();
+        final int[] sqlArgTypes = argTypes.stream().mapToInt(Integer::intValue).toArray();
 
         final PlaceRowMapper placeRowMapper = new PlaceRowMapper(dbutils, dbProperties.getLanguages(), dbProperties.getSupportGeometries());
         final String baseSelect = placeRowMapper.makeBaseSelect();
 
         // First read ranks below 30, independent places
-        template.query(
+        queryPlaces(
                 baseSelect +
                         " FROM placex p" +
-                        " WHERE linked_place_id IS NULL AND centroid IS NOT NULL AND " + countrySQL +
+                        " WHERE linked_place_id IS NULL AND centroid IS NOT NULL AND " + partitionSQL +
                         " AND rank_search < 30" +
                         " ORDER BY geometry_sector, parent_place_id",
-                sqlArgs, sqlArgTypes, rs -> {
-                    final PhotonDoc doc = placeRowMapper.mapRow(rs, 0);
-                    final Map<String, String> address = dbutils.getMap(rs, "address");
+                sqlArgs, sqlArgTypes, row -> {
+                    final PhotonDoc doc = placeRowMapper.mapRow(row);
+                    final Map<String, String> address = row.getMap("address");
 
-                    doc.addAddresses(addressCache.getAddressList(rs.getString("addresslines")));
+                    doc.addAddresses(addressCache.getAddressList(row.getString("addresslines")));
                     doc.addAddresses(address, dbProperties.getLanguages()); // take precedence over computed address
                     doc.setCountry(cnames);
 
@@ -79,27 +131,27 @@ public class NominatimImporter extends NominatimConnector {
                 });
 
         // Next get all POIs/housenumbers.
-        template.query(
+        queryPlaces(
                  baseSelect +
                          " , parent.class as parent_class, parent.type as parent_type," +
                          "   parent.rank_address as parent_rank_address, parent.name as parent_name" +
                         " FROM placex p LEFT JOIN placex parent ON p.parent_place_id = parent.place_id" +
-                        " WHERE p.linked_place_id IS NULL AND p.centroid IS NOT NULL AND p." + countrySQL +
+                        " WHERE p.linked_place_id IS NULL AND p.centroid IS NOT NULL AND " + partitionSQL +
                         " AND p.rank_search = 30 " +
                         " ORDER BY p.geometry_sector",
-                sqlArgs, sqlArgTypes, rs -> {
-                    final PhotonDoc doc = placeRowMapper.mapRow(rs, 0);
-                    final Map<String, String> address = dbutils.getMap(rs, "address");
+                sqlArgs, sqlArgTypes, row -> {
+                    final PhotonDoc doc = placeRowMapper.mapRow(row);
+                    final Map<String, String> address = row.getMap("address");
 
-                    if (rs.getString("parent_class") != null) {
+                    if (row.getString("parent_class") != null) {
                         doc.addAddresses(List.of(AddressRow.make(
-                                dbutils.getMap(rs, "parent_name"),
-                                rs.getString("parent_class"),
-                                rs.getString("parent_type"),
-                                AddressType.fromRank(rs.getInt("parent_rank_address")),
+                                row.getMap("parent_name"),
+                                row.getString("parent_class"),
+                                row.getString("parent_type"),
+                                AddressType.fromRank(row.getInt("parent_rank_address")),
                                 dbProperties.getLanguages())));
                     }
-                    doc.addAddresses(addressCache.getAddressList(rs.getString("addresslines")));
+                    doc.addAddresses(addressCache.getAddressList(row.getString("addresslines")));
                     doc.addAddresses(address, dbProperties.getLanguages()); // take precedence over computed address
                     doc.setCountry(cnames);
 
@@ -108,32 +160,32 @@ public class NominatimImporter extends NominatimConnector {
 
         // Interpolation table
         final OsmlineRowMapper osmlineRowMapper = new OsmlineRowMapper();
-        template.query(String.format("%s  AND p.%s ORDER BY p.geometry_sector, p.parent_place_id",
-                                     osmlineRowMapper.makeBaseQuery(dbutils), countrySQL),
-                sqlArgs, sqlArgTypes, rs -> {
-                    final PhotonDoc doc = osmlineRowMapper.mapRow(rs, 0);
+        queryPlaces(String.format("%s  AND %s ORDER BY p.geometry_sector, p.parent_place_id",
+                                     osmlineRowMapper.makeBaseQuery(dbutils), partitionSQL),
+                sqlArgs, sqlArgTypes, row -> {
+                    final PhotonDoc doc = osmlineRowMapper.mapRow(row);
 
-                    if (rs.getString("parent_class") != null) {
+                    if (row.getString("parent_class") != null) {
                         doc.addAddresses(List.of(AddressRow.make(
-                                dbutils.getMap(rs, "parent_name"),
-                                rs.getString("parent_class"),
-                                rs.getString("parent_type"),
-                                AddressType.fromRank(rs.getInt("parent_rank_address")),
+                                row.getMap("parent_name"),
+                                row.getString("parent_class"),
+                                row.getString("parent_type"),
+                                AddressType.fromRank(row.getInt("parent_rank_address")),
                                 dbProperties.getLanguages())));
                     }
-                    doc.addAddresses(addressCache.getAddressList(rs.getString("addresslines")));
-                    doc.addAddresses(dbutils.getMap(rs, "address"), dbProperties.getLanguages());
+                    doc.addAddresses(addressCache.getAddressList(row.getString("addresslines")));
+                    doc.addAddresses(row.getMap("address"), dbProperties.getLanguages());
                     
                     doc.setCountry(cnames);
 
-                    var geometry = dbutils.extractGeometry(rs, "linegeo");
+                    var geometry = row.getGeometry("linegeo");
 
                     if (geometry != null) {
                         importThread.addDocument(new PhotonDocInterpolationSet(
                                 doc,
-                                rs.getLong("startnumber"),
-                                rs.getLong("endnumber"),
-                                rs.getLong("step"),
+                                row.getLong("startnumber"),
+                                row.getLong("endnumber"),
+                                row.getLong("step"),
                                 geometry
                                 ));
                     }
@@ -145,20 +197,20 @@ public class NominatimImporter extends NominatimConnector {
                         new PostcodeRowMapper(dbutils, dbProperties.getSupportGeometries())
                         : new PostcodeOldStyleRowMapper(dbutils);
         if (!countryCode.isEmpty()) {
-            template.query(postcodeRowMapper.makeBaseQuery("p." + countrySQL),
-                    sqlArgs, sqlArgTypes, rs -> {
-                        final PhotonDoc doc = postcodeRowMapper.rowToDoc(rs);
+            queryPlaces(postcodeRowMapper.makeBaseQuery(partitionSQL),
+                    sqlArgs, sqlArgTypes, row -> {
+                        final PhotonDoc doc = postcodeRowMapper.rowToDoc(row);
 
-                        if (rs.getString("parent_class") != null) {
+                        if (row.getString("parent_class") != null) {
                             doc.addAddresses(List.of(AddressRow.make(
-                                    dbutils.getMap(rs, "parent_name"),
-                                    rs.getString("parent_class"),
-                                    rs.getString("parent_type"),
-                                    AddressType.fromRank(rs.getInt("parent_rank_address")),
+                                    row.getMap("parent_name"),
+                                    row.getString("parent_class"),
+                                    row.getString("parent_type"),
+                                    AddressType.fromRank(row.getInt("parent_rank_address")),
                                     dbProperties.getLanguages())));
                         }
 
-                        doc.addAddresses(addressCache.getAddressList(rs.getString("addresslines")));
+                        doc.addAddresses(addressCache.getAddressList(row.getString("addresslines")));
                         doc.setCountry(cnames);
 
                         importThread.addDocument(List.of(doc));
@@ -167,6 +219,92 @@ public class NominatimImporter extends NominatimConnector {
     }
 
 
+    /**
+     * Return the SQL for the query argument at the given position.
+     */
+    private String placeholder(int position, String sqlType) {
+        return useBinaryCopy ? BinaryCopyReader.argument(position, sqlType) : "?";
+    }
+
+    private void queryPlaces(String sql, Object[] args, int[] argTypes, RowHandler handler) {
+        if (useBinaryCopy) {
+            new BinaryCopyReader(template).query(sql, args, handler);
+        } else {
+            template.query(sql, args, argTypes,
+                    (RowCallbackHandler) rs -> handler.processRow(new ResultSetRow(rs, dbutils)));
+        }
+    }
+
+    /**
+     * Split the import of the given countries into partitions that can be
+     * read in parallel. Large countries are split by place ID ranges, using
+     * the table statistics of the database to estimate the sizes.
+     * When no statistics are available, there is one partition per country.
+     *
+     * @return List of partitions, largest first.
+     */
+    public List<ImportPartition> makePartitions(String[] countries, int numThreads) {
+        final Map<String, Long> estimates = new HashMap<>();
+        final List<Long> bounds = new ArrayList<>();
+
+        try {
+            final Double reltuples = template.queryForObject(
+                    "SELECT reltuples::float8 FROM pg_class WHERE relname = 'placex' AND relkind = 'r'",
+                    Double.class);
+            final double tableRows = reltuples == null ? 0 : Math.max(0, reltuples);
+
+            template.query("""
+                    SELECT null_frac::float8 as null_frac,
+                           most_common_vals::text::text[] as mcv,
+                           most_common_freqs::float8[] as mcf
+                    FROM pg_stats WHERE tablename = 'placex' AND attname = 'country_code'
+                    """, rs -> {
+                        final double nullFrac = rs.getDouble("null_frac");
+                        final var mcv = rs.getArray("mcv");
+                        final var mcf = rs.getArray("mcf");
+                        double commonFrac = 0;
+                        if (mcv != null && mcf != null) {
+                            final String[] values = (String[]) mcv.getArray();
+                            final Double[] freqs = (Double[]) mcf.getArray();
+                            for (int i = 0; i < values.length && i < freqs.length; ++i) {
+                                estimates.put(values[i].toLowerCase(), (long) (freqs[i] * tableRows));
+                                commonFrac += freqs[i];
+                            }
+                        }
+                        estimates.put("", (long) (nullFrac * tableRows));
+
+                        // Spread the rest evenly over all other requested countries.
+                        final long others = Arrays.stream(countries).filter(c -> !estimates.containsKey(c)).count();
+                        if (others > 0) {
+                            final long rest = (long) (Math.max(0, 1 - nullFrac - commonFrac) * tableRows / others);
+                            for (var country : countries) {
+                                estimates.putIfAbsent(country, rest);
+                            }
+                        }
+                    });
+
+            template.query("""
+                    SELECT histogram_bounds::text::bigint[] as bounds
+                    FROM pg_stats WHERE tablename = 'placex' AND attname = 'place_id'
+                    """, rs -> {
+                        final var hist = rs.getArray("bounds");
+                        if (hist != null) {
+                            bounds.addAll(Arrays.asList((Long[]) hist.getArray()));
+                        }
+                    });
+        } catch (DataAccessException e) {
+            LOGGER.warn("Cannot read table statistics, importing one country at a time.", e);
+            estimates.clear();
+            bounds.clear();
+        }
+
+        final var partitions = ImportPartition.plan(
+                countries, estimates, bounds.stream().mapToLong(Long::longValue).toArray(), numThreads);
+        LOGGER.info("Import split into {} partitions for {} countries.", partitions.size(), countries.length);
+
+        return partitions;
+    }
+
     /**
      * Prepare the database for export.
      * <p>
@@ -3,6 +3,7 @@ package de.komoot.photon.nominatim;
 import de.komoot.photon.*;
 import de.komoot.photon.config.PostgresqlConfig;
 import de.komoot.photon.nominatim.model.*;
+import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.NonNull;
@@ -13,8 +14,14 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallback;
 
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 /**
  * Importer for updates from a Nominatim database.
@@ -23,6 +30,12 @@ import java.util.concurrent.locks.ReentrantLock;
 public class NominatimUpdater extends NominatimConnector {
     private static final Logger LOGGER = LogManager.getLogger();
 
+    /** Channel on which the update triggers announce new changes. */
+    public static final String NOTIFY_CHANNEL = "photon_updates";
+
+    // Maximum number of address rows kept between updates.
+    private static final int ADDRESS_CACHE_SIZE = 100_000;
+
     private static final String TRIGGER_SQL = """
             DROP TABLE IF EXISTS photon_updates;
             CREATE TABLE photon_updates (rel TEXT, place_id BIGINT,
@@ -33,6 +46,7 @@ public class NominatimUpdater extends NominatimConnector {
             BEGIN
               INSERT INTO photon_updates(
                  VALUES (TG_TABLE_NAME, OLD.place_id, TG_OP, statement_timestamp()));
+              PERFORM pg_notify('photon_updates', TG_TABLE_NAME);
               RETURN NEW;
             END; $$ LANGUAGE plpgsql;
             CREATE OR REPLACE TRIGGER photon_trigger_update_placex
@@ -63,32 +77,63 @@ public class NominatimUpdater extends NominatimConnector {
     static class ChangeCounter {
         int updated = 0;
         int deleted = 0;
+        @Nullable Date oldestChange = null;
+
+        void add(ChangeCounter other) {
+            updated += other.updated;
+            deleted += other.deleted;
+            if (other.oldestChange != null && (oldestChange == null || other.oldestChange.before(oldestChange))) {
+                oldestChange = other.oldestChange;
+            }
+        }
 
         void logState(String objectType) {
             LOGGER.info("{} {} created or updated, {} deleted", updated, objectType, deleted);
         }
     }
 
+    /**
+     * A place read from the Nominatim database, which still needs its address.
+     * The address rows for a whole chunk of places are loaded together.
+     *
+     * @param complete Adds the address rows to the place and returns the final
+     *                 documents or null if the place is not usable.
+     */
+    private record PendingPlace(long placeId, @Nullable String addresslines,
+                                Function<List<AddressRow>, @Nullable Iterable<PhotonDoc>> complete) {}
+
+    /**
+     * Summary of a single update run.
+     *
+     * @param changes Number of changed places which have been applied.
+     * @param oldestChange Time when the oldest of the applied changes was recorded
+     *                     in the Nominatim database, null when there were no changes.
+     * @param durationMillis Time the update took.
+     */
+    public record UpdateSummary(int changes, @Nullable Date oldestChange, long durationMillis) {}
+
     @Nullable private Updater updater;
 
     /**
      * Map a row from location_property_osmline (address interpolation lines) to a photon doc.
      */
-    private final RowMapper<@Nullable Iterable<PhotonDoc>> osmlineToNominatimResult;
+    private final RowMapper<PendingPlace> osmlineToNominatimResult;
     /**
      * Maps a placex row in nominatim to a photon doc.
      * Some attributes are still missing and can be derived by connected address items.
      */
-    private final RowMapper<Iterable<PhotonDoc>> placeToNominatimResult;
+    private final RowMapper<PendingPlace> placeToNominatimResult;
 
     /**
      * Lock to prevent thread from updating concurrently.
      */
     private final ReentrantLock updateLock = new ReentrantLock();
 
-    private final String placeBaseSQL;
-    private final String osmlineBaseSQL;
+    private final String placeSQL;
+    private final String osmlineSQL;
     private final NominatimAddressCache addressCache;
+    private final int chunkSize;
+    private int workerCount = 1;
 
     public NominatimUpdater(PostgresqlConfig config, DatabaseProperties dbProperties) {
         this(config, new PostgisDataAdapter(), dbProperties);
@@ -97,13 +142,18 @@ public class NominatimUpdater extends NominatimConnector {
     public NominatimUpdater(PostgresqlConfig config, DBDataAdapter dataAdapter, DatabaseProperties dbProperties) {
         super(config, dataAdapter, dbProperties);
 
-        addressCache = new NominatimAddressCache(dataAdapter, dbProperties.getLanguages());
+        chunkSize = config.getUpdateChunkSize();
+        addressCache = new NominatimAddressCache(dataAdapter, dbProperties.getLanguages(), ADDRESS_CACHE_SIZE);
 
         final var placeRowMapper = new PlaceRowMapper(dbutils, dbProperties.getLanguages(), dbProperties.getSupportGeometries());
-        placeBaseSQL = placeRowMapper.makeBaseSelect();
+        placeSQL = placeRowMapper.makeBaseSelect() +
+                "     , parent.class as parent_class, parent.type as parent_type," +
+                "       parent.rank_address as parent_rank_address, parent.name as parent_name" +
+                " FROM placex p LEFT JOIN placex parent ON p.parent_place_id = parent.place_id" +
+                " WHERE p.place_id = ANY(?) and p.indexed_status = 0";
 
         placeToNominatimResult = (rs, rowNum) -> {
-            final PhotonDoc doc = placeRowMapper.mapRow(rs, rowNum);
+            final PhotonDoc doc = placeRowMapper.mapRow(new ResultSetRow(rs, dbutils));
 
             if (rs.getInt("rank_search") == 30 && rs.getString("parent_class") != null) {
                 doc.addAddresses(List.of(AddressRow.make(
@@ -113,24 +163,25 @@ public class NominatimUpdater extends NominatimConnector {
                         AddressType.fromRank(rs.getInt("parent_rank_address")),
                         dbProperties.getLanguages())));
             }
-            doc.addAddresses(
-                    addressCache.getOrLoadAddressList(template, rs.getString("addresslines")));
-
-            // Add address last, so it takes precedence.
             final var address = dbutils.getMap(rs, "address");
-            doc.addAddresses(address, dbProperties.getLanguages());
-
             assert countryNames != null;
-            doc.setCountry(countryNames.get(rs.getString("country_code")));
+            final var country = countryNames.get(rs.getString("country_code"));
 
-            return new PhotonDocAddressSet(doc, address);
+            return new PendingPlace(rs.getLong("place_id"), rs.getString("addresslines"), addressRows -> {
+                doc.addAddresses(addressRows);
+                // Add address last, so it takes precedence.
+                doc.addAddresses(address, dbProperties.getLanguages());
+                doc.setCountry(country);
+
+                return new PhotonDocAddressSet(doc, address);
+            });
         };
 
         // Setup handling of interpolation table.
         final var osmlineRowMapper = new OsmlineRowMapper();
-        osmlineBaseSQL = osmlineRowMapper.makeBaseQuery(dataAdapter);
+        osmlineSQL = osmlineRowMapper.makeBaseQuery(dataAdapter) + " AND p.place_id = ANY(?) and p.indexed_status = 0";
         osmlineToNominatimResult = (rs, rownum) -> {
-            PhotonDoc doc = osmlineRowMapper.mapRow(rs, rownum);
+            PhotonDoc doc = osmlineRowMapper.mapRow(new ResultSetRow(rs, dbutils));
 
             if (rs.getString("parent_class") != null) {
                 doc.addAddresses(List.of(AddressRow.make(
@@ -140,21 +191,25 @@ public class NominatimUpdater extends NominatimConnector {
                         AddressType.fromRank(rs.getInt("parent_rank_address")),
                         dbProperties.getLanguages())));
             }
-            doc.addAddresses(
-                    addressCache.getOrLoadAddressList(template, rs.getString("addresslines")));
-            doc.addAddresses(dbutils.getMap(rs, "address"), dbProperties.getLanguages());
+            final var address = dbutils.getMap(rs, "address");
             assert countryNames != null;
-            doc.setCountry(countryNames.get(rs.getString("country_code")));
-
-            Geometry geometry = dbutils.extractGeometry(rs, "linegeo");
+            final var country = countryNames.get(rs.getString("country_code"));
+            final long startNumber = rs.getLong("startnumber");
+            final long endNumber = rs.getLong("endnumber");
+            final long step = rs.getLong("step");
+            final Geometry geometry = dbutils.extractGeometry(rs, "linegeo");
+
+            return new PendingPlace(rs.getLong("place_id"), rs.getString("addresslines"), addressRows -> {
+                if (geometry == null) {
+                    return null;
+                }
 
-            if (geometry == null) {
-                return null;
-            }
+                doc.addAddresses(addressRows);
+                doc.addAddresses(address, dbProperties.getLanguages());
+                doc.setCountry(country);
 
-            return new PhotonDocInterpolationSet(
-                    doc, rs.getLong("startnumber"), rs.getLong("endnumber"),
-                    rs.getLong("step"), geometry);
+                return new PhotonDocInterpolationSet(doc, startNumber, endNumber, step, geometry);
+            });
         };
     }
 
@@ -171,6 +226,20 @@ public class NominatimUpdater extends NominatimConnector {
         this.updater = updater;
     }
 
+    /**
+     * Set the number of threads which read the changed places from the
+     * database. The updater must accept documents from that many threads.
+     */
+    public void setWorkerCount(int workerCount) {
+        this.workerCount = Math.max(1, workerCount);
+        // Every worker needs its own connection next to the main thread
+        // and the listener for continuous updates.
+        if (template.getDataSource() instanceof BasicDataSource dataSource
+                && dataSource.getMaxTotal() < this.workerCount + 2) {
+            dataSource.setMaxTotal(this.workerCount + 2);
+        }
+    }
+
     public void initUpdates(String updateUser) {
         LOGGER.info("Creating tracking tables");
         String postcodeTable = hasPostcodeTablesWithGeometry() ? "location_postcodes" : "location_postcode";
@@ -181,74 +250,76 @@ public class NominatimUpdater extends NominatimConnector {
         });
     }
 
-    public void update() {
+    /**
+     * Apply all changes recorded in the Nominatim database.
+     *
+     * @return A summary of the changes applied or null when another update
+     *         was already in progress.
+     */
+    @Nullable
+    public UpdateSummary update() {
         assert updater != null;
 
         if (updateLock.tryLock()) {
             try {
+                final long start = System.nanoTime();
                 loadCountryNames(dbProperties.getLanguages());
-                updateFromPlacex();
-                updateFromInterpolations();
-                updateFromPostcodes();
+                final var changes = new ChangeCounter();
+                changes.add(updateFromPlacex());
+                changes.add(updateFromInterpolations());
+                changes.add(updateFromPostcodes());
                 updater.finish();
                 LOGGER.info("Finished updating");
+                return new UpdateSummary(changes.updated + changes.deleted, changes.oldestChange,
+                        (System.nanoTime() - start) / 1_000_000);
             } finally {
                 updateLock.unlock();
             }
         } else {
             LOGGER.info("Update already in progress");
+            return null;
         }
     }
 
-    private void updateFromPlacex() {
-        assert updater != null;
-
-        LOGGER.info("Starting place updates");
-        final var changes = new ChangeCounter();
-
-        for (UpdateRow place : getPlaces("placex")) {
-            long placeId = place.placeId();
-
-            if (place.toDelete()) {
-                changes.deleted++;
-                updater.delete(Long.toString(placeId));
-            } else {
-                updater.addOrUpdate(getByPlaceId(placeId));
-                changes.updated++;
-            }
+    /**
+     * Count the changes waiting to be applied.
+     *
+     * @param limit Stop counting at the given number.
+     */
+    public int countPendingChanges(int limit) {
+        Integer result = template.queryForObject(
+                "SELECT count(*) FROM (SELECT 1 FROM photon_updates LIMIT ?) AS pending", Integer.class, limit);
+        return result == null ? 0 : result;
+    }
 
+    /**
+     * Start listening for notifications about new changes from the update triggers.
+     * The notifier keeps a database connection open until it is closed.
+     */
+    public ChangeNotifier listenForChanges() throws SQLException {
+        final var dataSource = template.getDataSource();
+        if (dataSource == null) {
+            throw new IllegalStateException("No database connection configured.");
         }
+        return PostgresChangeNotifier.listen(dataSource, NOTIFY_CHANNEL);
+    }
 
-        changes.logState("places");
+    private ChangeCounter updateFromPlacex() {
+        LOGGER.info("Starting place updates");
+        return updateFromTable("placex", "places", placeSQL, placeToNominatimResult);
     }
 
     /**
      * Update documents generated from address interpolations.
      */
-    private void updateFromInterpolations() {
+    private ChangeCounter updateFromInterpolations() {
         // .isUsefulForIndex() should always return true for documents
         // created from interpolations so no need to check them
-        assert updater != null;
         LOGGER.info("Starting interpolations");
-        final var changes = new ChangeCounter();
-
-        for (UpdateRow place : getPlaces("location_property_osmline")) {
-            long placeId = place.placeId();
-
-            if (place.toDelete()) {
-                changes.deleted++;
-                updater.delete(Long.toString(placeId));
-            } else {
-                updater.addOrUpdate(getInterpolationsByPlaceId(placeId));
-                changes.updated++;
-            }
-
-        }
-
-        changes.logState("interpolations");
+        return updateFromTable("location_property_osmline", "interpolations", osmlineSQL, osmlineToNominatimResult);
     }
 
-    private void updateFromPostcodes() {
+    private ChangeCounter updateFromPostcodes() {
         NominatimTableAccessor postcodeMapper;
         String tableName;
         if (hasPostcodeTablesWithGeometry()) {
@@ -258,44 +329,149 @@ public class NominatimUpdater extends NominatimConnector {
             postcodeMapper = new PostcodeOldStyleRowMapper(dbutils);
             tableName = "location_postcode";
         }
-        assert updater != null;
         LOGGER.info("Starting postcodes");
+
+        final RowMapper<PendingPlace> rowMapper = (rs, rowNum) -> {
+            var doc = postcodeMapper.rowToDoc(new ResultSetRow(rs, dbutils));
+
+            if (rs.getString("parent_class") != null) {
+                doc.addAddresses(List.of(AddressRow.make(
+                        dbutils.getMap(rs, "parent_name"),
+                        rs.getString("parent_class"),
+                        rs.getString("parent_type"),
+                        AddressType.fromRank(rs.getInt("parent_rank_address")),
+                        dbProperties.getLanguages())));
+            }
+            assert countryNames != null;
+            final var country = countryNames.get(rs.getString("country_code"));
+
+            return new PendingPlace(rs.getLong("place_id"), rs.getString("addresslines"), addressRows -> {
+                doc.addAddresses(addressRows);
+                doc.setCountry(country);
+
+                return List.of(doc);
+            });
+        };
+
+        return updateFromTable(tableName, "postcodes",
+                postcodeMapper.makeBaseQuery("p.place_id = ANY(?) and p.indexed_status = 0"), rowMapper);
+    }
+
+    /**
+     * Apply the changes recorded for the given table.
+     * <p>
+     * When several workers are configured, the changed places are distributed
+     * over the workers by place ID, so that all changes to a place are handled
+     * by the same worker. All workers are done before the next table is
+     * processed.
+     *
+     * @param sql SQL query returning the places with the place IDs given as
+     *            an array parameter.
+     */
+    private ChangeCounter updateFromTable(String table, String objectType, String sql, RowMapper<PendingPlace> rowMapper) {
+        final var rows = getPlaces(table);
+
+        final ChangeCounter changes;
+        if (workerCount <= 1 || rows.size() <= chunkSize) {
+            changes = updatePlaces(rows, sql, rowMapper);
+        } else {
+            final List<List<UpdateRow>> partitions = new ArrayList<>(workerCount);
+            for (int i = 0; i < workerCount; ++i) {
+                partitions.add(new ArrayList<>());
+            }
+            for (var row : rows) {
+                partitions.get((int) Math.floorMod(row.placeId(), (long) workerCount)).add(row);
+            }
+
+            changes = new ChangeCounter();
+            final ExecutorService workers = Executors.newFixedThreadPool(workerCount);
+            try {
+                final List<Future<ChangeCounter>> results = new ArrayList<>(workerCount);
+                for (var partition : partitions) {
+                    results.add(workers.submit(() -> updatePlaces(partition, sql, rowMapper)));
+                }
+                for (var result : results) {
+                    changes.add(result.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Update interrupted", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error while updating " + objectType, e.getCause());
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+
+        changes.oldestChange = rows.stream()
+                .map(UpdateRow::updateDate)
+                .min(Comparator.naturalOrder())
+                .orElse(null);
+        changes.logState(objectType);
+
+        return changes;
+    }
+
+    /**
+     * Apply the changes for the given places.
+     * <p>
+     * The changed places are read in chunks of the configured size, so that
+     * a single query fetches many places and their address rows at once.
+     */
+    private ChangeCounter updatePlaces(List<UpdateRow> rows, String sql, RowMapper<PendingPlace> rowMapper) {
+        assert updater != null;
         final var changes = new ChangeCounter();
 
-        for (UpdateRow place : getPlaces(tableName)) {
-            long placeId = place.placeId();
-
-            if (place.toDelete()) {
-                changes.deleted++;
-                updater.delete(Long.toString(placeId));
-            } else {
-                template.query(
-                        postcodeMapper.makeBaseQuery("p.place_id = ? and p.indexed_status = 0"),
-                        rs -> {
-                            var doc = postcodeMapper.rowToDoc(rs);
-
-                            if (rs.getString("parent_class") != null) {
-                                doc.addAddresses(List.of(AddressRow.make(
-                                        dbutils.getMap(rs, "parent_name"),
-                                        rs.getString("parent_class"),
-                                        rs.getString("parent_type"),
-                                        AddressType.fromRank(rs.getInt("parent_rank_address")),
-                                        dbProperties.getLanguages())));
-                            }
-
-                            doc.addAddresses(
-                                    addressCache.getOrLoadAddressList(template, rs.getString("addresslines")));
-                            assert countryNames != null;
-                            doc.setCountry(countryNames.get(rs.getString("country_code")));
-
-                            updater.addOrUpdate(List.of(doc));
-                            changes.updated++;
-                        }, placeId);
+        for (int start = 0; start < rows.size(); start += chunkSize) {
+            final var chunk = rows.subList(start, Math.min(rows.size(), start + chunkSize));
+            final var docs = loadPlaces(sql, rowMapper, chunk.stream()
+                    .filter(row -> !row.toDelete())
+                    .map(UpdateRow::placeId)
+                    .toArray(Long[]::new));
+
+            for (UpdateRow place : chunk) {
+                long placeId = place.placeId();
+
+                if (place.toDelete()) {
+                    changes.deleted++;
+                    updater.delete(Long.toString(placeId));
+                } else {
+                    updater.addOrUpdate(docs.getOrDefault(placeId, List.of()));
+                    changes.updated++;
+                }
             }
+        }
 
+        return changes;
+    }
+
+    /**
+     * Read the places with the given IDs together with their addresses.
+     *
+     * @return The documents for each place found.
+     */
+    private Map<Long, Iterable<PhotonDoc>> loadPlaces(String sql, RowMapper<PendingPlace> rowMapper, Long[] placeIds) {
+        if (placeIds.length == 0) {
+            return Map.of();
+        }
+
+        final List<PendingPlace> places = template.query(sql, rowMapper, (Object) placeIds);
+
+        final var addressLists = addressCache.loadAddressLists(
+                template, places.stream().map(PendingPlace::addresslines).toList());
+
+        final Map<Long, Iterable<PhotonDoc>> docs = new HashMap<>();
+        for (int i = 0; i < places.size(); ++i) {
+            final var place = places.get(i);
+            if (!docs.containsKey(place.placeId())) {
+                final var placeDocs = place.complete().apply(addressLists.get(i));
+                if (placeDocs != null) {
+                    docs.put(place.placeId(), placeDocs);
+                }
+            }
         }
 
-        changes.logState("postcodes");
+        return docs;
     }
 
     private List<UpdateRow> getPlaces(String table) {
@@ -330,23 +506,12 @@ public class NominatimUpdater extends NominatimConnector {
     }
 
     public Iterable<PhotonDoc> getByPlaceId(long placeId) {
-        var result = template.query(
-                placeBaseSQL +
-                        "     , parent.class as parent_class, parent.type as parent_type," +
-                        "       parent.rank_address as parent_rank_address, parent.name as parent_name" +
-                        " FROM placex p LEFT JOIN placex parent ON p.parent_place_id = parent.place_id" +
-                        " WHERE p.place_id = ? and p.indexed_status = 0",
-                placeToNominatimResult, placeId);
-
-        return result.isEmpty() ? List.of() : result.getFirst();
+        return loadPlaces(placeSQL, placeToNominatimResult, new Long[]{placeId})
+                .getOrDefault(placeId, List.of());
     }
 
     public Iterable<PhotonDoc> getInterpolationsByPlaceId(long placeId) {
-        var result = template.query(
-                osmlineBaseSQL + " AND p.place_id = ? and p.indexed_status = 0",
-                osmlineToNominatimResult, placeId);
-
-        return (result.isEmpty() || result.getFirst() == null) ? List.of() : result.getFirst();
+        return loadPlaces(osmlineSQL, osmlineToNominatimResult, new Long[]{placeId})
+                .getOrDefault(placeId, List.of());
     }
-
 }
@@ -0,0 +1,55 @@
+package de.komoot.photon.nominatim;
+
+import org.jspecify.annotations.NullMarked;
+import org.postgresql.PGConnection;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Receives notifications from PostgreSQL via LISTEN on a dedicated connection.
+ */
+@NullMarked
+class PostgresChangeNotifier implements ChangeNotifier {
+    private final Connection connection;
+    private final PGConnection pgConnection;
+
+    private PostgresChangeNotifier(Connection connection, PGConnection pgConnection) {
+        this.connection = connection;
+        this.pgConnection = pgConnection;
+    }
+
+    static PostgresChangeNotifier listen(DataSource dataSource, String channel) throws SQLException {
+        final Connection connection = dataSource.getConnection();
+        try {
+            // LISTEN only takes effect once committed.
+            connection.setAutoCommit(true);
+            try (var stmt = connection.createStatement()) {
+                stmt.execute("LISTEN " + channel);
+            }
+            return new PostgresChangeNotifier(connection, connection.unwrap(PGConnection.class));
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean await(long timeoutMillis) throws SQLException {
+        // A timeout of 0 would block forever.
+        final int timeout = (int) Math.max(1, Math.min(Integer.MAX_VALUE, timeoutMillis));
+        final var notifications = pgConnection.getNotifications(timeout);
+        return notifications != null && notifications.length > 0;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (connection) {
+            // The connection goes back into the pool, so stop listening.
+            try (var stmt = connection.createStatement()) {
+                stmt.execute("UNLISTEN *");
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package de.komoot.photon.nominatim;
+
+import de.komoot.photon.nominatim.model.RowAccessor;
+import org.jspecify.annotations.NullMarked;
+
+import java.sql.SQLException;
+
+/**
+ * Callback for processing the rows of a query one by one.
+ */
+@NullMarked
+@FunctionalInterface
+public interface RowHandler {
+    void processRow(RowAccessor row) throws SQLException;
+}
@@ -0,0 +1,76 @@
+package de.komoot.photon.nominatim;
+
+import de.komoot.photon.nominatim.model.NominatimAddressCache;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Address caches that are shared between the partitions of a country.
+ * <p>
+ * The cache of a country is loaded by the first partition that needs it
+ * and dropped again once the last partition of the country has been read.
+ * The caches are only read after loading, so they may be used by multiple
+ * threads at the same time.
+ */
+@NullMarked
+public class SharedAddressCaches {
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private static class Entry {
+        int remaining = 0;
+        @Nullable NominatimAddressCache cache = null;
+    }
+
+    public SharedAddressCaches(List<ImportPartition> partitions) {
+        for (var partition : partitions) {
+            entries.computeIfAbsent(partition.countryCode(), k -> new Entry()).remaining++;
+        }
+    }
+
+    /**
+     * Get the address cache for the given country, loading it when necessary.
+     * Every call must be followed by a call to {@link #release} once the
+     * partition has been read.
+     */
+    public NominatimAddressCache acquire(String countryCode, Function<String, NominatimAddressCache> loader) {
+        final Entry entry = getEntry(countryCode);
+
+        synchronized (entry) {
+            if (entry.cache == null) {
+                entry.cache = loader.apply(countryCode);
+            }
+            return entry.cache;
+        }
+    }
+
+    public void release(String countryCode) {
+        final Entry entry = getEntry(countryCode);
+
+        synchronized (entry) {
+            if (--entry.remaining <= 0) {
+                entry.cache = null;
+            }
+        }
+    }
+
+    boolean isLoaded(String countryCode) {
+        final Entry entry = getEntry(countryCode);
+
+        synchronized (entry) {
+            return entry.cache != null;
+        }
+    }
+
+    private Entry getEntry(String countryCode) {
+        final Entry entry = entries.get(countryCode);
+        if (entry == null) {
+            throw new IllegalArgumentException("No partitions for country " + countryCode);
+        }
+        return entry;
+    }
+}
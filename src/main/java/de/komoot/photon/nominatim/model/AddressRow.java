@@ -4,6 +4,7 @@ import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -46,4 +47,20 @@ public class AddressRow {
     public ContextMap getContext() {
         return context;
     }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AddressRow other)) {
+            return false;
+        }
+        return addressType == other.addressType && name.equals(other.name) && context.equals(other.context);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, context, addressType);
+    }
 }
@@ -1,7 +1,5 @@
 package de.komoot.photon.nominatim.model;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import de.komoot.photon.nominatim.DBDataAdapter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,11 +8,22 @@ import org.jspecify.annotations.Nullable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Container for caching information about address parts.
+ * <p>
+ * The cache has two modes. When created without a size limit, address
+ * rows are kept in a compact index that is meant to be filled once per
+ * country with {@link #loadCountryAddresses} and then only read. Equal
+ * address rows are only stored once. After loading, the cache may be
+ * read from multiple threads.
+ * <p>
+ * When created with a size limit, the cache keeps the most recently
+ * used address rows only. This mode is meant for the updates, where
+ * missing rows are loaded on demand with {@link #getOrLoadAddressList}.
  */
 @NullMarked
 public class NominatimAddressCache {
@@ -32,22 +41,43 @@ public class NominatimAddressCache {
               AND NOT (class = 'boundary' and type = 'postal_code')
             """;
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-    private final Map<Long, AddressRow> addresses = new HashMap<>();
+    private final PlaceIdIndex index = new PlaceIdIndex();
+    private final List<AddressRow> rows = new ArrayList<>();
+    // Only needed to deduplicate rows while loading.
+    private final Map<AddressRow, Integer> rowIds = new HashMap<>();
+    @Nullable private final Map<Long, AddressRow> lru;
+    private final DBDataAdapter dbutils;
+    private final Set<String> languages;
     private final RowCallbackHandler rowMapper;
 
     public NominatimAddressCache(DBDataAdapter dbutils, Set<String> languages) {
+        this(dbutils, languages, 0);
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxEntries When larger than 0, keep at most that many
+     *                   address rows, dropping the least recently used.
+     */
+    public NominatimAddressCache(DBDataAdapter dbutils, Set<String> languages, int maxEntries) {
+        if (maxEntries > 0) {
+            lru = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, AddressRow> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        } else {
+            lru = null;
+        }
+
+        this.dbutils = dbutils;
+        this.languages = languages;
         rowMapper = rs -> {
-            final var row = AddressRow.make(
-                    dbutils.getMap(rs, "name"),
-                    rs.getString("class"),
-                    rs.getString("type"),
-                    AddressType.fromRank(rs.getInt("rank_address")),
-                    languages);
-
-            if (!row.getName().isEmpty()) {
-                addresses.put(
-                        rs.getLong("place_id"), row);
+            final var row = makeRow(rs);
+            if (row != null) {
+                addRow(rs.getLong("place_id"), row);
             }
         };
     }
@@ -58,9 +88,13 @@ public class NominatimAddressCache {
         } else {
             template.query(BASE_COUNTRY_QUERY + " AND country_code = ?", rowMapper, countryCode);
         }
+        rowIds.clear();
 
-        if (!addresses.isEmpty()) {
-            LOGGER.info("Loaded {} address places for country {}", addresses.size(), countryCode);
+        if (index.size() > 0) {
+            final var runtime = Runtime.getRuntime();
+            LOGGER.info("Loaded {} address places ({} distinct) for country {}. Index size: {} kB, heap in use: {} MB",
+                    index.size(), rows.size(), countryCode, index.memoryBytes() / 1024,
+                    (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
         }
     }
 
@@ -69,41 +103,255 @@ public class NominatimAddressCache {
             return List.of();
         }
 
-        final Long[] placeIDs = parsePlaceIdArray(json);
+        final long[] placeIDs = parsePlaceIdArray(json);
+
+        if (lru == null) {
+            loadMissing(template, placeIDs);
+            return makeAddressList(placeIDs);
+        }
+
+        return makeAddressList(placeIDs, lookupOrLoad(template, lru, placeIDs));
+    }
+
+    /**
+     * Get the address rows for all the given address lists.
+     * Rows which are not yet in the cache are loaded with a single query.
+     *
+     * @return The address rows for each list in the order of the input.
+     */
+    public List<List<AddressRow>> loadAddressLists(JdbcTemplate template, List<@Nullable String> jsons) {
+        final List<long[]> lists = jsons.stream()
+                .map(json -> json == null || json.isBlank() ? new long[0] : parsePlaceIdArray(json))
+                .toList();
+        final long[] placeIDs = lists.stream()
+                .flatMapToLong(Arrays::stream)
+                .distinct()
+                .toArray();
+
+        if (lru == null) {
+            loadMissing(template, placeIDs);
+            return lists.stream().map(this::makeAddressList).toList();
+        }
+
+        final var rowsById = lookupOrLoad(template, lru, placeIDs);
+        return lists.stream().map(ids -> makeAddressList(ids, rowsById)).toList();
+    }
+
+    public List<AddressRow> getAddressList(@Nullable String json) {
+        if (json == null || json.isBlank()) {
+            return List.of();
+        }
+
+        final long[] placeIDs = parsePlaceIdArray(json);
+
+        if (lru == null) {
+            return makeAddressList(placeIDs);
+        }
 
+        synchronized (lru) {
+            return makeAddressList(placeIDs);
+        }
+    }
+
+    private void loadMissing(JdbcTemplate template, long[] placeIDs) {
         final Long[] missing = Arrays.stream(placeIDs)
-                .filter(id -> !addresses.containsKey(id)).toArray(Long[]::new);
+                .filter(id -> getRow(id) == null)
+                .boxed().toArray(Long[]::new);
 
         if (missing.length > 0) {
             template.query(
                     BASE_COUNTRY_QUERY + " AND place_id = ANY(?)",
                     rowMapper, (Object) missing);
         }
+    }
 
-        return makeAddressList(placeIDs);
+    /**
+     * Get the rows for the given place IDs from the LRU cache and load the
+     * ones that are missing.
+     * <p>
+     * The lock is only held while accessing the cache, not during the
+     * database query. The rows are returned directly instead of being read
+     * back from the cache, where other threads may already have pushed them
+     * out again.
+     */
+    private Map<Long, AddressRow> lookupOrLoad(JdbcTemplate template, Map<Long, AddressRow> lru, long[] placeIDs) {
+        final Map<Long, AddressRow> found = new HashMap<>();
+        final Set<Long> missing = new HashSet<>();
+        synchronized (lru) {
+            for (long placeId : placeIDs) {
+                final var row = lru.get(placeId);
+                if (row == null) {
+                    missing.add(placeId);
+                } else {
+                    found.put(placeId, row);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            final Map<Long, AddressRow> loaded = new HashMap<>();
+            template.query(
+                    BASE_COUNTRY_QUERY + " AND place_id = ANY(?)",
+                    rs -> {
+                        final var row = makeRow(rs);
+                        if (row != null) {
+                            loaded.put(rs.getLong("place_id"), row);
+                        }
+                    },
+                    (Object) missing.toArray(Long[]::new));
+
+            synchronized (lru) {
+                lru.putAll(loaded);
+            }
+            found.putAll(loaded);
+        }
+
+        return found;
     }
 
-    public List<AddressRow> getAddressList(@Nullable String json) {
-        if (json == null || json.isBlank()) {
-            return List.of();
+    @Nullable
+    private AddressRow makeRow(ResultSet rs) throws SQLException {
+        final var row = AddressRow.make(
+                dbutils.getMap(rs, "name"),
+                rs.getString("class"),
+                rs.getString("type"),
+                AddressType.fromRank(rs.getInt("rank_address")),
+                languages);
+
+        return row.getName().isEmpty() ? null : row;
+    }
+
+    private void addRow(long placeId, AddressRow row) {
+        if (lru != null) {
+            lru.put(placeId, row);
+            return;
         }
 
-        return makeAddressList(parsePlaceIdArray(json));
+        Integer rowId = rowIds.get(row);
+        if (rowId == null) {
+            rowId = rows.size();
+            rows.add(row);
+            rowIds.put(row, rowId);
+        }
+        index.put(placeId, rowId);
     }
 
-    private List<AddressRow> makeAddressList(@Nullable Long[] placeIDs) {
-        return Arrays.stream(placeIDs)
-                .map(addresses::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+    @Nullable
+    private AddressRow getRow(long placeId) {
+        if (lru != null) {
+            return lru.get(placeId);
+        }
+
+        final int rowId = index.get(placeId);
+        return rowId == PlaceIdIndex.NOT_FOUND ? null : rows.get(rowId);
+    }
+
+    private List<AddressRow> makeAddressList(long[] placeIDs) {
+        final List<AddressRow> result = new ArrayList<>(placeIDs.length);
+        for (long placeId : placeIDs) {
+            final var row = getRow(placeId);
+            if (row != null) {
+                result.add(row);
+            }
+        }
+        return result;
     }
 
-    private Long[] parsePlaceIdArray(String json) {
-        try {
-            return objectMapper.readValue(json, Long[].class);
-        } catch (JsonProcessingException e) {
-            LOGGER.error("Cannot parse database response.", e);
-            throw new RuntimeException("Parse error.");
+    private static List<AddressRow> makeAddressList(long[] placeIDs, Map<Long, AddressRow> rowsById) {
+        final List<AddressRow> result = new ArrayList<>(placeIDs.length);
+        for (long placeId : placeIDs) {
+            final var row = rowsById.get(placeId);
+            if (row != null) {
+                result.add(row);
+            }
         }
+        return result;
+    }
+
+    /**
+     * Parse a JSON array of place IDs.
+     * <p>
+     * Numbers may also be given as strings. Null values are skipped.
+     */
+    static long[] parsePlaceIdArray(String json) {
+        final int len = json.length();
+        long[] out = new long[8];
+        int num = 0;
+
+        int pos = skipWhitespace(json, 0);
+        if (pos >= len || json.charAt(pos) != '[') {
+            throw parseError(json);
+        }
+        pos = skipWhitespace(json, pos + 1);
+
+        if (pos < len && json.charAt(pos) == ']') {
+            pos = skipWhitespace(json, pos + 1);
+        } else {
+            while (true) {
+                if (json.startsWith("null", pos)) {
+                    pos += 4;
+                } else {
+                    final boolean quoted = pos < len && json.charAt(pos) == '"';
+                    if (quoted) {
+                        ++pos;
+                    }
+                    final boolean negative = pos < len && json.charAt(pos) == '-';
+                    if (negative) {
+                        ++pos;
+                    }
+                    final int start = pos;
+                    long value = 0;
+                    while (pos < len && json.charAt(pos) >= '0' && json.charAt(pos) <= '9') {
+                        value = value * 10 + (json.charAt(pos) - '0');
+                        ++pos;
+                    }
+                    if (pos == start || pos - start > 18) {
+                        throw parseError(json);
+                    }
+                    if (quoted) {
+                        if (pos >= len || json.charAt(pos) != '"') {
+                            throw parseError(json);
+                        }
+                        ++pos;
+                    }
+
+                    if (num == out.length) {
+                        out = Arrays.copyOf(out, num * 2);
+                    }
+                    out[num++] = negative ? -value : value;
+                }
+
+                pos = skipWhitespace(json, pos);
+                if (pos >= len) {
+                    throw parseError(json);
+                }
+                final char c = json.charAt(pos);
+                pos = skipWhitespace(json, pos + 1);
+                if (c == ']') {
+                    break;
+                }
+                if (c != ',') {
+                    throw parseError(json);
+                }
+            }
+        }
+
+        if (pos != len) {
+            throw parseError(json);
+        }
+
+        return num == out.length ? out : Arrays.copyOf(out, num);
+    }
+
+    private static int skipWhitespace(String json, int pos) {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            ++pos;
+        }
+        return pos;
+    }
+
+    private static RuntimeException parseError(String json) {
+        LOGGER.error("Cannot parse database response: {}", json);
+        return new RuntimeException("Parse error.");
     }
 }
@@ -4,13 +4,12 @@ import de.komoot.photon.PhotonDoc;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 
 @NullMarked
 public interface NominatimTableAccessor {
 
-    PhotonDoc rowToDoc(ResultSet rs) throws SQLException;
+    PhotonDoc rowToDoc(RowAccessor row) throws SQLException;
 
     String makeBaseQuery(String sqlWhere);
 }
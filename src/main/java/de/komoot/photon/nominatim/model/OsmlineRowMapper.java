@@ -3,24 +3,21 @@ package de.komoot.photon.nominatim.model;
 import de.komoot.photon.PhotonDoc;
 import de.komoot.photon.nominatim.DBDataAdapter;
 import org.jspecify.annotations.NullMarked;
-import org.springframework.jdbc.core.RowMapper;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 
 @NullMarked
-public class OsmlineRowMapper implements RowMapper<PhotonDoc> {
-    @Override
-    public PhotonDoc mapRow(ResultSet rs, int rowNum) throws SQLException {
+public class OsmlineRowMapper {
+    public PhotonDoc mapRow(RowAccessor row) throws SQLException {
         return new PhotonDoc(
-                Long.toString(rs.getLong("place_id")),
-                "W", rs.getLong("osm_id"),
+                Long.toString(row.getLong("place_id")),
+                "W", row.getLong("osm_id"),
                 "place", "house_number")
-                .countryCode(rs.getString("country_code"))
+                .countryCode(row.getString("country_code"))
                 .categories(List.of("osm.place.house_number"))
                 .addressType(AddressType.HOUSE)
-                .postcode(rs.getString("postcode"));
+                .postcode(row.getString("postcode"));
     }
 
     public String makeBaseQuery(DBDataAdapter dbutils) {
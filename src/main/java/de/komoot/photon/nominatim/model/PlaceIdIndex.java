@@ -0,0 +1,94 @@
+package de.komoot.photon.nominatim.model;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Hash index from place IDs to non-negative integers.
+ * <p>
+ * Uses open addressing with linear probing over primitive arrays, so
+ * that no objects need to be allocated per entry. Entries can only
+ * be added or overwritten, not removed.
+ */
+@NullMarked
+final class PlaceIdIndex {
+    static final int NOT_FOUND = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys = new long[MIN_CAPACITY];
+    // Value + 1, so that 0 marks an empty slot.
+    private int[] values = new int[MIN_CAPACITY];
+    private int size = 0;
+
+    int get(long key) {
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return NOT_FOUND;
+    }
+
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be indexed.");
+        }
+        if ((size + 1) * 10L > keys.length * 7L) {
+            resize(keys.length * 2);
+        }
+        if (insert(keys, values, key, value + 1)) {
+            ++size;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return the approximate memory used by the index in bytes.
+     */
+    long memoryBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private void resize(int capacity) {
+        final long[] newKeys = new long[capacity];
+        final int[] newValues = new int[capacity];
+        for (int i = 0; i < keys.length; ++i) {
+            if (values[i] != 0) {
+                insert(newKeys, newValues, keys[i], values[i]);
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    /**
+     * Insert the key with the already shifted value.
+     *
+     * @return True, when a new entry was added.
+     */
+    private static boolean insert(long[] keys, int[] values, long key, int storedValue) {
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = storedValue;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = storedValue;
+        return true;
+    }
+
+    private static int hash(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -3,9 +3,7 @@ package de.komoot.photon.nominatim.model;
 import de.komoot.photon.PhotonDoc;
 import de.komoot.photon.nominatim.DBDataAdapter;
 import org.jspecify.annotations.NullMarked;
-import org.springframework.jdbc.core.RowMapper;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.regex.Pattern;
@@ -17,7 +15,7 @@ import java.util.regex.Pattern;
  * for the place.
  */
 @NullMarked
-public class PlaceRowMapper implements RowMapper<PhotonDoc> {
+public class PlaceRowMapper {
     private static final Pattern CATEGORY_PATTERN = Pattern.compile(
             String.format("[%s]+", PhotonDoc.CATEGORY_VALID_CHARS));
 
@@ -31,17 +29,16 @@ public class PlaceRowMapper implements RowMapper<PhotonDoc> {
         this.useGeometryColumn = useGeometryColumn;
     }
 
-    @Override
-    public PhotonDoc mapRow(ResultSet rs, int rowNum) throws SQLException {
-        String osmKey = rs.getString("class");
-        String osmValue = rs.getString("type");
+    public PhotonDoc mapRow(RowAccessor row) throws SQLException {
+        String osmKey = row.getString("class");
+        String osmValue = row.getString("type");
         if (!CATEGORY_PATTERN.matcher(osmKey).matches()) {
             osmKey = "place";
             osmValue = "yes";
         } else if (!CATEGORY_PATTERN.matcher(osmValue).matches()) {
             osmValue = "yes";
         }
-        var extratags = dbutils.getMap(rs, "extratags");
+        var extratags = row.getMap("extratags");
         String place = extratags.get("place");
         if (place == null) {
             place = extratags.get("linked_place");
@@ -52,30 +49,30 @@ public class PlaceRowMapper implements RowMapper<PhotonDoc> {
             osmValue = place;
         }
 
-        var addressType = AddressType.fromRank(rs.getInt("rank_address"));
-        PhotonDoc doc = new PhotonDoc(Long.toString(rs.getLong("place_id")),
-                rs.getString("osm_type"), rs.getLong("osm_id"),
+        var addressType = AddressType.fromRank(row.getInt("rank_address"));
+        PhotonDoc doc = new PhotonDoc(Long.toString(row.getLong("place_id")),
+                row.getString("osm_type"), row.getLong("osm_id"),
                 osmKey, osmValue)
-                .names(NameMap.makeForPlace(dbutils.getMap(rs, "name"), languages))
+                .names(NameMap.makeForPlace(row.getMap("name"), languages))
                 .extraTags(Collections.unmodifiableMap(extratags))
                 .categories(List.of(String.format("osm.%s.%s", osmKey, osmValue)))
-                .bbox(dbutils.extractGeometry(rs, "bbox"))
-                .countryCode(rs.getString("country_code"))
-                .centroid(Objects.requireNonNull(dbutils.extractGeometry(rs, "centroid")))
+                .bbox(row.getGeometry("bbox"))
+                .countryCode(row.getString("country_code"))
+                .centroid(Objects.requireNonNull(row.getGeometry("centroid")))
                 .addressType(addressType)
-                .postcode(rs.getString("postcode"));
+                .postcode(row.getString("postcode"));
 
         if (useGeometryColumn) {
             try {
-                doc.geometry(dbutils.extractGeometry(rs, "geometry"));
+                doc.geometry(row.getGeometry("geometry"));
             } catch (IllegalArgumentException e) {
                 System.out.println("Could not get Geometry: " + e);
             }
         }
 
-        double importance = rs.getDouble("importance");
-        if (rs.wasNull()) {
-            int rank = rs.getInt("rank_search");
+        double importance = row.getDouble("importance");
+        if (row.wasNull()) {
+            int rank = row.getInt("rank_search");
             doc.importance(0.40001 - rank / 75d);
         } else if (importance < 0.4) {
             doc.importance(importance);
@@ -83,7 +80,7 @@ public class PlaceRowMapper implements RowMapper<PhotonDoc> {
             // Nominatim has relatively large importances for POIs of
             // headquarters of organisations. This scales the importance
             // by search rank to reduce the influence.
-            int rank = rs.getInt("rank_search");
+            int rank = row.getInt("rank_search");
             double limit = 0.4 + 0.6 * (1 - rank / 30d);
             if (importance > limit) {
                 doc.importance(limit + (importance - limit) / 2);
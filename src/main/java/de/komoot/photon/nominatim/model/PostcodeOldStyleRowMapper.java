@@ -4,7 +4,6 @@ import de.komoot.photon.PhotonDoc;
 import de.komoot.photon.nominatim.DBDataAdapter;
 import org.jspecify.annotations.NullMarked;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
@@ -23,19 +22,19 @@ public class PostcodeOldStyleRowMapper implements NominatimTableAccessor {
     }
 
     @Override
-    public PhotonDoc rowToDoc(ResultSet rs) throws SQLException {
-        var centroid = dbutils.extractGeometry(rs, "geometry");
+    public PhotonDoc rowToDoc(RowAccessor row) throws SQLException {
+        var centroid = row.getGeometry("geometry");
         assert centroid != null;
         return new PhotonDoc(
-                Long.toString(rs.getLong("place_id")),
+                Long.toString(row.getLong("place_id")),
                 null, -1,
                 "place", "postcode")
-                .names(NameMap.makeForPlace(Map.of("name", rs.getString("postcode")), List.of()))
+                .names(NameMap.makeForPlace(Map.of("name", row.getString("postcode")), List.of()))
                 .centroid(centroid)
-                .countryCode(rs.getString("country_code"))
+                .countryCode(row.getString("country_code"))
                 .categories(List.of("osm.place.postcode"))
                 .bbox(centroid)
-                .importance(0.40001 - rs.getInt("rank_search") / 75d);
+                .importance(0.40001 - row.getInt("rank_search") / 75d);
     }
 
     public String makeBaseQuery(String sqlWhere) {
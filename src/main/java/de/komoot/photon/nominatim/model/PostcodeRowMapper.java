@@ -5,7 +5,6 @@ import de.komoot.photon.nominatim.DBDataAdapter;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
@@ -28,24 +27,24 @@ public class PostcodeRowMapper implements NominatimTableAccessor {
     }
 
     @Override
-    public PhotonDoc rowToDoc(ResultSet rs) throws SQLException {
-        var osmId = rs.getObject("osm_id");
+    public PhotonDoc rowToDoc(RowAccessor row) throws SQLException {
+        var osmId = row.getObject("osm_id");
         var place = new PhotonDoc(
-                Long.toString(rs.getLong("place_id")),
+                Long.toString(row.getLong("place_id")),
                 osmId == null ? null : "R",
                 osmId == null ? -1 : (Long) osmId,
                 "place", "postcode")
-                .names(NameMap.makeForPlace(Map.of("name", rs.getString("postcode")), List.of()))
-                .centroid(Objects.requireNonNull(dbutils.extractGeometry(rs, "centroid")))
-                .countryCode(rs.getString("country_code"))
+                .names(NameMap.makeForPlace(Map.of("name", row.getString("postcode")), List.of()))
+                .centroid(Objects.requireNonNull(row.getGeometry("centroid")))
+                .countryCode(row.getString("country_code"))
                 .categories(List.of("osm.place.postcode"))
-                .importance(0.40001 - rs.getInt("rank_search") / 75d);
+                .importance(0.40001 - row.getInt("rank_search") / 75d);
 
         if (useGeometryColumn && osmId != null) {
             // exact geometries are only available for postcode relations
-            place.geometry(dbutils.extractGeometry(rs, "geometry"));
+            place.geometry(row.getGeometry("geometry"));
         } else {
-            place.bbox(dbutils.extractGeometry(rs, "geometry"));
+            place.bbox(row.getGeometry("geometry"));
         }
 
         return place;
@@ -0,0 +1,64 @@
+package de.komoot.photon.nominatim.model;
+
+import de.komoot.photon.nominatim.DBDataAdapter;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Row accessor for the current row of a JDBC result set.
+ */
+@NullMarked
+public class ResultSetRow implements RowAccessor {
+    private final ResultSet rs;
+    private final DBDataAdapter dbutils;
+
+    public ResultSetRow(ResultSet rs, DBDataAdapter dbutils) {
+        this.rs = rs;
+        this.dbutils = dbutils;
+    }
+
+    @Override
+    public @Nullable String getString(String columnName) throws SQLException {
+        return rs.getString(columnName);
+    }
+
+    @Override
+    public long getLong(String columnName) throws SQLException {
+        return rs.getLong(columnName);
+    }
+
+    @Override
+    public int getInt(String columnName) throws SQLException {
+        return rs.getInt(columnName);
+    }
+
+    @Override
+    public double getDouble(String columnName) throws SQLException {
+        return rs.getDouble(columnName);
+    }
+
+    @Override
+    public @Nullable Object getObject(String columnName) throws SQLException {
+        return rs.getObject(columnName);
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return rs.wasNull();
+    }
+
+    @Override
+    public Map<String, String> getMap(String columnName) throws SQLException {
+        return dbutils.getMap(rs, columnName);
+    }
+
+    @Override
+    public @Nullable Geometry getGeometry(String columnName) throws SQLException {
+        return dbutils.extractGeometry(rs, columnName);
+    }
+}
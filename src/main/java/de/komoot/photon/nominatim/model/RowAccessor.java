@@ -0,0 +1,54 @@
+package de.komoot.photon.nominatim.model;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Read access to the current row of a query result by column name.
+ * <p>
+ * This is the part of a JDBC result set the row mappers need. It allows
+ * them to work on rows from other sources as well, like a binary COPY.
+ */
+@NullMarked
+public interface RowAccessor {
+    @Nullable
+    String getString(String columnName) throws SQLException;
+
+    /**
+     * Return the value as a long or 0 if it is NULL.
+     */
+    long getLong(String columnName) throws SQLException;
+
+    /**
+     * Return the value as an int or 0 if it is NULL.
+     */
+    int getInt(String columnName) throws SQLException;
+
+    /**
+     * Return the value as a double or 0 if it is NULL.
+     */
+    double getDouble(String columnName) throws SQLException;
+
+    @Nullable
+    Object getObject(String columnName) throws SQLException;
+
+    /**
+     * Check if the last column read was NULL.
+     */
+    boolean wasNull() throws SQLException;
+
+    /**
+     * Return the content of an hstore column. NULL is returned as an empty map.
+     */
+    Map<String, String> getMap(String columnName) throws SQLException;
+
+    /**
+     * Return the content of a geometry column.
+     */
+    @Nullable
+    Geometry getGeometry(String columnName) throws SQLException;
+}
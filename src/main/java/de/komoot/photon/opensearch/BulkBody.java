@@ -0,0 +1,124 @@
+package de.komoot.photon.opensearch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.komoot.photon.PhotonDoc;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Body of a bulk request in NDJSON format, serialized while documents are added.
+ * <p>
+ * The buffer can be reset and reused for the next bulk, so that the import
+ * does not need to allocate a new large buffer for every request.
+ * Not thread-safe.
+ */
+@NullMarked
+final class BulkBody extends OutputStream {
+    static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private byte[] buffer;
+    private int size = 0;
+    private int operations = 0;
+
+    BulkBody(int initialCapacity) {
+        buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Append a create operation for the given document.
+     *
+     * @param mapper  Object mapper which knows how to serialize PhotonDocs.
+     * @param index   Name of the index to add the document to.
+     * @param id      Document ID or null to let the database choose one.
+     * @param routing Routing value or null to route by document ID.
+     */
+    void addCreate(ObjectMapper mapper, String index, @Nullable String id, @Nullable String routing,
+                   PhotonDoc doc) throws IOException {
+        final int start = size;
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(this)) {
+            gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            gen.setRootValueSeparator(null);
+
+            gen.writeStartObject();
+            gen.writeObjectFieldStart("create");
+            gen.writeStringField("_index", index);
+            if (id != null) {
+                gen.writeStringField("_id", id);
+            }
+            if (routing != null) {
+                gen.writeStringField("routing", routing);
+            }
+            gen.writeEndObject();
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+            gen.writeObject(doc);
+            gen.writeRaw('\n');
+        } catch (IOException | RuntimeException e) {
+            // Never leave half a document in the body.
+            size = start;
+            throw e;
+        }
+        ++operations;
+    }
+
+    /**
+     * Exact size of the serialized body in bytes.
+     */
+    int size() {
+        return size;
+    }
+
+    int operations() {
+        return operations;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Stream over the serialized body. Reads directly from the internal
+     * buffer, so the body must not be modified while the stream is in use.
+     */
+    InputStream openStream() {
+        return new ByteArrayInputStream(buffer, 0, size);
+    }
+
+    void reset() {
+        size = 0;
+        operations = 0;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(size + 1);
+        buffer[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(size + len);
+        System.arraycopy(b, off, buffer, size, len);
+        size += len;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > buffer.length) {
+            if (required < 0) {
+                throw new IllegalStateException("Bulk body too large.");
+            }
+            buffer = Arrays.copyOf(buffer, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * buffer.length)));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package de.komoot.photon.opensearch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Tunes the size of bulk requests and the number of bulks in flight during an import.
+ * <p>
+ * The controller follows an additive-increase/multiplicative-decrease scheme: every
+ * bulk that comes back quickly lets the bulk size grow by a fixed step and, once the
+ * maximum size is reached, allows one more bulk in flight. Rejections (HTTP 429),
+ * slow bulks and high heap usage on the database nodes halve both values.
+ * In fixed mode, the values never change and only the statistics are kept.
+ */
+@NullMarked
+final class BulkController {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    static final int MIN_BULK_BYTES = 1024 * 1024;
+    static final int INITIAL_BULK_BYTES = 4 * 1024 * 1024;
+    static final int BULK_BYTES_STEP = 1024 * 1024;
+
+    /** Round-trip time below which a bulk counts as healthy. */
+    static final long LATENCY_LOW_MS = 2_000;
+    /** Round-trip time above which the load is reduced. */
+    static final long LATENCY_HIGH_MS = 10_000;
+    /** Server-side processing time above which the load is reduced. */
+    static final long TOOK_HIGH_MS = 5_000;
+    /** Heap usage of a database node above which the load is reduced. */
+    static final int HEAP_HIGH_PERCENT = 85;
+
+    private final boolean adaptive;
+    private final int maxBulkBytes;
+    private final int maxInFlight;
+
+    private volatile int bulkBytes;
+    private int inFlightLimit;
+    private int inFlight = 0;
+    private int heapUsedPercent = 0;
+    private long nextDecrease = Long.MIN_VALUE;
+
+    private long bulks = 0;
+    private long rejections = 0;
+    private long increases = 0;
+    private long decreases = 0;
+    private long totalTookMs = 0;
+
+    private BulkController(boolean adaptive, int bulkBytes, int maxBulkBytes, int inFlightLimit, int maxInFlight) {
+        this.adaptive = adaptive;
+        this.bulkBytes = bulkBytes;
+        this.maxBulkBytes = maxBulkBytes;
+        this.inFlightLimit = inFlightLimit;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Create a controller which adapts bulk size and concurrency to the observed load.
+     */
+    static BulkController adaptive(int maxBulkBytes, int maxInFlight) {
+        final int max = Math.max(MIN_BULK_BYTES, maxBulkBytes);
+        return new BulkController(true, Math.min(INITIAL_BULK_BYTES, max), max,
+                Math.max(1, (maxInFlight + 1) / 2), Math.max(1, maxInFlight));
+    }
+
+    /**
+     * Create a controller which keeps the given bulk size and concurrency.
+     */
+    static BulkController fixed(int bulkBytes, int maxInFlight) {
+        return new BulkController(false, bulkBytes, bulkBytes, Math.max(1, maxInFlight), Math.max(1, maxInFlight));
+    }
+
+    boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Size in bytes at which a bulk body should be sent.
+     */
+    int getBulkBytes() {
+        return bulkBytes;
+    }
+
+    synchronized int getInFlightLimit() {
+        return inFlightLimit;
+    }
+
+    /**
+     * Wait until another bulk may be sent.
+     */
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= inFlightLimit) {
+            wait();
+        }
+        ++inFlight;
+    }
+
+    /**
+     * Signal that a bulk has been sent, successfully or not.
+     */
+    synchronized void release() {
+        --inFlight;
+        notifyAll();
+    }
+
+    synchronized void onHeapUsage(int percent) {
+        heapUsedPercent = percent;
+    }
+
+    /**
+     * Take the outcome of a finished bulk into account.
+     *
+     * @param size       Size of the bulk body in bytes.
+     * @param latencyMs  Round-trip time for the bulk including retries.
+     * @param tookMs     Processing time as reported by the database.
+     * @param rejected   Number of times the bulk was rejected with HTTP 429.
+     * @param now        Current time in milliseconds.
+     */
+    synchronized void onBulk(int size, long latencyMs, long tookMs, int rejected, long now) {
+        ++bulks;
+        rejections += rejected;
+        totalTookMs += tookMs;
+
+        if (!adaptive) {
+            return;
+        }
+
+        final String reason;
+        if (rejected > 0) {
+            reason = "bulk rejected " + rejected + " times";
+        } else if (heapUsedPercent >= HEAP_HIGH_PERCENT) {
+            reason = "heap usage at " + heapUsedPercent + "%";
+        } else if (tookMs >= TOOK_HIGH_MS) {
+            reason = "bulk took " + tookMs + " ms";
+        } else if (latencyMs >= LATENCY_HIGH_MS) {
+            reason = "bulk latency " + latencyMs + " ms";
+        } else {
+            if (latencyMs < LATENCY_LOW_MS) {
+                // Only bulks that were filled up to the current target say something
+                // about whether the target may grow. Smaller bulks were limited by
+                // their document count, so try more of them in parallel instead.
+                increase(size >= bulkBytes - BULK_BYTES_STEP);
+            }
+            return;
+        }
+
+        // Bulks that were already in flight at the last decrease report the old
+        // load. Give them the time of one slow round-trip to come back.
+        if (now >= nextDecrease) {
+            nextDecrease = now + LATENCY_HIGH_MS;
+            decrease(reason);
+        }
+    }
+
+    private void increase(boolean sizeLimited) {
+        if (sizeLimited && bulkBytes < maxBulkBytes) {
+            bulkBytes = Math.min(maxBulkBytes, bulkBytes + BULK_BYTES_STEP);
+        } else if (inFlightLimit < maxInFlight) {
+            ++inFlightLimit;
+            notifyAll();
+            LOGGER.info("Bulk controller: raising bulks in flight to {}.", inFlightLimit);
+        } else {
+            return;
+        }
+        ++increases;
+        LOGGER.debug("Bulk controller: bulk size {} kB, {} bulks in flight.", bulkBytes / 1024, inFlightLimit);
+    }
+
+    private void decrease(String reason) {
+        bulkBytes = Math.max(MIN_BULK_BYTES, bulkBytes / 2);
+        inFlightLimit = Math.max(1, inFlightLimit / 2);
+        ++decreases;
+        LOGGER.info("Bulk controller: reducing bulk size to {} kB and bulks in flight to {} ({}).",
+                bulkBytes / 1024, inFlightLimit, reason);
+    }
+
+    synchronized long getBulks() {
+        return bulks;
+    }
+
+    synchronized long getRejections() {
+        return rejections;
+    }
+
+    synchronized long getIncreases() {
+        return increases;
+    }
+
+    synchronized long getDecreases() {
+        return decreases;
+    }
+
+    synchronized String summary() {
+        return String.format("%d bulks, %d rejections, average took %d ms; %d increases, %d decreases, "
+                        + "final bulk size %d kB with %d bulks in flight",
+                bulks, rejections, bulks == 0 ? 0 : totalTookMs / bulks,
+                increases, decreases, bulkBytes / 1024, inFlightLimit);
+    }
+}
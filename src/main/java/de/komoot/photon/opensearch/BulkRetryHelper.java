@@ -1,5 +1,9 @@
 package de.komoot.photon.opensearch;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.NullMarked;
@@ -8,9 +12,13 @@ import org.opensearch.client.opensearch._types.OpenSearchException;
 import org.opensearch.client.opensearch.core.BulkRequest;
 import org.opensearch.client.opensearch.core.BulkResponse;
 import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.generic.Body;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
 import org.opensearch.client.transport.httpclient5.ResponseException;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Sends OpenSearch bulk requests with exponential-backoff retries on HTTP 429 — the
@@ -29,9 +37,63 @@ final class BulkRetryHelper {
     /** Cap on per-item error log lines per bulk to avoid log flooding. */
     private static final int ERROR_LOG_LIMIT_PER_BULK = 10;
 
+    private static final ObjectMapper RESPONSE_MAPPER = new ObjectMapper();
+
+    /**
+     * Outcome of a successfully sent bulk.
+     *
+     * @param tookMillis Processing time as reported by the database.
+     * @param rejections Number of times the bulk was rejected with HTTP 429 before it went through.
+     */
+    record BulkResult(long tookMillis, int rejections) {}
+
     private BulkRetryHelper() {
     }
 
+    /**
+     * Send a pre-serialized bulk body, retrying on HTTP 429 with exponential backoff.
+     *
+     * @throws RuntimeException on per-item errors, non-429 failures, or retry exhaustion.
+     */
+    static BulkResult sendWithRetry(OpenSearchClient client, BulkBody body) {
+        final int opCount = body.operations();
+        Exception lastException = null;
+        for (int attempt = 0; attempt <= MAX_BULK_RETRIES; attempt++) {
+            if (attempt > 0) {
+                sleepBackoff(attempt, opCount);
+            }
+            try (Response response = client.generic().execute(Requests.builder()
+                    .method("POST")
+                    .endpoint("/_bulk")
+                    // A fresh stream on each attempt, reading straight from the bulk buffer.
+                    .body(Body.from(body.openStream(), BulkBody.CONTENT_TYPE))
+                    .build())) {
+                final byte[] responseBody = response.getBody().map(Body::bodyAsBytes).orElse(new byte[0]);
+                if (response.getStatus() == 429) {
+                    lastException = new RuntimeException("Bulk rejected with status 429: "
+                            + new String(responseBody, StandardCharsets.UTF_8));
+                    continue;
+                }
+                if (response.getStatus() >= 300) {
+                    throw new RuntimeException("Bulk request failed with status " + response.getStatus() + ": "
+                            + new String(responseBody, StandardCharsets.UTF_8));
+                }
+                final long took = checkBulkResponse(responseBody);
+                if (attempt > 0) {
+                    LOGGER.info("Bulk retry succeeded on attempt {}/{}", attempt, MAX_BULK_RETRIES);
+                }
+                return new BulkResult(took, attempt);
+            } catch (IOException e) {
+                if (!(e instanceof ResponseException re && re.status() == 429)) {
+                    throw new RuntimeException("Bulk request failed", e);
+                }
+                lastException = e;
+            }
+        }
+        throw new RuntimeException("Bulk retries exhausted after " + MAX_BULK_RETRIES
+                + " attempts (" + opCount + " operations)", lastException);
+    }
+
     /**
      * Send the bulk request, retrying on HTTP 429 with exponential backoff.
      * @throws RuntimeException on per-item errors, non-429 transport failures, or retry exhaustion.
@@ -84,6 +146,66 @@ final class BulkRetryHelper {
         }
     }
 
+    /**
+     * Read the bulk response and fail on item errors. The items are only
+     * looked at in detail when the response reports errors. As the order of
+     * the fields in the response is not fixed, the top-level fields are read
+     * first and the items checked in a second pass.
+     *
+     * @return The 'took' value of the response.
+     */
+    static long checkBulkResponse(byte[] response) throws IOException {
+        long took = 0;
+        boolean errors = false;
+        try (JsonParser parser = RESPONSE_MAPPER.createParser(response)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected bulk response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if ("took".equals(field) && value.isNumeric()) {
+                    took = parser.getLongValue();
+                } else if ("errors".equals(field)) {
+                    errors = value == JsonToken.VALUE_TRUE;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (errors) {
+            throw new RuntimeException(logAndCountItemErrors(response) + " failed items in bulk");
+        }
+        return took;
+    }
+
+    private static int logAndCountItemErrors(byte[] response) throws IOException {
+        int failed = 0;
+        try (JsonParser parser = RESPONSE_MAPPER.createParser(response)) {
+            parser.nextToken(); // start of response object
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if (!"items".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    parser.nextToken(); // operation type
+                    parser.nextToken();
+                    final JsonNode item = parser.readValueAsTree();
+                    if (item != null && (item.get("error") != null || item.path("status").asInt(200) >= 300)) {
+                        if (failed++ < ERROR_LOG_LIMIT_PER_BULK) {
+                            LOGGER.error("Bulk item error: {}", item);
+                        }
+                    }
+                    parser.nextToken(); // end of operation object
+                }
+            }
+        }
+        return failed;
+    }
+
     private static int logAndCountItemErrors(BulkResponse response) {
         int count = 0;
         for (BulkResponseItem item : response.items()) {
@@ -0,0 +1,187 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.query.ReverseRequest;
+import de.komoot.photon.searcher.PhotonResult;
+import de.komoot.photon.searcher.ResultCache;
+import de.komoot.photon.searcher.SearchHandler;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reverse handler that shares results between requests for nearby points.
+ * <p>
+ * Requests are mapped onto a geohash cell of configurable precision. On a
+ * cache miss, the candidates for the whole cell are fetched: all places within
+ * the request radius of any point inside the cell, ordered by distance to the
+ * cell center. Later requests in the same cell with the same parameters are
+ * answered by re-ranking these candidates by their exact distance to the
+ * requested point.
+ * <p>
+ * The candidate list is limited in size. When it had to be cut off, a
+ * re-ranked result is only returned when it provably equals the result from
+ * the database. Otherwise, the request is sent to the database.
+ */
+@NullMarked
+public class CachingReverseHandler implements SearchHandler<ReverseRequest> {
+    private static final GeometryFactory FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+    private static final int CANDIDATE_FACTOR = 4;
+    private static final int MIN_CANDIDATES = 10;
+
+    private final OpenSearchReverseHandler handler;
+    private final ResultCache<String, CellCandidates> cache;
+    private final int precision;
+
+    /**
+     * Places found for a single cell.
+     *
+     * @param results Results ordered by distance to the cell center.
+     * @param horizon Distance from the cell center up to which the result list is complete.
+     */
+    record CellCandidates(List<PhotonResult> results, double horizon) {}
+
+    private record RankedResult(PhotonResult result, double distance) {}
+
+    public CachingReverseHandler(OpenSearchReverseHandler handler, ResultCache<String, CellCandidates> cache,
+                                 int precision) {
+        this.handler = handler;
+        this.cache = cache;
+        this.precision = precision;
+    }
+
+    public CachingReverseHandler(OpenSearchReverseHandler handler, long cacheSize, int cacheTtl, int precision) {
+        this(handler, new ResultCache<>(cacheSize, cacheTtl, c -> c.results().size()), precision);
+    }
+
+    public ResultCache<?, ?> getCache() {
+        return cache;
+    }
+
+    @Override
+    public Stream<PhotonResult> search(ReverseRequest request) {
+        if (request.getDebug() || !request.getLocationDistanceSort()) {
+            return handler.search(request);
+        }
+
+        final var location = request.getLocation();
+        final var cell = GeoHashCell.of(location.getX(), location.getY(), precision);
+        final String key = cell.hash() + request.getCacheKey();
+
+        final long version = cache.getVersion();
+        var candidates = cache.get(key);
+        if (candidates == null) {
+            candidates = fetchCandidates(request, cell);
+            cache.put(key, candidates, version);
+        }
+
+        final var results = rerank(candidates, request, cell);
+
+        return results == null ? handler.search(request) : results.stream();
+    }
+
+    /**
+     * Answer all requests that can be served from the cache and send the
+     * remaining ones to the database in a single batch. Batch requests
+     * do not fill the cache.
+     */
+    @Override
+    public List<Stream<PhotonResult>> searchBatch(List<ReverseRequest> requests) {
+        final List<@Nullable List<PhotonResult>> results = new ArrayList<>(requests.size());
+        final List<ReverseRequest> misses = new ArrayList<>();
+        for (var request : requests) {
+            @Nullable List<PhotonResult> found = null;
+            if (!request.getDebug() && request.getLocationDistanceSort()) {
+                final var location = request.getLocation();
+                final var cell = GeoHashCell.of(location.getX(), location.getY(), precision);
+                final var candidates = cache.get(cell.hash() + request.getCacheKey());
+                if (candidates != null) {
+                    found = rerank(candidates, request, cell);
+                }
+            }
+            results.add(found);
+            if (found == null) {
+                misses.add(request);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            final var missResults = handler.searchBatch(misses).iterator();
+            for (int i = 0; i < results.size(); ++i) {
+                if (results.get(i) == null) {
+                    results.set(i, missResults.next().toList());
+                }
+            }
+        }
+
+        return results.stream()
+                .map(r -> r == null ? Stream.<PhotonResult>empty() : r.stream())
+                .toList();
+    }
+
+    @Override
+    public @Nullable String dumpQuery(ReverseRequest request) {
+        return handler.dumpQuery(request);
+    }
+
+    private CellCandidates fetchCandidates(ReverseRequest request, GeoHashCell cell) {
+        final int size = Math.max(MIN_CANDIDATES, request.getLimit() * CANDIDATE_FACTOR);
+        final var center = FACTORY.createPoint(new Coordinate(cell.centerLon(), cell.centerLat()));
+
+        final var results = handler.searchAround(
+                request, center, request.getRadius() + cell.radiusKm(), size, true).toList();
+
+        double horizon = Double.POSITIVE_INFINITY;
+        if (results.size() >= size) {
+            final var coords = results.get(results.size() - 1).getCoordinates();
+            horizon = OpenSearchResult.distanceKm(cell.centerLon(), cell.centerLat(), coords[0], coords[1]);
+        }
+
+        return new CellCandidates(results, horizon);
+    }
+
+    /**
+     * Order the candidates by their distance to the requested point.
+     *
+     * @return The final result list or null, if the candidates are not
+     *         sufficient to compute an exact result.
+     */
+    static @Nullable List<PhotonResult> rerank(CellCandidates candidates, ReverseRequest request, GeoHashCell cell) {
+        final double lon = request.getLocation().getX();
+        final double lat = request.getLocation().getY();
+        final double radius = request.getRadius();
+        final int limit = request.getLimit();
+
+        final List<RankedResult> ranked = new ArrayList<>();
+        for (var result : candidates.results()) {
+            final var coords = result.getCoordinates();
+            final double distance = OpenSearchResult.distanceKm(lon, lat, coords[0], coords[1]);
+            if (distance <= radius) {
+                ranked.add(new RankedResult(result, distance));
+            }
+        }
+        ranked.sort(Comparator.comparingDouble(RankedResult::distance));
+
+        if (candidates.horizon() != Double.POSITIVE_INFINITY) {
+            // Places missing from the candidate list are at least this far from the point.
+            final double missingDistance = candidates.horizon()
+                    - OpenSearchResult.distanceKm(lon, lat, cell.centerLon(), cell.centerLat());
+            if (ranked.size() < limit
+                    ? radius >= missingDistance
+                    : ranked.get(limit - 1).distance() > missingDistance) {
+                return null;
+            }
+        }
+
+        return ranked.stream()
+                .limit(limit)
+                .map(RankedResult::result)
+                .toList();
+    }
+}
@@ -0,0 +1,113 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.DatabaseProperties;
+import de.komoot.photon.PhotonDoc;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the routing values for documents and queries when the database
+ * routes documents by country.
+ * <p>
+ * All places of a country end up on the same shard, so that searches
+ * restricted to a country only need to ask a single shard. Large countries
+ * can be split into several parts, each with its own routing value. The part
+ * of a place is derived from its place ID, so that all documents of a place
+ * always have the same routing.
+ */
+@NullMarked
+public class CountryRouting {
+    public static final CountryRouting NONE = new CountryRouting(false, Map.of());
+
+    /** Routing value for places which are not in any country. */
+    static final String NO_COUNTRY = "none";
+
+    private final boolean enabled;
+    private final Map<String, Integer> splits;
+
+    public CountryRouting(boolean enabled, Map<String, Integer> splits) {
+        this.enabled = enabled;
+        this.splits = splits.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(
+                        e -> e.getKey().toUpperCase(Locale.ROOT),
+                        e -> Math.max(1, e.getValue())));
+    }
+
+    public static CountryRouting of(DatabaseProperties dbProperties) {
+        if (!dbProperties.getCountryRouting()) {
+            return NONE;
+        }
+        return new CountryRouting(true, dbProperties.getCountryRoutingSplits());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the routing value for all documents of a place.
+     *
+     * @return The routing value or null when routing by country is disabled.
+     */
+    @Nullable
+    public String forDocument(PhotonDoc doc) {
+        if (!enabled) {
+            return null;
+        }
+
+        final String countryCode = doc.getCountryCode();
+        if (countryCode == null) {
+            return NO_COUNTRY;
+        }
+
+        final int parts = splits.getOrDefault(countryCode, 1);
+        if (parts <= 1) {
+            return countryCode;
+        }
+
+        final String placeId = doc.getPlaceId();
+        final int hash = placeId == null ? Long.hashCode(doc.getOsmId()) : placeId.hashCode();
+        return countryCode + "_" + Math.floorMod(hash, parts);
+    }
+
+    /**
+     * Get the routing value for a search which is restricted to the given
+     * countries.
+     *
+     * @return A comma-separated list of routing values or null when
+     *         all shards need to be searched.
+     */
+    @Nullable
+    public String forCountries(Collection<String> countryCodes) {
+        if (!enabled || countryCodes.isEmpty()) {
+            return null;
+        }
+
+        final var values = new TreeSet<String>();
+        for (var cc : countryCodes) {
+            final String countryCode = cc.toUpperCase(Locale.ROOT);
+            final int parts = splits.getOrDefault(countryCode, 1);
+            if (parts <= 1) {
+                values.add(countryCode);
+            } else {
+                for (int i = 0; i < parts; ++i) {
+                    values.add(countryCode + "_" + i);
+                }
+            }
+        }
+
+        return String.join(",", values);
+    }
+
+    @Nullable
+    public String forCountry(@Nullable String countryCode) {
+        return countryCode == null ? null : forCountries(List.of(countryCode));
+    }
+}
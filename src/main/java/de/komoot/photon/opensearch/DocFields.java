@@ -29,6 +29,7 @@ public class DocFields {
     public static final String COORDINATE = "coordinate";
     public static final String GEOMETRY = "geometry";
     public static final String EXTENT = "extent";
+    public static final String SPATIAL_KEY = "spatial_key";
 
     public static final String COLLECTOR = "collector";
 }
@@ -0,0 +1,89 @@
+package de.komoot.photon.opensearch;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Geohash cell containing a given point.
+ * <p>
+ * The cell is described by its geohash string and its bounding box
+ * in WGS84 coordinates.
+ */
+@NullMarked
+public record GeoHashCell(String hash, double minLon, double minLat, double maxLon, double maxLat) {
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    /**
+     * Compute the cell of the given precision that contains the point.
+     *
+     * @param lon Longitude of the point.
+     * @param lat Latitude of the point.
+     * @param precision Length of the geohash, between 1 and {@link #MAX_PRECISION}.
+     */
+    public static GeoHashCell of(double lon, double lat, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+
+        double minLon = -180.0;
+        double maxLon = 180.0;
+        double minLat = -90.0;
+        double maxLat = 90.0;
+
+        final var hash = new StringBuilder(precision);
+        boolean isLon = true;
+        int bits = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            ch <<= 1;
+            if (isLon) {
+                final double mid = (minLon + maxLon) / 2;
+                if (lon >= mid) {
+                    ch |= 1;
+                    minLon = mid;
+                } else {
+                    maxLon = mid;
+                }
+            } else {
+                final double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch |= 1;
+                    minLat = mid;
+                } else {
+                    maxLat = mid;
+                }
+            }
+            isLon = !isLon;
+
+            if (++bits == 5) {
+                hash.append(BASE32[ch]);
+                bits = 0;
+                ch = 0;
+            }
+        }
+
+        return new GeoHashCell(hash.toString(), minLon, minLat, maxLon, maxLat);
+    }
+
+    public double centerLon() {
+        return (minLon + maxLon) / 2;
+    }
+
+    public double centerLat() {
+        return (minLat + maxLat) / 2;
+    }
+
+    /**
+     * Distance in km from the center of the cell to its farthest corner.
+     */
+    public double radiusKm() {
+        final double lon = centerLon();
+        final double lat = centerLat();
+        return Math.max(
+                Math.max(OpenSearchResult.distanceKm(lon, lat, minLon, minLat),
+                         OpenSearchResult.distanceKm(lon, lat, maxLon, minLat)),
+                Math.max(OpenSearchResult.distanceKm(lon, lat, minLon, maxLat),
+                         OpenSearchResult.distanceKm(lon, lat, maxLon, maxLat)));
+    }
+}
@@ -1,62 +1,71 @@
 package de.komoot.photon.opensearch;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.komoot.photon.PhotonDoc;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.OpenSearchException;
 import org.opensearch.client.opensearch._types.Time;
-import org.opensearch.client.opensearch.core.BulkRequest;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
 import org.opensearch.client.opensearch.indices.IndexSettings;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 @NullMarked
 public class Importer implements de.komoot.photon.Importer {
     private static final Logger LOGGER = LogManager.getLogger();
 
-    /** Upper bound on documents per bulk request. A bulk may flush earlier once {@link #MAX_BULK_BYTES} is reached. */
+    /** Upper bound on documents per bulk request. A bulk may flush earlier once its byte size is reached. */
     private static final int BULK_SIZE = 10000;
 
     /**
-     * Soft cap on the estimated serialized size of a bulk request body, in bytes. With
+     * Upper bound on the serialized size of a bulk request body, in bytes. The bulk
+     * controller chooses the actual size below this limit unless a fixed size is given. With
      * {@code -full-geometry} a single document can carry a large polygon, so the document
-     * count alone no longer bounds the request size. Kept well below OpenSearch's default
-     * {@code http.max_content_length} (100 MB) to leave room for estimation slack and the
-     * per-operation action metadata that NDJSON adds on top of the documents.
+     * count alone no longer bounds the request size. The body is serialized while the
+     * documents are added, so the size is exact. Kept well below OpenSearch's default
+     * {@code http.max_content_length} (100 MB) because the bulk is only flushed after
+     * the document that crosses the limit.
      */
-    private static final long MAX_BULK_BYTES = 50L * 1024 * 1024;
+    private static final int MAX_BULK_BYTES = 50 * 1024 * 1024;
 
-    /**
-     * Estimated bytes per geometry coordinate in the GeoJSON encoding (two formatted doubles
-     * plus brackets and separators). Deliberately generous so the byte estimate runs high and
-     * we flush early rather than risk a 413.
-     */
-    static final int BYTES_PER_GEOMETRY_POINT = 40;
+    /** Initial capacity of a bulk body buffer. Buffers grow as needed and are reused. */
+    private static final int INITIAL_BODY_CAPACITY = 1024 * 1024;
 
-    /** Generous flat allowance for a document's non-geometry fields plus its bulk action line. */
-    static final int BASE_DOC_BYTES = 1024;
+    /** Minimum time between two reads of the heap usage of the database nodes. */
+    private static final long HEAP_CHECK_INTERVAL_MS = 5_000;
 
     /** Fallback refresh_interval if the original value cannot be read. Matches the OpenSearch default. */
     private static final String FALLBACK_REFRESH_INTERVAL = "1s";
 
     private final OpenSearchClient client;
-    private final BlockingQueue<BulkRequest> bulkQueue;
-    // Compared by reference identity in submitLoop. The dummy delete is only there so
-    // BulkRequest.Builder.build() passes its required-operations check.
-    private final BulkRequest poison = new BulkRequest.Builder()
-            .operations(op -> op.delete(d -> d.index(PhotonIndex.NAME).id("__photon_poison_pill__")))
-            .build();
+    private final String indexName;
+    private final CountryRouting routing;
+    private final ObjectMapper mapper;
+    private final BulkController controller;
+    private final AtomicLong nextHeapCheck = new AtomicLong(0);
+    private final BlockingQueue<BulkBody> bulkQueue;
+    // Compared by reference identity in submitLoop.
+    private final BulkBody poison = new BulkBody(0);
+    // Bodies which have been sent and can be reused by the producers. Bounded, so that
+    // the number of live buffers stays at roughly one per producer and submitter.
+    private final BlockingQueue<BulkBody> freeBodies;
     private final List<Thread> submitThreads;
     private final AtomicReference<@Nullable Throwable> firstFailure = new AtomicReference<>();
     private final AtomicBoolean hasPrintedNoUpdates = new AtomicBoolean(false);
@@ -64,22 +73,36 @@ public class Importer implements de.komoot.photon.Importer {
     private final boolean shouldRestoreRefresh;
     @Nullable private final String originalRefreshInterval;
 
-    // One accumulator per producer thread keeps add() lock-free across the
-    // multi-reader import path. Cross-thread handoff happens only at bulkQueue.put().
-    private final ConcurrentMap<Thread, Bulk> bulks = new ConcurrentHashMap<>();
+    // One body per producer thread keeps add() lock-free across the multi-reader
+    // import path. Documents are serialized straight into it on the producer thread,
+    // so the submitters only have to send finished bodies.
+    // Cross-thread handoff happens only at bulkQueue.put().
+    private final ConcurrentMap<Thread, BulkBody> bulks = new ConcurrentHashMap<>();
 
-    private static final class Bulk {
-        BulkRequest.Builder builder = new BulkRequest.Builder();
-        int todo = 0;
-        long bytes = 0;
-    }
-
-    public Importer(OpenSearchClient client, int maxConcurrentRequests, boolean tuneRefresh) {
+    /**
+     * Create a new importer.
+     *
+     * @param indexName             Name of the index to write to.
+     * @param maxConcurrentRequests Maximum number of bulks in flight.
+     * @param fixedBulkBytes        When larger than 0, send bulks of this size in bytes and always use
+     *                              the maximum number of concurrent requests. Otherwise bulk size and
+     *                              concurrency are adapted to the load of the database.
+     * @param routing               Routing to use for the documents.
+     */
+    public Importer(OpenSearchClient client, String indexName, int maxConcurrentRequests,
+                    boolean tuneRefresh, int fixedBulkBytes, CountryRouting routing) {
         this.client = client;
+        this.indexName = indexName;
+        this.routing = routing;
+        this.mapper = ((JacksonJsonpMapper) client._transport().jsonpMapper()).objectMapper();
         final int threads = Math.max(1, maxConcurrentRequests);
+        this.controller = fixedBulkBytes > 0
+                ? BulkController.fixed(fixedBulkBytes, threads)
+                : BulkController.adaptive(MAX_BULK_BYTES, threads);
         // One slot keeps a fast submitter from idling between builds. Larger buffers
         // multiply the live-bulk footprint and OOM the embedded OpenSearch under load.
         this.bulkQueue = new ArrayBlockingQueue<>(1);
+        this.freeBodies = new ArrayBlockingQueue<>(threads + 1);
         this.submitThreads = new ArrayList<>(threads);
         for (int i = 0; i < threads; i++) {
             final Thread t = new Thread(this::submitLoop, "photon-bulk-submit-" + i);
@@ -89,7 +112,7 @@ public class Importer implements de.komoot.photon.Importer {
         }
         // Read before overwrite: the operator's value may not be the OS default.
         this.originalRefreshInterval = tuneRefresh ? readRefreshInterval() : null;
-        this.shouldRestoreRefresh = tuneRefresh && setRefreshInterval("-1");
+        this.shouldRestoreRefresh = tuneRefresh && setRefreshInterval(client, indexName, "-1");
     }
 
     @Override
@@ -99,7 +122,12 @@ public class Importer implements de.komoot.photon.Importer {
             throw new RuntimeException("Error inserting new documents", f);
         }
 
-        final Bulk b = bulks.computeIfAbsent(Thread.currentThread(), k -> new Bulk());
+        final Thread producer = Thread.currentThread();
+        BulkBody body = bulks.get(producer);
+        if (body == null) {
+            body = acquireBody();
+            bulks.put(producer, body);
+        }
 
         String placeID = null;
         int objectId = 0;
@@ -107,37 +135,29 @@ public class Importer implements de.komoot.photon.Importer {
             if (objectId == 0) {
                 placeID = doc.getPlaceId();
             }
+            String uuid = null;
             if (placeID == null) {
                 if (hasPrintedNoUpdates.compareAndSet(false, true)) {
                     LOGGER.warn("Documents have no place_id. Updates will not be possible.");
                 }
-                b.builder.operations(op -> op.create(i -> i.index(PhotonIndex.NAME).document(doc)));
             } else {
-                final String uuid = PhotonDoc.makeUid(placeID, objectId++);
-                b.builder.operations(op -> op.create(i -> i.index(PhotonIndex.NAME).id(uuid).document(doc)));
+                uuid = PhotonDoc.makeUid(placeID, objectId++);
             }
-            b.bytes += estimateSize(doc);
-            // A single doc over MAX_BULK_BYTES still flushes on its own; an oversized request
+            try {
+                body.addCreate(mapper, indexName, uuid, routing.forDocument(doc), doc);
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot serialize document " + doc, e);
+            }
+            // A single doc over the bulk size still flushes on its own; an oversized request
             // can't be split any smaller anyway.
-            if (++b.todo >= BULK_SIZE || b.bytes >= MAX_BULK_BYTES) {
-                flush(b);
+            if (body.operations() >= BULK_SIZE || body.size() >= controller.getBulkBytes()) {
+                flush(body);
+                body = acquireBody();
+                bulks.put(producer, body);
             }
         }
     }
 
-    /**
-     * Rough estimate of a document's serialized size, dominated by its full geometry. Used only
-     * to decide when to flush a bulk; it errs on the high side so we stay under the HTTP body limit.
-     */
-    static long estimateSize(PhotonDoc doc) {
-        long size = BASE_DOC_BYTES;
-        final var geom = doc.getGeometry();
-        if (geom != null) {
-            size += (long) geom.getNumPoints() * BYTES_PER_GEOMETRY_POINT;
-        }
-        return size;
-    }
-
     @Override
     public void finish() {
         if (!finished.compareAndSet(false, true)) {
@@ -147,11 +167,12 @@ public class Importer implements de.komoot.photon.Importer {
         try {
             // Safe to iterate without locking: finish() runs after all producer threads
             // have joined, so no concurrent put into `bulks` is in flight.
-            for (Bulk b : bulks.values()) {
-                if (b.todo > 0) {
-                    flush(b);
+            for (BulkBody body : bulks.values()) {
+                if (body.operations() > 0) {
+                    flush(body);
                 }
             }
+            bulks.clear();
         } catch (Throwable t) {
             firstFailure.compareAndSet(null, t);
         } finally {
@@ -164,9 +185,12 @@ public class Importer implements de.komoot.photon.Importer {
         // refresh disabled. The cluster-default case can't round-trip through the typed
         // API, so fall back to "1s".
         if (shouldRestoreRefresh) {
-            setRefreshInterval(originalRefreshInterval != null ? originalRefreshInterval : FALLBACK_REFRESH_INTERVAL);
+            setRefreshInterval(client, indexName,
+                    originalRefreshInterval != null ? originalRefreshInterval : FALLBACK_REFRESH_INTERVAL);
         }
 
+        LOGGER.info("Bulk import statistics: {}", controller.summary());
+
         final Throwable failure = firstFailure.get();
         if (failure != null) {
             LOGGER.error("Import failed.", failure);
@@ -174,7 +198,7 @@ public class Importer implements de.komoot.photon.Importer {
         }
 
         try {
-            client.indices().refresh(r -> r.index(PhotonIndex.NAME));
+            client.indices().refresh(r -> r.index(indexName));
         } catch (IOException e) {
             LOGGER.warn("Refresh of database failed", e);
         }
@@ -183,14 +207,9 @@ public class Importer implements de.komoot.photon.Importer {
     // Retry-on-429 runs on the submitter thread, keeping the worker busy for the
     // duration. That's intentional: it slows the producer under sustained 429s
     // instead of piling on more concurrent bulks.
-    private void flush(Bulk b) {
-        final BulkRequest req = b.builder.build();
-        b.builder = new BulkRequest.Builder();
-        b.todo = 0;
-        b.bytes = 0;
-
+    private void flush(BulkBody body) {
         try {
-            bulkQueue.put(req);
+            bulkQueue.put(body);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Import interrupted while waiting for a submit slot", e);
@@ -199,29 +218,89 @@ public class Importer implements de.komoot.photon.Importer {
 
     private void submitLoop() {
         while (true) {
-            final BulkRequest req;
+            final BulkBody body;
             try {
-                req = bulkQueue.take();
+                body = bulkQueue.take();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 return;
             }
-            if (req == poison) {
+            if (body == poison) {
                 return;
             }
             // Once any submitter has recorded a hard failure, drop subsequent bulks
             // without sending. Still drain the queue so producers don't block on put()
             // until they hit firstFailure on their next add().
-            if (firstFailure.get() != null) {
-                continue;
+            if (firstFailure.get() == null) {
+                try {
+                    send(body);
+                } catch (Throwable t) {
+                    // Errors (OOM, AssertionError, ...) too: a thread that died silently would
+                    // hang -j 1 (no consumer to drain the queue) or drop in-flight docs at -j N.
+                    firstFailure.compareAndSet(null, t);
+                }
             }
-            try {
-                BulkRetryHelper.sendWithRetry(client, req);
-            } catch (Throwable t) {
-                // Errors (OOM, AssertionError, ...) too: a thread that died silently would
-                // hang -j 1 (no consumer to drain the queue) or drop in-flight docs at -j N.
-                firstFailure.compareAndSet(null, t);
+            releaseBody(body);
+        }
+    }
+
+    private void send(BulkBody body) throws InterruptedException {
+        controller.acquire();
+        try {
+            final long start = System.nanoTime();
+            final var result = BulkRetryHelper.sendWithRetry(client, body);
+            final long latencyMs = (System.nanoTime() - start) / 1_000_000;
+            if (controller.isAdaptive()) {
+                checkHeapUsage();
+            }
+            controller.onBulk(body.size(), latencyMs, result.tookMillis(), result.rejections(),
+                    System.currentTimeMillis());
+        } finally {
+            controller.release();
+        }
+    }
+
+    /**
+     * Hand the highest heap usage over all database nodes to the controller.
+     * Only one submitter reads the node statistics per check interval.
+     */
+    private void checkHeapUsage() {
+        final long now = System.currentTimeMillis();
+        final long next = nextHeapCheck.get();
+        if (now < next || !nextHeapCheck.compareAndSet(next, now + HEAP_CHECK_INTERVAL_MS)) {
+            return;
+        }
+
+        try (Response response = client.generic().execute(Requests.builder()
+                .method("GET")
+                .endpoint("/_nodes/stats/jvm")
+                .query(Map.of("filter_path", "nodes.*.jvm.mem.heap_used_percent"))
+                .build())) {
+            if (response.getStatus() != 200 || response.getBody().isEmpty()) {
+                return;
+            }
+            int maxPercent = 0;
+            try (var in = response.getBody().get().body()) {
+                for (JsonNode node : mapper.readTree(in).path("nodes")) {
+                    maxPercent = Math.max(maxPercent, node.path("jvm").path("mem").path("heap_used_percent").asInt());
+                }
             }
+            controller.onHeapUsage(maxPercent);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Could not read node statistics.", e);
+        }
+    }
+
+    private BulkBody acquireBody() {
+        final BulkBody body = freeBodies.poll();
+        return body == null ? new BulkBody(INITIAL_BODY_CAPACITY) : body;
+    }
+
+    private void releaseBody(BulkBody body) {
+        body.reset();
+        // Don't hold on to buffers that had to grow for a bulk with huge geometries.
+        if (body.capacity() <= 2 * MAX_BULK_BYTES) {
+            freeBodies.offer(body);
         }
     }
 
@@ -247,18 +326,18 @@ public class Importer implements de.komoot.photon.Importer {
     }
 
     /**
-     * Apply {@code index.refresh_interval} to the photon index. Returns true if the
+     * Apply {@code index.refresh_interval} to the given index. Returns true if the
      * setting was accepted; false on failure (in which case we carry on with whatever
      * interval the index already had).
      */
-    private boolean setRefreshInterval(String interval) {
+    static boolean setRefreshInterval(OpenSearchClient client, String indexName, String interval) {
         try {
             client.indices().putSettings(s -> s
-                    .index(PhotonIndex.NAME)
+                    .index(indexName)
                     .settings(set -> set.refreshInterval(Time.of(t -> t.time(interval)))));
             return true;
         } catch (IOException | OpenSearchException e) {
-            LOGGER.warn("Could not set refresh_interval={} on index {}.", interval, PhotonIndex.NAME, e);
+            LOGGER.warn("Could not set refresh_interval={} on index {}.", interval, indexName, e);
             return false;
         }
     }
@@ -272,11 +351,11 @@ public class Importer implements de.komoot.photon.Importer {
     private String readRefreshInterval() {
         try {
             final var state = client.indices()
-                    .getSettings(g -> g.index(PhotonIndex.NAME))
-                    .get(PhotonIndex.NAME);
+                    .getSettings(g -> g.index(indexName))
+                    .get(indexName);
             return state == null ? null : findRefreshInterval(state.settings(), 4);
         } catch (IOException | OpenSearchException e) {
-            LOGGER.warn("Could not read refresh_interval from index {}.", PhotonIndex.NAME, e);
+            LOGGER.warn("Could not read refresh_interval from index {}.", indexName, e);
             return null;
         }
     }
@@ -29,7 +29,7 @@ public class IndexMapping {
         mappings = new PutMappingRequest.Builder();
 
         mappings.dynamic(DynamicMapping.False)
-                .source(s -> s.excludes(DocFields.COLLECTOR, DocFields.CATEGORIES));
+                .source(s -> s.excludes(DocFields.COLLECTOR, DocFields.CATEGORIES, DocFields.SPATIAL_KEY));
 
         // Only list fields here that need an index in some form. All other fields will
         // be passive fields saved in and retrievable by _source.
@@ -0,0 +1,190 @@
+package de.komoot.photon.opensearch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.NullMarked;
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.SortOrder;
+import org.opensearch.client.opensearch.generic.Requests;
+import org.opensearch.client.opensearch.generic.Response;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Merges the segments of an index and warms it up for searching.
+ * <p>
+ * A freshly imported index consists of many small segments and an index that
+ * has received updates for a long time accumulates deleted documents. Both
+ * slow down searches. The optimizer reports segment statistics and the
+ * latency of a fixed set of sample queries before and after the merge.
+ */
+@NullMarked
+public class IndexOptimizer {
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Time between two checks if the merge task has finished. */
+    private static final long TASK_POLL_INTERVAL_MS = 5_000;
+    /** Number of times the sample queries are run to measure latency. */
+    private static final int LATENCY_ROUNDS = 5;
+
+    private final OpenSearchClient client;
+
+    /**
+     * Segment statistics of the primary shards of an index.
+     */
+    public record SegmentStats(long segments, long sizeBytes, long documents, long deletedDocuments) {
+        @Override
+        public String toString() {
+            return String.format("%d segments, %.1f MB, %d documents, %d deleted documents",
+                    segments, sizeBytes / (1024.0 * 1024.0), documents, deletedDocuments);
+        }
+    }
+
+    public IndexOptimizer(OpenSearchClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Merge the index and report the effect.
+     *
+     * @param index          Name of the index or alias to optimize.
+     * @param maxSegments    Number of segments per shard to merge down to.
+     * @param expungeDeletes When true, only merge away segments with deleted documents
+     *                       instead of merging down to the given number of segments.
+     */
+    public void optimize(String index, int maxSegments, boolean expungeDeletes) throws IOException {
+        final var before = getSegmentStats(index);
+        final double latencyBefore = measureQueries(index);
+        LOGGER.info("Index {} before optimization: {}; sample queries take {} ms.",
+                index, before, String.format("%.1f", latencyBefore));
+
+        final long start = System.currentTimeMillis();
+        if (expungeDeletes) {
+            forceMerge(index, Map.of("only_expunge_deletes", "true"));
+        } else {
+            forceMerge(index, Map.of("max_num_segments", Integer.toString(Math.max(1, maxSegments))));
+        }
+        LOGGER.info("Merging segments of index {} took {} s.", index, (System.currentTimeMillis() - start) / 1000);
+
+        warmUp(index);
+
+        final var after = getSegmentStats(index);
+        final double latencyAfter = measureQueries(index);
+        LOGGER.info("Index {} after optimization: {}; sample queries take {} ms.",
+                index, after, String.format("%.1f", latencyAfter));
+    }
+
+    public SegmentStats getSegmentStats(String index) throws IOException {
+        final JsonNode primaries = execute("GET", "/" + index + "/_stats/docs,store,segments", Map.of())
+                .path("_all").path("primaries");
+
+        return new SegmentStats(
+                primaries.path("segments").path("count").asLong(),
+                primaries.path("store").path("size_in_bytes").asLong(),
+                primaries.path("docs").path("count").asLong(),
+                primaries.path("docs").path("deleted").asLong());
+    }
+
+    /**
+     * Run the sample queries once, so that the first searches do not
+     * have to load everything from disk.
+     */
+    public void warmUp(String index) throws IOException {
+        client.indices().refresh(r -> r.index(index));
+        runSampleQueries(index);
+    }
+
+    /**
+     * Run the sample queries several times.
+     *
+     * @return The average time of a round in milliseconds.
+     */
+    double measureQueries(String index) throws IOException {
+        final long start = System.nanoTime();
+        for (int i = 0; i < LATENCY_ROUNDS; ++i) {
+            runSampleQueries(index);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / LATENCY_ROUNDS;
+    }
+
+    private void runSampleQueries(String index) throws IOException {
+        client.search(s -> s
+                .index(index)
+                .size(10)
+                .query(q -> q.matchAll(m -> m))
+                .sort(so -> so.field(f -> f.field(DocFields.IMPORTANCE).order(SortOrder.Desc))),
+                JsonData.class);
+        client.search(s -> s
+                .index(index)
+                .size(10)
+                .query(q -> q.geoDistance(g -> g
+                        .field(DocFields.COORDINATE)
+                        .distance("100km")
+                        .location(l -> l.latlon(ll -> ll.lat(52.5).lon(13.4))))),
+                JsonData.class);
+        client.search(s -> s
+                .index(index)
+                .size(10)
+                .query(q -> q.match(m -> m.field(DocFields.COLLECTOR + ".all").query(v -> v.stringValue("main street")))),
+                JsonData.class);
+    }
+
+    /**
+     * Merge the segments of the given index. The merge may take hours on
+     * a large index, so it runs as a task on the server and is polled.
+     */
+    private void forceMerge(String index, Map<String, String> parameters) throws IOException {
+        final var query = new HashMap<>(parameters);
+        query.put("wait_for_completion", "false");
+        final JsonNode started = execute("POST", "/" + index + "/_forcemerge", query);
+        if (!started.hasNonNull("task")) {
+            throw new IOException("Force merge of index " + index + " failed: " + started);
+        }
+        final String task = started.get("task").asText();
+
+        while (true) {
+            try {
+                Thread.sleep(TASK_POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for force merge", e);
+            }
+            final JsonNode result = execute("GET", "/_tasks/" + task, Map.of());
+            if (result.path("completed").asBoolean(false)) {
+                if (result.hasNonNull("error")) {
+                    throw new IOException("Force merge of index " + index + " failed: " + result.get("error"));
+                }
+                return;
+            }
+        }
+    }
+
+    private JsonNode execute(String method, String endpoint, Map<String, String> query) throws IOException {
+        try (Response response = client.generic().execute(Requests.builder()
+                .method(method)
+                .endpoint(endpoint)
+                .query(query)
+                .build())) {
+            final var body = response.getBody();
+            final JsonNode result;
+            if (body.isEmpty()) {
+                result = MAPPER.createObjectNode();
+            } else {
+                try (var in = body.get().body()) {
+                    result = MAPPER.readTree(in);
+                }
+            }
+            if (response.getStatus() != 200) {
+                throw new IOException("Request " + method + " " + endpoint + " failed with status "
+                        + response.getStatus() + ": " + result);
+            }
+            return result;
+        }
+    }
+}
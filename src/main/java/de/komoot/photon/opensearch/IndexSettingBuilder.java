@@ -10,6 +10,7 @@ import org.jspecify.annotations.Nullable;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.analysis.CustomAnalyzer;
 import org.opensearch.client.opensearch.indices.IndexSettingsAnalysis;
+import org.opensearch.client.opensearch.indices.SegmentSortOrder;
 
 import java.io.File;
 import java.io.IOException;
@@ -33,6 +34,10 @@ public class IndexSettingBuilder {
 
     private final IndexSettingsAnalysis.Builder settings = new IndexSettingsAnalysis.Builder();
     private int numShards = 1;
+    private int numReplicas = -1;
+    private boolean geoSort = false;
+    private boolean geoSortImportance = false;
+    private boolean requireRouting = false;
     private boolean hasSynonymFilter = false;
     private boolean hasClassificationFilter = false;
 
@@ -41,14 +46,66 @@ public class IndexSettingBuilder {
         return this;
     }
 
+    /**
+     * Set the number of replicas for a new index. When not set, the cluster default is used.
+     */
+    public IndexSettingBuilder setReplicas(int numReplicas) {
+        this.numReplicas = numReplicas;
+        return this;
+    }
+
+    /**
+     * Sort the segments of a new index by location, optionally followed by importance.
+     */
+    public IndexSettingBuilder setGeoSort(boolean geoSort, boolean withImportance) {
+        this.geoSort = geoSort;
+        this.geoSortImportance = geoSort && withImportance;
+        return this;
+    }
+
+    public IndexSettingBuilder setRequireRouting(boolean requireRouting) {
+        this.requireRouting = requireRouting;
+        return this;
+    }
+
     public void createIndex(OpenSearchClient client, String indexName) throws IOException {
         addDefaultSettings();
 
-        client.indices().create(r -> r
-                .index(indexName)
-                .settings(s -> s
-                        .numberOfShards(numShards)
-                        .analysis(settings.build())));
+        client.indices().create(r -> {
+            r.index(indexName);
+            if (geoSort || requireRouting) {
+                r.mappings(m -> {
+                    if (geoSort) {
+                        // Fields used for sorting must be known when the index is created.
+                        // The spatial key is only needed for sorting and not searchable.
+                        m.properties(DocFields.SPATIAL_KEY, b -> b.long_(p -> p.index(false)))
+                                .properties(DocFields.IMPORTANCE, b -> b.float_(p -> p.index(false)));
+                    }
+                    if (requireRouting) {
+                        // Documents written without routing would end up on the wrong shard.
+                        m.routing(rt -> rt.required(true));
+                    }
+                    return m;
+                });
+            }
+            return r.settings(s -> {
+                s.numberOfShards(numShards)
+                        .analysis(settings.build());
+                if (numReplicas >= 0) {
+                    s.numberOfReplicas(numReplicas);
+                }
+                if (geoSortImportance) {
+                    s.sort(srt -> srt
+                            .field(DocFields.SPATIAL_KEY, DocFields.IMPORTANCE)
+                            .order(SegmentSortOrder.Asc, SegmentSortOrder.Desc));
+                } else if (geoSort) {
+                    s.sort(srt -> srt
+                            .field(DocFields.SPATIAL_KEY)
+                            .order(SegmentSortOrder.Asc));
+                }
+                return s;
+            });
+        });
     }
 
     public void updateIndex(OpenSearchClient client, String indexName) throws IOException {
@@ -0,0 +1,167 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.UsageException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.indices.update_aliases.Action;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manages the versioned indexes behind the photon alias.
+ * <p>
+ * Imports write into a new index. Only when the import is complete, the index is
+ * optimized and the alias is switched over in a single atomic operation, so that
+ * searches can continue on the old index during the import. The index used before
+ * is kept around, so that it is possible to go back to it.
+ */
+@NullMarked
+public class IndexVersions {
+    private static final Logger LOGGER = LogManager.getLogger();
+    /** Time to wait for the replicas of a new index to be allocated. */
+    private static final String REPLICA_TIMEOUT = "30m";
+
+    private final OpenSearchClient client;
+    private final IndexOptimizer optimizer;
+
+    public IndexVersions(OpenSearchClient client) {
+        this.client = client;
+        this.optimizer = new IndexOptimizer(client);
+    }
+
+    /**
+     * Return the name of the index the photon alias currently points to.
+     * When the database still has a plain index named 'photon' from
+     * before versioned indexes were introduced, then that name is returned.
+     */
+    @Nullable
+    public String getActiveIndex() throws IOException {
+        if (client.indices().existsAlias(e -> e.name(PhotonIndex.NAME)).value()) {
+            final var indexes = client.indices().getAlias(g -> g.name(PhotonIndex.NAME)).result().keySet();
+            return indexes.isEmpty() ? null : indexes.iterator().next();
+        }
+
+        return client.indices().exists(e -> e.index(PhotonIndex.NAME)).value() ? PhotonIndex.NAME : null;
+    }
+
+    /**
+     * Return the names of all versioned indexes, oldest first.
+     */
+    public List<String> getVersions() throws IOException {
+        final var indexes = new ArrayList<>(client.indices()
+                .get(g -> g.index(PhotonIndex.VERSION_PREFIX + "*"))
+                .result().keySet());
+        indexes.sort(null);
+        return indexes;
+    }
+
+    /**
+     * Remove all indexes and the alias.
+     */
+    public void deleteAll() throws IOException {
+        final var indexes = getVersions();
+        // Once the alias exists, 'photon' is no longer an index and cannot be deleted by name.
+        if (PhotonIndex.NAME.equals(getActiveIndex())) {
+            indexes.add(PhotonIndex.NAME);
+        }
+        if (!indexes.isEmpty()) {
+            client.indices().delete(d -> d.index(indexes));
+        }
+    }
+
+    /**
+     * Prepare a freshly imported index for serving and point the alias to it.
+     *
+     * @param index       Name of the new index.
+     * @param replicas    Number of replicas the index should have when serving.
+     * @param maxSegments Number of segments per shard to merge the index down to.
+     */
+    public void activate(String index, int replicas, int maxSegments) throws IOException {
+        // Merge before creating the replicas, so that only the merged segments get copied.
+        optimizer.optimize(index, maxSegments, false);
+
+        if (replicas > 0) {
+            LOGGER.info("Creating {} replicas for index {}.", replicas, index);
+            client.indices().putSettings(s -> s
+                    .index(index)
+                    .settings(set -> set.numberOfReplicas(replicas)));
+            client.cluster().health(h -> h
+                    .index(index)
+                    .waitForNoInitializingShards(true)
+                    .timeout(t -> t.time(REPLICA_TIMEOUT)));
+        }
+
+        optimizer.warmUp(index);
+
+        final String previous = switchAlias(index);
+        LOGGER.info("Index {} is now in use (previously: {}).", index, previous == null ? "none" : previous);
+
+        // Keep the new and the previous index, drop leftovers from older or failed imports.
+        final var obsolete = new ArrayList<String>();
+        for (var version : getVersions()) {
+            if (!version.equals(index) && !version.equals(previous)) {
+                obsolete.add(version);
+            }
+        }
+        if (!obsolete.isEmpty()) {
+            LOGGER.info("Deleting old indexes {}.", obsolete);
+            client.indices().delete(d -> d.index(obsolete));
+        }
+    }
+
+    /**
+     * Point the alias back to the index that was in use before the current one.
+     *
+     * @return The name of the index now in use.
+     */
+    public String rollback() throws IOException {
+        final String current = getActiveIndex();
+        if (current == null) {
+            throw new UsageException("No photon index found.");
+        }
+
+        String previous = null;
+        for (var version : getVersions()) {
+            if (version.compareTo(current) < 0) {
+                previous = version;
+            }
+        }
+        if (previous == null) {
+            throw new UsageException("No older index available to go back to from " + current + ".");
+        }
+
+        optimizer.warmUp(previous);
+        switchAlias(previous);
+        LOGGER.info("Switched from index {} back to {}.", current, previous);
+
+        return previous;
+    }
+
+    /**
+     * Atomically point the alias to the given index.
+     *
+     * @return The index the alias pointed to before.
+     */
+    @Nullable
+    public String switchAlias(String index) throws IOException {
+        final String previous = getActiveIndex();
+        final var actions = new ArrayList<Action>();
+        if (PhotonIndex.NAME.equals(previous)) {
+            // A plain index from an older version occupies the name of the alias.
+            LOGGER.warn("Replacing old index '{}'. It will not be available for rollback.", PhotonIndex.NAME);
+            actions.add(Action.of(a -> a.removeIndex(r -> r.index(PhotonIndex.NAME))));
+        } else if (previous != null) {
+            actions.add(Action.of(a -> a.remove(r -> r.index(previous).alias(PhotonIndex.NAME))));
+        }
+        actions.add(Action.of(a -> a.add(r -> r.index(index).alias(PhotonIndex.NAME))));
+
+        client.indices().updateAliases(u -> u.actions(actions));
+
+        return PhotonIndex.NAME.equals(previous) ? null : previous;
+    }
+}
@@ -0,0 +1,75 @@
+package de.komoot.photon.opensearch;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides when the lenient fallback query of a forward search should be
+ * sent together with the strict query instead of waiting for the strict
+ * query to come back empty.
+ * <p>
+ * Speculation happens for long queries, which are more likely to contain
+ * typos, and for queries whose prefix recently often had no strict results.
+ * The empty-rate is tracked as an exponential moving average over a fixed
+ * number of hashed prefix slots, so memory use is constant.
+ */
+@NullMarked
+public class LenientSpeculation {
+    private static final int PREFIX_LENGTH = 3;
+    private static final int NUM_SLOTS = 4096;
+    private static final double SMOOTHING = 0.05;
+
+    private final int minQueryLength;
+    private final double emptyRateThreshold;
+    private final AtomicLongArray emptyRates = new AtomicLongArray(NUM_SLOTS);
+
+    /**
+     * Create a new speculation policy.
+     *
+     * @param minQueryLength Queries with at least this many characters are always
+     *                       sent speculatively. 0 disables the length criterion.
+     * @param emptyRateThreshold Queries are sent speculatively when at least this
+     *                           fraction of recent queries with the same prefix had
+     *                           no strict results. 0 disables the criterion.
+     */
+    public LenientSpeculation(int minQueryLength, double emptyRateThreshold) {
+        this.minQueryLength = minQueryLength;
+        this.emptyRateThreshold = emptyRateThreshold;
+    }
+
+    public static LenientSpeculation disabled() {
+        return new LenientSpeculation(0, 0.0);
+    }
+
+    public boolean isEnabled() {
+        return minQueryLength > 0 || emptyRateThreshold > 0;
+    }
+
+    public boolean shouldSpeculate(String query) {
+        if (minQueryLength > 0 && query.length() >= minQueryLength) {
+            return true;
+        }
+
+        return emptyRateThreshold > 0
+                && Double.longBitsToDouble(emptyRates.get(slot(query))) >= emptyRateThreshold;
+    }
+
+    /**
+     * Record the outcome of a strict query.
+     */
+    public void recordStrictResult(String query, boolean empty) {
+        if (emptyRateThreshold > 0) {
+            emptyRates.getAndUpdate(slot(query), bits -> Double.doubleToRawLongBits(
+                    (1 - SMOOTHING) * Double.longBitsToDouble(bits) + (empty ? SMOOTHING : 0.0)));
+        }
+    }
+
+    private static int slot(String query) {
+        final String normalized = query.strip().toLowerCase(Locale.ROOT);
+        final String prefix = normalized.length() > PREFIX_LENGTH
+                ? normalized.substring(0, PREFIX_LENGTH) : normalized;
+        return Math.floorMod(prefix.hashCode(), NUM_SLOTS);
+    }
+}
@@ -0,0 +1,171 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.query.RequestBase;
+import de.komoot.photon.searcher.SearchStats;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.SearchType;
+import org.opensearch.client.opensearch._types.SortOptions;
+import org.opensearch.client.opensearch._types.query_dsl.Query;
+import org.opensearch.client.opensearch.core.MsearchResponse;
+import org.opensearch.client.opensearch.core.msearch.MultisearchBody;
+import org.opensearch.client.opensearch.core.search.SearchResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Sends a list of searches to the database using multi-search requests.
+ * <p>
+ * Large lists are split into chunks, so that a single request to the
+ * database never gets too large.
+ */
+@NullMarked
+class MultiSearcher {
+    static final int CHUNK_SIZE = 100;
+
+    /**
+     * A single search of a multi-search request.
+     *
+     * @param routing Routing values for the search or null to search all shards.
+     */
+    record Search(MultisearchBody body, @Nullable String routing) {}
+
+    private final OpenSearchClient client;
+    private final String queryTimeout;
+
+    MultiSearcher(OpenSearchClient client, String queryTimeout) {
+        this.client = client;
+        this.queryTimeout = queryTimeout;
+    }
+
+    Search body(RequestBase request, @Nullable String routing, Query query, int limit) {
+        return body(request, routing, query, limit, null);
+    }
+
+    Search body(RequestBase request, @Nullable String routing, Query query, int limit, @Nullable SortOptions sort) {
+        final var source = SourceFieldSelector.forRequest(request);
+        return new Search(MultisearchBody.of(b -> {
+            b.query(query)
+                    .size(limit)
+                    .timeout(queryTimeout);
+            if (source != null) {
+                b.source(source);
+            }
+            if (sort != null) {
+                b.sort(sort);
+            }
+            return b;
+        }), routing);
+    }
+
+    /**
+     * Run the given searches.
+     *
+     * @return The search results in the order of the requests.
+     */
+    List<SearchResult<OpenSearchResult>> search(List<Search> bodies) {
+        final List<SearchResult<OpenSearchResult>> results = new ArrayList<>(bodies.size());
+
+        for (int start = 0; start < bodies.size(); start += CHUNK_SIZE) {
+            final var chunk = bodies.subList(start, Math.min(bodies.size(), start + CHUNK_SIZE));
+
+            final MsearchResponse<OpenSearchResult> response;
+            try {
+                response = client.msearch(m -> {
+                    m.index(PhotonIndex.NAME);
+                    for (var search : chunk) {
+                        m.searches(s -> s
+                                .header(h -> {
+                                    h.searchType(SearchType.QueryThenFetch);
+                                    if (search.routing() != null) {
+                                        h.routing(search.routing());
+                                    }
+                                    return h;
+                                })
+                                .body(search.body()));
+                    }
+                    return m;
+                }, OpenSearchResult.class);
+            } catch (IOException e) {
+                throw new RuntimeException("IO error during search", e);
+            }
+
+            for (var item : response.responses()) {
+                if (item.isFailure()) {
+                    throw new RuntimeException("Error during search: " + item.failure().error().reason());
+                }
+                results.add(item.result());
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Run one search for each of the given requests. The time spent in the
+     * database is added to the statistics of every request.
+     *
+     * @return The search results in the order of the requests.
+     */
+    <T extends RequestBase> List<SearchResult<OpenSearchResult>> search(List<T> requests, Function<T, Search> bodyBuilder) {
+        final long start = SearchStats.start();
+        final var results = search(requests.stream().map(bodyBuilder).toList());
+        for (int i = 0; i < requests.size(); ++i) {
+            final var stats = requests.get(i).getStats();
+            stats.stop(SearchStats.Stage.DATABASE, start);
+            stats.addDatabaseRequest(results.get(i).took());
+        }
+
+        return results;
+    }
+
+    /**
+     * Run a follow-up search for all requests which did not return any
+     * results yet and replace the results in place.
+     *
+     * @param requests The original requests.
+     * @param results Results of the previous search run, in the order of the requests.
+     * @param isEmpty Decides if the previous result counts as empty. Must be the same
+     *                check the single-request search uses for its fallback.
+     * @param condition Additional condition a request must fulfill to be run again.
+     * @param bodyBuilder Function creating the follow-up search for a request.
+     */
+    <T extends RequestBase> void rerunEmpty(List<T> requests, List<SearchResult<OpenSearchResult>> results,
+                                            Predicate<SearchResult<OpenSearchResult>> isEmpty,
+                                            Predicate<T> condition, Function<T, Search> bodyBuilder) {
+        final List<Integer> positions = new ArrayList<>();
+        final List<T> rerunRequests = new ArrayList<>();
+        for (int i = 0; i < requests.size(); ++i) {
+            if (isEmpty.test(results.get(i)) && condition.test(requests.get(i))) {
+                positions.add(i);
+                rerunRequests.add(requests.get(i));
+            }
+        }
+
+        if (!rerunRequests.isEmpty()) {
+            final var rerun = search(rerunRequests, bodyBuilder);
+            for (int i = 0; i < positions.size(); ++i) {
+                results.set(positions.get(i), rerun.get(i));
+            }
+        }
+    }
+
+    static boolean hasNoHits(SearchResult<OpenSearchResult> results) {
+        final var total = results.hits().total();
+        return total == null || total.value() == 0;
+    }
+
+    /**
+     * Check if the search reported a total hit count of zero. Unlike
+     * {@link #hasNoHits(SearchResult)} a missing total does not count.
+     */
+    static boolean hasZeroHits(SearchResult<OpenSearchResult> results) {
+        final var total = results.hits().total();
+        return total != null && total.value() == 0;
+    }
+}
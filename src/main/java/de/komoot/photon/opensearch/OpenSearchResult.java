@@ -1,7 +1,6 @@
 package de.komoot.photon.opensearch;
 
-import com.fasterxml.jackson.annotation.JsonAnySetter;
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import de.komoot.photon.searcher.PhotonResult;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
@@ -11,35 +10,37 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * A single search result as returned by the database.
+ * <p>
+ * The known document fields are kept in fixed slots and the localised
+ * names in flat key/value arrays, see {@link OpenSearchResultDeserializer}.
+ */
 @NullMarked
+@JsonDeserialize(using = OpenSearchResultDeserializer.class)
 public class OpenSearchResult implements PhotonResult {
     private static final double EARTH_DIAMETER_KM = 2 * 6371;
 
-    private static final List<String> KEYS_WITH_LOCALE = List.of(
+    static final List<String> KEYS_WITH_LOCALE = List.of(
             DocFields.NAME, DocFields.STREET, DocFields.LOCALITY,
             DocFields.DISTRICT, DocFields.CITY, DocFields.COUNTY,
             DocFields.STATE, DocFields.COUNTRY
     );
 
+    static final List<String> PLAIN_KEYS = List.of(
+            DocFields.OSM_ID, DocFields.OSM_TYPE, DocFields.OSM_KEY, DocFields.OSM_VALUE,
+            DocFields.OBJECT_TYPE, DocFields.HOUSENUMBER, DocFields.POSTCODE,
+            DocFields.COUNTRYCODE, DocFields.EXTRA, DocFields.GEOMETRY
+    );
+
     @Nullable private Double opensearchScore;
     private double score = 0.0;
+    private double importance = Double.NaN;
     private double @Nullable [] extent = null;
     private double[] coordinates = INVALID_COORDINATES;
-    private final Map<String, Object> infos = new HashMap<>();
-    private final Map<String, Map<String, String>> localeTags = new HashMap<>();
-
-
-    record ExtentCoordinates (@JsonProperty("coordinates") double[][] coordinates) {
-        public double[] getNW() {
-            return coordinates[0];
-        }
-
-        public double[] getSE() {
-            return coordinates[1];
-        }
-    }
-
-    record JsonPoint(@JsonProperty("lat") double lat, @JsonProperty("lon") double lon) {}
+    private final @Nullable Object[] values = new Object[PLAIN_KEYS.size()];
+    private final String @Nullable [][] localeTags = new String[KEYS_WITH_LOCALE.size()][];
+    @Nullable private Map<String, Object> otherInfos = null;
 
     @Override
     public double getScore() {
@@ -67,13 +68,7 @@ public class OpenSearchResult implements PhotonResult {
                                           double biasRadius, double negDecayFactor) {
         double bias = 0.0;
         if (coordinates != INVALID_COORDINATES) {
-            // compute haversine distance
-            double cosY1 = Math.cos(Math.toRadians(pt.getY()));
-            double cosY2 = Math.cos(Math.toRadians(coordinates[1]));
-            double sinXDist = Math.sin(Math.toRadians(pt.getX() - coordinates[0]) / 2);
-            double sinYDist = Math.sin(Math.toRadians(pt.getY() - coordinates[1]) / 2);
-            double a = sinYDist * sinYDist + cosY1 * cosY2 * sinXDist * sinXDist;
-            double dist = EARTH_DIAMETER_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+            double dist = distanceKm(pt.getX(), pt.getY(), coordinates[0], coordinates[1]);
 
             if (dist < biasRadius) {
                 bias = weight;
@@ -90,19 +85,39 @@ public class OpenSearchResult implements PhotonResult {
         }
     }
 
+    /**
+     * Compute the haversine distance in km between two points.
+     */
+    public static double distanceKm(double lon1, double lat1, double lon2, double lat2) {
+        double cosY1 = Math.cos(Math.toRadians(lat1));
+        double cosY2 = Math.cos(Math.toRadians(lat2));
+        double sinXDist = Math.sin(Math.toRadians(lon1 - lon2) / 2);
+        double sinYDist = Math.sin(Math.toRadians(lat1 - lat2) / 2);
+        double a = sinYDist * sinYDist + cosY1 * cosY2 * sinXDist * sinXDist;
+        return EARTH_DIAMETER_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
     public double getOpensearchScore() {
         return opensearchScore == null ? 0.0 : opensearchScore;
     }
 
     public double getImportance() {
-        Double importance = (Double) infos.get(DocFields.IMPORTANCE);
-        return importance == null ? 0.00000001 : importance;
+        return Double.isNaN(importance) ? 0.00000001 : importance;
     }
 
     @Override
     @Nullable
     public Object get(String key) {
-        return infos.get(key);
+        if (DocFields.IMPORTANCE.equals(key)) {
+            return Double.isNaN(importance) ? null : importance;
+        }
+
+        final int slot = PLAIN_KEYS.indexOf(key);
+        if (slot >= 0) {
+            return values[slot];
+        }
+
+        return otherInfos == null ? null : otherInfos.get(key);
     }
 
     @Override
@@ -114,25 +129,28 @@ public class OpenSearchResult implements PhotonResult {
     @Override
     @Nullable
     public String getLocalisedWithFallback(String key, String language, @Nullable String defaultLanguage, String... altNames) {
-        final var map = localeTags.get(key);
-        if (map == null) return null;
+        final int slot = KEYS_WITH_LOCALE.indexOf(key);
+        if (slot < 0) return null;
 
-        String name = map.get(language);
+        final var names = localeTags[slot];
+        if (names == null) return null;
+
+        String name = lookup(names, language);
         if (name != null) {
             return name;
         }
         if (defaultLanguage != null && !defaultLanguage.equals(language)) {
-            name = map.get(defaultLanguage);
+            name = lookup(names, defaultLanguage);
             if (name != null) {
                 return name;
             }
         }
-        name = map.get("default");
+        name = lookup(names, "default");
         if (name != null) {
             return name;
         }
         for (var nameKey : altNames) {
-            name = map.get(nameKey);
+            name = lookup(names, nameKey);
             if (name != null) {
                 return name;
             }
@@ -142,6 +160,16 @@ public class OpenSearchResult implements PhotonResult {
         return null;
     }
 
+    @Nullable
+    private static String lookup(String[] names, String key) {
+        for (int i = 0; i < names.length; i += 2) {
+            if (names[i].equals(key)) {
+                return names[i + 1];
+            }
+        }
+        return null;
+    }
+
     @Override
     public double[] getCoordinates() {
         return coordinates;
@@ -154,40 +182,69 @@ public class OpenSearchResult implements PhotonResult {
 
     @Override
     public Map<String, Object> getRawData() {
+        final Map<String, Object> infos = new HashMap<>();
+        if (otherInfos != null) {
+            infos.putAll(otherInfos);
+        }
+        for (int i = 0; i < values.length; ++i) {
+            final var value = values[i];
+            if (value != null) {
+                infos.put(PLAIN_KEYS.get(i), value);
+            }
+        }
+        if (!Double.isNaN(importance)) {
+            infos.put(DocFields.IMPORTANCE, importance);
+        }
+
+        final Map<String, Map<String, String>> locales = new HashMap<>();
+        for (int i = 0; i < localeTags.length; ++i) {
+            final var names = localeTags[i];
+            if (names != null) {
+                final Map<String, String> map = new HashMap<>();
+                for (int j = 0; j < names.length; j += 2) {
+                    map.put(names[j], names[j + 1]);
+                }
+                locales.put(KEYS_WITH_LOCALE.get(i), map);
+            }
+        }
+
         return Map.of(
                 "score", score,
                 "infos", infos,
-                "localeTags", localeTags);
+                "localeTags", locales);
     }
 
+    void setCoordinates(double lon, double lat) {
+        coordinates = new double[]{lon, lat};
+    }
 
-    @JsonProperty(DocFields.COORDINATE)
-    void setCoordinates(JsonPoint pt) {
-        coordinates = new double[]{pt.lon, pt.lat};
+    void setExtent(double minLon, double maxLat, double maxLon, double minLat) {
+        extent = new double[]{minLon, maxLat, maxLon, minLat};
     }
 
-    @JsonProperty(DocFields.EXTENT)
-    void setExtent(ExtentCoordinates coords) {
-        final var nw = coords.getNW();
-        final var se = coords.getSE();
+    void setImportance(double importance) {
+        this.importance = importance;
+    }
 
-        extent = new double[]{nw[0], nw[1], se[0], se[1]};
+    /**
+     * Set the names of a localised field.
+     *
+     * @param slot Position of the field in {@link #KEYS_WITH_LOCALE}.
+     * @param names Alternating list of language keys and names.
+     */
+    void setLocalised(int slot, String[] names) {
+        localeTags[slot] = names;
     }
 
-    @JsonAnySetter
-    void setProperties(String key, Object value) {
-        if (KEYS_WITH_LOCALE.contains(key)) {
-            if (value instanceof Map<?,?>) {
-                var names = new HashMap<String, String>();
-                for (var entry : ((Map<?, ?>) value).entrySet()) {
-                    if (entry.getKey() instanceof String && entry.getValue() instanceof String) {
-                        names.put((String) entry.getKey(), (String) entry.getValue());
-                    }
-                }
-                localeTags.put(key, names);
+    void setProperty(String key, @Nullable Object value) {
+        final int slot = PLAIN_KEYS.indexOf(key);
+        if (slot >= 0) {
+            values[slot] = value;
+        } else if (value != null) {
+            if (otherInfos == null) {
+                otherInfos = new HashMap<>();
             }
-        } else {
-            infos.put(key, value);
+            otherInfos.put(key, value);
         }
     }
 }
@@ -0,0 +1,168 @@
+package de.komoot.photon.opensearch;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming deserializer for the source of a search hit.
+ * <p>
+ * Reads the document token by token directly into the slots of
+ * {@link OpenSearchResult}. Only fields unknown to Photon and structured
+ * values like 'extra' and 'geometry' go through the generic Jackson
+ * object mapping.
+ */
+@NullMarked
+public class OpenSearchResultDeserializer extends StdDeserializer<OpenSearchResult> {
+    private static final String[] NO_NAMES = new String[0];
+
+    public OpenSearchResultDeserializer() {
+        super(OpenSearchResult.class);
+    }
+
+    @Override
+    public OpenSearchResult deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!p.isExpectedStartObjectToken()) {
+            return (OpenSearchResult) ctxt.handleUnexpectedToken(OpenSearchResult.class, p);
+        }
+
+        final var result = new OpenSearchResult();
+
+        String key;
+        while ((key = p.nextFieldName()) != null) {
+            final var token = p.nextToken();
+            switch (key) {
+                case DocFields.COORDINATE -> readCoordinate(p, result);
+                case DocFields.EXTENT -> readExtent(p, result);
+                case DocFields.IMPORTANCE -> {
+                    if (token.isNumeric()) {
+                        result.setImportance(p.getDoubleValue());
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+                default -> {
+                    final int slot = OpenSearchResult.KEYS_WITH_LOCALE.indexOf(key);
+                    if (slot < 0) {
+                        result.setProperty(key, readValue(p, ctxt));
+                    } else if (token == JsonToken.START_OBJECT) {
+                        result.setLocalised(slot, readNames(p));
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    @Nullable
+    private static Object readValue(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_STRING -> p.getText();
+            case VALUE_NULL -> null;
+            default -> ctxt.readValue(p, Object.class);
+        };
+    }
+
+    private static String[] readNames(JsonParser p) throws IOException {
+        String[] names = NO_NAMES;
+        int size = 0;
+
+        String lang;
+        while ((lang = p.nextFieldName()) != null) {
+            if (p.nextToken() == JsonToken.VALUE_STRING) {
+                if (size == names.length) {
+                    names = Arrays.copyOf(names, Math.max(8, size * 2));
+                }
+                names[size++] = lang;
+                names[size++] = p.getText();
+            } else {
+                p.skipChildren();
+            }
+        }
+
+        return size == names.length ? names : Arrays.copyOf(names, size);
+    }
+
+    private static void readCoordinate(JsonParser p, OpenSearchResult result) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+
+        double lat = 0;
+        double lon = 0;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "lat" -> lat = p.getDoubleValue();
+                case "lon" -> lon = p.getDoubleValue();
+                default -> p.skipChildren();
+            }
+        }
+
+        result.setCoordinates(lon, lat);
+    }
+
+    private static void readExtent(JsonParser p, OpenSearchResult result) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+
+        double @Nullable [] corners = null;
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            if (p.nextToken() == JsonToken.START_ARRAY && "coordinates".equals(field)) {
+                corners = readCorners(p);
+            } else {
+                p.skipChildren();
+            }
+        }
+
+        if (corners != null) {
+            result.setExtent(corners[0], corners[1], corners[2], corners[3]);
+        }
+    }
+
+    /**
+     * Read the two corner points of an envelope.
+     *
+     * @return The coordinates of the two points, one after the other, or null
+     *         when the array does not contain two points.
+     */
+    private static double @Nullable [] readCorners(JsonParser p) throws IOException {
+        final double[] corners = new double[4];
+        int pos = 0;
+        boolean valid = true;
+
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.currentToken() != JsonToken.START_ARRAY) {
+                valid = false;
+                p.skipChildren();
+                continue;
+            }
+            int dim = 0;
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (pos < corners.length && dim < 2 && p.currentToken().isNumeric()) {
+                    corners[pos++] = p.getDoubleValue();
+                } else {
+                    valid = false;
+                    p.skipChildren();
+                }
+                ++dim;
+            }
+        }
+
+        return valid && pos == corners.length ? corners : null;
+    }
+}
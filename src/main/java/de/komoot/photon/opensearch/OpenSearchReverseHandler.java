@@ -3,43 +3,100 @@ package de.komoot.photon.opensearch;
 import de.komoot.photon.query.ReverseRequest;
 import de.komoot.photon.searcher.PhotonResult;
 import de.komoot.photon.searcher.SearchHandler;
+import de.komoot.photon.searcher.SearchStats;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.locationtech.jts.geom.Point;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.SearchType;
+import org.opensearch.client.opensearch._types.SortOptions;
 import org.opensearch.client.opensearch._types.SortOrder;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.SourceConfig;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @NullMarked
 public class OpenSearchReverseHandler implements SearchHandler<ReverseRequest> {
     private final OpenSearchClient client;
     private final String queryTimeout;
+    private final MultiSearcher multiSearcher;
 
     public OpenSearchReverseHandler(OpenSearchClient client, int queryTimeoutSec) {
         this.client = client;
         queryTimeout = queryTimeoutSec + "s";
+        multiSearcher = new MultiSearcher(client, queryTimeout);
     }
 
     @Override
     public Stream<PhotonResult> search(ReverseRequest request) {
-        final var queryBuilder = new ReverseQueryBuilder(request.getLocation(), request.getRadius());
+        return searchAround(request, request.getLocation(), request.getRadius(),
+                request.getLimit(), request.getLocationDistanceSort());
+    }
+
+    @Override
+    public List<Stream<PhotonResult>> searchBatch(List<ReverseRequest> requests) {
+        // Reverse requests have no country to route by, so all shards need to be searched.
+        final var results = multiSearcher.search(requests,
+                r -> multiSearcher.body(
+                        r,
+                        null,
+                        buildQuery(r, r.getLocation(), r.getRadius()),
+                        r.getLimit(),
+                        r.getLocationDistanceSort() ? distanceSort(r.getLocation()) : null));
+
+        return IntStream.range(0, requests.size())
+                .mapToObj(i -> {
+                    requests.get(i).getStats().addCandidates(results.get(i).hits().hits().size());
+                    return ResultScorer.hitsToResultStream(results.get(i)).<PhotonResult>map(p -> p);
+                })
+                .toList();
+    }
+
+    /**
+     * Run the reverse query for the filters of the given request but with
+     * a different search area and result size.
+     */
+    Stream<PhotonResult> searchAround(ReverseRequest request, Point location, double radius,
+                                      int limit, boolean distanceSort) {
+        final var query = buildQuery(request, location, radius);
+
+        final long start = SearchStats.start();
+        final var results = search(query, limit,
+                SourceFieldSelector.forRequest(request), distanceSort ? location : null);
+        request.getStats().stop(SearchStats.Stage.DATABASE, start);
+        request.getStats().addDatabaseRequest(results.took());
+        request.getStats().addCandidates(results.hits().hits().size());
+
+        return ResultScorer.hitsToResultStream(results)
+                .map(r -> r);
+    }
+
+    private Query buildQuery(ReverseRequest request, Point location, double radius) {
+        final long start = SearchStats.start();
+        final var queryBuilder = new ReverseQueryBuilder(location, radius);
         queryBuilder.addQueryFilter(request.getQueryStringFilter());
         queryBuilder.addLayerFilter(request.getLayerFilters());
         queryBuilder.addOsmTagFilter(request.getOsmTagFilters());
         queryBuilder.includeCategories(request.getIncludeCategories());
         queryBuilder.excludeCategories(request.getExcludeCategories());
 
-        final var results = search(queryBuilder.build(),
-                request.getLimit(),
-                request.getLocationDistanceSort() ? request.getLocation() : null);
+        final var query = queryBuilder.build();
+        request.getStats().stop(SearchStats.Stage.QUERY_BUILD, start);
 
-        return ResultScorer.hitsToResultStream(results)
-                .map(r -> r);
+        return query;
+    }
+
+    private static SortOptions distanceSort(Point location) {
+        return SortOptions.of(sq -> sq
+                .geoDistance(gd -> gd
+                        .field("coordinate")
+                        .location(l -> l.latlon(ll -> ll.lat(location.getY()).lon(location.getX())))
+                        .order(SortOrder.Asc)));
     }
 
     @Override
@@ -47,7 +104,8 @@ public class OpenSearchReverseHandler implements SearchHandler<ReverseRequest> {
         return null;
     }
 
-    private SearchResponse<OpenSearchResult> search(Query query, int limit, @Nullable Point location) {
+    private SearchResponse<OpenSearchResult> search(Query query, int limit, @Nullable SourceConfig source,
+                                                    @Nullable Point location) {
         try {
             return client.search(s -> {
                 s.index(PhotonIndex.NAME)
@@ -56,12 +114,11 @@ public class OpenSearchReverseHandler implements SearchHandler<ReverseRequest> {
                         .size(limit)
                         .timeout(queryTimeout);
 
+                if (source != null) {
+                    s.source(source);
+                }
                 if (location != null) {
-                    s.sort(sq -> sq
-                            .geoDistance(gd -> gd
-                                    .field("coordinate")
-                                    .location(l -> l.latlon(ll -> ll.lat(location.getY()).lon(location.getX())))
-                                    .order(SortOrder.Asc)));
+                    s.sort(distanceSort(location));
                 }
                 return s;
             }, OpenSearchResult.class);
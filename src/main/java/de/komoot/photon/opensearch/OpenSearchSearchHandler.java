@@ -4,14 +4,19 @@ import de.komoot.photon.query.SimpleSearchRequest;
 import de.komoot.photon.searcher.PhotonResult;
 import de.komoot.photon.searcher.QueryReranker;
 import de.komoot.photon.searcher.SearchHandler;
+import de.komoot.photon.searcher.SearchStats;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.SearchType;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.SearchResult;
 
 import java.io.IOException;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @NullMarked
@@ -20,48 +25,123 @@ public class OpenSearchSearchHandler implements SearchHandler<SimpleSearchReques
     private static final double NEG_DECAY_FACTOR = Math.log(0.5);
     private final OpenSearchClient client;
     private final String queryTimeout;
+    private final MultiSearcher multiSearcher;
+    private final LenientSpeculation speculation;
+    private final CountryRouting routing;
 
     public OpenSearchSearchHandler(OpenSearchClient client, int queryTimeout) {
+        this(client, queryTimeout, LenientSpeculation.disabled(), CountryRouting.NONE);
+    }
+
+    public OpenSearchSearchHandler(OpenSearchClient client, int queryTimeout, LenientSpeculation speculation,
+                                   CountryRouting routing) {
         this.client = client;
         this.queryTimeout = queryTimeout + "s";
+        this.multiSearcher = new MultiSearcher(client, this.queryTimeout);
+        this.speculation = speculation;
+        this.routing = routing;
     }
 
     @Override
     public Stream<PhotonResult> search(SimpleSearchRequest request) {
+        final int extLimit = extendedLimit(request);
+
+        final String query = request.getQuery();
+
+        SearchResult<OpenSearchResult> results;
+        if (query != null && speculation.shouldSpeculate(query)) {
+            // Send the lenient query right away, saving a round-trip when
+            // the strict one comes back empty.
+            final var bodies = List.of(
+                    multiSearcher.body(request, routing(request), buildQuery(request, false), extLimit),
+                    multiSearcher.body(request, routing(request), buildQuery(request, true), extLimit));
+            final long start = SearchStats.start();
+            final var both = multiSearcher.search(bodies);
+            request.getStats().stop(SearchStats.Stage.DATABASE, start);
+            request.getStats().addDatabaseRequest(Math.max(both.get(0).took(), both.get(1).took()));
+
+            final boolean strictEmpty = MultiSearcher.hasNoHits(both.get(0));
+            speculation.recordStrictResult(query, strictEmpty);
+            if (strictEmpty) {
+                request.getStats().setLenientFallback();
+            }
+            results = strictEmpty ? both.get(1) : both.get(0);
+        } else {
+            results = sendQuery(request, buildQuery(request, false), extLimit);
+
+            final boolean strictEmpty = MultiSearcher.hasNoHits(results);
+            if (query != null) {
+                speculation.recordStrictResult(query, strictEmpty);
+            }
+            if (strictEmpty) {
+                request.getStats().setLenientFallback();
+                results = sendQuery(request, buildQuery(request, true), extLimit);
+            }
+        }
+
+        return processResults(request, results);
+    }
+
+    @Override
+    public List<Stream<PhotonResult>> searchBatch(List<SimpleSearchRequest> requests) {
+        final var results = new ArrayList<>(multiSearcher.search(requests,
+                r -> multiSearcher.body(r, routing(r), buildQuery(r, false), extendedLimit(r))));
+
+        multiSearcher.rerunEmpty(requests, results, MultiSearcher::hasNoHits, r -> true, r -> {
+            r.getStats().setLenientFallback();
+            return multiSearcher.body(r, routing(r), buildQuery(r, true), extendedLimit(r));
+        });
+
+        return IntStream.range(0, requests.size())
+                .mapToObj(i -> processResults(requests.get(i), results.get(i)))
+                .toList();
+    }
+
+    /**
+     * Searches restricted to countries only need to look at the shards
+     * of these countries.
+     */
+    private @Nullable String routing(SimpleSearchRequest request) {
+        return routing.forCountries(request.getCountryCodes());
+    }
+
+    private static int extendedLimit(SimpleSearchRequest request) {
         // Return more result candidates than results requested,
         // will be reranked and filtered later.
-        final int extLimit = (int) Math.round(Math.max(6, request.getLimit()) * 1.5);
-
-        var results = sendQuery(buildQuery(request, false), extLimit);
+        return (int) Math.round(Math.max(6, request.getLimit()) * 1.5);
+    }
 
-        var total = results.hits().total();
-        if (total == null || total.value() == 0) {
-            results = sendQuery(buildQuery(request, true), extLimit);
-        }
+    private Stream<PhotonResult> processResults(SimpleSearchRequest request, SearchResult<OpenSearchResult> results) {
+        final long start = SearchStats.start();
+        final var candidates = ResultScorer.hitsToResults(results);
+        request.getStats().addCandidates(candidates.size());
 
-        var stream = ResultScorer.hitsToResultStream(results)
-                .peek(r -> r.adjustScoreByImportance(IMPORTANCE_FACTOR * request.getImportanceWeight()));
+        final double importanceWeight = IMPORTANCE_FACTOR * request.getImportanceWeight();
+        final var reranker = request.getQuery() == null
+                ? null : new QueryReranker(request.getQuery(), request.getLanguage(), request.getDefaultLanguage());
+        final double decay = request.hasLocationBias() ? NEG_DECAY_FACTOR / request.getDecayRadiusForBias() : 0.0;
 
-        if (request.hasLocationBias()) {
-            double decay = NEG_DECAY_FACTOR / request.getDecayRadiusForBias();
-            stream = stream.peek(r -> {
+        for (var result : candidates) {
+            result.adjustScoreByImportance(importanceWeight);
+            if (request.hasLocationBias()) {
                 assert request.getLocationForBias() != null;
-                r.adjustScoreByLocationBias(
+                result.adjustScoreByLocationBias(
                         request.getLocationForBias(),
                         IMPORTANCE_FACTOR,
                         1 - request.getImportanceWeight(),
                         request.getRadiusForBias(),
                         decay
                 );
-            });
+            }
+            if (reranker != null) {
+                reranker.accept(result);
+            }
         }
 
-        if (request.getQuery() != null) {
-            stream = stream.peek(new QueryReranker(request.getQuery(), request.getLanguage(), request.getDefaultLanguage()));
-        }
+        final var ranked = ResultScorer.rank(candidates, request.getLimit(), request.getDedupe(), request.getStats());
+        request.getStats().stop(SearchStats.Stage.RANK, start);
 
-        return ResultScorer.adjustByNormalizedOpenSearchScore(stream)
-                .sorted(Comparator.comparingDouble(PhotonResult::getScore).reversed());
+        return ranked.stream();
     }
 
     @Override
@@ -70,6 +150,7 @@ public class OpenSearchSearchHandler implements SearchHandler<SimpleSearchReques
     }
 
     private Query buildQuery(SimpleSearchRequest request, boolean lenient) {
+        final long start = SearchStats.start();
         final var query = new SearchQueryBuilder(request.getQuery(), lenient, request.getSuggestAddresses());
         query.addCountryCodeFilter(request.getCountryCodes());
         query.addOsmTagFilter(request.getOsmTagFilters());
@@ -90,17 +171,35 @@ public class OpenSearchSearchHandler implements SearchHandler<SimpleSearchReques
         query.excludeCategories(request.getExcludeCategories());
         query.addBoundingBox(request.getBbox());
 
-        return query.build();
+        final var built = query.build();
+        request.getStats().stop(SearchStats.Stage.QUERY_BUILD, start);
+
+        return built;
     }
 
-    private SearchResponse<OpenSearchResult> sendQuery(Query query, int limit) {
+    private SearchResponse<OpenSearchResult> sendQuery(SimpleSearchRequest request, Query query, int limit) {
+        final var source = SourceFieldSelector.forRequest(request);
+        final String routingValue = routing(request);
+        final long start = SearchStats.start();
         try {
-            return client.search(s -> s
-                    .index(PhotonIndex.NAME)
-                    .searchType(SearchType.QueryThenFetch)
-                    .query(query)
-                    .size(limit)
-                    .timeout(queryTimeout), OpenSearchResult.class);
+            final var response = client.search(s -> {
+                s.index(PhotonIndex.NAME)
+                        .searchType(SearchType.QueryThenFetch)
+                        .query(query)
+                        .size(limit)
+                        .timeout(queryTimeout);
+                if (source != null) {
+                    s.source(source);
+                }
+                if (routingValue != null) {
+                    s.routing(routingValue);
+                }
+                return s;
+            }, OpenSearchResult.class);
+            request.getStats().stop(SearchStats.Stage.DATABASE, start);
+            request.getStats().addDatabaseRequest(response.took());
+
+            return response;
         } catch (IOException e) {
             throw new RuntimeException("IO error during search", e);
         }
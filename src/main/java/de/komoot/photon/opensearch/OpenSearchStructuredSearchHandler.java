@@ -3,15 +3,19 @@ package de.komoot.photon.opensearch;
 import de.komoot.photon.searcher.PhotonResult;
 import de.komoot.photon.query.StructuredSearchRequest;
 import de.komoot.photon.searcher.SearchHandler;
+import de.komoot.photon.searcher.SearchStats;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.SearchType;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.SearchResult;
 
 import java.io.IOException;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -23,54 +27,105 @@ public class OpenSearchStructuredSearchHandler implements SearchHandler<Structur
     private static final double NEG_DECAY_FACTOR = Math.log(0.5);
     private final OpenSearchClient client;
     private final String queryTimeout;
+    private final MultiSearcher multiSearcher;
+    private final CountryRouting routing;
 
     public OpenSearchStructuredSearchHandler(OpenSearchClient client, int queryTimeoutSec) {
+        this(client, queryTimeoutSec, CountryRouting.NONE);
+    }
+
+    public OpenSearchStructuredSearchHandler(OpenSearchClient client, int queryTimeoutSec, CountryRouting routing) {
         this.client = client;
         queryTimeout = queryTimeoutSec + "s";
+        multiSearcher = new MultiSearcher(client, queryTimeout);
+        this.routing = routing;
     }
 
     @Override
     public Stream<PhotonResult> search(StructuredSearchRequest photonRequest) {
-        // for the case of deduplication we need a bit more results, #300
-        int limit = photonRequest.getLimit();
-        int extLimit = limit > 1 ? (int) Math.round(photonRequest.getLimit() * 1.5) : 1;
-
-        var results = sendQuery(buildQuery(photonRequest, false), extLimit);
-
-        var total = results.hits().total();
-        if (total == null || total.value() == 0) {
-            results = sendQuery(buildQuery(photonRequest, true), extLimit);
-
-            total = results.hits().total();
-            if (total != null && total.value() == 0 && photonRequest.hasStreet()) {
-                var street = photonRequest.getStreet();
-                var houseNumber = photonRequest.getHouseNumber();
-                photonRequest.setStreet(null);
-                photonRequest.setHouseNumber(null);
-                results = sendQuery(buildQuery(photonRequest, true), extLimit);
-                photonRequest.setStreet(street);
-                photonRequest.setHouseNumber(houseNumber);
+        final int extLimit = extendedLimit(photonRequest);
+
+        var results = sendQuery(photonRequest, buildQuery(photonRequest, false), extLimit);
+
+        if (MultiSearcher.hasNoHits(results)) {
+            photonRequest.getStats().setLenientFallback();
+            results = sendQuery(photonRequest, buildQuery(photonRequest, true), extLimit);
+
+            if (MultiSearcher.hasZeroHits(results) && photonRequest.hasStreet()) {
+                results = sendQuery(photonRequest, buildQueryWithoutStreet(photonRequest), extLimit);
             }
         }
 
-        var stream = ResultScorer.hitsToResultStream(results);
+        return processResults(photonRequest, results);
+    }
+
+    @Override
+    public List<Stream<PhotonResult>> searchBatch(List<StructuredSearchRequest> requests) {
+        final var results = new ArrayList<>(multiSearcher.search(requests,
+                r -> multiSearcher.body(r, routing(r), buildQuery(r, false), extendedLimit(r))));
+
+        multiSearcher.rerunEmpty(requests, results, MultiSearcher::hasNoHits, r -> true, r -> {
+            r.getStats().setLenientFallback();
+            return multiSearcher.body(r, routing(r), buildQuery(r, true), extendedLimit(r));
+        });
+        multiSearcher.rerunEmpty(requests, results, MultiSearcher::hasZeroHits, StructuredSearchRequest::hasStreet,
+                r -> multiSearcher.body(r, routing(r), buildQueryWithoutStreet(r), extendedLimit(r)));
+
+        return IntStream.range(0, requests.size())
+                .mapToObj(i -> processResults(requests.get(i), results.get(i)))
+                .toList();
+    }
+
+    /**
+     * The country code of a structured search is always used as a filter,
+     * so only the shards of that country need to be searched.
+     */
+    private @Nullable String routing(StructuredSearchRequest photonRequest) {
+        return routing.forCountry(photonRequest.getCountryCode());
+    }
+
+    private static int extendedLimit(StructuredSearchRequest photonRequest) {
+        // for the case of deduplication we need a bit more results, #300
+        int limit = photonRequest.getLimit();
+        return limit > 1 ? (int) Math.round(photonRequest.getLimit() * 1.5) : 1;
+    }
+
+    private Query buildQueryWithoutStreet(StructuredSearchRequest photonRequest) {
+        var street = photonRequest.getStreet();
+        var houseNumber = photonRequest.getHouseNumber();
+        photonRequest.setStreet(null);
+        photonRequest.setHouseNumber(null);
+        final var query = buildQuery(photonRequest, true);
+        photonRequest.setStreet(street);
+        photonRequest.setHouseNumber(houseNumber);
+        return query;
+    }
+
+    private Stream<PhotonResult> processResults(StructuredSearchRequest photonRequest,
+                                                SearchResult<OpenSearchResult> results) {
+        final long start = SearchStats.start();
+        final var candidates = ResultScorer.hitsToResults(results);
+        photonRequest.getStats().addCandidates(candidates.size());
 
         if (photonRequest.hasLocationBias()) {
             double decay = NEG_DECAY_FACTOR / photonRequest.getDecayRadiusForBias();
-            stream = stream.peek(r -> {
-                assert photonRequest.getLocationForBias() != null;
-                r.adjustScoreByLocationBias(
+            assert photonRequest.getLocationForBias() != null;
+            for (var result : candidates) {
+                result.adjustScoreByLocationBias(
                         photonRequest.getLocationForBias(),
                         LOCATION_BIAS_FACTOR,
                         1 - photonRequest.getImportanceWeight(),
                         photonRequest.getRadiusForBias(),
                         decay
                 );
-            });
+            }
         }
 
-        return ResultScorer.adjustByNormalizedOpenSearchScore(stream)
-                .sorted(Comparator.comparingDouble(PhotonResult::getScore).reversed());
+        final var ranked = ResultScorer.rank(candidates, photonRequest.getLimit(), photonRequest.getDedupe(),
+                photonRequest.getStats());
+        photonRequest.getStats().stop(SearchStats.Stage.RANK, start);
+
+        return ranked.stream();
     }
 
     @Override
@@ -79,6 +134,7 @@ public class OpenSearchStructuredSearchHandler implements SearchHandler<Structur
     }
 
     public Query buildQuery(StructuredSearchRequest photonRequest, boolean lenient) {
+        final long start = SearchStats.start();
         final var query = new SearchQueryBuilder(photonRequest, lenient);
         query.addOsmTagFilter(photonRequest.getOsmTagFilters());
         query.addLayerFilter(photonRequest.getLayerFilters());
@@ -97,17 +153,35 @@ public class OpenSearchStructuredSearchHandler implements SearchHandler<Structur
         query.excludeCategories(photonRequest.getExcludeCategories());
         query.addBoundingBox(photonRequest.getBbox());
 
-        return query.build();
+        final var built = query.build();
+        photonRequest.getStats().stop(SearchStats.Stage.QUERY_BUILD, start);
+
+        return built;
     }
 
-    private SearchResponse<OpenSearchResult> sendQuery(Query query, Integer limit) {
+    private SearchResponse<OpenSearchResult> sendQuery(StructuredSearchRequest photonRequest, Query query, Integer limit) {
+        final var source = SourceFieldSelector.forRequest(photonRequest);
+        final String routingValue = routing(photonRequest);
+        final long start = SearchStats.start();
         try {
-            return client.search(s -> s
-                    .index(PhotonIndex.NAME)
-                    .searchType(SearchType.QueryThenFetch)
-                    .query(query)
-                    .size(limit)
-                    .timeout(queryTimeout), OpenSearchResult.class);
+            final var response = client.search(s -> {
+                s.index(PhotonIndex.NAME)
+                        .searchType(SearchType.QueryThenFetch)
+                        .query(query)
+                        .size(limit)
+                        .timeout(queryTimeout);
+                if (source != null) {
+                    s.source(source);
+                }
+                if (routingValue != null) {
+                    s.routing(routingValue);
+                }
+                return s;
+            }, OpenSearchResult.class);
+            photonRequest.getStats().stop(SearchStats.Stage.DATABASE, start);
+            photonRequest.getStats().addDatabaseRequest(response.took());
+
+            return response;
         } catch (IOException e) {
             throw new RuntimeException("IO error during search", e);
         }
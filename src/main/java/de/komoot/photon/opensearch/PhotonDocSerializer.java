@@ -44,6 +44,11 @@ public class PhotonDocSerializer extends StdSerializer<PhotonDoc> {
             gen.writeNumberField("lat", value.getCentroid().getY());
             gen.writeNumberField("lon", value.getCentroid().getX());
             gen.writeEndObject();
+
+            if (dbProperties.getGeoSort()) {
+                gen.writeNumberField(DocFields.SPATIAL_KEY,
+                        SpatialKey.of(value.getCentroid().getX(), value.getCentroid().getY()));
+            }
         }
 
         if (value.getGeometry() != null && !value.getGeometry().getGeometryType().equals("Point")) {
@@ -1,9 +1,26 @@
 package de.komoot.photon.opensearch;
 
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
 public class PhotonIndex {
+    /** Name of the alias which points to the index in use. */
     public static final String NAME = "photon";
     public static final String META_DB_PROPERTIES = "PhotonProperties";
 
+    /** Prefix of the versioned indexes created by imports. */
+    public static final String VERSION_PREFIX = NAME + "_";
+
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
     private PhotonIndex() {
     }
+
+    /**
+     * Create the name for a new versioned index. Names sort in the order of creation.
+     */
+    public static String makeVersionedName() {
+        return VERSION_PREFIX + VERSION_FORMAT.format(ZonedDateTime.now(ZoneOffset.UTC));
+    }
 }
@@ -0,0 +1,250 @@
+package de.komoot.photon.opensearch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.OpenSearchException;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides when the index is refreshed after updates.
+ * <p>
+ * A refresh makes the changes visible to searches, but it also invalidates
+ * the request and query caches of the database and creates a new small
+ * segment. With a minimum interval, refreshes requested within the interval
+ * after the last refresh are combined into a single refresh at the end of
+ * the interval.
+ * <p>
+ * In merge-friendly mode, photon does not refresh at all. Instead the refresh
+ * interval of the index is set to the minimum interval, so that the database
+ * refreshes on its own schedule. This leads to fewer and larger segments.
+ * The mode needs a positive minimum interval.
+ * <p>
+ * An after-refresh action can be registered which runs once the changes
+ * have become visible to searches: after every refresh done by photon or,
+ * in merge-friendly mode, once the refresh interval has passed after
+ * a request.
+ */
+@NullMarked
+public class RefreshScheduler {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private final Runnable refresh;
+    private final LongSupplier clock;
+    private final long minIntervalMillis;
+    private final boolean mergeFriendly;
+
+    @Nullable private ScheduledExecutorService executor = null;
+    @Nullable private ScheduledFuture<?> pending = null;
+    private long lastRefresh = Long.MIN_VALUE / 2;
+    // Merge-friendly mode only: a request came in after the pending action was scheduled.
+    private boolean requestedWhilePending = false;
+    private volatile Runnable afterRefresh = () -> {};
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshNanos = new AtomicLong();
+    private volatile long lastRefreshMillis = 0;
+
+    public RefreshScheduler(OpenSearchClient client, String indexName, long minIntervalMillis, boolean mergeFriendly) {
+        this(() -> refreshIndex(client, indexName), System::currentTimeMillis, minIntervalMillis, mergeFriendly);
+    }
+
+    RefreshScheduler(Runnable refresh, LongSupplier clock, long minIntervalMillis, boolean mergeFriendly) {
+        if (mergeFriendly && minIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Merge-friendly refresh mode needs a positive refresh interval.");
+        }
+        this.refresh = refresh;
+        this.clock = clock;
+        this.minIntervalMillis = Math.max(0, minIntervalMillis);
+        this.mergeFriendly = mergeFriendly;
+    }
+
+    /**
+     * Create a scheduler which refreshes the index on every request.
+     */
+    public static RefreshScheduler immediate(OpenSearchClient client) {
+        return new RefreshScheduler(client, PhotonIndex.NAME, 0, false);
+    }
+
+    public boolean isMergeFriendly() {
+        return mergeFriendly;
+    }
+
+    /**
+     * Set the action to run when requested changes have become visible
+     * to searches.
+     */
+    public void setAfterRefresh(Runnable afterRefresh) {
+        this.afterRefresh = afterRefresh;
+    }
+
+    /**
+     * Set the refresh interval of the index when in merge-friendly mode.
+     */
+    public void configureIndex(OpenSearchClient client, String indexName) {
+        if (!mergeFriendly) {
+            return;
+        }
+
+        final String interval = minIntervalMillis + "ms";
+        if (Importer.setRefreshInterval(client, indexName, interval)) {
+            LOGGER.info("Refresh interval of index {} set to {}.", indexName, interval);
+        }
+    }
+
+    /**
+     * Ask for the changes to become visible. The refresh is either done
+     * right away or scheduled for the end of the minimum interval.
+     */
+    public void requestRefresh() {
+        requestCount.incrementAndGet();
+        if (mergeFriendly) {
+            scheduleAfterInterval();
+            return;
+        }
+
+        synchronized (this) {
+            if (pending != null) {
+                // Combined with the refresh already scheduled.
+                return;
+            }
+            final long now = clock.getAsLong();
+            final long wait = lastRefresh + minIntervalMillis - now;
+            if (wait > 0) {
+                pending = executor().schedule(this::runPending, wait, TimeUnit.MILLISECONDS);
+                return;
+            }
+            lastRefresh = now;
+        }
+
+        runRefresh();
+    }
+
+    /**
+     * Run a scheduled refresh right away.
+     */
+    public void flush() {
+        if (mergeFriendly) {
+            // Nothing to refresh, the database does it on its own.
+            return;
+        }
+
+        synchronized (this) {
+            if (pending == null) {
+                return;
+            }
+            pending.cancel(false);
+            pending = null;
+            lastRefresh = clock.getAsLong();
+        }
+
+        runRefresh();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public double getRefreshSeconds() {
+        return refreshNanos.get() / 1e9;
+    }
+
+    /**
+     * Get the wall-clock time of the last refresh done by photon in
+     * milliseconds since the epoch, 0 when there was none yet.
+     */
+    public long getLastRefreshMillis() {
+        return lastRefreshMillis;
+    }
+
+    private void runPending() {
+        synchronized (this) {
+            if (pending == null) {
+                return;
+            }
+            pending = null;
+            lastRefresh = clock.getAsLong();
+        }
+
+        runRefresh();
+    }
+
+    private void runRefresh() {
+        final long start = System.nanoTime();
+        refresh.run();
+        refreshNanos.addAndGet(System.nanoTime() - start);
+        refreshCount.incrementAndGet();
+        lastRefreshMillis = System.currentTimeMillis();
+        runAfterRefresh();
+    }
+
+    /**
+     * In merge-friendly mode, wait for the database to refresh on its own
+     * before running the after-refresh action. Requests coming in while
+     * waiting get another full interval afterwards.
+     */
+    private synchronized void scheduleAfterInterval() {
+        if (pending != null) {
+            requestedWhilePending = true;
+            return;
+        }
+        pending = executor().schedule(this::runPendingAfterInterval, minIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runPendingAfterInterval() {
+        synchronized (this) {
+            if (pending == null) {
+                return;
+            }
+            if (requestedWhilePending) {
+                requestedWhilePending = false;
+                pending = executor().schedule(this::runPendingAfterInterval, minIntervalMillis, TimeUnit.MILLISECONDS);
+            } else {
+                pending = null;
+            }
+        }
+
+        runAfterRefresh();
+    }
+
+    private void runAfterRefresh() {
+        try {
+            afterRefresh.run();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Action after refresh failed.", e);
+        }
+    }
+
+    private ScheduledExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                final var thread = new Thread(r, "photon-refresh-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private static void refreshIndex(OpenSearchClient client, String indexName) {
+        try {
+            client.indices().refresh(r -> r.index(indexName));
+        } catch (IOException | OpenSearchException e) {
+            LOGGER.warn("Refresh of index {} failed.", indexName, e);
+        }
+    }
+}
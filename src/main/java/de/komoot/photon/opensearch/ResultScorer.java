@@ -1,47 +1,132 @@
 package de.komoot.photon.opensearch;
 
 import de.komoot.photon.searcher.PhotonResult;
+import de.komoot.photon.searcher.SearchStats;
+import de.komoot.photon.searcher.StreetDupesRemover;
 import org.jspecify.annotations.NullMarked;
 import org.opensearch.client.opensearch.core.search.SearchResult;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Stream;
 
 @NullMarked
 public class ResultScorer {
-    private double maxScore = 10.0;
+    private static final double MIN_MAX_SCORE = 10.0;
+
+    /**
+     * Final order of results: by score and, for equal scores, by the score
+     * from the database. Sorting must be stable, so that the order of the
+     * hits decides for the rest.
+     */
+    private static final Comparator<OpenSearchResult> RANKING =
+            Comparator.comparingDouble(OpenSearchResult::getScore).reversed()
+                    .thenComparing(Comparator.comparingDouble(OpenSearchResult::getOpensearchScore).reversed());
+
+    private ResultScorer() {}
 
     public static Stream<OpenSearchResult> hitsToResultStream(SearchResult<OpenSearchResult> results) {
-        Stream.Builder<OpenSearchResult> builder = Stream.builder();
-        for (var hit: results.hits().hits()) {
+        return hitsToResults(results).stream();
+    }
+
+    public static List<OpenSearchResult> hitsToResults(SearchResult<OpenSearchResult> results) {
+        final var hits = results.hits().hits();
+        final List<OpenSearchResult> candidates = new ArrayList<>(hits.size());
+        for (var hit: hits) {
             var result = hit.source();
             if (result != null) {
                 result.setOpensearchScore(hit.score());
-                builder.add(result);
+                candidates.add(result);
             }
         }
 
-        return builder.build();
+        return candidates;
     }
 
-    static public Stream<PhotonResult> adjustByNormalizedOpenSearchScore(Stream<OpenSearchResult> results) {
-        var scorer = new ResultScorer();
-        return results.sorted(Comparator.comparingDouble(OpenSearchResult::getOpensearchScore).reversed())
-                .map(scorer::normalizeScore);
+    /**
+     * Add the normalized score from the database to the candidates and
+     * return the best results in order.
+     *
+     * @param candidates Candidates in the order returned by the database, with
+     *                   all other score adjustments already applied.
+     * @param limit Maximum number of results to return.
+     * @param dedupe When set, remove duplicate streets before applying the limit.
+     * @param stats Statistics of the request, receives the number of removed duplicates.
+     */
+    public static List<PhotonResult> rank(List<OpenSearchResult> candidates, int limit, boolean dedupe,
+                                          SearchStats stats) {
+        double maxScore = MIN_MAX_SCORE;
+        for (var result : candidates) {
+            if (result.getOpensearchScore() > maxScore) {
+                maxScore = result.getOpensearchScore();
+            }
+        }
+        for (var result : candidates) {
+            normalizeScore(result, maxScore);
+        }
+
+        final var ordered = candidates.toArray(new OpenSearchResult[0]);
+        if (!dedupe) {
+            return Arrays.<PhotonResult>asList(selectTop(ordered, limit));
+        }
+
+        Arrays.sort(ordered, RANKING);
+        final var dupesRemover = new StreetDupesRemover();
+        final List<PhotonResult> results = new ArrayList<>(Math.min(limit, ordered.length));
+        for (var result : ordered) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if (dupesRemover.test(result)) {
+                results.add(result);
+            }
+        }
+        stats.addDedupeDropped(dupesRemover.getRemoved());
+
+        return results;
     }
 
-     private PhotonResult normalizeScore(OpenSearchResult result) {
+    private static void normalizeScore(OpenSearchResult result, double maxScore) {
         var osScore = result.getOpensearchScore();
 
         if (osScore >= maxScore) {
-            maxScore = osScore;
             result.adjustScore(1.0);
         } else if (maxScore < 20) {
             result.adjustScore(osScore / maxScore);
         } else if (osScore > maxScore - 20) {
             result.adjustScore((osScore - maxScore + 20) / 20);
         }
+    }
+
+    /**
+     * Bounded insertion selection of the best results. Equal results keep
+     * their original order.
+     */
+    private static OpenSearchResult[] selectTop(OpenSearchResult[] candidates, int limit) {
+        final var top = new OpenSearchResult[Math.max(0, Math.min(limit, candidates.length))];
+        if (top.length == 0) {
+            return top;
+        }
 
-        return result;
-     }
+        int size = 0;
+        for (var result : candidates) {
+            int pos;
+            if (size < top.length) {
+                pos = size++;
+            } else if (RANKING.compare(result, top[size - 1]) < 0) {
+                pos = size - 1;
+            } else {
+                continue;
+            }
+            while (pos > 0 && RANKING.compare(result, top[pos - 1]) < 0) {
+                top[pos] = top[pos - 1];
+                --pos;
+            }
+            top[pos] = result;
+        }
+
+        return top;
+    }
 }
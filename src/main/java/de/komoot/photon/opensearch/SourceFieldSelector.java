@@ -0,0 +1,72 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.query.RequestBase;
+import de.komoot.photon.searcher.GeoJsonFormatter;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.opensearch.client.opensearch.core.search.SourceConfig;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Computes the part of the document source that needs to be fetched
+ * for a search request.
+ * <p>
+ * Only the languages needed to format the result are requested for the
+ * localised fields and the geometry is only fetched when it is part of
+ * the output. Debug requests always get the full document.
+ */
+@NullMarked
+public class SourceFieldSelector {
+    private static final List<String> PLAIN_FIELDS = List.of(
+            DocFields.OSM_ID, DocFields.OSM_TYPE, DocFields.OSM_KEY, DocFields.OSM_VALUE,
+            DocFields.OBJECT_TYPE, DocFields.IMPORTANCE, DocFields.HOUSENUMBER,
+            DocFields.POSTCODE, DocFields.COUNTRYCODE, DocFields.EXTRA,
+            DocFields.COORDINATE, DocFields.EXTENT);
+    private static final List<String> LOCALISED_FIELDS = List.of(
+            DocFields.STREET, DocFields.LOCALITY, DocFields.DISTRICT, DocFields.CITY,
+            DocFields.COUNTY, DocFields.STATE, DocFields.COUNTRY);
+
+    private SourceFieldSelector() {}
+
+    @Nullable
+    public static SourceConfig forRequest(RequestBase request) {
+        if (request.getDebug()) {
+            return null;
+        }
+
+        return SourceConfig.of(sc -> sc.filter(f -> f.includes(includedFields(request))));
+    }
+
+    static List<String> includedFields(RequestBase request) {
+        final var languages = new LinkedHashSet<String>();
+        languages.add("default");
+        languages.add(request.getLanguage());
+        final String defaultLanguage = request.getDefaultLanguage();
+        if (defaultLanguage != null) {
+            languages.add(defaultLanguage);
+        }
+
+        final List<String> fields = new ArrayList<>(PLAIN_FIELDS);
+        if (request.getReturnGeometry()) {
+            fields.add(DocFields.GEOMETRY);
+        }
+
+        for (var lang : languages) {
+            fields.add(DocFields.NAME + "." + lang);
+        }
+        for (var alt : GeoJsonFormatter.NAME_PRECEDENCE) {
+            fields.add(DocFields.NAME + "." + alt);
+        }
+
+        for (var field : LOCALISED_FIELDS) {
+            for (var lang : languages) {
+                fields.add(field + "." + lang);
+            }
+        }
+
+        return fields;
+    }
+}
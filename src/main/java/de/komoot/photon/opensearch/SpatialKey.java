@@ -0,0 +1,57 @@
+package de.komoot.photon.opensearch;
+
+import org.jspecify.annotations.NullMarked;
+
+/**
+ * Computes the position of a coordinate along a Hilbert curve.
+ * <p>
+ * Places that are close to each other on the map are mostly close to each
+ * other on the curve as well. Sorting the index by this key keeps nearby
+ * places together in the same segments and blocks.
+ */
+@NullMarked
+final class SpatialKey {
+    /** Bits per axis. 2^20 cells per axis are about 40m wide at the equator. */
+    static final int ORDER = 20;
+
+    private static final long CELLS = 1L << ORDER;
+
+    private SpatialKey() {
+    }
+
+    /**
+     * Return the Hilbert curve index for the given WGS84 coordinate.
+     * Coordinates outside the valid range are clamped.
+     */
+    static long of(double lon, double lat) {
+        return hilbert(toCell(lon, -180.0, 360.0), toCell(lat, -90.0, 180.0));
+    }
+
+    private static long toCell(double value, double min, double range) {
+        final long cell = (long) ((value - min) / range * CELLS);
+        return Math.max(0, Math.min(CELLS - 1, cell));
+    }
+
+    /**
+     * Classic conversion from cell coordinates to the distance along the curve.
+     */
+    static long hilbert(long x, long y) {
+        long d = 0;
+        for (long s = CELLS / 2; s > 0; s /= 2) {
+            final long rx = (x & s) > 0 ? 1 : 0;
+            final long ry = (y & s) > 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = CELLS - 1 - x;
+                    y = CELLS - 1 - y;
+                }
+                final long t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+}
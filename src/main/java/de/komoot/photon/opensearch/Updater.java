@@ -4,98 +4,362 @@ import de.komoot.photon.PhotonDoc;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch.core.BulkRequest;
 
 import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Writes updates of places to the database.
+ * <p>
+ * A place consists of one or more documents with the IDs
+ * {@code <place_id>}, {@code <place_id>.1}, {@code <place_id>.2} and so on.
+ * When a place gets fewer documents or is deleted, the left-over documents
+ * need to be removed. The updater collects the changed places and looks
+ * up the left-over documents for all of them at once, right before the
+ * changes are sent to the database.
+ * <p>
+ * Documents may be added from several threads at once. Each thread collects
+ * its own bulk. A place must only ever be changed by a single thread between
+ * two calls to {@link #finish}, so that the changes to a place are applied
+ * in order.
+ */
 @NullMarked
 public class Updater implements de.komoot.photon.Updater {
     private static final Logger LOGGER = LogManager.getLogger();
+    private static final int MAX_BULK_DOCUMENTS = 10000;
+    /** Number of document IDs per place to look up in one go. Most places have a single document. */
+    private static final int LOOKUP_WINDOW = 4;
+    /** Maximum number of document IDs to ask for in a single request. */
+    private static final int LOOKUP_CHUNK_SIZE = 4000;
 
     private final OpenSearchClient client;
-    private BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
-    private int todoDocuments = 0;
+    private final CountryRouting routing;
+    private final RefreshScheduler refreshScheduler;
+    /** Changes collected by each thread adding documents. */
+    private final Map<Thread, Batch> batches = new ConcurrentHashMap<>();
+    /** Sends the bulks in the background. Null when bulks are sent by the thread that filled them. */
+    @Nullable private final ExecutorService submitPool;
 
-    public Updater(OpenSearchClient client) {
-        this.client = client;
+    /**
+     * State of a place changed since the last bulk was sent.
+     */
+    private static final class PendingPlace {
+        /** Routing of the documents written with the current bulk. */
+        @Nullable String routing = null;
+        /** Number of documents the place consists of now. */
+        int objects = 0;
+        /** Number of documents written with the current bulk. */
+        int written = 0;
     }
 
-    public void addOrUpdate(Iterable<PhotonDoc> docs) {
-        String placeID = null;
-        int objectId = 0;
-
-        for (var doc: docs) {
-            if (objectId == 0) {
-                placeID = doc.getPlaceId();
-                if (placeID == null) {
-                    throw new RuntimeException("Documents without place_id cannot be used for updates.");
-                }
-            }
-            final String uid = PhotonDoc.makeUid(placeID, objectId++);
+    /**
+     * Place documents which might exist in the database and need to be deleted.
+     */
+    private record DeleteCandidate(String placeId, @Nullable String routing, int fromObjectId) {}
 
-            bulkRequest.operations(op -> op
-                    .index(i -> i.index(PhotonIndex.NAME).id(uid).document(doc)));
+    public Updater(OpenSearchClient client, CountryRouting routing) {
+        this(client, routing, 1, RefreshScheduler.immediate(client));
+    }
 
-            if (++todoDocuments > 10000) {
-                updateDocuments();
-            }
+    /**
+     * Create a new updater.
+     *
+     * @param maxConcurrentBulks Number of bulks which may be sent to the database
+     *                           at the same time. When larger than 1, the bulks are
+     *                           sent by a pool of background threads.
+     * @param refreshScheduler Decides when the changes become visible after {@link #finish}.
+     */
+    public Updater(OpenSearchClient client, CountryRouting routing, int maxConcurrentBulks,
+                   RefreshScheduler refreshScheduler) {
+        this.client = client;
+        this.routing = routing;
+        this.refreshScheduler = refreshScheduler;
+        if (maxConcurrentBulks > 1) {
+            final var threadCount = new AtomicInteger();
+            submitPool = Executors.newFixedThreadPool(maxConcurrentBulks, r -> {
+                final Thread t = new Thread(r, "photon-update-submit-" + threadCount.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            submitPool = null;
         }
+    }
 
-        if (placeID != null) {
-            deleteSubset(placeID, objectId);
+    public void addOrUpdate(Iterable<PhotonDoc> docs) {
+        final Batch batch = currentBatch();
+        batch.addOrUpdate(docs);
+
+        if (batch.todoDocuments >= MAX_BULK_DOCUMENTS) {
+            updateDocuments(batch);
         }
     }
 
     public void delete(String placeId) {
-        deleteSubset(placeId, 0);
+        final Batch batch = currentBatch();
+        batch.delete(placeId);
+
+        if (batch.pendingPlaces.size() >= MAX_BULK_DOCUMENTS) {
+            updateDocuments(batch);
+        }
     }
 
-    private void deleteSubset(String docId, int fromObjectId) {
-        int objectId = fromObjectId;
+    private Batch currentBatch() {
+        return batches.computeIfAbsent(Thread.currentThread(), t -> new Batch());
+    }
 
-        while (exists(docId, objectId++)) {
-            final String uid = PhotonDoc.makeUid(docId, objectId);
-            bulkRequest.operations(op -> op
-                    .delete(d -> d.index(PhotonIndex.NAME).id(uid)));
+    /**
+     * Look up which of the candidate documents exist in the database.
+     *
+     * @return The IDs of the existing documents.
+     */
+    private Set<String> findExisting(List<DeleteCandidate> candidates) {
+        final Set<String> existing = new HashSet<>();
+        try {
+            final var response = client.mget(m -> {
+                m.index(PhotonIndex.NAME).source(src -> src.fetch(false));
+                for (var candidate : candidates) {
+                    for (int i = 0; i < LOOKUP_WINDOW; ++i) {
+                        final String uid = PhotonDoc.makeUid(candidate.placeId(), candidate.fromObjectId() + i);
+                        m.docs(d -> d.id(uid).routing(candidate.routing()));
+                    }
+                }
+                return m;
+            }, OpenSearchResult.class);
 
-            if (++todoDocuments > 10000) {
-                updateDocuments();
+            for (var item : response.docs()) {
+                if (item.isResult() && item.result().found()) {
+                    existing.add(item.result().id());
+                }
             }
+        } catch (IOException e) {
+            LOGGER.warn("IO error on lookup of documents to delete", e);
         }
+        return existing;
     }
 
-    private boolean exists(String docId, int objectId) {
-        try {
-            return client.exists(e -> e.index(PhotonIndex.NAME).id(PhotonDoc.makeUid(docId, objectId))).value();
-        } catch (IOException e) {
-            LOGGER.warn("IO error on exists operation", e);
+    /**
+     * Look up the routing values the places are currently stored with.
+     *
+     * @return Routing values by place ID. Places not in the database are missing.
+     */
+    private Map<String, String> findRoutings(Collection<String> placeIds) {
+        final Map<String, String> routings = new HashMap<>();
+        final List<String> ids = new ArrayList<>(placeIds);
+        for (int start = 0; start < ids.size(); start += LOOKUP_CHUNK_SIZE) {
+            // The first document of a place always has the place ID as its ID.
+            final var chunk = ids.subList(start, Math.min(ids.size(), start + LOOKUP_CHUNK_SIZE));
+            try {
+                final var response = client.search(s -> s
+                        .index(PhotonIndex.NAME)
+                        .query(q -> q.ids(i -> i.values(chunk)))
+                        .source(src -> src.fetch(false))
+                        .size(chunk.size()), OpenSearchResult.class);
+                for (var hit : response.hits().hits()) {
+                    if (hit.id() != null && hit.routing() != null) {
+                        routings.put(hit.id(), hit.routing());
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("IO error on routing lookup", e);
+            }
         }
-        return false;
+        return routings;
     }
 
     @Override
     public void finish() {
-        updateDocuments();
+        // Safe to take over the batches of the other threads: finish() is only
+        // called once all threads adding documents are done.
+        for (var batch : batches.values()) {
+            updateDocuments(batch);
+            batch.awaitSent();
+        }
+        batches.clear();
+
+        refreshScheduler.requestRefresh();
+    }
+
+    private void updateDocuments(Batch batch) {
+        // The previous bulk of the thread may touch the same places. It must be
+        // in the database before the left-over documents are looked up and
+        // before the next bulk is sent.
+        batch.awaitSent();
+        batch.addPendingDeletes();
+
+        if (batch.todoDocuments > 0) {
+            final BulkRequest request = batch.build();
+
+            if (submitPool == null) {
+                send(request);
+            } else {
+                // The thread can go on reading the next places while the bulk is sent.
+                batch.inFlight = submitPool.submit(() -> send(request));
+            }
+        }
+    }
+
+    private void send(BulkRequest request) {
         try {
-            client.indices().refresh(r -> r.index(PhotonIndex.NAME));
-        } catch (IOException e) {
-            LOGGER.warn("IO error on refresh.");
+            BulkRetryHelper.sendWithRetry(client, request);
+        } catch (RuntimeException e) {
+            // Preserves the pre-existing silent-continue behaviour on hard failure;
+            // adds 429/circuit-breaker retry resilience via BulkRetryHelper.
+            LOGGER.error("Errors during bulk update.", e);
         }
     }
 
-    private void updateDocuments() {
-        if (todoDocuments > 0) {
+    /**
+     * Changes collected by a single thread for the next bulk.
+     */
+    private final class Batch {
+        private BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
+        private int todoDocuments = 0;
+        private final Map<String, PendingPlace> pendingPlaces = new LinkedHashMap<>();
+        /** The bulk of this batch which is currently being sent. */
+        @Nullable private Future<?> inFlight = null;
+
+        void addOrUpdate(Iterable<PhotonDoc> docs) {
+            String placeID = null;
+            PendingPlace place = null;
+            int objectId = 0;
+
+            for (var doc: docs) {
+                if (objectId == 0) {
+                    placeID = doc.getPlaceId();
+                    if (placeID == null) {
+                        throw new RuntimeException("Documents without place_id cannot be used for updates.");
+                    }
+                    place = pendingPlaces.computeIfAbsent(placeID, k -> new PendingPlace());
+                    final String newRouting = routing.forDocument(doc);
+                    if (place.written > 0 && !Objects.equals(place.routing, newRouting)) {
+                        // Written with the current bulk but to a different shard.
+                        for (int i = 0; i < place.written; ++i) {
+                            addDelete(placeID, i, place.routing);
+                        }
+                        place.written = 0;
+                    }
+                    place.routing = newRouting;
+                }
+                final String uid = PhotonDoc.makeUid(placeID, objectId++);
+                final String docRouting = place.routing;
+
+                bulkRequest.operations(op -> op
+                        .index(i -> i.index(PhotonIndex.NAME).id(uid).routing(docRouting).document(doc)));
+                ++todoDocuments;
+            }
+
+            if (place != null) {
+                place.objects = objectId;
+                place.written = Math.max(place.written, objectId);
+            }
+        }
+
+        void delete(String placeId) {
+            pendingPlaces.computeIfAbsent(placeId, k -> new PendingPlace()).objects = 0;
+        }
+
+        private void addDelete(String placeId, int objectId, @Nullable String docRouting) {
+            final String uid = PhotonDoc.makeUid(placeId, objectId);
+            bulkRequest.operations(op -> op
+                    .delete(d -> d.index(PhotonIndex.NAME).id(uid).routing(docRouting)));
+            ++todoDocuments;
+        }
+
+        /**
+         * Add delete operations for all documents of the pending places which
+         * are no longer needed.
+         */
+        void addPendingDeletes() {
+            if (pendingPlaces.isEmpty()) {
+                return;
+            }
+
+            final Map<String, String> storedRoutings = routing.isEnabled()
+                    ? findRoutings(pendingPlaces.keySet()) : Map.of();
+
+            final List<DeleteCandidate> candidates = new ArrayList<>();
+            for (var entry : pendingPlaces.entrySet()) {
+                final String placeId = entry.getKey();
+                final var place = entry.getValue();
+
+                // Documents that were written with this bulk but are no longer needed.
+                for (int i = place.objects; i < place.written; ++i) {
+                    addDelete(placeId, i, place.routing);
+                }
+
+                final int from = Math.max(place.objects, place.written);
+                if (!routing.isEnabled()) {
+                    candidates.add(new DeleteCandidate(placeId, null, from));
+                } else {
+                    final String stored = storedRoutings.get(placeId);
+                    if (stored != null) {
+                        // A place that changed its country lives on a different shard now.
+                        candidates.add(new DeleteCandidate(placeId, stored, stored.equals(place.routing) ? from : 0));
+                    }
+                }
+            }
+            pendingPlaces.clear();
+
+            var todo = candidates;
+            while (!todo.isEmpty()) {
+                final List<DeleteCandidate> next = new ArrayList<>();
+                final int chunkSize = LOOKUP_CHUNK_SIZE / LOOKUP_WINDOW;
+                for (int start = 0; start < todo.size(); start += chunkSize) {
+                    final var chunk = todo.subList(start, Math.min(todo.size(), start + chunkSize));
+                    final var existing = findExisting(chunk);
+
+                    for (var candidate : chunk) {
+                        int found = 0;
+                        while (found < LOOKUP_WINDOW
+                                && existing.contains(PhotonDoc.makeUid(candidate.placeId(), candidate.fromObjectId() + found))) {
+                            addDelete(candidate.placeId(), candidate.fromObjectId() + found, candidate.routing());
+                            ++found;
+                        }
+                        if (found == LOOKUP_WINDOW) {
+                            next.add(new DeleteCandidate(candidate.placeId(), candidate.routing(),
+                                    candidate.fromObjectId() + LOOKUP_WINDOW));
+                        }
+                    }
+                }
+                todo = next;
+            }
+        }
+
+        void awaitSent() {
+            if (inFlight == null) {
+                return;
+            }
+
             try {
-                BulkRetryHelper.sendWithRetry(client, bulkRequest.build());
-            } catch (RuntimeException e) {
-                // Preserves the pre-existing silent-continue behaviour on hard failure;
-                // adds 429/circuit-breaker retry resilience via BulkRetryHelper.
-                LOGGER.error("Errors during bulk update.", e);
+                inFlight.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for bulk update", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Errors during bulk update.", e.getCause());
+            } finally {
+                inFlight = null;
             }
+        }
 
+        /**
+         * Hand out the collected operations and start a new bulk.
+         */
+        BulkRequest build() {
+            final BulkRequest request = bulkRequest.build();
             bulkRequest = new BulkRequest.Builder();
             todoDocuments = 0;
+            return request;
         }
     }
 }
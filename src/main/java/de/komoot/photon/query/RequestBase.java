@@ -1,5 +1,6 @@
 package de.komoot.photon.query;
 
+import de.komoot.photon.searcher.SearchStats;
 import de.komoot.photon.searcher.TagFilter;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
@@ -8,6 +9,9 @@ import java.util.*;
 
 @NullMarked
 public class RequestBase {
+    /** Separator between the parts of a cache key. Must not appear in normal query input. */
+    protected static final char KEY_SEPARATOR = '\u001f';
+
     private String language = "default";
     @Nullable private String defaultLanguage = null;
     private int limit = 15;
@@ -20,6 +24,8 @@ public class RequestBase {
     private final Set<String> includeCategories = new HashSet<>();
     private final Set<String> excludeCategories = new HashSet<>();
 
+    private final SearchStats stats = new SearchStats();
+
     public String getLanguage() {
         return language;
     }
@@ -33,6 +39,13 @@ public class RequestBase {
         return limit;
     }
 
+    /**
+     * Statistics about the processing of this request.
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
+
     public boolean getDebug() {
         return debug;
     }
@@ -87,6 +100,36 @@ public class RequestBase {
         this.returnGeometry = returnGeometry;
     }
 
+    /**
+     * Return a canonical description of all parameters that influence the
+     * result set of the search. Requests with the same key are expected
+     * to return the same results.
+     */
+    public String getCacheKey() {
+        final var key = new StringBuilder(getClass().getSimpleName());
+        appendCacheKey(key);
+        return key.toString();
+    }
+
+    protected void appendCacheKey(StringBuilder key) {
+        appendKeyPart(key, language);
+        appendKeyPart(key, defaultLanguage);
+        appendKeyPart(key, Integer.toString(limit));
+        appendKeyPart(key, returnGeometry ? "g" : "");
+        appendKeyPart(key, dedupe ? "d" : "");
+        appendKeyPart(key, osmTagFilters.stream().map(TagFilter::toString).sorted().toList());
+        appendKeyPart(key, layerFilters.stream().sorted().toList());
+        appendKeyPart(key, includeCategories.stream().sorted().toList());
+        appendKeyPart(key, excludeCategories.stream().sorted().toList());
+    }
+
+    protected static void appendKeyPart(StringBuilder key, @Nullable Object part) {
+        key.append(KEY_SEPARATOR);
+        if (part != null) {
+            key.append(part);
+        }
+    }
+
     void addOsmTagFilter(TagFilter filter) {
         osmTagFilters.add(filter);
     }
@@ -6,5 +6,9 @@ import org.jspecify.annotations.NullMarked;
 @NullMarked
 public interface RequestFactory<T extends RequestBase> {
 
-    T create(Context context);
+    T create(RequestParameters parameters);
+
+    default T create(Context context) {
+        return create(RequestParameters.fromContext(context));
+    }
 }
@@ -3,8 +3,6 @@ package de.komoot.photon.query;
 import de.komoot.photon.PhotonDoc;
 import de.komoot.photon.nominatim.model.AddressType;
 import de.komoot.photon.searcher.TagFilter;
-import io.javalin.http.Context;
-import io.javalin.http.Header;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.locationtech.jts.geom.*;
@@ -13,7 +11,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
-@SuppressWarnings("ConstantValue")
 @NullMarked
 public class RequestFactoryBase {
     protected static final Set<String> BASE_PARAMETERS = Set.of(
@@ -33,59 +30,57 @@ public class RequestFactoryBase {
         this.supportGeometries = supportGeometries;
     }
 
-    protected void completeBaseRequest(RequestBase request, Context context) {
-        request.setLanguage(parseLanguage(context));
+    protected void completeBaseRequest(RequestBase request, RequestParameters parameters) {
+        request.setLanguage(parseLanguage(parameters));
         request.setDefaultLanguage(defaultLangauge);
 
-        request.setLimit(context.queryParamAsClass("limit", Integer.class)
-                                .getOrNull(), maxResults);
+        request.setLimit(parameters.getInteger("limit"), maxResults);
 
-        request.setDebug(context.queryParamAsClass("debug", Boolean.class).getOrDefault(false));
+        request.setDebug(parameters.getBoolean("debug", false));
 
-        request.setDedupe(context.queryParamAsClass("dedupe", Boolean.class).getOrDefault(true));
+        request.setDedupe(parameters.getBoolean("dedupe", true));
 
-        request.addLayerFilters(context.queryParamsAsClass("layer", String.class)
-                .check(AVAILABLE_LAYERS::containsAll,
-                        "Unknown layer type. Available layers: " + AVAILABLE_LAYERS)
-                .get());
-
-        final var tagFilters = context.queryParamsAsClass("osm_tag", TagFilter.class).get();
+        final var layers = parameters.getAll("layer");
+        if (!AVAILABLE_LAYERS.containsAll(layers)) {
+            throw new BadRequestException(400, "Unknown layer type. Available layers: " + AVAILABLE_LAYERS);
+        }
+        request.addLayerFilters(layers);
 
-        for (var filter : tagFilters) {
+        for (var filter : parameters.getTagFilters("osm_tag")) {
             request.addOsmTagFilter(filter);
         }
 
-        request.addIncludeCategories(context.queryParamsAsClass("include", String.class)
-                .check(l -> l.stream()
-                                .allMatch(s -> PhotonDoc.CATEGORY_PATTERN.matcher(s).matches()),
-                        "Invalid category pattern in 'include'.")
-                .get());
-
-        request.addExcludeCategories(context.queryParamsAsClass("exclude", String.class)
-                .check(l -> l.stream()
-                                .allMatch(s -> PhotonDoc.CATEGORY_PATTERN.matcher(s).matches()),
-                        "Invalid category pattern in 'exclude'.")
-                .get());
-
-        request.setReturnGeometry(context.queryParamAsClass("geometry", Boolean.class)
-                        .check(g -> g == null || !g || supportGeometries,
-                                "Geometry output requested but not available in database.")
-                        .getOrDefault(false));
+        request.addIncludeCategories(parseCategories(parameters, "include"));
+        request.addExcludeCategories(parseCategories(parameters, "exclude"));
+
+        final boolean returnGeometry = parameters.getBoolean("geometry", false);
+        if (returnGeometry && !supportGeometries) {
+            throw new BadRequestException(400, "Geometry output requested but not available in database.");
+        }
+        request.setReturnGeometry(returnGeometry);
+    }
+
+    private static List<String> parseCategories(RequestParameters parameters, String key) {
+        final var categories = parameters.getAll(key);
+        if (!categories.stream().allMatch(s -> PhotonDoc.CATEGORY_PATTERN.matcher(s).matches())) {
+            throw new BadRequestException(400, "Invalid category pattern in '" + key + "'.");
+        }
+        return categories;
     }
 
-    private String parseLanguage(Context context) {
-        final String langParam = context.queryParamAsClass("lang", String.class)
-                .check(l -> l == null || "default".equals(l) || supportedLanguages.contains(l),
-                        "Language is not supported. Supported are: default, "
-                                + String.join(", ", supportedLanguages))
-                .getOrNull();
+    private String parseLanguage(RequestParameters parameters) {
+        final String langParam = parameters.get("lang");
 
         if (langParam != null) {
+            if (!"default".equals(langParam) && !supportedLanguages.contains(langParam)) {
+                throw new BadRequestException(400, "Language is not supported. Supported are: default, "
+                        + String.join(", ", supportedLanguages));
+            }
             return langParam;
         }
 
         // no parameter, try the language header
-        final String langHeader = context.header(Header.ACCEPT_LANGUAGE);
+        final String langHeader = parameters.getAcceptLanguage();
         if (langHeader != null && !langHeader.isBlank()) {
             try {
                 var languages = Locale.LanguageRange.parse(langHeader);
@@ -103,32 +98,22 @@ public class RequestFactoryBase {
     }
 
     @Nullable
-    protected Point parseLatLon(Context context, boolean mandatory) {
-        Double lat, lon;
-        if (mandatory) {
-            lat = context.queryParamAsClass("lat", Double.class)
-                    .check(l -> l >= -90.0 && l <= 90.0,
-                            "Invalid value for 'lat' parameter.")
-                    .get();
-
-            lon = context.queryParamAsClass("lon", Double.class)
-                    .check(l -> l >= -180.0 && l <= 180.0,
-                            "Invalid value for 'lon' parameter.")
-                    .get();
-        } else {
-            lat = context.queryParamAsClass("lat", Double.class)
-                    .check(l -> l == null || (l >= -90.0 && l <= 90.0),
-                            "Invalid value for 'lat' parameter.")
-                    .check(l -> l == null || context.queryParam("lon") != null,
-                            "Missing parameter 'lon'.")
-                    .getOrNull();
-
-            lon = context.queryParamAsClass("lon", Double.class)
-                    .check(l -> l == null || (l >= -180.0 && l <= 180.0),
-                            "Invalid value for 'lon' parameter.")
-                    .check(l -> l == null || lat != null,
-                            "Missing parameter 'lat'.")
-                    .getOrNull();
+    protected Point parseLatLon(RequestParameters parameters, boolean mandatory) {
+        final Double lat = parameters.getDouble("lat");
+        final Double lon = parameters.getDouble("lon");
+
+        if (lat != null && (lat < -90.0 || lat > 90.0)) {
+            throw new BadRequestException(400, "Invalid value for 'lat' parameter.");
+        }
+        if (lon != null && (lon < -180.0 || lon > 180.0)) {
+            throw new BadRequestException(400, "Invalid value for 'lon' parameter.");
+        }
+
+        if (lat == null && (mandatory || lon != null)) {
+            throw new BadRequestException(400, "Missing parameter 'lat'.");
+        }
+        if (lon == null && (mandatory || lat != null)) {
+            throw new BadRequestException(400, "Missing parameter 'lon'.");
         }
 
         if (lat == null || lon == null) {
@@ -138,8 +123,8 @@ public class RequestFactoryBase {
         return GEOMETRY_FACTORY.createPoint(new Coordinate(lon, lat));
     }
 
-    protected void checkParams(Context context, Set<String> allowedParameters) {
-        for (var param : context.queryParamMap().keySet()) {
+    protected void checkParams(RequestParameters parameters, Set<String> allowedParameters) {
+        for (var param : parameters.getNames()) {
             if (!allowedParameters.contains(param)) {
                 throw new BadRequestException(400, "Unknown query parameter '" + param
                         + "'.  Allowed parameters are: " + allowedParameters);
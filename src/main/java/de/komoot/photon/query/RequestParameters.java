@@ -0,0 +1,116 @@
+package de.komoot.photon.query;
+
+import de.komoot.photon.searcher.TagFilter;
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.locationtech.jts.geom.Envelope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The query parameters of a single search request together with typed accessors.
+ * <p>
+ * Parameters either come from the URL of a GET request or from an entry
+ * of a batch request. Values which cannot be converted result in a
+ * {@link BadRequestException}.
+ */
+@NullMarked
+public class RequestParameters {
+    private final Map<String, List<String>> parameters;
+    @Nullable private final String acceptLanguage;
+
+    public RequestParameters(Map<String, List<String>> parameters, @Nullable String acceptLanguage) {
+        this.parameters = parameters;
+        this.acceptLanguage = acceptLanguage;
+    }
+
+    public static RequestParameters fromContext(Context context) {
+        return new RequestParameters(context.queryParamMap(), context.header(Header.ACCEPT_LANGUAGE));
+    }
+
+    public Set<String> getNames() {
+        return parameters.keySet();
+    }
+
+    @Nullable
+    public String getAcceptLanguage() {
+        return acceptLanguage;
+    }
+
+    @Nullable
+    public String get(String key) {
+        final var values = parameters.get(key);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    public List<String> getAll(String key) {
+        return parameters.getOrDefault(key, List.of());
+    }
+
+    @Nullable
+    public Integer getInteger(String key) {
+        final String value = get(key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw invalidValue(key);
+        }
+    }
+
+    @Nullable
+    public Double getDouble(String key) {
+        final String value = get(key);
+        if (value == null) {
+            return null;
+        }
+        final double result;
+        try {
+            result = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw invalidValue(key);
+        }
+        if (Double.isNaN(result)) {
+            throw invalidValue(key);
+        }
+        return result;
+    }
+
+    /**
+     * Return the parameter as a flag. '1', 'yes' and 'true' are taken as true,
+     * any other value as false.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        final String value = get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        final var lower = value.toLowerCase();
+        return "1".equals(lower) || "yes".equals(lower) || "true".equals(lower);
+    }
+
+    @Nullable
+    public Envelope getBoundingBox(String key) {
+        return BoundingBoxParamConverter.apply(get(key));
+    }
+
+    public List<TagFilter> getTagFilters(String key) {
+        final var values = getAll(key);
+        final List<TagFilter> filters = new ArrayList<>(values.size());
+        for (var value : values) {
+            filters.add(TagFilter.buildOsmTagFilter(value));
+        }
+        return filters;
+    }
+
+    private static BadRequestException invalidValue(String key) {
+        return new BadRequestException(400, "Invalid value for '" + key + "' parameter.");
+    }
+}
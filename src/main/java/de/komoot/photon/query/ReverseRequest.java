@@ -36,6 +36,20 @@ public class ReverseRequest extends RequestBase {
         return locationDistanceSort;
     }
 
+    /**
+     * Add the parameters of the request to the cache key.
+     * <p>
+     * The location is deliberately left out. Reverse caches add the
+     * spatial cell they store candidates for themselves.
+     */
+    @Override
+    protected void appendCacheKey(StringBuilder key) {
+        super.appendCacheKey(key);
+        appendKeyPart(key, Double.toString(radius));
+        appendKeyPart(key, queryStringFilter);
+        appendKeyPart(key, locationDistanceSort ? "d" : "");
+    }
+
     public void setRadius(@Nullable Double radius) {
         if (radius != null) {
             this.radius = radius;
@@ -1,6 +1,5 @@
 package de.komoot.photon.query;
 
-import io.javalin.http.Context;
 import org.jspecify.annotations.NullMarked;
 
 import java.util.Objects;
@@ -19,15 +18,15 @@ public class ReverseRequestFactory extends RequestFactoryBase implements Request
         super(supportedLanguages, defaultLanguage, maxResults, supportGeometries);
     }
 
-    public ReverseRequest create(Context context) {
-        checkParams(context, REVERSE_PARAMETERS);
+    public ReverseRequest create(RequestParameters parameters) {
+        checkParams(parameters, REVERSE_PARAMETERS);
 
-        final var request = new ReverseRequest(Objects.requireNonNull(parseLatLon(context, true)));
+        final var request = new ReverseRequest(Objects.requireNonNull(parseLatLon(parameters, true)));
 
-        completeBaseRequest(request, context);
-        request.setRadius(context.queryParamAsClass("radius", Double.class).getOrNull());
-        request.setQueryStringFilter(context.queryParam("query_string_filter"));
-        request.setLocationDistanceSort(context.queryParamAsClass("distance_sort", Boolean.class).getOrDefault(true));
+        completeBaseRequest(request, parameters);
+        request.setRadius(parameters.getDouble("radius"));
+        request.setQueryStringFilter(parameters.get("query_string_filter"));
+        request.setLocationDistanceSort(parameters.getBoolean("distance_sort", true));
 
         return request;
     }
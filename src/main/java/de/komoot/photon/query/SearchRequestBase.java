@@ -7,6 +7,12 @@ import org.locationtech.jts.geom.Point;
 
 @NullMarked
 public class SearchRequestBase extends RequestBase {
+    /**
+     * Rounding factor for the location bias in the cache key. Three decimals
+     * correspond to about 100m, which is well below the smallest bias radius.
+     */
+    private static final double KEY_LOCATION_PRECISION = 1000.0;
+
     @Nullable private Point locationForBias;
     private float scale = 0.4f;
     private int zoom = 12;
@@ -69,6 +75,22 @@ public class SearchRequestBase extends RequestBase {
         }
     }
 
+    @Override
+    protected void appendCacheKey(StringBuilder key) {
+        super.appendCacheKey(key);
+        if (hasLocationBias()) {
+            assert locationForBias != null;
+            appendKeyPart(key, Math.round(locationForBias.getX() * KEY_LOCATION_PRECISION)
+                    + "," + Math.round(locationForBias.getY() * KEY_LOCATION_PRECISION)
+                    + "," + getRadiusForBias() + "," + scale);
+        } else {
+            appendKeyPart(key, null);
+        }
+        appendKeyPart(key, bbox == null ? null
+                : bbox.getMinX() + "," + bbox.getMinY() + "," + bbox.getMaxX() + "," + bbox.getMaxY());
+        appendKeyPart(key, suggestAddresses ? "a" : "");
+    }
+
     public boolean getSuggestAddresses() {
         return suggestAddresses;
     }
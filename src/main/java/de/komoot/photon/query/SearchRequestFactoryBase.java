@@ -1,8 +1,6 @@
 package de.komoot.photon.query;
 
-import io.javalin.http.Context;
 import org.jspecify.annotations.NullMarked;
-import org.locationtech.jts.geom.Envelope;
 
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -19,20 +17,16 @@ public class SearchRequestFactoryBase extends RequestFactoryBase {
         super(supportedLanguages, defaultLanguage, maxResults, supportGeometries);
     }
 
-    protected void completeSearchRequest(SearchRequestBase request, Context context) {
-        completeBaseRequest(request, context);
+    protected void completeSearchRequest(SearchRequestBase request, RequestParameters parameters) {
+        completeBaseRequest(request, parameters);
 
-        request.setZoom(context.queryParamAsClass("zoom", Integer.class)
-                .getOrNull());
+        request.setZoom(parameters.getInteger("zoom"));
 
-        request.setScale(context.queryParamAsClass("location_bias_scale", Double.class)
-                .getOrNull());
+        request.setScale(parameters.getDouble("location_bias_scale"));
 
-        request.setLocationForBias(parseLatLon(context, false));
-        request.setBbox(context.queryParamAsClass("bbox", Envelope.class)
-                .getOrNull());
-        request.setSuggestAddresses(context.queryParamAsClass("suggest_addresses", Boolean.class)
-                .getOrDefault(false));
+        request.setLocationForBias(parseLatLon(parameters, false));
+        request.setBbox(parameters.getBoundingBox("bbox"));
+        request.setSuggestAddresses(parameters.getBoolean("suggest_addresses", false));
     }
 
 }
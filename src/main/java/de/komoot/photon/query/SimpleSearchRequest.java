@@ -4,12 +4,16 @@ import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 /**
  * Collection of query parameters for a search request.
  */
 @NullMarked
 public class SimpleSearchRequest extends SearchRequestBase {
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
     @Nullable private String query;
     private List<String> countryCodes = List.of();
 
@@ -28,4 +32,14 @@ public class SimpleSearchRequest extends SearchRequestBase {
     public void setCountryCodes(List<String> countryCodes) {
         this.countryCodes = countryCodes;
     }
+
+    @Override
+    protected void appendCacheKey(StringBuilder key) {
+        super.appendCacheKey(key);
+        // Case and repeated spaces do not influence the search. A trailing space
+        // does, it marks the last word of the query as complete.
+        appendKeyPart(key, query == null ? null
+                : WHITESPACE_PATTERN.matcher(query.stripLeading().toLowerCase(Locale.ROOT)).replaceAll(" "));
+        appendKeyPart(key, countryCodes.stream().map(c -> c.toUpperCase(Locale.ROOT)).sorted().distinct().toList());
+    }
 }
@@ -1,6 +1,5 @@
 package de.komoot.photon.query;
 
-import io.javalin.http.Context;
 import org.jspecify.annotations.NullMarked;
 
 import java.util.Set;
@@ -17,15 +16,15 @@ public class SimpleSearchRequestFactory extends SearchRequestFactoryBase impleme
         super(supportedLanguages, defaultLanguage, maxResults, supportGeometries);
     }
 
-    public SimpleSearchRequest create(Context context) {
-        checkParams(context, FREE_SEARCH_PARAMETERS);
+    public SimpleSearchRequest create(RequestParameters parameters) {
+        checkParams(parameters, FREE_SEARCH_PARAMETERS);
 
         final var request = new SimpleSearchRequest();
-        completeSearchRequest(request, context);
-        request.setCountryCodes(context.queryParamsAsClass("countrycode", String.class).get());
+        completeSearchRequest(request, parameters);
+        request.setCountryCodes(parameters.getAll("countrycode"));
 
-        var query = context.queryParamAsClass("q", String.class).getOrDefault("");
-        if (query.isBlank()) {
+        var query = parameters.get("q");
+        if (query == null || query.isBlank()) {
             if (request.getIncludeCategories().isEmpty()) {
                 throw new BadRequestException(400, "q parameter is required when no include categories are specified");
             }
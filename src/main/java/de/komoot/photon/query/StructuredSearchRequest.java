@@ -86,6 +86,19 @@ public class StructuredSearchRequest extends SearchRequestBase {
         this.state = state;
     }
 
+    @Override
+    protected void appendCacheKey(StringBuilder key) {
+        super.appendCacheKey(key);
+        appendKeyPart(key, countryCode);
+        appendKeyPart(key, state);
+        appendKeyPart(key, county);
+        appendKeyPart(key, city);
+        appendKeyPart(key, postCode);
+        appendKeyPart(key, district);
+        appendKeyPart(key, street);
+        appendKeyPart(key, houseNumber);
+    }
+
     public boolean hasState() { return state != null && !state.isBlank(); }
 
     public boolean hasDistrict() { return district != null && !district.isBlank(); }
@@ -1,6 +1,5 @@
 package de.komoot.photon.query;
 
-import io.javalin.http.Context;
 import org.jspecify.annotations.NullMarked;
 
 import java.util.List;
@@ -22,26 +21,26 @@ public class StructuredSearchRequestFactory extends SearchRequestFactoryBase imp
         super(supportedLanguages, defaultLanguage, maxResults, supportGeometries);
     }
 
-    public StructuredSearchRequest create(Context context) {
-        checkParams(context, STRUCTURED_SEARCH_PARAMETERS);
+    public StructuredSearchRequest create(RequestParameters parameters) {
+        checkParams(parameters, STRUCTURED_SEARCH_PARAMETERS);
 
         if (STRUCTURED_ADDRESS_FIELDS.stream()
-                .noneMatch(s -> context.queryParam(s) != null)) {
+                .noneMatch(s -> parameters.get(s) != null)) {
             throw new BadRequestException(400, "at least one of the parameters "
                     + STRUCTURED_ADDRESS_FIELDS + " is required.");
         }
 
         final var request = new StructuredSearchRequest();
 
-        completeSearchRequest(request, context);
-        request.setCountryCode(context.queryParam("countrycode"));
-        request.setState(context.queryParam("state"));
-        request.setCounty(context.queryParam("county"));
-        request.setCity(context.queryParam("city"));
-        request.setPostCode(context.queryParam("postcode"));
-        request.setDistrict(context.queryParam("district"));
-        request.setStreet(context.queryParam("street"));
-        request.setHouseNumber(context.queryParam("housenumber"));
+        completeSearchRequest(request, parameters);
+        request.setCountryCode(parameters.get("countrycode"));
+        request.setState(parameters.get("state"));
+        request.setCounty(parameters.get("county"));
+        request.setCity(parameters.get("city"));
+        request.setPostCode(parameters.get("postcode"));
+        request.setDistrict(parameters.get("district"));
+        request.setStreet(parameters.get("street"));
+        request.setHouseNumber(parameters.get("housenumber"));
 
         return request;
     }
@@ -0,0 +1,81 @@
+package de.komoot.photon.searcher;
+
+import de.komoot.photon.query.RequestBase;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Search handler that serves repeated requests from a result cache
+ * and forwards everything else to the wrapped handler.
+ * <p>
+ * Requests are identified by their {@link RequestBase#getCacheKey() cache key}.
+ * Debug requests always go to the database.
+ */
+@NullMarked
+public class CachingSearchHandler<T extends RequestBase> implements SearchHandler<T> {
+    private final SearchHandler<T> handler;
+    private final ResultCache<String, List<PhotonResult>> cache;
+
+    public CachingSearchHandler(SearchHandler<T> handler, ResultCache<String, List<PhotonResult>> cache) {
+        this.handler = handler;
+        this.cache = cache;
+    }
+
+    @Override
+    public Stream<PhotonResult> search(T searchRequest) {
+        if (searchRequest.getDebug()) {
+            return handler.search(searchRequest);
+        }
+
+        final String key = searchRequest.getCacheKey();
+        final long version = cache.getVersion();
+        var results = cache.get(key);
+        if (results == null) {
+            results = handler.search(searchRequest).toList();
+            cache.put(key, results, version);
+        }
+
+        return results.stream();
+    }
+
+    @Override
+    public List<Stream<PhotonResult>> searchBatch(List<T> searchRequests) {
+        final List<@Nullable List<PhotonResult>> results = new ArrayList<>(searchRequests.size());
+        final List<T> misses = new ArrayList<>();
+        final long version = cache.getVersion();
+        for (var request : searchRequests) {
+            final var cached = request.getDebug() ? null : cache.get(request.getCacheKey());
+            results.add(cached);
+            if (cached == null) {
+                misses.add(request);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            final var missResults = handler.searchBatch(misses).iterator();
+            for (int i = 0; i < results.size(); ++i) {
+                if (results.get(i) == null) {
+                    final var request = searchRequests.get(i);
+                    final var found = missResults.next().toList();
+                    if (!request.getDebug()) {
+                        cache.put(request.getCacheKey(), found, version);
+                    }
+                    results.set(i, found);
+                }
+            }
+        }
+
+        return results.stream()
+                .map(r -> r == null ? Stream.<PhotonResult>empty() : r.stream())
+                .toList();
+    }
+
+    @Override
+    public @Nullable String dumpQuery(T searchRequest) {
+        return handler.dumpQuery(searchRequest);
+    }
+}
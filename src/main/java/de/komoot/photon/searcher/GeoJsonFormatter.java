@@ -1,5 +1,6 @@
 package de.komoot.photon.searcher;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -8,6 +9,7 @@ import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
@@ -56,79 +58,99 @@ public class GeoJsonFormatter implements ResultFormatter {
         final var writer = new StringWriter();
 
         try (var gen = mapper.createGenerator(writer)) {
-            if (withDebugInfo) {
-                gen.useDefaultPrettyPrinter();
-            }
+            writeResults(gen, results, language, fallbackLanguage, withGeometry, withDebugInfo, queryDebugInfo);
+        }
 
-            gen.writeStartObject();
-            gen.writeStringField(GeoJsonFields.GEOJSON_KEY_TYPE, GeoJsonFields.GEOJSON_TYPE_FEATURECOLLECTION);
-            gen.writeArrayFieldStart(GeoJsonFields.GEOJSON_KEY_FEATURES);
+        return writer.toString();
+    }
 
-            for (PhotonResult result : results) {
-                gen.writeStartObject();
-                gen.writeStringField(GeoJsonFields.GEOJSON_KEY_TYPE, GeoJsonFields.GEOJSON_TYPE_FEATURE);
+    @Override
+    public void write(OutputStream out, List<PhotonResult> results, String language,
+                      @Nullable String fallbackLanguage,
+                      boolean withGeometry, boolean withDebugInfo,
+                      @Nullable String queryDebugInfo) throws IOException {
+        // The generator gets its buffers from the per-thread recycler of the
+        // mapper's factory, so creating one per response is cheap.
+        try (var gen = mapper.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writeResults(gen, results, language, fallbackLanguage, withGeometry, withDebugInfo, queryDebugInfo);
+        }
+    }
 
-                gen.writeObjectFieldStart(GeoJsonFields.GEOJSON_KEY_PROPERTIES);
+    private void writeResults(JsonGenerator gen, List<PhotonResult> results, String language,
+                              @Nullable String fallbackLanguage,
+                              boolean withGeometry, boolean withDebugInfo,
+                              @Nullable String queryDebugInfo) throws IOException {
+        if (withDebugInfo) {
+            gen.useDefaultPrettyPrinter();
+        }
 
-                var osmType = result.get(DocFields.OSM_TYPE);
-                if (osmType != null) {
-                    gen.writeObjectField(GeoJsonFields.OSM_TYPE, osmType);
-                    gen.writeObjectField(GeoJsonFields.OSM_ID, result.get(DocFields.OSM_ID));
-                }
+        gen.writeStartObject();
+        gen.writeStringField(GeoJsonFields.GEOJSON_KEY_TYPE, GeoJsonFields.GEOJSON_TYPE_FEATURECOLLECTION);
+        gen.writeArrayFieldStart(GeoJsonFields.GEOJSON_KEY_FEATURES);
 
-                for (var line : KEYS_LANG_UNSPEC) {
-                    put(gen, line.get(1), result.get(line.get(0)));
-                }
+        for (PhotonResult result : results) {
+            gen.writeStartObject();
+            gen.writeStringField(GeoJsonFields.GEOJSON_KEY_TYPE, GeoJsonFields.GEOJSON_TYPE_FEATURE);
 
-                put(gen, GeoJsonFields.NAME, result.getLocalisedWithFallback(DocFields.NAME, language, fallbackLanguage, NAME_PRECEDENCE));
+            gen.writeObjectFieldStart(GeoJsonFields.GEOJSON_KEY_PROPERTIES);
 
-                for (var line : KEYS_LANG_SPEC) {
-                    put(gen, line.get(1), result.getLocalisedWithFallback(line.get(0), language, fallbackLanguage));
-                }
+            var osmType = result.get(DocFields.OSM_TYPE);
+            if (osmType != null) {
+                gen.writeObjectField(GeoJsonFields.OSM_TYPE, osmType);
+                gen.writeObjectField(GeoJsonFields.OSM_ID, result.get(DocFields.OSM_ID));
+            }
 
-                for (var line : KEYS_POST_ADDRESS) {
-                    put(gen, line.get(1), result.get(line.get(0)));
-                }
+            for (var line : KEYS_LANG_UNSPEC) {
+                put(gen, line.get(1), result.get(line.get(0)));
+            }
 
-                put(gen, GeoJsonFields.EXTENT, result.getExtent());
+            put(gen, GeoJsonFields.NAME, result.getLocalisedWithFallback(DocFields.NAME, language, fallbackLanguage, NAME_PRECEDENCE));
 
-                gen.writeEndObject();
+            for (var line : KEYS_LANG_SPEC) {
+                put(gen, line.get(1), result.getLocalisedWithFallback(line.get(0), language, fallbackLanguage));
+            }
 
-                final var geometry = result.get(DocFields.GEOMETRY);
-                if (withGeometry && geometry != null) {
-                    gen.writeObjectField(GeoJsonFields.GEOJSON_KEY_GEOMETRY, geometry);
-                } else {
-                    gen.writeObjectFieldStart(GeoJsonFields.GEOJSON_KEY_GEOMETRY);
-                    gen.writeStringField(GeoJsonFields.GEOJSON_KEY_TYPE, GeoJsonFields.GEOJSON_GEOMETRY_POINT);
-                    gen.writeObjectField("coordinates", result.getCoordinates());
-                    gen.writeEndObject();
-                }
+            for (var line : KEYS_POST_ADDRESS) {
+                put(gen, line.get(1), result.get(line.get(0)));
+            }
 
+            put(gen, GeoJsonFields.EXTENT, result.getExtent());
+
+            gen.writeEndObject();
+
+            final var geometry = result.get(DocFields.GEOMETRY);
+            if (withGeometry && geometry != null) {
+                gen.writeObjectField(GeoJsonFields.GEOJSON_KEY_GEOMETRY, geometry);
+            } else {
+                gen.writeObjectFieldStart(GeoJsonFields.GEOJSON_KEY_GEOMETRY);
+                gen.writeStringField(GeoJsonFields.GEOJSON_KEY_TYPE, GeoJsonFields.GEOJSON_GEOMETRY_POINT);
+                gen.writeObjectField("coordinates", result.getCoordinates());
                 gen.writeEndObject();
             }
 
-            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+
+        gen.writeEndArray();
 
-            if (withDebugInfo || queryDebugInfo != null) {
-                gen.writeObjectFieldStart(GeoJsonFields.GEOJSON_KEY_PROPERTIES);
-                if (withDebugInfo) {
-                    gen.writeArrayFieldStart("raw_data");
-                    for (var res : results) {
-                        gen.writePOJO(res.getRawData());
-                    }
-                    gen.writeEndArray();
-                }
-                if (queryDebugInfo != null) {
-                    gen.writeFieldName("debug");
-                    gen.writeRawValue(queryDebugInfo);
+        if (withDebugInfo || queryDebugInfo != null) {
+            gen.writeObjectFieldStart(GeoJsonFields.GEOJSON_KEY_PROPERTIES);
+            if (withDebugInfo) {
+                gen.writeArrayFieldStart("raw_data");
+                for (var res : results) {
+                    gen.writePOJO(res.getRawData());
                 }
-                gen.writeEndObject();
+                gen.writeEndArray();
+            }
+            if (queryDebugInfo != null) {
+                gen.writeFieldName("debug");
+                gen.writeRawValue(queryDebugInfo);
             }
-
             gen.writeEndObject();
         }
 
-        return writer.toString();
+        gen.writeEndObject();
     }
 
     private void put(JsonGenerator gen, String key, @Nullable Object value) throws IOException {
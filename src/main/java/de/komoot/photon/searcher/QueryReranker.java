@@ -5,20 +5,27 @@ import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
 import java.util.function.Consumer;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
+/**
+ * Adjusts the score of a result according to how well its names match the query.
+ * <p>
+ * The query is normalised once on construction and the buffers for matching
+ * are reused between results, so an instance must only be used by one thread.
+ */
 @NullMarked
 public class QueryReranker implements Consumer<PhotonResult> {
-    private static final Pattern WORD_BREAK_PATTERN = Pattern.compile("[-,: ]+");
     private final String query;
     private final String language;
     @Nullable private final String fallbackLanguage;
     private final boolean isMultiTermQuery;
     private final boolean isFullQuery;
 
+    private final List<String> terms = new ArrayList<>();
+    private final List<String> unmatchedTerms = new ArrayList<>();
+    private final StringBuilder todo = new StringBuilder();
+
     public QueryReranker(String query, String language, @Nullable String fallbackLanguage) {
         this.query = normalize(query);
         this.language = language;
@@ -52,47 +59,62 @@ public class QueryReranker implements Consumer<PhotonResult> {
         }
 
         // address parts, we want to rematch in the query
-        var resultTerms = Stream.of(
-                        localeName,
-                        (String) result.get(DocFields.HOUSENUMBER),
-                        result.getLocalised(DocFields.STREET, language),
-                        result.getLocalised(DocFields.CITY, language),
-                        (String) result.get(DocFields.COUNTRYCODE),
-                        (String) result.get(DocFields.POSTCODE),
-                        result.getLocalised(DocFields.COUNTRY, language),
-                        result.getLocalised(DocFields.STATE, language),
-                        result.getLocalised(DocFields.COUNTY, language),
-                        result.getLocalised(DocFields.DISTRICT, language),
-                        result.getLocalised(DocFields.NAME, "default"),
-                        result.getLocalised(DocFields.NAME, "alt"))
-                .mapMulti(this::mapNames)
-                .toList();
+        terms.clear();
+        addTerms(localeName);
+        addTerms((String) result.get(DocFields.HOUSENUMBER));
+        addTerms(result.getLocalised(DocFields.STREET, language));
+        addTerms(result.getLocalised(DocFields.CITY, language));
+        addTerms((String) result.get(DocFields.COUNTRYCODE));
+        addTerms((String) result.get(DocFields.POSTCODE));
+        addTerms(result.getLocalised(DocFields.COUNTRY, language));
+        addTerms(result.getLocalised(DocFields.STATE, language));
+        addTerms(result.getLocalised(DocFields.COUNTY, language));
+        addTerms(result.getLocalised(DocFields.DISTRICT, language));
+        addTerms(result.getLocalised(DocFields.NAME, "default"));
+        addTerms(result.getLocalised(DocFields.NAME, "alt"));
 
         double matches = 0.0;
-        var todo = new StringBuilder(" " + query + " ");
-        var rematchWords = new ArrayList<String>();
+        todo.setLength(0);
+        todo.append(' ').append(query).append(' ');
+        unmatchedTerms.clear();
         // first try to match the full words, keep address parts that do not match
-        for (var term : resultTerms) {
-            var idx = todo.indexOf(" " + term + " ");
+        for (var term : terms) {
+            final int idx = indexOfWord(todo, term);
             if (idx >= 0) {
                 matches += term.length();
-                todo.delete(idx + 1, idx + term.length() + 2);
-                if (todo.toString().isBlank()) {
+                todo.delete(idx, idx + term.length() + 1);
+                if (isBlank(todo)) {
                     return 0.8 * matches / query.length();
                 }
                 continue;
             }
-            rematchWords.addAll(Arrays.asList(term.split(" ")));
+            unmatchedTerms.add(term);
         }
 
         // still query left to do, try prefix matching on remaining parts
-        for (var w : todo.toString().strip().split(" +")) {
-            for (var term : rematchWords) {
-                if (term.startsWith(w)) {
-                    matches += 0.7 * w.length();
+        int start = 0;
+        int end = todo.length();
+        while (start < end && Character.isWhitespace(todo.charAt(start))) {
+            ++start;
+        }
+        while (end > start && Character.isWhitespace(todo.charAt(end - 1))) {
+            --end;
+        }
+        while (start < end) {
+            int wordEnd = start;
+            while (wordEnd < end && todo.charAt(wordEnd) != ' ') {
+                ++wordEnd;
+            }
+            for (var term : unmatchedTerms) {
+                if (hasWordWithPrefix(term, todo, start, wordEnd)) {
+                    matches += 0.7 * (wordEnd - start);
                     break;
                 }
             }
+            start = wordEnd;
+            while (start < end && todo.charAt(start) == ' ') {
+                ++start;
+            }
         }
 
         if (matches == 0.0) {
@@ -103,18 +125,112 @@ public class QueryReranker implements Consumer<PhotonResult> {
         return 0.8 * matches / query.length();
     }
 
-    private String normalize(String in) {
-        return WORD_BREAK_PATTERN.matcher(in.toLowerCase()).replaceAll(" ").strip();
+    /**
+     * Lower-case the string, replace all word breaks with a single space and
+     * strip surrounding whitespace.
+     */
+    static String normalize(String in) {
+        final String lower = in.toLowerCase();
+        final int len = lower.length();
+
+        @Nullable StringBuilder out = null;
+        int i = 0;
+        while (i < len) {
+            final char c = lower.charAt(i);
+            if (isWordBreak(c)) {
+                int runEnd = i + 1;
+                while (runEnd < len && isWordBreak(lower.charAt(runEnd))) {
+                    ++runEnd;
+                }
+                if (out == null && (runEnd - i > 1 || c != ' ')) {
+                    out = new StringBuilder(len);
+                    out.append(lower, 0, i);
+                }
+                if (out != null) {
+                    out.append(' ');
+                }
+                i = runEnd;
+            } else {
+                if (out != null) {
+                    out.append(c);
+                }
+                ++i;
+            }
+        }
+
+        return (out == null ? lower : out.toString()).strip();
+    }
+
+    private static boolean isWordBreak(char c) {
+        return c == ' ' || c == ',' || c == '-' || c == ':';
     }
 
-    private void mapNames(@Nullable String in, Consumer<String> consumer) {
+    private void addTerms(@Nullable String in) {
         if (in != null) {
-            for (var s : in.split(";")) {
-                var finname = normalize(s);
-                if (!finname.isEmpty()) {
-                    consumer.accept(finname);
+            int start = 0;
+            while (start <= in.length()) {
+                int end = in.indexOf(';', start);
+                if (end < 0) {
+                    end = in.length();
+                }
+                final var term = normalize(in.substring(start, end));
+                if (!term.isEmpty()) {
+                    terms.add(term);
                 }
+                start = end + 1;
+            }
+        }
+    }
+
+    /**
+     * Find the term as a sequence of complete words in the space-padded text.
+     *
+     * @return Position of the first character of the term or -1 if not found.
+     */
+    private static int indexOfWord(StringBuilder text, String term) {
+        int from = 1;
+        while (true) {
+            final int pos = text.indexOf(term, from);
+            if (pos < 0) {
+                return -1;
+            }
+            final int end = pos + term.length();
+            if (text.charAt(pos - 1) == ' ' && end < text.length() && text.charAt(end) == ' ') {
+                return pos;
+            }
+            from = pos + 1;
+        }
+    }
+
+    private static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); ++i) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if any of the space-separated words of the term starts with
+     * the given part of the text.
+     */
+    private static boolean hasWordWithPrefix(String term, CharSequence text, int start, int end) {
+        final int prefixLength = end - start;
+        int pos = 0;
+        while (pos + prefixLength <= term.length()) {
+            int i = 0;
+            while (i < prefixLength && term.charAt(pos + i) == text.charAt(start + i)) {
+                ++i;
+            }
+            if (i == prefixLength) {
+                return true;
+            }
+            pos = term.indexOf(' ', pos) + 1;
+            if (pos == 0) {
+                return false;
             }
         }
+        return false;
     }
 }
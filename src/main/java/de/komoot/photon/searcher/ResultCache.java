@@ -0,0 +1,235 @@
+package de.komoot.photon.searcher;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded in-memory cache for search results.
+ * <p>
+ * The cache is limited by the total weight of its entries, where the weight
+ * of an entry is computed by the given weigher, usually the number of results.
+ * Entries expire after a fixed time-to-live. The whole cache is dropped when
+ * the generation changes, which is used to tie the content to the import date
+ * of the database.
+ * <p>
+ * Results computed from the database should be stored with the
+ * {@link #getVersion() version} taken before the lookup, so that results
+ * from before an invalidation do not end up in the dropped cache.
+ * <p>
+ * The key space is split into segments, each with its own LRU list and lock,
+ * so that concurrent requests do not all contend for a single lock.
+ */
+@NullMarked
+public class ResultCache<K, V> {
+    private static final int NUM_SEGMENTS = 16;
+
+    private final List<Segment> segments;
+    private final long ttlNanos;
+    private final ToIntFunction<V> weigher;
+    private final LongSupplier clock;
+    private final AtomicReference<@Nullable Object> generation = new AtomicReference<>();
+    // Incremented on every invalidation, before the segments are dropped.
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private record Entry<V>(V value, int weight, long expiresAt) {}
+
+    private final class Segment {
+        private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxWeight;
+        private long weight = 0;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        synchronized @Nullable V lookup(K key, long now) {
+            final var entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() - now < 0) {
+                entries.remove(key);
+                weight -= entry.weight();
+                expirations.increment();
+                return null;
+            }
+            return entry.value();
+        }
+
+        synchronized void store(K key, Entry<V> entry, long lookupVersion) {
+            if (version.get() != lookupVersion) {
+                // Computed before the last invalidation.
+                return;
+            }
+            final var old = entries.put(key, entry);
+            if (old != null) {
+                weight -= old.weight();
+            }
+            weight += entry.weight();
+
+            final Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+            while (weight > maxWeight && it.hasNext()) {
+                final var eldest = it.next();
+                it.remove();
+                weight -= eldest.getValue().weight();
+                evictions.increment();
+            }
+        }
+
+        synchronized void drop() {
+            entries.clear();
+            weight = 0;
+        }
+
+        synchronized long currentWeight() {
+            return weight;
+        }
+
+        synchronized int currentSize() {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxWeight Maximum total weight of all entries.
+     * @param ttlSeconds Time in seconds after which an entry is no longer returned.
+     * @param weigher Function computing the weight of a single cache value.
+     */
+    public ResultCache(long maxWeight, int ttlSeconds, ToIntFunction<V> weigher) {
+        this(maxWeight, ttlSeconds, weigher, System::nanoTime);
+    }
+
+    /**
+     * Create a new cache with the given clock.
+     *
+     * @param clock Source of the current time in nanoseconds.
+     */
+    ResultCache(long maxWeight, int ttlSeconds, ToIntFunction<V> weigher, LongSupplier clock) {
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.weigher = weigher;
+        this.clock = clock;
+        this.segments = new ArrayList<>(NUM_SEGMENTS);
+        final long segmentWeight = Math.max(1, maxWeight / NUM_SEGMENTS);
+        for (int i = 0; i < NUM_SEGMENTS; ++i) {
+            segments.add(new Segment(segmentWeight));
+        }
+    }
+
+    @Nullable
+    public V get(K key) {
+        final V value = segmentFor(key).lookup(key, clock.getAsLong());
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Get the current version of the cache content. The version changes
+     * whenever the cache is dropped.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public void put(K key, V value) {
+        put(key, value, version.get());
+    }
+
+    /**
+     * Store a value unless the cache has been dropped since the given
+     * version was taken.
+     *
+     * @param lookupVersion Version of the cache as returned by {@link #getVersion()}
+     *                      before the value was computed.
+     */
+    public void put(K key, V value, long lookupVersion) {
+        final int weight = Math.max(1, weigher.applyAsInt(value));
+        segmentFor(key).store(key, new Entry<>(value, weight, clock.getAsLong() + ttlNanos), lookupVersion);
+    }
+
+    /**
+     * Drop all entries of the cache.
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        for (var segment : segments) {
+            segment.drop();
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * Set the generation of the data the cache content was computed from.
+     * When the generation differs from the previously set one, the cache
+     * is dropped.
+     *
+     * @return True, if the cache was dropped.
+     */
+    public boolean setGeneration(@Nullable Object newGeneration) {
+        final var old = generation.getAndSet(newGeneration);
+        if (!Objects.equals(old, newGeneration)) {
+            invalidateAll();
+            return true;
+        }
+        return false;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    public long getSize() {
+        long size = 0;
+        for (var segment : segments) {
+            size += segment.currentSize();
+        }
+        return size;
+    }
+
+    public long getWeight() {
+        long weight = 0;
+        for (var segment : segments) {
+            weight += segment.currentWeight();
+        }
+        return weight;
+    }
+
+    private Segment segmentFor(K key) {
+        final int h = key.hashCode();
+        return segments.get((h ^ (h >>> 16)) & (NUM_SEGMENTS - 1));
+    }
+}
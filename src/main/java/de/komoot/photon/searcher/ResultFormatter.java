@@ -4,10 +4,12 @@ import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
- * Convert a list of results into an output string.
+ * Convert a list of results into an output string or stream.
  */
 @NullMarked
 public interface ResultFormatter {
@@ -15,5 +17,19 @@ public interface ResultFormatter {
     String convert(List<PhotonResult> results, String language, @Nullable String fallbackLanguage,
                    boolean withGeometry, boolean withDebugInfo, @Nullable String queryDebugInfo) throws IOException;
 
+    /**
+     * Write the results as UTF-8 directly to the given stream.
+     * <p>
+     * The stream is flushed but not closed. The default implementation
+     * writes the output of {@link #convert}.
+     */
+    default void write(OutputStream out, List<PhotonResult> results, String language,
+                       @Nullable String fallbackLanguage, boolean withGeometry,
+                       boolean withDebugInfo, @Nullable String queryDebugInfo) throws IOException {
+        out.write(convert(results, language, fallbackLanguage, withGeometry, withDebugInfo, queryDebugInfo)
+                .getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
     String formatError(String msg);
 }
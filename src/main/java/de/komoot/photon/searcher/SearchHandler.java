@@ -4,6 +4,9 @@ import de.komoot.photon.query.RequestBase;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 
 /**
@@ -14,5 +17,28 @@ public interface SearchHandler<T extends RequestBase> {
 
     Stream<PhotonResult> search(T searchRequest);
 
+    /**
+     * Run a list of searches at once.
+     * <p>
+     * The default implementation runs the searches one by one. Handlers
+     * should override this when they can save round-trips to the database.
+     *
+     * @return The results for each request in the order of the requests.
+     */
+    default List<Stream<PhotonResult>> searchBatch(List<T> searchRequests) {
+        return searchRequests.stream().map(this::search).toList();
+    }
+
+    /**
+     * Run a search asynchronously.
+     * <p>
+     * The default implementation runs the blocking search on the given
+     * executor, which is meant to be one that creates cheap threads,
+     * like virtual threads.
+     */
+    default CompletableFuture<List<PhotonResult>> searchAsync(T searchRequest, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> search(searchRequest).toList(), executor);
+    }
+
     @Nullable String dumpQuery(T searchRequest);
 }
@@ -0,0 +1,116 @@
+package de.komoot.photon.searcher;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects timings and counts for the processing of a single search request.
+ * <p>
+ * The statistics are filled by the different processing stages while the
+ * request travels through the search path. A request is processed by a
+ * single thread at a time, so no synchronisation is done.
+ */
+@NullMarked
+public class SearchStats {
+    public enum Stage {
+        PARSE, QUERY_BUILD, DATABASE, RANK, FORMAT;
+
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final long[] stageNanos = new long[Stage.values().length];
+    private long databaseTookMillis = 0;
+    private int databaseRequests = 0;
+    private boolean lenientFallback = false;
+    private int candidates = 0;
+    private int dedupeDropped = 0;
+
+    /**
+     * Start measuring time for a stage.
+     *
+     * @return The start time to hand in to {@link #stop}.
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Add the time since the given start time to the given stage.
+     */
+    public void stop(Stage stage, long start) {
+        stageNanos[stage.ordinal()] += System.nanoTime() - start;
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * Record a round-trip to the database.
+     *
+     * @param took Processing time in milliseconds as reported by the database.
+     */
+    public void addDatabaseRequest(long took) {
+        ++databaseRequests;
+        databaseTookMillis += took;
+    }
+
+    public long getDatabaseTookMillis() {
+        return databaseTookMillis;
+    }
+
+    public int getDatabaseRequests() {
+        return databaseRequests;
+    }
+
+    public void setLenientFallback() {
+        lenientFallback = true;
+    }
+
+    public boolean isLenientFallback() {
+        return lenientFallback;
+    }
+
+    public void addCandidates(int count) {
+        candidates += count;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public void addDedupeDropped(int count) {
+        dedupeDropped += count;
+    }
+
+    public int getDedupeDropped() {
+        return dedupeDropped;
+    }
+
+    /**
+     * Return the statistics in a form suitable for the debug output.
+     */
+    public Map<String, Object> toDebugMap() {
+        final Map<String, Object> stages = new LinkedHashMap<>();
+        for (var stage : Stage.values()) {
+            if (stageNanos[stage.ordinal()] > 0) {
+                stages.put(stage.getName(), stageNanos[stage.ordinal()] / 1_000_000.0);
+            }
+        }
+
+        final Map<String, Object> out = new LinkedHashMap<>();
+        out.put("stages_ms", stages);
+        out.put("database_requests", databaseRequests);
+        out.put("database_took_ms", databaseTookMillis);
+        out.put("lenient_fallback", lenientFallback);
+        out.put("candidates", candidates);
+        out.put("dedupe_dropped", dedupeDropped);
+
+        return out;
+    }
+}
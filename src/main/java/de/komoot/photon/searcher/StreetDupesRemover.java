@@ -12,6 +12,14 @@ import java.util.function.Predicate;
 @NullMarked
 public class StreetDupesRemover implements Predicate<PhotonResult> {
     final HashSet<String> keys = new HashSet<>();
+    private int removed = 0;
+
+    /**
+     * Return the number of results that have been filtered out so far.
+     */
+    public int getRemoved() {
+        return removed;
+    }
 
     @Override
     public boolean test(PhotonResult result) {
@@ -40,7 +48,11 @@ public class StreetDupesRemover implements Predicate<PhotonResult> {
                         name,
                         countryCode);
 
-                return keys.add(key);
+                if (keys.add(key)) {
+                    return true;
+                }
+                ++removed;
+                return false;
             }
         }
 
@@ -0,0 +1,68 @@
+package de.komoot.photon;
+
+import de.komoot.photon.opensearch.PhotonIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ServerIndexVersionsTest extends ESBaseTester {
+
+    @BeforeEach
+    void setUp(@TempDir Path dataDirectory) throws IOException {
+        setUpES(dataDirectory);
+
+        final var importer = makeImporter();
+        importer.add(List.of(new PhotonDoc("1", "N", 1, "place", "city")));
+        importer.finish();
+    }
+
+    private String importIntoNewIndex(String placeId, DatabaseProperties dbProperties) throws IOException {
+        final String index = getServer().createImportIndex(dbProperties);
+        assertThat(index).startsWith(PhotonIndex.VERSION_PREFIX);
+
+        final var importer = getServer().createImporter(dbProperties, index, 1);
+        importer.add(List.of(new PhotonDoc(placeId, "N", 2, "place", "town")));
+        importer.finish();
+
+        return index;
+    }
+
+    @Test
+    void testImportDoesNotTouchActiveIndexUntilActivated() throws IOException {
+        final var dbProperties = new DatabaseProperties();
+        dbProperties.setLanguages(Set.of("en", "fr"));
+        final String index = importIntoNewIndex("2", dbProperties);
+
+        assertThat(getById(1)).isNotNull();
+        assertThat(getById(2)).isNull();
+        assertThat(getServer().loadFromDatabase().getLanguages()).doesNotContain("fr");
+
+        getServer().activateIndex(index);
+
+        assertThat(getById(1)).isNull();
+        assertThat(getById(2)).isNotNull();
+        assertThat(getServer().loadFromDatabase().getLanguages()).containsExactlyInAnyOrder("en", "fr");
+    }
+
+    @Test
+    void testRollback() throws IOException {
+        final String index = importIntoNewIndex("2", getProperties());
+        getServer().activateIndex(index);
+
+        final String previous = getServer().rollbackIndex();
+
+        assertThat(previous).isNotEqualTo(index);
+        assertThat(getById(1)).isNotNull();
+        assertThat(getById(2)).isNull();
+
+        assertThatThrownBy(() -> getServer().rollbackIndex())
+                .isInstanceOf(UsageException.class);
+    }
+}
@@ -5,6 +5,7 @@ import de.komoot.photon.opensearch.OpenSearchResult;
 import de.komoot.photon.opensearch.PhotonIndex;
 import de.komoot.photon.searcher.PhotonResult;
 import org.codelibs.opensearch.runner.OpenSearchRunner;
+import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch.core.search.Hit;
 import org.opensearch.client.opensearch.indices.analyze.AnalyzeToken;
 
@@ -74,6 +75,10 @@ public class TestServer {
         return testServer;
     }
 
+    public OpenSearchClient getClient() {
+        return testServer.getClient();
+    }
+
     public String getHttpPort() {
         return runner.node().settings().get("http.port");
     }
@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.stream.Collectors;
@@ -49,6 +50,22 @@ public class ApiBaseTester extends ESBaseTester {
                 .lines().collect(Collectors.joining("\n"));
     }
 
+    protected HttpURLConnection post(String url, String body) throws IOException {
+        final var connection = connect(url);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (var out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+
+    protected String postURL(String url, String body) throws IOException {
+        return new BufferedReader(new InputStreamReader(post(url, body).getInputStream()))
+                .lines().collect(Collectors.joining("\n"));
+    }
+
     protected void assertHttpResponseCode(String url, int expectedCode) {
         try {
             assertThat(connect(url))
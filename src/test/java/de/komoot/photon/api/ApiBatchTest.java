@@ -0,0 +1,105 @@
+package de.komoot.photon.api;
+
+import de.komoot.photon.App;
+import de.komoot.photon.Importer;
+import de.komoot.photon.PhotonDoc;
+import de.komoot.photon.nominatim.model.AddressType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Tests for the batch endpoints.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ApiBatchTest extends ApiBaseTester {
+
+    @BeforeAll
+    void setUp(@TempDir Path dataDirectory) throws Exception {
+        setUpES(dataDirectory);
+        Importer instance = makeImporter();
+        instance.add(List.of(new PhotonDoc()
+                .placeId("1000").osmType("N").osmId(1000).tagKey("place").tagValue("city")
+                .importance(0.6).addressType(AddressType.CITY)
+                .centroid(makePoint(13.38886, 52.51704))
+                .names(makeDocNames("name", "berlin"))
+        ));
+        instance.add(List.of(new PhotonDoc()
+                .placeId("1001").osmType("N").osmId(1001).tagKey("place").tagValue("city")
+                .importance(0.5).addressType(AddressType.CITY)
+                .centroid(makePoint(9.99302, 53.55073))
+                .names(makeDocNames("name", "hamburg"))
+        ));
+        instance.finish();
+        refresh();
+        startAPI("-max-batch-size", "3");
+    }
+
+    @AfterAll
+    @Override
+    public void tearDown() {
+        App.shutdown();
+        shutdownES();
+    }
+
+    @Test
+    void testSearchBatch() throws Exception {
+        final var json = assertThatJson(postURL("/api/batch",
+                "[{\"q\": \"berlin\"}, {\"q\": \"nowhere\"}, {\"q\": \"hamburg\", \"limit\": 1}]"))
+                .isArray().hasSize(3);
+
+        json.element(0).node("features").isArray().hasSize(1)
+                .element(0).node("properties.name").isEqualTo("berlin");
+        json.element(1).node("features").isArray().isEmpty();
+        json.element(2).node("features").isArray().hasSize(1)
+                .element(0).node("properties.name").isEqualTo("hamburg");
+    }
+
+    @Test
+    void testStructuredBatch() throws Exception {
+        assertThatJson(postURL("/structured/batch", "[{\"city\": \"hamburg\"}]"))
+                .isArray().hasSize(1)
+                .element(0).node("features").isArray().hasSize(1)
+                .element(0).node("properties.name").isEqualTo("hamburg");
+    }
+
+    @Test
+    void testReverseBatch() throws Exception {
+        final var json = assertThatJson(postURL("/reverse/batch",
+                "[{\"lat\": 53.55073, \"lon\": 9.99302}, {\"lat\": 52.51704, \"lon\": 13.38886}]"))
+                .isArray().hasSize(2);
+
+        json.element(0).node("features[0].properties.name").isEqualTo("hamburg");
+        json.element(1).node("features[0].properties.name").isEqualTo("berlin");
+    }
+
+    @Test
+    void testUrlParametersApplyToAllEntries() throws Exception {
+        assertThatJson(postURL("/api/batch?layer=house", "[{\"q\": \"berlin\"}, {\"q\": \"hamburg\"}]"))
+                .isArray().hasSize(2)
+                .allSatisfy(e -> assertThatJson(e).node("features").isArray().isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"q\": \"berlin\"}",
+            "[\"berlin\"]",
+            "[{\"q\": {\"name\": \"berlin\"}}]",
+            "[{\"q\": \"berlin\", \"bogus\": \"thing\"}]",
+            "[{\"q\": \"berlin\"}, {\"q\": \"berlin\"}, {\"q\": \"berlin\"}, {\"q\": \"berlin\"}]",
+            "not json"
+    })
+    void testBadBatch(String body) throws Exception {
+        assertThat(post("/api/batch", body).getResponseCode()).isEqualTo(400);
+    }
+}
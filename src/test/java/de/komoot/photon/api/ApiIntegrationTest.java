@@ -211,6 +211,17 @@ class ApiIntegrationTest extends ApiBaseTester {
                 .containsKeys("raw_data");
     }
 
+    @ParameterizedTest
+    @FieldSource("BASE_URLS")
+    void testDebugOutputContainsStats(String baseUrl) throws Exception {
+        assertThatJson(readURL(baseUrl + "&debug=1")).isObject()
+                .node("properties.debug.stats").isObject()
+                .containsKeys("stages_ms", "database_requests", "database_took_ms",
+                              "lenient_fallback", "candidates", "dedupe_dropped")
+                .node("stages_ms").isObject()
+                .containsKeys("parse", "query_build", "database");
+    }
+
     @ParameterizedTest
     @FieldSource("BASE_URLS")
     void testSimpleLayer(String baseUrl) throws Exception {
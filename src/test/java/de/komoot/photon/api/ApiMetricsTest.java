@@ -94,4 +94,23 @@ class ApiMetricsTest extends ApiBaseTester {
         assertThat(metrics).contains("http_server_requests_seconds_count");
         assertThat(metrics).contains("http_server_requests_seconds_sum");
     }
+
+    @Test
+    void testMetricsEndpointExposesSearchStages() throws Exception {
+        startAPI("-metrics-enable", "prometheus");
+
+        readURL("/api?q=berlin");
+        readURL("/reverse?lat=52.54714&lon=13.39026");
+
+        String metrics = readURL("/metrics");
+
+        assertThat(metrics).containsPattern("photon_search_stage_seconds_count\\{[^}]*endpoint=\"api\"[^}]*stage=\"parse\"");
+        assertThat(metrics).containsPattern("photon_search_stage_seconds_count\\{[^}]*endpoint=\"api\"[^}]*stage=\"database\"");
+        assertThat(metrics).containsPattern("photon_search_stage_seconds_count\\{[^}]*endpoint=\"reverse\"[^}]*stage=\"format\"");
+        assertThat(metrics).contains("photon_search_database_took_seconds_count");
+        assertThat(metrics).contains("photon_search_database_requests_total");
+        assertThat(metrics).contains("photon_search_lenient_fallback_total");
+        assertThat(metrics).contains("photon_search_candidates_count");
+        assertThat(metrics).contains("photon_search_dedupe_dropped_total");
+    }
 }
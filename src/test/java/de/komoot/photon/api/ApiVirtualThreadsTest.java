@@ -0,0 +1,91 @@
+package de.komoot.photon.api;
+
+import de.komoot.photon.App;
+import de.komoot.photon.Importer;
+import de.komoot.photon.PhotonDoc;
+import de.komoot.photon.nominatim.model.AddressType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+
+/**
+ * Tests for running searches asynchronously on virtual threads.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ApiVirtualThreadsTest extends ApiBaseTester {
+
+    @BeforeAll
+    void setUp(@TempDir Path dataDirectory) throws Exception {
+        setUpES(dataDirectory);
+        Importer instance = makeImporter();
+        instance.add(List.of(new PhotonDoc()
+                .placeId("1000").osmType("N").osmId(1000).tagKey("place").tagValue("city")
+                .importance(0.6).addressType(AddressType.CITY)
+                .centroid(makePoint(13.38886, 52.51704))
+                .names(makeDocNames("name", "berlin"))
+        ));
+        instance.finish();
+        refresh();
+        startAPI("-virtual-threads");
+    }
+
+    @AfterAll
+    @Override
+    public void tearDown() {
+        App.shutdown();
+        shutdownES();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/api?q=berlin",
+            "/structured?city=berlin",
+            "/reverse?lat=52.51704&lon=13.38886"
+    })
+    void testSearch(String url) throws Exception {
+        assertThatJson(readURL(url)).isObject()
+                .node("features").isArray().hasSize(1)
+                .element(0).node("properties.name").isEqualTo("berlin");
+    }
+
+    @Test
+    void testBatch() throws Exception {
+        assertThatJson(postURL("/api/batch", "[{\"q\": \"berlin\"}]"))
+                .isArray().hasSize(1)
+                .element(0).node("features").isArray().hasSize(1);
+    }
+
+    @Test
+    void testBadRequest() {
+        assertHttpResponseCode("/api?q=berlin&limit=NaN", 400);
+    }
+
+    @Test
+    void testConcurrentRequests() {
+        final var futures = IntStream.range(0, 50)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return readURL("/api?q=berlin&limit=" + (1 + i % 5));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }))
+                .toList();
+
+        for (var future : futures) {
+            assertThatJson(future.join()).isObject()
+                    .node("features").isArray().hasSize(1);
+        }
+    }
+}
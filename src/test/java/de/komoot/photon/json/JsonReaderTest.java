@@ -1,6 +1,7 @@
 package de.komoot.photon.json;
 
 import de.komoot.photon.ConfigExtraTags;
+import de.komoot.photon.PhotonDoc;
 import de.komoot.photon.UsageException;
 import de.komoot.photon.nominatim.ImportThread;
 import de.komoot.photon.nominatim.model.AddressType;
@@ -28,6 +29,8 @@ class JsonReaderTest {
     private ConfigExtraTags configExtraTags = new ConfigExtraTags();
     private String[] configCountries = null;
     private boolean configGeometryColumn = false;
+    private int configThreads = 1;
+    private boolean configReadHeader = false;
 
     private static final String TEST_SIMPLE_CONTENT = """
             {"place_id":100818,"object_type":"W","object_id":223306798,"categories" : ["osm.waterway.stream"], "rank_address" : 0, "rank_search" : 22, "importance" : 0.10667666666666664,"name":{"name": "Spiersbach", "name:de": "Spiersbach", "alt_name": "Spirsbach"},"extra":{"boat": "no"},"country_code":"at","centroid":[9.53713454,47.27052526],"geometry":{"type":"LineString","coordinates":[[9.5461636,47.2415541],[9.5558108,47.2955234],[9.556083,47.2962812],[9.554958,47.2966235]]}}""";
@@ -53,7 +56,11 @@ class JsonReaderTest {
             reader.setUseFullGeometries(configGeometryColumn);
             reader.setCountryFilter(configCountries);
             reader.setLanguages(Set.of("en", "de"));
+            reader.setThreads(configThreads);
 
+            if (configReadHeader) {
+                reader.readHeader();
+            }
             reader.readFile(importThread);
         } finally {
             importThread.finish();
@@ -279,6 +286,57 @@ class JsonReaderTest {
                                 Map.of("default", "Vaduz", "de", "VaduzD")));
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4})
+    void testParallelImportSameAsSequential(int threads) throws IOException {
+        input.println("""
+                {"type":"NominatimDumpFile","content":{"version":"0.1.0","generator":"nominatim-5.1.0","database_version":"5.1.0-0","features":{"sorted_by_country":true,"has_addresslines":true},"data_timestamp":"2021-01-06T15:53:42+00:00"}}""");
+        int placeId = 1000;
+        for (String cc : new String[]{"li", "at", "ch"}) {
+            input.println("{\"type\":\"CountryInfo\",\"content\":[{\"country_code\":\"" + cc
+                    + "\",\"name\":{\"name\": \"Land " + cc + "\", \"name:en\": \"Country " + cc + "\"}}]}");
+            for (int city = 0; city < 3; ++city) {
+                final int cityId = ++placeId;
+                input.println("{\"type\":\"Place\",\"content\":{\"place_id\":" + cityId
+                        + ",\"object_type\":\"R\",\"object_id\":" + cityId
+                        + ",\"categories\":[\"osm.place.city\"],\"rank_address\":16,\"rank_search\":16"
+                        + ",\"name\":{\"name\":\"City " + cityId + "\"},\"country_code\":\"" + cc + "\""
+                        + ",\"centroid\":[9.5,47.1]}}");
+                for (int i = 0; i < 200; ++i) {
+                    ++placeId;
+                    // Refers to the city before it and to the first city of the dump,
+                    // which must only be found while reading the first country.
+                    input.println("{\"type\":\"Place\",\"content\":" + (i % 2 == 0 ? "[" : "")
+                            + "{\"place_id\":" + placeId + ",\"object_type\":\"N\",\"object_id\":" + placeId
+                            + ",\"categories\":[\"osm.amenity.cafe\"],\"rank_address\":30,\"rank_search\":30"
+                            // Multi-byte characters, so that byte and character offsets differ.
+                            + ",\"name\":{\"name\":\"Café " + placeId + "\"},\"country_code\":\"" + cc + "\""
+                            + ",\"addresslines\":[{\"place_id\":" + cityId + ",\"rank_address\":16,\"isaddress\":true}"
+                            + ",{\"place_id\":1001,\"rank_address\":8,\"isaddress\":true}]"
+                            + ",\"centroid\":[9.5,47.1]}" + (i % 2 == 0 ? "]" : "") + "}");
+                }
+            }
+        }
+        configReadHeader = true;
+
+        configThreads = 1;
+        final var expected = readJson();
+        configThreads = threads;
+        final var actual = readJson();
+
+        assertThat(expected).hasSize(1809);
+        assertThat(expected.stream().filter(d -> "1002".equals(d.getPlaceId())))
+                .singleElement()
+                .extracting(PhotonDoc::getAddressParts)
+                .isEqualTo(Map.of(
+                        AddressType.CITY, Map.of("default", "City 1001"),
+                        AddressType.COUNTRY, Map.of("default", "Land li", "en", "Country li")));
+        assertThat(actual)
+                .extracting(PhotonDoc::getPlaceId, PhotonDoc::getAddressParts)
+                .containsExactlyInAnyOrderElementsOf(
+                        expected.stream().map(d -> tuple(d.getPlaceId(), d.getAddressParts())).toList());
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {
             """
@@ -0,0 +1,55 @@
+package de.komoot.photon.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RecordingInputStreamTest {
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testCopyRange() throws Exception {
+        final var input = new RecordingInputStream(new ByteArrayInputStream(bytes("[{\"a\":1},{\"b\":2}]")));
+
+        assertThat(input.readAllBytes()).isEqualTo(bytes("[{\"a\":1},{\"b\":2}]"));
+        assertThat(input.copyRange(1, 8)).isEqualTo(bytes("{\"a\":1}"));
+        assertThat(input.copyRange(9, 16)).isEqualTo(bytes("{\"b\":2}"));
+    }
+
+    @Test
+    void testDiscardedBytesAreNotAvailable() throws Exception {
+        final var input = new RecordingInputStream(new ByteArrayInputStream(bytes("0123456789")));
+        input.readAllBytes();
+
+        input.discardBefore(4);
+
+        assertThat(input.copyRange(4, 6)).isEqualTo(bytes("45"));
+        assertThatIllegalStateException().isThrownBy(() -> input.copyRange(3, 6));
+    }
+
+    @Test
+    void testKeepsOffsetsWhenBufferIsCompacted() throws Exception {
+        final byte[] data = new byte[300_000];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) i;
+        }
+        final var input = new RecordingInputStream(new ByteArrayInputStream(data));
+        final byte[] chunk = new byte[1000];
+
+        long offset = 0;
+        int n;
+        while ((n = input.read(chunk)) > 0) {
+            offset += n;
+            input.discardBefore(offset - 10);
+        }
+
+        assertThat(input.copyRange(data.length - 10, data.length))
+                .isEqualTo(Arrays.copyOfRange(data, data.length - 10, data.length));
+    }
+}
@@ -0,0 +1,226 @@
+package de.komoot.photon.nominatim;
+
+import de.komoot.photon.nominatim.BinaryCopyRow.ColumnType;
+import de.komoot.photon.nominatim.model.AddressType;
+import de.komoot.photon.nominatim.model.PlaceRowMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BinaryCopyRowTest {
+    private static final GeometryFactory FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(buffer);
+
+    private void writeHeader() throws IOException {
+        out.write("PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1));
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    private void writeField(byte[] content) throws IOException {
+        out.writeInt(content.length);
+        out.write(content);
+    }
+
+    private void writeNull() throws IOException {
+        out.writeInt(-1);
+    }
+
+    private void writeText(String text) throws IOException {
+        writeField(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeField(ByteBuffer.allocate(8).putLong(value).array());
+    }
+
+    private void writeShort(int value) throws IOException {
+        writeField(ByteBuffer.allocate(2).putShort((short) value).array());
+    }
+
+    private void writeDouble(double value) throws IOException {
+        writeField(ByteBuffer.allocate(8).putDouble(value).array());
+    }
+
+    private void writeGeometry(Geometry geom) throws IOException {
+        writeField(new WKBWriter(2, true).write(geom));
+    }
+
+    private void writeHstore(Map<String, String> map) throws IOException {
+        final var hstore = new ByteArrayOutputStream();
+        final var hout = new DataOutputStream(hstore);
+        hout.writeInt(map.size());
+        for (var entry : map.entrySet()) {
+            final byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            hout.writeInt(key.length);
+            hout.write(key);
+            if (entry.getValue() == null) {
+                hout.writeInt(-1);
+            } else {
+                final byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                hout.writeInt(value.length);
+                hout.write(value);
+            }
+        }
+        writeField(hstore.toByteArray());
+    }
+
+    private DataInputStream input() {
+        return new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+    }
+
+    @Test
+    void testPlaceRowMapperOnBinaryRow() throws Exception {
+        final var centroid = FACTORY.createPoint(new Coordinate(9.5, 47.1));
+        centroid.setSRID(4326);
+        final var bbox = FACTORY.toGeometry(new Envelope(9.4, 9.6, 47.0, 47.2));
+        bbox.setSRID(4326);
+
+        final String[] columns = {"place_id", "osm_type", "osm_id", "class", "type", "name", "postcode",
+                "address", "extratags", "bbox", "rank_address", "rank_search", "importance",
+                "country_code", "centroid", "addresslines"};
+        final ColumnType[] types = {ColumnType.INT8, ColumnType.TEXT, ColumnType.INT8, ColumnType.TEXT,
+                ColumnType.TEXT, ColumnType.HSTORE, ColumnType.TEXT, ColumnType.HSTORE, ColumnType.HSTORE,
+                ColumnType.GEOMETRY, ColumnType.INT2, ColumnType.INT2, ColumnType.FLOAT8, ColumnType.TEXT,
+                ColumnType.GEOMETRY, ColumnType.TEXT};
+
+        writeHeader();
+        out.writeShort(columns.length);
+        writeLong(12345);
+        writeText("N");
+        writeLong(987654321L);
+        writeText("amenity");
+        writeText("cafe");
+        writeHstore(Map.of("name", "Café Zürich", "name:en", "Zurich Cafe"));
+        writeText("9490");
+        writeNull();
+        final Map<String, String> extratags = new LinkedHashMap<>();
+        extratags.put("wheelchair", "yes");
+        extratags.put("nothing", null);
+        writeHstore(extratags);
+        writeGeometry(bbox);
+        writeShort(30);
+        writeShort(30);
+        writeNull();
+        writeText("li");
+        writeGeometry(centroid);
+        writeText("[1, 2]");
+        out.writeShort(-1);
+
+        final var row = new BinaryCopyRow(columns, types);
+        final var in = input();
+        BinaryCopyRow.readHeader(in);
+
+        assertThat(row.next(in)).isTrue();
+
+        final var doc = new PlaceRowMapper(new PostgisDataAdapter(), Set.of("en"), false).mapRow(row);
+        assertThat(doc)
+                .hasFieldOrPropertyWithValue("placeId", "12345")
+                .hasFieldOrPropertyWithValue("osmType", "N")
+                .hasFieldOrPropertyWithValue("osmId", 987654321L)
+                .hasFieldOrPropertyWithValue("tagKey", "amenity")
+                .hasFieldOrPropertyWithValue("tagValue", "cafe")
+                .hasFieldOrPropertyWithValue("postcode", "9490")
+                .hasFieldOrPropertyWithValue("countryCode", "LI")
+                .hasFieldOrPropertyWithValue("addressType", AddressType.fromRank(30))
+                .hasFieldOrPropertyWithValue("centroid", centroid)
+                .hasFieldOrPropertyWithValue("importance", 0.40001 - 30 / 75d);
+        assertThat(doc.getName()).containsEntry("default", "Café Zürich").containsEntry("en", "Zurich Cafe");
+        assertThat(doc.getExtratags()).containsEntry("wheelchair", "yes");
+        assertThat(row.getString("addresslines")).isEqualTo("[1, 2]");
+
+        assertThat(row.next(in)).isFalse();
+    }
+
+    @Test
+    void testNullHandling() throws Exception {
+        writeHeader();
+        out.writeShort(2);
+        writeNull();
+        writeNull();
+
+        final var row = new BinaryCopyRow(new String[]{"a", "b"}, new ColumnType[]{ColumnType.INT4, ColumnType.TEXT});
+        final var in = input();
+        BinaryCopyRow.readHeader(in);
+
+        assertThat(row.next(in)).isTrue();
+        assertThat(row.getInt("a")).isZero();
+        assertThat(row.wasNull()).isTrue();
+        assertThat(row.getString("b")).isNull();
+        assertThat(row.getObject("A")).isNull();
+        assertThat(row.getMap("b")).isEmpty();
+        assertThat(row.getGeometry("b")).isNull();
+
+        // end of stream without trailer
+        assertThat(row.next(in)).isFalse();
+    }
+
+    @Test
+    void testUnknownColumn() {
+        final var row = new BinaryCopyRow(new String[]{"a"}, new ColumnType[]{ColumnType.TEXT});
+
+        assertThatThrownBy(() -> row.getString("b")).isInstanceOf(SQLException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "1", "-1", "10000", "0.5", "123456.789", "-0.0001", "1E+8", "0.00012"})
+    void testDecodeNumeric(String number) {
+        final var value = new BigDecimal(number);
+        assertThat((BigDecimal) BinaryCopyRow.decodeNumeric(ByteBuffer.wrap(encodeNumeric(value))))
+                .isEqualByComparingTo(value);
+    }
+
+    @Test
+    void testArgumentPlaceholder() {
+        assertThat(BinaryCopyReader.argument(2, "bigint"))
+                .isEqualTo("current_setting('photon.copy_arg2')::bigint");
+    }
+
+    @Test
+    void testUnknownColumnType() {
+        assertThatIllegalArgumentException().isThrownBy(() -> ColumnType.fromTypeName("tsvector"));
+        assertThat(ColumnType.fromTypeName("bpchar")).isEqualTo(ColumnType.TEXT);
+    }
+
+    /**
+     * Encode a number like PostgreSQL's numeric_send.
+     */
+    private static byte[] encodeNumeric(BigDecimal value) {
+        final int sign = value.signum() < 0 ? 0x4000 : 0;
+        final int dscale = Math.max(0, value.scale());
+        var abs = value.abs();
+        // align the scale to groups of four decimal digits
+        final int scale = Math.max(0, (dscale + 3) / 4 * 4);
+        final var digits = abs.setScale(scale).unscaledValue().toString();
+        final int padding = (4 - digits.length() % 4) % 4;
+        final String padded = "0".repeat(padding) + digits;
+        final int ndigits = padded.length() / 4;
+        final int weight = ndigits - scale / 4 - 1;
+
+        final var buf = ByteBuffer.allocate(8 + 2 * ndigits);
+        buf.putShort((short) ndigits).putShort((short) weight).putShort((short) sign).putShort((short) dscale);
+        for (int i = 0; i < ndigits; ++i) {
+            buf.putShort(Short.parseShort(padded.substring(4 * i, 4 * i + 4)));
+        }
+        return buf.array();
+    }
+}
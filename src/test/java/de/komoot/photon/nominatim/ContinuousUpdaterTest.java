@@ -0,0 +1,144 @@
+package de.komoot.photon.nominatim;
+
+import de.komoot.photon.DatabaseProperties;
+import de.komoot.photon.ReflectionTestUtil;
+import de.komoot.photon.config.PostgresqlConfig;
+import de.komoot.photon.nominatim.testdb.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ContinuousUpdaterTest {
+    private NominatimUpdater connector;
+    private CollectingUpdater updater;
+    private JdbcTemplate jdbc;
+    private final List<NominatimUpdater.UpdateSummary> summaries = new ArrayList<>();
+
+    /**
+     * Notifier which runs the given actions on consecutive waits.
+     */
+    private static class ScriptedNotifier implements ChangeNotifier {
+        private final List<Runnable> actions;
+        private int calls = 0;
+
+        ScriptedNotifier(Runnable... actions) {
+            this.actions = List.of(actions);
+        }
+
+        @Override
+        public boolean await(long timeoutMillis) {
+            assertThat(calls).as("unexpected wait for notifications").isLessThan(actions.size());
+            actions.get(calls++).run();
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    @BeforeEach
+    void setup() {
+        EmbeddedDatabase db = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/test-schema.sql")
+                .build();
+
+        connector = new NominatimUpdater(new PostgresqlConfig(), new H2DataAdapter(), new DatabaseProperties());
+        updater = new CollectingUpdater();
+        connector.setUpdater(updater);
+
+        jdbc = new JdbcTemplate(db);
+        TransactionTemplate txTemplate = new TransactionTemplate(new DataSourceTransactionManager(db));
+        ReflectionTestUtil.setFieldValue(connector, NominatimConnector.class, "template", jdbc);
+        ReflectionTestUtil.setFieldValue(connector, NominatimConnector.class, "txTemplate", txTemplate);
+    }
+
+    @Test
+    void testAppliesChangesPendingOnStart() throws Exception {
+        final var place = new PlacexTestRow("place", "city").name("Town").add(jdbc);
+        new PhotonUpdateRow("placex", place.getPlaceId(), "UPDATE").add(jdbc);
+
+        final var loop = new ContinuousUpdater(connector, 0, 100, summaries::add);
+        loop.listen(new ScriptedNotifier(loop::stop));
+
+        updater.assertThatCreated().singleElement().satisfies(place::assertEquals);
+        assertThat(updater.getFinishCalled()).isEqualTo(1);
+        assertThat(summaries).singleElement()
+                .satisfies(s -> assertThat(s.changes()).isEqualTo(1))
+                .satisfies(s -> assertThat(s.oldestChange()).isNotNull());
+    }
+
+    @Test
+    void testAppliesChangesAfterNotification() throws Exception {
+        final var place = new PlacexTestRow("place", "city").name("Town").add(jdbc);
+
+        final var loop = new ContinuousUpdater(connector, 0, 100, summaries::add);
+        loop.listen(new ScriptedNotifier(
+                () -> new PhotonUpdateRow("placex", place.getPlaceId(), "UPDATE").add(jdbc),
+                loop::stop));
+
+        updater.assertThatCreated().singleElement().satisfies(place::assertEquals);
+        assertThat(summaries).hasSize(1);
+    }
+
+    @Test
+    void testNoUpdateWithoutChanges() throws Exception {
+        final var loop = new ContinuousUpdater(connector, 0, 100, summaries::add);
+        loop.listen(new ScriptedNotifier(() -> {}, loop::stop));
+
+        assertThat(updater.getFinishCalled()).isZero();
+        assertThat(summaries).isEmpty();
+    }
+
+    @Test
+    void testCollectsChangesInWindow() throws Exception {
+        final var place1 = new PlacexTestRow("place", "city").name("Town").add(jdbc);
+        final var place2 = new PlacexTestRow("place", "village").name("Village").add(jdbc);
+        new PhotonUpdateRow("placex", place1.getPlaceId(), "UPDATE").add(jdbc);
+
+        final var loop = new ContinuousUpdater(connector, 60_000, 2, summaries::add);
+        loop.listen(new ScriptedNotifier(
+                // Waiting inside the time window, the batch is full afterwards.
+                () -> new PhotonUpdateRow("placex", place2.getPlaceId(), "UPDATE").add(jdbc),
+                loop::stop));
+
+        updater.assertThatCreated().hasSize(2);
+        assertThat(summaries).singleElement()
+                .satisfies(s -> assertThat(s.changes()).isEqualTo(2));
+    }
+
+    @Test
+    void testWaitsWhileOtherUpdateIsRunning() throws Exception {
+        final var place = new PlacexTestRow("place", "city").name("Town").add(jdbc);
+        new PhotonUpdateRow("placex", place.getPlaceId(), "UPDATE").add(jdbc);
+
+        final var updateCalls = new AtomicInteger();
+        final var busyConnector = new NominatimUpdater(new PostgresqlConfig(), new H2DataAdapter(), new DatabaseProperties()) {
+            @Override
+            public UpdateSummary update() {
+                updateCalls.incrementAndGet();
+                return null;
+            }
+        };
+        ReflectionTestUtil.setFieldValue(busyConnector, NominatimConnector.class, "template", jdbc);
+
+        final var loop = new ContinuousUpdater(busyConnector, 0, 1, summaries::add);
+        // Without waiting, the loop would ask for an update again and again.
+        loop.listen(new ScriptedNotifier(loop::stop));
+
+        assertThat(updateCalls).hasValue(1);
+        assertThat(summaries).isEmpty();
+    }
+}
@@ -0,0 +1,78 @@
+package de.komoot.photon.nominatim;
+
+import de.komoot.photon.nominatim.model.NominatimAddressCache;
+import de.komoot.photon.nominatim.testdb.H2DataAdapter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ImportPartitionTest {
+    private static final long[] BOUNDS = {0, 100, 200, 300, 400, 500, 600, 700, 800};
+
+    @Test
+    void testWithoutStatisticsOnePartitionPerCountry() {
+        assertThat(ImportPartition.plan(new String[]{"de", "fr", ""}, Map.of(), new long[0], 8))
+                .extracting(ImportPartition::countryCode, ImportPartition::isCompleteCountry)
+                .containsExactly(tuple("de", true), tuple("fr", true), tuple("", true));
+    }
+
+    @Test
+    void testSmallCountriesNotSplit() {
+        assertThat(ImportPartition.plan(new String[]{"li", "lu"}, Map.of("li", 1000L, "lu", 2000L), BOUNDS, 8))
+                .extracting(ImportPartition::countryCode, ImportPartition::isCompleteCountry)
+                .containsExactly(tuple("lu", true), tuple("li", true));
+    }
+
+    @Test
+    void testLargeCountrySplitLargestFirst() {
+        final var partitions = ImportPartition.plan(
+                new String[]{"li", "de", "fr"},
+                Map.of("li", 10_000L, "de", 4_000_000L, "fr", 1_000_000L),
+                BOUNDS, 2);
+
+        assertThat(partitions).first().extracting(ImportPartition::countryCode).isEqualTo("de");
+        assertThat(partitions).last().extracting(ImportPartition::countryCode).isEqualTo("li");
+        assertThat(partitions)
+                .extracting(ImportPartition::estimatedRows)
+                .isSortedAccordingTo((a, b) -> Long.compare(b, a));
+
+        final var german = partitions.stream().filter(p -> p.countryCode().equals("de")).toList();
+        assertThat(german).hasSize(7);
+        assertThat(german.getFirst().fromPlaceId()).isNull();
+        assertThat(german.getLast().toPlaceId()).isNull();
+        for (int i = 1; i < german.size(); ++i) {
+            assertThat(german.get(i).fromPlaceId()).isEqualTo(german.get(i - 1).toPlaceId());
+        }
+    }
+
+    @Test
+    void testSharedCacheLoadedOnceAndReleased() {
+        final var partitions = List.of(
+                new ImportPartition("de", null, 100L, 10),
+                new ImportPartition("de", 100L, null, 10));
+        final var caches = new SharedAddressCaches(partitions);
+        final var loads = new AtomicInteger();
+
+        final Function<String, NominatimAddressCache> loader = cc -> {
+            loads.incrementAndGet();
+            return new NominatimAddressCache(new H2DataAdapter(), Set.of());
+        };
+
+        final var first = caches.acquire("de", loader);
+        final var second = caches.acquire("de", loader);
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+
+        caches.release("de");
+        assertThat(caches.isLoaded("de")).isTrue();
+        caches.release("de");
+        assertThat(caches.isLoaded("de")).isFalse();
+    }
+}
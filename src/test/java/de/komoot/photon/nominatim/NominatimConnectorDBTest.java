@@ -212,6 +212,45 @@ class NominatimConnectorDBTest {
                         AddressType.COUNTRY, COUNTRY_NAMES));
     }
 
+    @Test
+    void testImportByPartitions() {
+        PlacexTestRow parent = PlacexTestRow.make_street("Burg").add(jdbc);
+
+        parent.addAddresslines(jdbc,
+                new PlacexTestRow("place", "city").name("Grand Junction").ranks(16).add(jdbc));
+
+        PlacexTestRow place1 = new PlacexTestRow("place", "house").name("House 1").parent(parent).add(jdbc);
+        PlacexTestRow place2 = new PlacexTestRow("place", "house").name("House 2").parent(parent).add(jdbc);
+
+        setupImporter();
+
+        final var partitions = List.of(
+                new ImportPartition("us", null, place1.getPlaceId(), 1),
+                new ImportPartition("us", place1.getPlaceId(), place2.getPlaceId(), 1),
+                new ImportPartition("us", place2.getPlaceId(), null, 1));
+        final var addressCaches = new SharedAddressCaches(partitions);
+
+        ImportThread importThread = new ImportThread(importer);
+        try {
+            for (var partition : partitions) {
+                connector.readPartition(partition, connector.findCountryNames("us"),
+                        addressCaches.acquire("us", connector::loadAddressCache), importThread);
+                addressCaches.release("us");
+            }
+        } finally {
+            importThread.finish();
+        }
+
+        assertThat(importer).hasSize(4);
+        for (var place : List.of(place1, place2)) {
+            importer.assertThatByRow(place)
+                    .hasFieldOrPropertyWithValue("addressParts", Map.of(
+                            AddressType.STREET, Map.of("default", "Burg"),
+                            AddressType.CITY, Map.of("default", "Grand Junction"),
+                            AddressType.COUNTRY, COUNTRY_NAMES));
+        }
+    }
+
     @Test
     void testInterpolationPoint() {
         PlacexTestRow street = PlacexTestRow.make_street("La strada").add(jdbc);
@@ -1,6 +1,7 @@
 package de.komoot.photon.nominatim;
 
 import de.komoot.photon.DatabaseProperties;
+import de.komoot.photon.PhotonDoc;
 import de.komoot.photon.ReflectionTestUtil;
 import de.komoot.photon.config.PostgresqlConfig;
 import de.komoot.photon.nominatim.model.AddressType;
@@ -20,6 +21,8 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.*;
@@ -300,6 +303,61 @@ class NominatimUpdaterDBTest {
     }
 
 
+    @Test
+    void testUpdateInChunks() {
+        ReflectionTestUtil.setFieldValue(connector, NominatimUpdater.class, "chunkSize", 2);
+
+        final var city = new PlacexTestRow("place", "city").name("Grand Junction").ranks(16).add(jdbc);
+        final List<PlacexTestRow> places = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            final var place = PlacexTestRow.make_street("Street " + i).add(jdbc);
+            place.addAddresslines(jdbc, city);
+            new PhotonUpdateRow("placex", place.getPlaceId(), "UPDATE").add(jdbc);
+            places.add(place);
+        }
+        new PhotonUpdateRow("placex", 47836L, "UPDATE").add(jdbc);
+        new PhotonUpdateRow("placex", 47837L, "DELETE").add(jdbc);
+
+        connector.update();
+
+        updater.assertThatDeleted().containsExactly("47837");
+        updater.assertThatCreated()
+                .hasSize(5)
+                .allSatisfy(d -> assertThat(d.getAddressParts())
+                        .containsEntry(AddressType.CITY, Map.of("default", "Grand Junction")))
+                .extracting(PhotonDoc::getPlaceId)
+                .containsExactlyInAnyOrderElementsOf(places.stream().map(PlacexTestRow::getPlaceString).toList());
+    }
+
+    @Test
+    void testUpdateWithWorkers() {
+        ReflectionTestUtil.setFieldValue(connector, NominatimUpdater.class, "chunkSize", 2);
+        connector.setWorkerCount(3);
+
+        final var city = new PlacexTestRow("place", "city").name("Grand Junction").ranks(16).add(jdbc);
+        final List<PlacexTestRow> places = new ArrayList<>();
+        final List<String> deleted = new ArrayList<>();
+        for (int i = 0; i < 12; ++i) {
+            final var place = PlacexTestRow.make_street("Street " + i).add(jdbc);
+            place.addAddresslines(jdbc, city);
+            new PhotonUpdateRow("placex", place.getPlaceId(), "UPDATE").add(jdbc);
+            places.add(place);
+            new PhotonUpdateRow("placex", 50000L + i, "DELETE").add(jdbc);
+            deleted.add(Long.toString(50000L + i));
+        }
+
+        connector.update();
+        assertThat(updater.getFinishCalled()).isEqualTo(1);
+
+        updater.assertThatDeleted().containsExactlyInAnyOrderElementsOf(deleted);
+        updater.assertThatCreated()
+                .hasSize(12)
+                .allSatisfy(d -> assertThat(d.getAddressParts())
+                        .containsEntry(AddressType.CITY, Map.of("default", "Grand Junction")))
+                .extracting(PhotonDoc::getPlaceId)
+                .containsExactlyInAnyOrderElementsOf(places.stream().map(PlacexTestRow::getPlaceString).toList());
+    }
+
     @Test
     void testUpdateWithDuplicatesDeleteLast() throws InterruptedException {
         PlacexTestRow place1 = new PlacexTestRow("place", "city").name("Town").rankAddress(12).add(jdbc);
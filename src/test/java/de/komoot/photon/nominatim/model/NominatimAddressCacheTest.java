@@ -0,0 +1,64 @@
+package de.komoot.photon.nominatim.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class NominatimAddressCacheTest {
+
+    @Test
+    void testParsePlaceIdArray() {
+        assertThat(NominatimAddressCache.parsePlaceIdArray("[1, 2,3]")).containsExactly(1, 2, 3);
+        assertThat(NominatimAddressCache.parsePlaceIdArray(" [ 123456789012 ] ")).containsExactly(123456789012L);
+        assertThat(NominatimAddressCache.parsePlaceIdArray("[]")).isEmpty();
+        assertThat(NominatimAddressCache.parsePlaceIdArray("[\"106180\", null, -5]")).containsExactly(106180, -5);
+        assertThat(NominatimAddressCache.parsePlaceIdArray("[0,1,2,3,4,5,6,7,8,9,10]")).hasSize(11);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "1", "[", "[1,", "[1 2]", "[a]", "[1]x", "[,]", "[\"1]", "[1.5]"})
+    void testParseInvalidPlaceIdArray(String json) {
+        assertThatThrownBy(() -> NominatimAddressCache.parsePlaceIdArray(json))
+                .hasMessage("Parse error.");
+    }
+
+    @Test
+    void testPlaceIdIndexAgainstHashMap() {
+        final var random = new Random(42);
+        final var index = new PlaceIdIndex();
+        final Map<Long, Integer> reference = new HashMap<>();
+
+        for (int i = 0; i < 100_000; ++i) {
+            final long key = random.nextInt(4) == 0 ? random.nextLong() : random.nextInt(50_000);
+            final int value = random.nextInt(Integer.MAX_VALUE);
+            index.put(key, value);
+            reference.put(key, value);
+        }
+
+        assertThat(index.size()).isEqualTo(reference.size());
+        for (var entry : reference.entrySet()) {
+            assertThat(index.get(entry.getKey())).isEqualTo(entry.getValue());
+        }
+        assertThat(index.get(-123456789L)).isEqualTo(reference.getOrDefault(-123456789L, PlaceIdIndex.NOT_FOUND));
+        assertThat(index.get(50_001)).isEqualTo(PlaceIdIndex.NOT_FOUND);
+    }
+
+    @Test
+    void testEqualAddressRowsAreEqual() {
+        final var row1 = AddressRow.make(Map.of("name", "Berlin", "name:en", "Berlin"), "place", "city",
+                AddressType.CITY, Set.of("en"));
+        final var row2 = AddressRow.make(Map.of("name", "Berlin", "name:en", "Berlin"), "place", "city",
+                AddressType.CITY, Set.of("en"));
+        final var row3 = AddressRow.make(Map.of("name", "Berlin"), "place", "city",
+                AddressType.COUNTY, Set.of("en"));
+
+        assertThat(row1).isEqualTo(row2).hasSameHashCodeAs(row2).isNotEqualTo(row3);
+    }
+}
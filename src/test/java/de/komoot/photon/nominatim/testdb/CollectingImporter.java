@@ -19,7 +19,7 @@ public class CollectingImporter extends AbstractList<PhotonDoc> implements Impor
 
 
     @Override
-    public void add(Iterable<PhotonDoc> inputDocs)
+    public synchronized void add(Iterable<PhotonDoc> inputDocs)
     {
         for (var doc : inputDocs) {
             docs.add(doc);
@@ -10,6 +10,9 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
 
+/**
+ * Updater which collects all changes. Changes may be added from several threads.
+ */
 @NullMarked
 public class CollectingUpdater implements Updater {
     private final List<PhotonDoc> created = new ArrayList<>();
@@ -17,7 +20,7 @@ public class CollectingUpdater implements Updater {
     private int finishCalled = 0;
 
     @Override
-    public void addOrUpdate(Iterable<PhotonDoc> docs)
+    public synchronized void addOrUpdate(Iterable<PhotonDoc> docs)
     {
         for (var doc: docs) {
             created.add(doc);
@@ -25,12 +28,12 @@ public class CollectingUpdater implements Updater {
     }
 
     @Override
-    public void delete(String docId) {
+    public synchronized void delete(String docId) {
         deleted.add(docId);
     }
 
     @Override
-    public void finish() { ++finishCalled; }
+    public synchronized void finish() { ++finishCalled; }
 
     public int getFinishCalled() {
         return finishCalled;
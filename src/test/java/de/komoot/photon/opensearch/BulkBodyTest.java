@@ -0,0 +1,99 @@
+package de.komoot.photon.opensearch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import de.komoot.photon.DatabaseProperties;
+import de.komoot.photon.PhotonDoc;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.io.WKTReader;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BulkBodyTest {
+    private ObjectMapper mapper;
+
+    @BeforeEach
+    void setupMapper() {
+        mapper = new ObjectMapper();
+        mapper.registerModule(new SimpleModule()
+                .addSerializer(PhotonDoc.class, new PhotonDocSerializer(new DatabaseProperties())));
+    }
+
+    private PhotonDoc doc(long osmId, String wkt) throws Exception {
+        final var geometry = new WKTReader().read(wkt);
+        return new PhotonDoc("1", "N", osmId, "place", "city")
+                .centroid(geometry.getCentroid())
+                .geometry(geometry);
+    }
+
+    private String[] lines(BulkBody body) {
+        return new String(body.toByteArray(), StandardCharsets.UTF_8).split("\n", -1);
+    }
+
+    @Test
+    void testWritesCreateOperations() throws Exception {
+        final var body = new BulkBody(16);
+        body.addCreate(mapper, PhotonIndex.NAME, "1.0", null, doc(1, "POINT (6.1 51.2)"));
+        body.addCreate(mapper, PhotonIndex.NAME, null, "DE", doc(2, "POINT (6.2 51.3)"));
+
+        assertThat(body.operations()).isEqualTo(2);
+
+        final var lines = lines(body);
+        assertThat(lines).hasSize(5);
+        assertThat(lines[4]).isEmpty();
+
+        final JsonNode action = mapper.readTree(lines[0]);
+        assertThat(action.at("/create/_index").asText()).isEqualTo(PhotonIndex.NAME);
+        assertThat(action.at("/create/_id").asText()).isEqualTo("1.0");
+        assertThat(action.at("/create").has("routing")).isFalse();
+        assertThat(mapper.readTree(lines[1]).get(DocFields.OSM_ID).asLong()).isEqualTo(1);
+
+        assertThat(mapper.readTree(lines[2]).at("/create").has("_id")).isFalse();
+        assertThat(mapper.readTree(lines[2]).at("/create/routing").asText()).isEqualTo("DE");
+        assertThat(lines[3]).isEqualTo(mapper.writeValueAsString(doc(2, "POINT (6.2 51.3)")));
+    }
+
+    @Test
+    void testSizeIsExact() throws Exception {
+        final var body = new BulkBody(16);
+        final var small = doc(1, "POINT (6.1 51.2)");
+        final var large = doc(2, "POLYGON ((6.1 51.2, 6.2 51.2, 6.2 51.3, 6.1 51.3, 6.1 51.2))");
+
+        body.addCreate(mapper, PhotonIndex.NAME, "1.0", null, small);
+        final int smallSize = body.size();
+        body.addCreate(mapper, PhotonIndex.NAME, "2.0", null, large);
+
+        assertThat(body.size()).isEqualTo(body.toByteArray().length);
+        assertThat(body.size() - smallSize).isGreaterThan(smallSize);
+        assertThat(smallSize).isEqualTo(
+                ("{\"create\":{\"_index\":\"photon\",\"_id\":\"1.0\"}}\n"
+                        + mapper.writeValueAsString(small) + "\n").getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void testReset() throws Exception {
+        final var body = new BulkBody(16);
+        body.addCreate(mapper, PhotonIndex.NAME, "1.0", null, doc(1, "POINT (6.1 51.2)"));
+        final var first = body.toByteArray();
+
+        body.reset();
+        assertThat(body.size()).isZero();
+        assertThat(body.operations()).isZero();
+
+        body.addCreate(mapper, PhotonIndex.NAME, "1.0", null, doc(1, "POINT (6.1 51.2)"));
+        assertThat(body.toByteArray()).isEqualTo(first);
+    }
+
+    @Test
+    void testOpenStreamReadsBody() throws Exception {
+        final var body = new BulkBody(16);
+        body.addCreate(mapper, PhotonIndex.NAME, "1.0", null, doc(1, "POINT (6.1 51.2)"));
+
+        assertThat(body.openStream().readAllBytes()).isEqualTo(body.toByteArray());
+        assertThat(body.openStream().readAllBytes()).isEqualTo(body.toByteArray());
+    }
+}
@@ -0,0 +1,128 @@
+package de.komoot.photon.opensearch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BulkControllerTest {
+    private static final int MB = 1024 * 1024;
+
+    @Test
+    void testFixedNeverChanges() {
+        final var controller = BulkController.fixed(10 * MB, 4);
+
+        controller.onBulk(10 * MB, 100, 50, 0, 0);
+        controller.onBulk(10 * MB, 60_000, 50_000, 3, 100_000);
+
+        assertThat(controller.getBulkBytes()).isEqualTo(10 * MB);
+        assertThat(controller.getInFlightLimit()).isEqualTo(4);
+        assertThat(controller.getBulks()).isEqualTo(2);
+        assertThat(controller.getRejections()).isEqualTo(3);
+        assertThat(controller.getIncreases()).isZero();
+        assertThat(controller.getDecreases()).isZero();
+    }
+
+    @Test
+    void testFastBulksIncreaseSizeThenConcurrency() {
+        final var controller = BulkController.adaptive(6 * MB, 4);
+        assertThat(controller.getBulkBytes()).isEqualTo(BulkController.INITIAL_BULK_BYTES);
+        assertThat(controller.getInFlightLimit()).isEqualTo(2);
+
+        controller.onBulk(controller.getBulkBytes(), 100, 50, 0, 0);
+        assertThat(controller.getBulkBytes()).isEqualTo(5 * MB);
+        controller.onBulk(controller.getBulkBytes(), 100, 50, 0, 0);
+        assertThat(controller.getBulkBytes()).isEqualTo(6 * MB);
+        assertThat(controller.getInFlightLimit()).isEqualTo(2);
+
+        for (int i = 0; i < 5; ++i) {
+            controller.onBulk(controller.getBulkBytes(), 100, 50, 0, 0);
+        }
+        assertThat(controller.getBulkBytes()).isEqualTo(6 * MB);
+        assertThat(controller.getInFlightLimit()).isEqualTo(4);
+        assertThat(controller.getIncreases()).isEqualTo(4);
+    }
+
+    @Test
+    void testSmallBulksIncreaseConcurrency() {
+        final var controller = BulkController.adaptive(50 * MB, 4);
+
+        controller.onBulk(100_000, 100, 50, 0, 0);
+
+        assertThat(controller.getBulkBytes()).isEqualTo(BulkController.INITIAL_BULK_BYTES);
+        assertThat(controller.getInFlightLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void testRejectionHalvesOncePerCooldown() {
+        final var controller = BulkController.adaptive(50 * MB, 8);
+
+        controller.onBulk(4 * MB, 100, 50, 1, 100_000);
+        assertThat(controller.getBulkBytes()).isEqualTo(2 * MB);
+        assertThat(controller.getInFlightLimit()).isEqualTo(2);
+
+        // still in flight from before the decrease
+        controller.onBulk(4 * MB, 100, 50, 2, 100_001);
+        assertThat(controller.getBulkBytes()).isEqualTo(2 * MB);
+
+        controller.onBulk(2 * MB, 100, 50, 1, 100_000 + BulkController.LATENCY_HIGH_MS);
+        assertThat(controller.getBulkBytes()).isEqualTo(BulkController.MIN_BULK_BYTES);
+        assertThat(controller.getInFlightLimit()).isEqualTo(1);
+
+        controller.onBulk(MB, 100, 50, 1, 200_000);
+        assertThat(controller.getBulkBytes()).isEqualTo(BulkController.MIN_BULK_BYTES);
+        assertThat(controller.getInFlightLimit()).isEqualTo(1);
+
+        assertThat(controller.getRejections()).isEqualTo(5);
+        assertThat(controller.getDecreases()).isEqualTo(3);
+    }
+
+    @Test
+    void testHeapPressureAndSlowBulksDecrease() {
+        final var controller = BulkController.adaptive(50 * MB, 8);
+
+        controller.onHeapUsage(BulkController.HEAP_HIGH_PERCENT);
+        controller.onBulk(4 * MB, 100, 50, 0, 100_000);
+        assertThat(controller.getBulkBytes()).isEqualTo(2 * MB);
+
+        controller.onHeapUsage(50);
+        controller.onBulk(2 * MB, 100, BulkController.TOOK_HIGH_MS, 0, 200_000);
+        assertThat(controller.getBulkBytes()).isEqualTo(MB);
+
+        controller.onBulk(MB, BulkController.LATENCY_HIGH_MS, 50, 0, 300_000);
+        assertThat(controller.getDecreases()).isEqualTo(3);
+    }
+
+    @Test
+    void testMediumLatencyKeepsSettings() {
+        final var controller = BulkController.adaptive(50 * MB, 8);
+
+        controller.onBulk(4 * MB, BulkController.LATENCY_LOW_MS, 50, 0, 0);
+
+        assertThat(controller.getBulkBytes()).isEqualTo(BulkController.INITIAL_BULK_BYTES);
+        assertThat(controller.getInFlightLimit()).isEqualTo(4);
+        assertThat(controller.getIncreases()).isZero();
+        assertThat(controller.getDecreases()).isZero();
+    }
+
+    @Test
+    void testAcquireBlocksAtLimit() throws Exception {
+        final var controller = BulkController.fixed(MB, 1);
+        controller.acquire();
+
+        final var waiter = new Thread(() -> {
+            try {
+                controller.acquire();
+                controller.release();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiter.join(200);
+        assertThat(waiter.isAlive()).isTrue();
+
+        controller.release();
+        waiter.join(5000);
+        assertThat(waiter.isAlive()).isFalse();
+    }
+}
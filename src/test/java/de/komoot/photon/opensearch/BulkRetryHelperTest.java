@@ -0,0 +1,35 @@
+package de.komoot.photon.opensearch;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BulkRetryHelperTest {
+    private static long check(String response) throws Exception {
+        return BulkRetryHelper.checkBulkResponse(response.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testSuccessfulResponse() throws Exception {
+        assertThat(check("{\"took\": 12, \"errors\": false, \"items\": ["
+                + "{\"create\": {\"_id\": \"1\", \"status\": 201}}]}")).isEqualTo(12);
+    }
+
+    @Test
+    void testItemErrors() {
+        assertThatThrownBy(() -> check("{\"took\": 12, \"errors\": true, \"items\": ["
+                + "{\"create\": {\"_id\": \"1\", \"status\": 201}},"
+                + "{\"create\": {\"_id\": \"2\", \"status\": 400, \"error\": {\"type\": \"mapper_parsing_exception\"}}}]}"))
+                .hasMessage("1 failed items in bulk");
+    }
+
+    @Test
+    void testItemErrorsBeforeErrorFlag() {
+        assertThatThrownBy(() -> check("{\"items\": ["
+                + "{\"create\": {\"_id\": \"1\", \"status\": 409, \"error\": {\"type\": \"version_conflict_engine_exception\"}}},"
+                + "{\"create\": {\"_id\": \"2\", \"status\": 500}}], \"took\": 3, \"errors\": true}"))
+                .hasMessage("2 failed items in bulk");
+    }
+}
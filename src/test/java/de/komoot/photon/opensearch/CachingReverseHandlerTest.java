@@ -0,0 +1,113 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.ESBaseTester;
+import de.komoot.photon.Importer;
+import de.komoot.photon.PhotonDoc;
+import de.komoot.photon.query.ReverseRequest;
+import de.komoot.photon.searcher.PhotonResult;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CachingReverseHandlerTest extends ESBaseTester {
+
+    @BeforeAll
+    void setup(@TempDir Path dataDirectory) throws IOException {
+        setUpES(dataDirectory);
+
+        Importer instance = makeImporter();
+
+        // a row of houses, about 20m apart
+        for (int i = 0; i < 30; ++i) {
+            instance.add(List.of(new PhotonDoc()
+                    .placeId(Integer.toString(100 + i)).osmType("N").osmId(100 + i)
+                    .tagKey("building").tagValue("house")
+                    .centroid(makePoint(10.0 + i * 0.0002, 10.0))
+                    .names(makeDocNames("name", "house " + i))
+            ));
+        }
+
+        instance.finish();
+        refresh();
+    }
+
+    @AfterAll
+    @Override
+    public void tearDown() {
+        super.tearDown();
+    }
+
+    private ReverseRequest makeRequest(double lon, double lat, double radius, int limit) {
+        final var request = new ReverseRequest(makePoint(lon, lat));
+        request.setRadius(radius);
+        request.setLimit(limit, limit);
+        return request;
+    }
+
+    private List<Object> osmIds(List<PhotonResult> results) {
+        return results.stream().map(r -> r.get("osm_id")).toList();
+    }
+
+    @Test
+    void testGeoHashCell() {
+        final var cell = GeoHashCell.of(10.40744, 57.64911, 11);
+
+        assertThat(cell.hash()).isEqualTo("u4pruydqqvj");
+        assertThat(cell.minLon()).isLessThanOrEqualTo(10.40744);
+        assertThat(cell.maxLon()).isGreaterThan(10.40744);
+        assertThat(cell.minLat()).isLessThanOrEqualTo(57.64911);
+        assertThat(cell.maxLat()).isGreaterThan(57.64911);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 10})
+    void testSameResultsAsDatabase(int limit) {
+        final var plain = getServer().createReverseHandler(1);
+        final var cached = getServer().createCachingReverseHandler(1, 1000, 60, 6);
+
+        for (int i = 0; i < 20; ++i) {
+            final var request = makeRequest(10.00103 + i * 0.000131, 10.0001, 0.1, limit);
+
+            assertThat(osmIds(cached.search(request).toList()))
+                    .isEqualTo(osmIds(plain.search(request).toList()));
+        }
+
+        assertThat(cached.getCache().getHitCount()).isPositive();
+    }
+
+    @Test
+    void testNearbyPointsShareCell() {
+        final var cached = getServer().createCachingReverseHandler(1, 1000, 60, 7);
+
+        assertThat(osmIds(cached.search(makeRequest(10.00201, 10.00001, 1, 1)).toList()))
+                .containsExactly(110);
+        assertThat(osmIds(cached.search(makeRequest(10.00203, 10.00002, 1, 1)).toList()))
+                .containsExactly(110);
+
+        assertThat(cached.getCache().getMissCount()).isEqualTo(1);
+        assertThat(cached.getCache().getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testDifferentParametersDoNotShareEntry() {
+        final var cached = getServer().createCachingReverseHandler(1, 1000, 60, 7);
+
+        cached.search(makeRequest(10.00201, 10.00001, 1, 1)).toList();
+        cached.search(makeRequest(10.00201, 10.00001, 1, 2)).toList();
+        cached.search(makeRequest(10.00201, 10.00001, 0.5, 1)).toList();
+
+        assertThat(cached.getCache().getMissCount()).isEqualTo(3);
+        assertThat(cached.getCache().getHitCount()).isZero();
+    }
+}
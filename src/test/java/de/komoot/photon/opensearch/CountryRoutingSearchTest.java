@@ -0,0 +1,106 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.ESBaseTester;
+import de.komoot.photon.PhotonDoc;
+import de.komoot.photon.nominatim.model.AddressType;
+import de.komoot.photon.query.SimpleSearchRequest;
+import de.komoot.photon.query.StructuredSearchRequest;
+import de.komoot.photon.searcher.PhotonResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CountryRoutingSearchTest extends ESBaseTester {
+
+    @BeforeEach
+    void setUp(@TempDir Path dataDirectory) throws IOException {
+        getProperties().setCountryRouting(true);
+        getProperties().setCountryRoutingSplits(Map.of("US", 3));
+        setUpES(dataDirectory);
+
+        final var importer = makeImporter();
+        importer.add(List.of(makeDoc(1, "DE")));
+        importer.add(List.of(makeDoc(2, "FR")));
+        for (int i = 10; i < 20; ++i) {
+            importer.add(List.of(makeDoc(i, "US")));
+        }
+        importer.add(List.of(makeDoc(30, null)));
+        importer.finish();
+        refresh();
+    }
+
+    private PhotonDoc makeDoc(int id, String countryCode) {
+        return new PhotonDoc(Integer.toString(id), "N", id, "place", "city")
+                .names(makeDocNames("name", "Springfield"))
+                .addressType(AddressType.CITY)
+                .countryCode(countryCode);
+    }
+
+    private List<PhotonResult> search(String... countryCodes) {
+        final var request = new SimpleSearchRequest();
+        request.setQuery("springfield");
+        request.setLimit(50, 50);
+        request.setCountryCodes(List.of(countryCodes));
+
+        return getServer().createSearchHandler(1, CountryRouting.of(getProperties())).search(request).toList();
+    }
+
+    @Test
+    void testSettingsArePersisted() throws IOException {
+        final var dbProperties = getServer().loadFromDatabase();
+
+        assertThat(dbProperties.getCountryRouting()).isTrue();
+        assertThat(dbProperties.getCountryRoutingSplits()).containsExactly(entry("US", 3));
+    }
+
+    @Test
+    void testSearchWithCountryFilter() {
+        assertThat(search()).hasSize(13);
+        assertThat(search("de")).extracting(r -> r.get(DocFields.OSM_ID)).containsExactly(1);
+        assertThat(search("us")).hasSize(10);
+        assertThat(search("fr", "us")).hasSize(11);
+    }
+
+    @Test
+    void testStructuredSearchWithCountry() {
+        final var request = new StructuredSearchRequest();
+        request.setCountryCode("FR");
+        request.setCity("Springfield");
+
+        assertThat(getServer().createStructuredSearchHandler(1, CountryRouting.of(getProperties()))
+                .search(request).toList())
+                .extracting(r -> r.get(DocFields.OSM_ID))
+                .containsExactly(2);
+    }
+
+    @Test
+    void testUpdateMovesPlaceToNewCountry() {
+        final var updater = makeUpdater();
+        updater.addOrUpdate(List.of(makeDoc(1, "FR")));
+        updater.finish();
+        refresh();
+
+        assertThat(search("de")).isEmpty();
+        assertThat(search("fr")).extracting(r -> r.get(DocFields.OSM_ID)).containsExactlyInAnyOrder(1, 2);
+        assertThat(search()).hasSize(13);
+    }
+
+    @Test
+    void testDelete() {
+        final var updater = makeUpdater();
+        updater.delete("12");
+        updater.delete("30");
+        updater.finish();
+        refresh();
+
+        assertThat(search("us")).hasSize(9);
+        assertThat(search()).hasSize(11);
+    }
+}
@@ -0,0 +1,66 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.DatabaseProperties;
+import de.komoot.photon.PhotonDoc;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CountryRoutingTest {
+    private static final CountryRouting ROUTING = new CountryRouting(true, Map.of("us", 3));
+
+    private PhotonDoc makeDoc(String placeId, String countryCode) {
+        return new PhotonDoc(placeId, "N", 1, "place", "city").countryCode(countryCode);
+    }
+
+    @Test
+    void testDisabled() {
+        final var routing = CountryRouting.of(new DatabaseProperties());
+
+        assertThat(routing.isEnabled()).isFalse();
+        assertThat(routing.forDocument(makeDoc("1", "de"))).isNull();
+        assertThat(routing.forCountries(List.of("de"))).isNull();
+    }
+
+    @Test
+    void testDocumentRouting() {
+        assertThat(ROUTING.forDocument(makeDoc("1", "de"))).isEqualTo("DE");
+        assertThat(ROUTING.forDocument(makeDoc("1", null))).isEqualTo(CountryRouting.NO_COUNTRY);
+    }
+
+    @Test
+    void testSplitCountryUsesAllParts() {
+        final var parts = new HashSet<String>();
+        for (int i = 0; i < 100; ++i) {
+            final var doc = makeDoc(Integer.toString(i), "US");
+            assertThat(ROUTING.forDocument(doc)).isEqualTo(ROUTING.forDocument(makeDoc(Integer.toString(i), "US")));
+            parts.add(ROUTING.forDocument(doc));
+        }
+
+        assertThat(parts).containsExactlyInAnyOrder("US_0", "US_1", "US_2");
+    }
+
+    @Test
+    void testSearchRouting() {
+        assertThat(ROUTING.forCountries(List.of())).isNull();
+        assertThat(ROUTING.forCountry(null)).isNull();
+        assertThat(ROUTING.forCountry("de")).isEqualTo("DE");
+        assertThat(ROUTING.forCountries(List.of("us", "fr", "US"))).isEqualTo("FR,US_0,US_1,US_2");
+    }
+
+    @Test
+    void testFromDatabaseProperties() {
+        final var dbProperties = new DatabaseProperties();
+        dbProperties.setCountryRouting(true);
+        dbProperties.setCountryRoutingSplits(Map.of("DE", 2));
+
+        final var routing = CountryRouting.of(dbProperties);
+
+        assertThat(routing.isEnabled()).isTrue();
+        assertThat(routing.forCountry("de")).isEqualTo("DE_0,DE_1");
+    }
+}
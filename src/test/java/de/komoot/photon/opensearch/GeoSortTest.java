@@ -0,0 +1,55 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.ESBaseTester;
+import de.komoot.photon.PhotonDoc;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class GeoSortTest extends ESBaseTester {
+
+    @BeforeEach
+    void setUp(@TempDir Path dataDirectory) throws IOException {
+        getProperties().setGeoSort(true);
+        getProperties().setGeoSortImportance(true);
+        setUpES(dataDirectory);
+    }
+
+    private PhotonDoc makeDoc(int id, double lon, double lat, double importance) {
+        return new PhotonDoc(Integer.toString(id), "N", id, "place", "city")
+                .centroid(makePoint(lon, lat))
+                .importance(importance);
+    }
+
+    @Test
+    void testImportIntoSortedIndex() {
+        final var importer = makeImporter();
+        importer.add(List.of(makeDoc(1, 13.4, 52.5, 0.1)));
+        importer.add(List.of(makeDoc(2, 2.35, 48.85, 0.5)));
+        importer.add(List.of(makeDoc(3, 13.41, 52.51, 0.3)));
+        importer.add(List.of(new PhotonDoc("4", "N", 4, "place", "city")));
+        importer.finish();
+        refresh();
+
+        assertThat(getAll()).hasSize(4);
+
+        final var result = getById(3);
+        assertThat(result).isNotNull();
+        assertThat(result.get(DocFields.IMPORTANCE)).isEqualTo(0.3);
+        assertThat(result.get(DocFields.SPATIAL_KEY)).isNull();
+    }
+
+    @Test
+    void testSortSettingsArePersisted() throws IOException {
+        final var dbProperties = getServer().loadFromDatabase();
+
+        assertThat(dbProperties.getGeoSort()).isTrue();
+        assertThat(dbProperties.getGeoSortImportance()).isTrue();
+    }
+}
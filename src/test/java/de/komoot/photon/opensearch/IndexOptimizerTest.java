@@ -0,0 +1,65 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.ESBaseTester;
+import de.komoot.photon.PhotonDoc;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class IndexOptimizerTest extends ESBaseTester {
+    private IndexOptimizer optimizer;
+
+    @BeforeEach
+    void setUp(@TempDir Path dataDirectory) throws IOException {
+        setUpES(dataDirectory);
+        optimizer = new IndexOptimizer(getTestServer().getClient());
+
+        // Refreshing after every document leaves lots of small segments behind.
+        for (int i = 1; i <= 20; ++i) {
+            final var importer = makeImporter();
+            importer.add(List.of(new PhotonDoc(Integer.toString(i), "N", i, "place", "city")));
+            importer.finish();
+        }
+    }
+
+    @Test
+    void testMergeSegments() throws IOException {
+        final var before = optimizer.getSegmentStats(PhotonIndex.NAME);
+        assertThat(before.documents()).isEqualTo(20);
+
+        optimizer.optimize(PhotonIndex.NAME, 1, false);
+
+        final var after = optimizer.getSegmentStats(PhotonIndex.NAME);
+        assertThat(after.documents()).isEqualTo(20);
+        assertThat(after.segments())
+                .isLessThan(before.segments())
+                .isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void testExpungeDeletes() throws IOException {
+        // Merge first, so that the deletes hit segments which keep some documents.
+        optimizer.optimize(PhotonIndex.NAME, 1, false);
+
+        final var updater = makeUpdater();
+        for (int i = 1; i <= 20; i += 2) {
+            updater.delete(Integer.toString(i));
+        }
+        updater.finish();
+        refresh();
+
+        assertThat(optimizer.getSegmentStats(PhotonIndex.NAME).deletedDocuments()).isPositive();
+
+        optimizer.optimize(PhotonIndex.NAME, 1, true);
+
+        final var after = optimizer.getSegmentStats(PhotonIndex.NAME);
+        assertThat(after.documents()).isEqualTo(10);
+        assertThat(after.deletedDocuments()).isZero();
+    }
+}
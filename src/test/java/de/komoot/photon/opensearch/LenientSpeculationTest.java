@@ -0,0 +1,47 @@
+package de.komoot.photon.opensearch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LenientSpeculationTest {
+
+    @Test
+    void testDisabled() {
+        final var speculation = LenientSpeculation.disabled();
+
+        assertThat(speculation.isEnabled()).isFalse();
+        speculation.recordStrictResult("berlin", true);
+        assertThat(speculation.shouldSpeculate("a very long query with many words")).isFalse();
+        assertThat(speculation.shouldSpeculate("berlin")).isFalse();
+    }
+
+    @Test
+    void testMinLength() {
+        final var speculation = new LenientSpeculation(10, 0.0);
+
+        assertThat(speculation.isEnabled()).isTrue();
+        assertThat(speculation.shouldSpeculate("berlin")).isFalse();
+        assertThat(speculation.shouldSpeculate("berlin mitte")).isTrue();
+    }
+
+    @Test
+    void testEmptyRate() {
+        final var speculation = new LenientSpeculation(0, 0.5);
+
+        assertThat(speculation.shouldSpeculate("hambrug")).isFalse();
+
+        for (int i = 0; i < 20; ++i) {
+            speculation.recordStrictResult("hambrug", true);
+        }
+        assertThat(speculation.shouldSpeculate("hambrug")).isTrue();
+        // same prefix
+        assertThat(speculation.shouldSpeculate("Ham")).isTrue();
+        assertThat(speculation.shouldSpeculate("berlin")).isFalse();
+
+        for (int i = 0; i < 20; ++i) {
+            speculation.recordStrictResult("hamburg", false);
+        }
+        assertThat(speculation.shouldSpeculate("hambrug")).isFalse();
+    }
+}
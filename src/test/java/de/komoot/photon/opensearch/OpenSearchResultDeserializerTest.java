@@ -0,0 +1,97 @@
+package de.komoot.photon.opensearch;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OpenSearchResultDeserializerTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String DOCUMENT = """
+            {"osm_id": 123456789012, "osm_type": "W", "osm_key": "highway", "osm_value": "residential",
+             "type": "street", "importance": 0.25,
+             "coordinate": {"lat": 52.5, "lon": 13.4},
+             "extent": {"type": "envelope", "coordinates": [[13.3, 52.6], [13.5, 52.4]]},
+             "name": {"default": "Hauptstraße", "en": "Main Street", "alt": "Hauptstr."},
+             "city": {"default": "Berlin"},
+             "postcode": "10115", "countrycode": "DE", "housenumber": "5a",
+             "extra": {"wikidata": "Q64", "ref": ["1", "2"]},
+             "geometry": {"type": "LineString", "coordinates": [[13.3, 52.6], [13.5, 52.4]]},
+             "some_new_field": 42}
+            """;
+
+    private OpenSearchResult parse(String json) throws Exception {
+        return MAPPER.readValue(json, OpenSearchResult.class);
+    }
+
+    @Test
+    void testReadsPlainFieldsLikeGenericMapping() throws Exception {
+        final var result = parse(DOCUMENT);
+        final Map<String, Object> reference = MAPPER.readValue(DOCUMENT, new TypeReference<>() {});
+
+        for (var key : OpenSearchResult.PLAIN_KEYS) {
+            assertThat(result.get(key)).as(key).isEqualTo(reference.get(key));
+        }
+        assertThat(result.get("some_new_field")).isEqualTo(42);
+        assertThat(result.get(DocFields.IMPORTANCE)).isEqualTo(0.25);
+        assertThat(result.getImportance()).isEqualTo(0.25);
+    }
+
+    @Test
+    void testReadsGeoFields() throws Exception {
+        final var result = parse(DOCUMENT);
+
+        assertThat(result.getCoordinates()).containsExactly(13.4, 52.5);
+        assertThat(result.getExtent()).containsExactly(13.3, 52.6, 13.5, 52.4);
+    }
+
+    @Test
+    void testReadsLocalisedFields() throws Exception {
+        final var result = parse(DOCUMENT);
+
+        assertThat(result.getLocalised(DocFields.NAME, "en")).isEqualTo("Main Street");
+        assertThat(result.getLocalised(DocFields.NAME, "de")).isEqualTo("Hauptstraße");
+        assertThat(result.getLocalisedWithFallback(DocFields.CITY, "fr", "en")).isEqualTo("Berlin");
+        assertThat(result.getLocalised(DocFields.STREET, "en")).isNull();
+        assertThat(result.getRawData())
+                .extractingByKey("localeTags")
+                .isEqualTo(Map.of(
+                        DocFields.NAME, Map.of("default", "Hauptstraße", "en", "Main Street", "alt", "Hauptstr."),
+                        DocFields.CITY, Map.of("default", "Berlin")));
+    }
+
+    @Test
+    void testMissingFields() throws Exception {
+        final var result = parse("{\"osm_type\": \"N\"}");
+
+        assertThat(result.get(DocFields.OSM_TYPE)).isEqualTo("N");
+        assertThat(result.get(DocFields.IMPORTANCE)).isNull();
+        assertThat(result.getCoordinates()).isSameAs(OpenSearchResult.INVALID_COORDINATES);
+        assertThat(result.getExtent()).isNull();
+        assertThat(result.getLocalised(DocFields.NAME, "en")).isNull();
+    }
+
+    @Test
+    void testIgnoresMalformedValues() throws Exception {
+        final var result = parse("""
+                {"name": {"default": "Foo", "en": ["bar"], "de": {"x": 1}},
+                 "extent": {"coordinates": [[1.0, 2.0]]},
+                 "coordinate": "52.5,13.4",
+                 "city": "Berlin",
+                 "osm_key": "place"}
+                """);
+
+        assertThat(result.getLocalised(DocFields.NAME, "en")).isEqualTo("Foo");
+        assertThat(result.getRawData())
+                .extractingByKey("localeTags")
+                .isEqualTo(Map.of(DocFields.NAME, Map.of("default", "Foo")));
+        assertThat(result.getExtent()).isNull();
+        assertThat(result.getCoordinates()).isSameAs(OpenSearchResult.INVALID_COORDINATES);
+        assertThat(result.getLocalised(DocFields.CITY, "en")).isNull();
+        assertThat(result.get(DocFields.OSM_KEY)).isEqualTo("place");
+    }
+}
@@ -0,0 +1,132 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.searcher.ResultCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RefreshSchedulerTest {
+    private final AtomicInteger refreshes = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private RefreshScheduler makeScheduler(long minIntervalMillis, boolean mergeFriendly) {
+        return new RefreshScheduler(refreshes::incrementAndGet, now::get, minIntervalMillis, mergeFriendly);
+    }
+
+    @Test
+    void testRefreshOnEveryRequestWithoutInterval() {
+        final var scheduler = makeScheduler(0, false);
+
+        scheduler.requestRefresh();
+        scheduler.requestRefresh();
+
+        assertThat(refreshes).hasValue(2);
+        assertThat(scheduler.getRequestCount()).isEqualTo(2);
+        assertThat(scheduler.getRefreshCount()).isEqualTo(2);
+        assertThat(scheduler.getLastRefreshMillis()).isPositive();
+    }
+
+    @Test
+    void testCoalesceRequestsWithinInterval() {
+        final var scheduler = makeScheduler(60_000, false);
+
+        scheduler.requestRefresh();
+        assertThat(refreshes).hasValue(1);
+
+        now.addAndGet(1_000);
+        scheduler.requestRefresh();
+        scheduler.requestRefresh();
+        assertThat(refreshes).hasValue(1);
+
+        scheduler.flush();
+        assertThat(refreshes).hasValue(2);
+        assertThat(scheduler.getRequestCount()).isEqualTo(3);
+
+        // Nothing left to do.
+        scheduler.flush();
+        assertThat(refreshes).hasValue(2);
+    }
+
+    @Test
+    void testRefreshRightAwayAfterInterval() {
+        final var scheduler = makeScheduler(60_000, false);
+
+        scheduler.requestRefresh();
+        now.addAndGet(60_000);
+        scheduler.requestRefresh();
+
+        assertThat(refreshes).hasValue(2);
+    }
+
+    @Test
+    void testScheduledRefreshRuns() throws InterruptedException {
+        final var scheduler = makeScheduler(50, false);
+
+        scheduler.requestRefresh();
+        scheduler.requestRefresh();
+
+        await(() -> refreshes.get() == 2);
+        assertThat(scheduler.getRefreshCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testNoRefreshWhenMergeFriendly() {
+        final var scheduler = makeScheduler(60_000, true);
+
+        scheduler.requestRefresh();
+        scheduler.flush();
+
+        assertThat(refreshes).hasValue(0);
+        assertThat(scheduler.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testDeferredRefreshDropsCachedResults() throws InterruptedException {
+        final var cache = new ResultCache<String, List<String>>(1000, 60, List::size);
+        final var scheduler = makeScheduler(200, false);
+        scheduler.setAfterRefresh(cache::invalidateAll);
+
+        scheduler.requestRefresh();
+        assertThat(cache.getInvalidationCount()).isEqualTo(1);
+
+        // Deferred, searches still see the data from before the update.
+        scheduler.requestRefresh();
+        cache.put("foo", List.of("stale"));
+        assertThat(cache.get("foo")).isNotNull();
+
+        await(() -> cache.getInvalidationCount() == 2);
+        assertThat(cache.get("foo")).isNull();
+    }
+
+    @Test
+    void testMergeFriendlyRunsActionAfterInterval() throws InterruptedException {
+        final var actions = new AtomicInteger();
+        final var scheduler = makeScheduler(50, true);
+        scheduler.setAfterRefresh(actions::incrementAndGet);
+
+        scheduler.requestRefresh();
+        scheduler.requestRefresh();
+        assertThat(actions).hasValue(0);
+
+        await(() -> actions.get() == 2);
+        assertThat(refreshes).hasValue(0);
+    }
+
+    @Test
+    void testMergeFriendlyNeedsInterval() {
+        assertThatIllegalArgumentException().isThrownBy(() -> makeScheduler(0, true));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package de.komoot.photon.opensearch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.komoot.photon.searcher.PhotonResult;
+import de.komoot.photon.searcher.SearchStats;
+import de.komoot.photon.searcher.StreetDupesRemover;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ResultScorerTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static OpenSearchResult makeResult(int id, String osmKey, String name,
+                                               double osScore, double score) throws Exception {
+        final var result = MAPPER.readValue(
+                "{\"osm_id\": " + id + ", \"osm_key\": \"" + osmKey + "\", \"osm_value\": \"residential\","
+                        + " \"countrycode\": \"DE\", \"name\": {\"default\": \"" + name + "\"}}",
+                OpenSearchResult.class);
+        result.setOpensearchScore(osScore);
+        result.adjustScore(score);
+        return result;
+    }
+
+    private static List<OpenSearchResult> randomCandidates(Random random) throws Exception {
+        final int size = random.nextInt(40);
+        final List<OpenSearchResult> candidates = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            // few distinct values, so that there are plenty of ties
+            candidates.add(makeResult(i,
+                    random.nextBoolean() ? "highway" : "place",
+                    "Street " + random.nextInt(4),
+                    random.nextInt(4) == 0 ? random.nextInt(60) : random.nextInt(8) * 2.5,
+                    random.nextInt(5) * 0.25));
+        }
+        return candidates;
+    }
+
+    /**
+     * The original pipeline: sort by database score, normalize, sort by
+     * final score, then remove duplicates and limit.
+     */
+    private static List<PhotonResult> referenceRank(List<OpenSearchResult> candidates, int limit, boolean dedupe) {
+        final double[] maxScore = {10.0};
+        var stream = candidates.stream()
+                .sorted(Comparator.comparingDouble(OpenSearchResult::getOpensearchScore).reversed())
+                .<PhotonResult>map(result -> {
+                    var osScore = result.getOpensearchScore();
+                    if (osScore >= maxScore[0]) {
+                        maxScore[0] = osScore;
+                        result.adjustScore(1.0);
+                    } else if (maxScore[0] < 20) {
+                        result.adjustScore(osScore / maxScore[0]);
+                    } else if (osScore > maxScore[0] - 20) {
+                        result.adjustScore((osScore - maxScore[0] + 20) / 20);
+                    }
+                    return result;
+                })
+                .sorted(Comparator.comparingDouble(PhotonResult::getScore).reversed());
+
+        if (dedupe) {
+            stream = stream.filter(new StreetDupesRemover());
+        }
+
+        return stream.limit(limit).toList();
+    }
+
+    @Test
+    void testRankBySearchScore() throws Exception {
+        final var candidates = List.of(
+                makeResult(1, "place", "A", 5.0, 0.0),
+                makeResult(2, "place", "B", 20.0, 0.0),
+                makeResult(3, "place", "C", 10.0, 0.5));
+
+        assertThat(ResultScorer.rank(candidates, 10, false, new SearchStats()))
+                .extracting(r -> r.get(DocFields.OSM_ID))
+                .containsExactly(2, 3, 1);
+        assertThat(candidates)
+                .extracting(PhotonResult::getScore)
+                .containsExactly(0.25, 1.0, 1.0);
+    }
+
+    @Test
+    void testRankRemovesDuplicateStreets() throws Exception {
+        final var candidates = List.of(
+                makeResult(1, "highway", "Main Street", 5.0, 0.0),
+                makeResult(2, "highway", "Main Street", 4.0, 0.0),
+                makeResult(3, "place", "Main Street", 3.0, 0.0));
+
+        final var stats = new SearchStats();
+        assertThat(ResultScorer.rank(candidates, 2, true, stats))
+                .extracting(r -> r.get(DocFields.OSM_ID))
+                .containsExactly(1, 3);
+        assertThat(stats.getDedupeDropped()).isEqualTo(1);
+    }
+
+    @Test
+    void testSameRankingAsReference() throws Exception {
+        final var random = new Random(42);
+
+        for (int i = 0; i < 2000; ++i) {
+            final int limit = 1 + random.nextInt(15);
+            final boolean dedupe = random.nextBoolean();
+            final long seed = random.nextLong();
+
+            final var expected = referenceRank(randomCandidates(new Random(seed)), limit, dedupe);
+            final var actual = ResultScorer.rank(randomCandidates(new Random(seed)), limit, dedupe, new SearchStats());
+
+            assertThat(actual)
+                    .extracting(r -> r.get(DocFields.OSM_ID), PhotonResult::getScore)
+                    .as("seed %d, limit %d, dedupe %b", seed, limit, dedupe)
+                    .isEqualTo(expected.stream()
+                            .map(r -> tuple(r.get(DocFields.OSM_ID), r.getScore()))
+                            .toList());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package de.komoot.photon.opensearch;
+
+import de.komoot.photon.query.SimpleSearchRequest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SourceFieldSelectorTest {
+
+    @Test
+    void testNoDefaultLanguage() {
+        final var request = new SimpleSearchRequest();
+        request.setLanguage("de");
+
+        assertThat(SourceFieldSelector.includedFields(request))
+                .contains("name.default", "name.de", "city.de")
+                .noneMatch(f -> f.endsWith(".null"));
+    }
+
+    @Test
+    void testWithDefaultLanguage() {
+        final var request = new SimpleSearchRequest();
+        request.setLanguage("de");
+        request.setDefaultLanguage("en");
+
+        assertThat(SourceFieldSelector.includedFields(request))
+                .contains("name.default", "name.de", "name.en", "city.en");
+    }
+}
@@ -0,0 +1,46 @@
+package de.komoot.photon.opensearch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SpatialKeyTest {
+
+    @Test
+    void testCurveVisitsNeighbouringCells() {
+        // The curve fills the lowest quadrants completely before leaving them.
+        final int size = 32;
+        final long[][] cells = new long[size * size][];
+        for (int x = 0; x < size; ++x) {
+            for (int y = 0; y < size; ++y) {
+                final long d = SpatialKey.hilbert(x, y);
+                assertThat(d).isBetween(0L, (long) size * size - 1);
+                assertThat(cells[(int) d]).isNull();
+                cells[(int) d] = new long[]{x, y};
+            }
+        }
+
+        for (int i = 1; i < cells.length; ++i) {
+            assertThat(Math.abs(cells[i][0] - cells[i - 1][0]) + Math.abs(cells[i][1] - cells[i - 1][1]))
+                    .as("step %d", i)
+                    .isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testCoordinates() {
+        assertThat(SpatialKey.of(-180, -90)).isZero();
+        assertThat(SpatialKey.of(13.40, 52.52)).isNotEqualTo(SpatialKey.of(-73.99, 40.73));
+        assertThat(SpatialKey.of(200, 100)).isEqualTo(SpatialKey.of(180, 90));
+        assertThat(SpatialKey.of(179.99999, 0)).isLessThan(1L << (2 * SpatialKey.ORDER));
+    }
+
+    @Test
+    void testNearbyPlacesAreCloseOnTheCurve() {
+        final long berlin = SpatialKey.of(13.4050, 52.5200);
+        final long berlinNearby = SpatialKey.of(13.4060, 52.5205);
+        final long paris = SpatialKey.of(2.3522, 48.8566);
+
+        assertThat(Math.abs(berlin - berlinNearby)).isLessThan(Math.abs(berlin - paris));
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -122,7 +123,103 @@ class UpdaterTest extends ESBaseTester {
         updater.finish();
         refresh();
 
-        assertNotNull(getById("1234"));
+        assertNull(getById("1234"));
+        assertNull(getById("1234.1"));
+    }
+
+    @Test
+    void removeLeftOverDocuments() throws IOException {
+        setUpES(dataDirectory);
+        Importer instance = makeImporter();
+        instance.add(List.of(
+                createDoc().houseNumber("34"),
+                createDoc().houseNumber("35"),
+                createDoc().houseNumber("36")));
+        instance.add(List.of(createDoc().placeId("99").houseNumber("1")));
+        instance.finish();
+        refresh();
+
+        Updater updater = makeUpdater();
+        updater.addOrUpdate(List.of(createDoc().houseNumber("34")));
+        updater.finish();
+        refresh();
+
+        assertEquals("34", getById("1234").get(DocFields.HOUSENUMBER));
+        assertNull(getById("1234.1"));
+        assertNull(getById("1234.2"));
+        assertNotNull(getById("99"));
+    }
+
+    @Test
+    void deleteAndAddInSameUpdate() throws IOException {
+        setUpES(dataDirectory);
+        Importer instance = makeImporter();
+        instance.add(List.of(
+                createDoc().houseNumber("34"),
+                createDoc().houseNumber("35")));
+        instance.finish();
+        refresh();
+
+        Updater updater = makeUpdater();
+        updater.addOrUpdate(List.of(
+                createDoc().houseNumber("40"),
+                createDoc().houseNumber("41"),
+                createDoc().houseNumber("42")));
+        updater.delete("1234");
+        updater.addOrUpdate(List.of(createDoc().houseNumber("50")));
+        updater.finish();
+        refresh();
+
+        assertEquals("50", getById("1234").get(DocFields.HOUSENUMBER));
         assertNull(getById("1234.1"));
+        assertNull(getById("1234.2"));
+    }
+
+    @Test
+    void updateFromSeveralThreads() throws Exception {
+        setUpES(dataDirectory);
+        Importer instance = makeImporter();
+        for (int i = 0; i < 30; ++i) {
+            final String placeId = Integer.toString(100 + i);
+            instance.add(List.of(
+                    createDoc().placeId(placeId).houseNumber("1"),
+                    createDoc().placeId(placeId).houseNumber("2")));
+        }
+        instance.finish();
+        refresh();
+
+        Updater updater = getServer().createUpdater(getProperties(), 2);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 3; ++t) {
+            final int worker = t;
+            threads.add(new Thread(() -> {
+                for (int i = worker; i < 30; i += 3) {
+                    final String placeId = Integer.toString(100 + i);
+                    if (i % 2 == 0) {
+                        updater.addOrUpdate(List.of(createDoc().placeId(placeId).houseNumber("10")));
+                    } else {
+                        updater.delete(placeId);
+                    }
+                }
+            }));
+        }
+        for (var thread : threads) {
+            thread.start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        updater.finish();
+        refresh();
+
+        for (int i = 0; i < 30; ++i) {
+            final String placeId = Integer.toString(100 + i);
+            if (i % 2 == 0) {
+                assertEquals("10", getById(placeId).get(DocFields.HOUSENUMBER));
+            } else {
+                assertNull(getById(placeId));
+            }
+            assertNull(getById(placeId + ".1"));
+        }
     }
-}
\ No newline at end of file
+}
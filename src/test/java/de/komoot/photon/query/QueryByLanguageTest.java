@@ -63,6 +63,27 @@ class QueryByLanguageTest extends ESBaseTester {
         assertThat(search("russian", "en")).hasSize(0);
     }
 
+    @Test
+    void fetchOnlyRequestedLanguages() throws IOException {
+        Importer instance = setup("en", "de", "fi");
+
+        instance.add(List.of(
+                createDoc("name", "original", "name:de", "deutsch", "name:fi", "finish", "alt_name", "ancient")));
+
+        instance.finish();
+        refresh();
+
+        assertThat(search("original", "de"))
+                .singleElement()
+                .satisfies(p -> {
+                    assertThat(p.getLocalised("name", "default")).isEqualTo("original");
+                    assertThat(p.getLocalised("name", "de")).isEqualTo("deutsch");
+                    assertThat(p.getLocalised("name", "alt")).isEqualTo("ancient");
+                    // Finnish is not part of the fetched source, so the default name is used.
+                    assertThat(p.getLocalised("name", "fi")).isEqualTo("original");
+                });
+    }
+
     @Test
     void queryAltNames() throws IOException {
         Importer instance = setup("de");
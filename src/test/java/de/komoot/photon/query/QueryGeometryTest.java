@@ -35,8 +35,13 @@ class QueryGeometryTest extends ESBaseTester {
     }
 
     private List<PhotonResult> search() {
+        return search(true);
+    }
+
+    private List<PhotonResult> search(boolean withGeometry) {
         final var request = new SimpleSearchRequest();
         request.setQuery("muffle flu");
+        request.setReturnGeometry(withGeometry);
 
         return getServer().createSearchHandler(1).search(request).toList();
     }
@@ -69,4 +74,19 @@ class QueryGeometryTest extends ESBaseTester {
                         assertThatJson(p.get(DocFields.GEOMETRY)).isObject()
                                 .containsEntry("type", "LineString"));
     }
+
+    @Test
+    void testSearchSkipsGeometryWhenNotRequested()  {
+        Importer instance = makeImporter();
+        instance.add(List.of(createDoc("POLYGON ((30 10, 40 40, 20 40, 10 20, 30 10))")));
+        instance.finish();
+        refresh();
+
+        assertThat(search(false))
+                .element(0)
+                .satisfies(p -> {
+                    assertThat(p.get(DocFields.GEOMETRY)).isNull();
+                    assertThat(p.getCoordinates()).containsExactly(1.0, 2.34);
+                });
+    }
 }
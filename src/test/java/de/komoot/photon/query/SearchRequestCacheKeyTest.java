@@ -0,0 +1,79 @@
+package de.komoot.photon.query;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SearchRequestCacheKeyTest {
+    private static final GeometryFactory FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+
+    private SimpleSearchRequest makeRequest(String query) {
+        var request = new SimpleSearchRequest();
+        request.setQuery(query);
+        return request;
+    }
+
+    @Test
+    void testQueryIsNormalized() {
+        assertThat(makeRequest("Berlin  Hauptbahnhof").getCacheKey())
+                .isEqualTo(makeRequest("berlin hauptbahnhof").getCacheKey());
+    }
+
+    @Test
+    void testTrailingSpaceIsSignificant() {
+        assertThat(makeRequest("berlin ").getCacheKey())
+                .isNotEqualTo(makeRequest("berlin").getCacheKey());
+    }
+
+    @Test
+    void testParametersAreSignificant() {
+        var base = makeRequest("berlin");
+
+        var otherLang = makeRequest("berlin");
+        otherLang.setLanguage("de");
+        assertThat(otherLang.getCacheKey()).isNotEqualTo(base.getCacheKey());
+
+        var otherLimit = makeRequest("berlin");
+        otherLimit.setLimit(3, 50);
+        assertThat(otherLimit.getCacheKey()).isNotEqualTo(base.getCacheKey());
+
+        var noDedupe = makeRequest("berlin");
+        noDedupe.setDedupe(false);
+        assertThat(noDedupe.getCacheKey()).isNotEqualTo(base.getCacheKey());
+
+        var otherCountry = makeRequest("berlin");
+        otherCountry.setCountryCodes(List.of("de"));
+        assertThat(otherCountry.getCacheKey()).isNotEqualTo(base.getCacheKey());
+    }
+
+    @Test
+    void testLocationBiasIsRounded() {
+        var first = makeRequest("berlin");
+        first.setLocationForBias(FACTORY.createPoint(new Coordinate(13.38881, 52.51701)));
+        var second = makeRequest("berlin");
+        second.setLocationForBias(FACTORY.createPoint(new Coordinate(13.38889, 52.51699)));
+        var far = makeRequest("berlin");
+        far.setLocationForBias(FACTORY.createPoint(new Coordinate(13.5, 52.6)));
+
+        assertThat(first.getCacheKey())
+                .isEqualTo(second.getCacheKey())
+                .isNotEqualTo(far.getCacheKey())
+                .isNotEqualTo(makeRequest("berlin").getCacheKey());
+    }
+
+    @Test
+    void testStructuredKeyIncludesAddressFields() {
+        var first = new StructuredSearchRequest();
+        first.setCity("Berlin");
+        var second = new StructuredSearchRequest();
+        second.setCity("Berlin");
+        second.setStreet("Unter den Linden");
+
+        assertThat(first.getCacheKey()).isNotEqualTo(second.getCacheKey());
+    }
+}
@@ -0,0 +1,52 @@
+package de.komoot.photon.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SimpleSearchRequestFactoryTest {
+    private final SimpleSearchRequestFactory factory =
+            new SimpleSearchRequestFactory(Set.of("en", "de"), "default", 50, false);
+
+    private SimpleSearchRequest create(Map<String, List<String>> parameters, String acceptLanguage) {
+        return factory.create(new RequestParameters(parameters, acceptLanguage));
+    }
+
+    @Test
+    void testCreateFromParameters() {
+        var request = create(Map.of(
+                "q", List.of("berlin"),
+                "limit", List.of("3"),
+                "lat", List.of("52.5"),
+                "lon", List.of("13.4"),
+                "countrycode", List.of("de", "pl")), "de");
+
+        assertThat(request.getQuery()).isEqualTo("berlin");
+        assertThat(request.getLimit()).isEqualTo(3);
+        assertThat(request.getLanguage()).isEqualTo("de");
+        assertThat(request.getLocationForBias()).isNotNull();
+        assertThat(request.getCountryCodes()).containsExactly("de", "pl");
+    }
+
+    @Test
+    void testRejectUnknownParameter() {
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> create(Map.of("q", List.of("berlin"), "bogus", List.of("1")), null));
+    }
+
+    @Test
+    void testRejectBadNumber() {
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> create(Map.of("q", List.of("berlin"), "limit", List.of("NaN")), null));
+    }
+
+    @Test
+    void testRejectIncompleteLocation() {
+        assertThatExceptionOfType(BadRequestException.class)
+                .isThrownBy(() -> create(Map.of("q", List.of("berlin"), "lat", List.of("52.5")), null));
+    }
+}
@@ -2,11 +2,17 @@ package de.komoot.photon.searcher;
 
 import de.komoot.photon.opensearch.DocFields;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
 
 class GeoJsonFormatterTest {
 
@@ -102,6 +108,43 @@ class GeoJsonFormatterTest {
                 .containsEntry("name", "Αθήνα");
     }
     
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void testStreamingOutputEqualsStringOutput(boolean withGeometry) throws IOException {
+        GeoJsonFormatter formatter = new GeoJsonFormatter();
+
+        final var results = List.of(
+                createDummyGeometryResult("99999", "Park Foo", "leisure", "park"),
+                new MockPhotonResult()
+                        .putLocalized(DocFields.NAME, "default", "Αθήνα")
+                        .put(DocFields.OSM_KEY, "place")
+                        .put(DocFields.OSM_VALUE, "city")
+                        .putGeometry("{\"type\":\"Point\", \"coordinates\": [42, 21]}"));
+
+        final var out = new ByteArrayOutputStream();
+        formatter.write(out, results, "en", null, withGeometry, false, null);
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo(formatter.convert(results, "en", null, withGeometry, false, null));
+    }
+
+    @Test
+    void testStreamingOutputDoesNotCloseStream() throws IOException {
+        GeoJsonFormatter formatter = new GeoJsonFormatter();
+
+        final var closed = new AtomicBoolean(false);
+        final var out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        formatter.write(out, List.of(), "en", null, false, false, null);
+
+        assertThat(closed).isFalse();
+        assertThat(out.toString(StandardCharsets.UTF_8)).endsWith("]}");
+    }
+
     private PhotonResult createDummyPointResult(String postCode, String name, String osmKey,
                                                 String osmValue) {
         return new MockPhotonResult()
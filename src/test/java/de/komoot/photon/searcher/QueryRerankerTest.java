@@ -0,0 +1,235 @@
+package de.komoot.photon.searcher;
+
+import de.komoot.photon.opensearch.DocFields;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class QueryRerankerTest {
+    private static final String[] WORDS = {
+            "main", "mai", "street", "st", "berlin", "ber", "10115", "5a", "de", "haupt",
+            "hauptstraße", "Straße", "MAIN", "new", "york", "n", "12"};
+    private static final String[] SEPARATORS = {" ", " ", " ", ", ", "-", ":", "  ", " - ", ";"};
+
+    private double rerank(String query, PhotonResult result) {
+        final double before = result.getScore();
+        new QueryReranker(query, "en", null).accept(result);
+        return result.getScore() - before;
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Main Street|main street",
+            "  Main,,Street - x|main street x",
+            "a:b|a b",
+            "UPPER-case|upper case",
+            ",,,|''"
+    })
+    void testNormalize(String in, String expected) {
+        assertThat(QueryReranker.normalize(in)).isEqualTo(expected);
+    }
+
+    @Test
+    void testExactNameMatch() {
+        final var result = new MockPhotonResult().putLocalized(DocFields.NAME, "default", "Main Street");
+
+        assertThat(rerank("main street", result)).isEqualTo(1.0);
+    }
+
+    @Test
+    void testAddressMatch() {
+        final var result = new MockPhotonResult()
+                .putLocalized(DocFields.NAME, "default", "Main Street")
+                .putLocalized(DocFields.CITY, "en", "Berlin");
+
+        assertThat(rerank("berlin, main street", result)).isEqualTo(0.8 * 17 / 18);
+    }
+
+    @Test
+    void testSameScoresAsReference() {
+        final var random = new Random(4711);
+
+        for (int i = 0; i < 20000; ++i) {
+            final String query = randomText(random, 1 + random.nextInt(5))
+                    + (random.nextInt(4) == 0 ? " " : "");
+            final var result = randomResult(random);
+            final var reference = copy(result);
+
+            new QueryReranker(query, "en", "de").accept(result);
+            new ReferenceReranker(query, "en", "de").accept(reference);
+
+            assertThat(result.getScore()).as("query '%s'", query).isEqualTo(reference.getScore());
+        }
+    }
+
+    @Test
+    void testReusedRerankerGivesSameScores() {
+        final var random = new Random(815);
+        final String query = "main street 5a, berlin";
+        final var reranker = new QueryReranker(query, "en", null);
+
+        for (int i = 0; i < 1000; ++i) {
+            final var result = randomResult(random);
+            final var reference = copy(result);
+
+            reranker.accept(result);
+            new ReferenceReranker(query, "en", null).accept(reference);
+
+            assertThat(result.getScore()).isEqualTo(reference.getScore());
+        }
+    }
+
+    private static String randomText(Random random, int words) {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < words; ++i) {
+            if (i > 0) {
+                sb.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static MockPhotonResult randomResult(Random random) {
+        final var result = new MockPhotonResult();
+        for (var key : new String[]{DocFields.NAME, DocFields.STREET, DocFields.CITY, DocFields.COUNTRY,
+                                    DocFields.STATE, DocFields.COUNTY, DocFields.DISTRICT}) {
+            for (var lang : new String[]{"default", "en", "de", "alt"}) {
+                if (random.nextInt(3) == 0) {
+                    result.putLocalized(key, lang, randomText(random, 1 + random.nextInt(3)));
+                }
+            }
+        }
+        for (var key : new String[]{DocFields.HOUSENUMBER, DocFields.POSTCODE, DocFields.COUNTRYCODE}) {
+            if (random.nextBoolean()) {
+                result.put(key, randomText(random, 1));
+            }
+        }
+        return result;
+    }
+
+    private static MockPhotonResult copy(MockPhotonResult result) {
+        final var copy = new MockPhotonResult();
+        copy.data.putAll(result.data);
+        copy.localized.putAll(result.localized);
+        copy.score = result.score;
+        return copy;
+    }
+
+    /**
+     * The original stream-based implementation of the reranker.
+     */
+    private static class ReferenceReranker implements Consumer<PhotonResult> {
+        private static final Pattern WORD_BREAK_PATTERN = Pattern.compile("[-,: ]+");
+        private final String query;
+        private final String language;
+        @Nullable private final String fallbackLanguage;
+        private final boolean isMultiTermQuery;
+        private final boolean isFullQuery;
+
+        ReferenceReranker(String query, String language, @Nullable String fallbackLanguage) {
+            this.query = normalize(query);
+            this.language = language;
+            this.fallbackLanguage = fallbackLanguage;
+            this.isMultiTermQuery = query.indexOf(',') >= 0;
+            this.isFullQuery = query.endsWith(" ");
+        }
+
+        @Override
+        public void accept(PhotonResult result) {
+            if (!query.isEmpty()) {
+                result.adjustScore(rescore(result));
+            }
+        }
+
+        private double rescore(PhotonResult result) {
+            var localeName = result.getLocalisedWithFallback("name", language, fallbackLanguage, GeoJsonFormatter.NAME_PRECEDENCE);
+            if (!isMultiTermQuery && localeName != null) {
+                localeName = normalize(localeName);
+                if (query.equals(localeName)) {
+                    return 1.0;
+                }
+                if (localeName.startsWith(query)) {
+                    if (localeName.charAt(query.length()) == ' ') {
+                        return 0.9;
+                    }
+                    if (!isFullQuery) {
+                        return 0.8;
+                    }
+                }
+            }
+
+            var resultTerms = Stream.of(
+                            localeName,
+                            (String) result.get(DocFields.HOUSENUMBER),
+                            result.getLocalised(DocFields.STREET, language),
+                            result.getLocalised(DocFields.CITY, language),
+                            (String) result.get(DocFields.COUNTRYCODE),
+                            (String) result.get(DocFields.POSTCODE),
+                            result.getLocalised(DocFields.COUNTRY, language),
+                            result.getLocalised(DocFields.STATE, language),
+                            result.getLocalised(DocFields.COUNTY, language),
+                            result.getLocalised(DocFields.DISTRICT, language),
+                            result.getLocalised(DocFields.NAME, "default"),
+                            result.getLocalised(DocFields.NAME, "alt"))
+                    .mapMulti(this::mapNames)
+                    .toList();
+
+            double matches = 0.0;
+            var todo = new StringBuilder(" " + query + " ");
+            var rematchWords = new ArrayList<String>();
+            for (var term : resultTerms) {
+                var idx = todo.indexOf(" " + term + " ");
+                if (idx >= 0) {
+                    matches += term.length();
+                    todo.delete(idx + 1, idx + term.length() + 2);
+                    if (todo.toString().isBlank()) {
+                        return 0.8 * matches / query.length();
+                    }
+                    continue;
+                }
+                rematchWords.addAll(Arrays.asList(term.split(" ")));
+            }
+
+            for (var w : todo.toString().strip().split(" +")) {
+                for (var term : rematchWords) {
+                    if (term.startsWith(w)) {
+                        matches += 0.7 * w.length();
+                        break;
+                    }
+                }
+            }
+
+            if (matches == 0.0) {
+                return 0.5 * result.getImportance();
+            }
+
+            return 0.8 * matches / query.length();
+        }
+
+        private String normalize(String in) {
+            return WORD_BREAK_PATTERN.matcher(in.toLowerCase()).replaceAll(" ").strip();
+        }
+
+        private void mapNames(@Nullable String in, Consumer<String> consumer) {
+            if (in != null) {
+                for (var s : in.split(";")) {
+                    var finname = normalize(s);
+                    if (!finname.isEmpty()) {
+                        consumer.accept(finname);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package de.komoot.photon.searcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ResultCacheTest {
+
+    private ResultCache<String, List<String>> makeCache(long maxWeight) {
+        return new ResultCache<>(maxWeight, 60, List::size);
+    }
+
+    @Test
+    void testHitAndMiss() {
+        var cache = makeCache(1000);
+
+        assertThat(cache.get("foo")).isNull();
+        cache.put("foo", List.of("a", "b"));
+
+        assertThat(cache.get("foo")).containsExactly("a", "b");
+        assertThat(cache.get("bar")).isNull();
+
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getSize()).isEqualTo(1);
+        assertThat(cache.getWeight()).isEqualTo(2);
+    }
+
+    @Test
+    void testEvictsWhenWeightIsExceeded() {
+        // 16 segments, so each segment holds a weight of 1.
+        var cache = makeCache(16);
+
+        for (int i = 0; i < 100; ++i) {
+            cache.put("key" + i, List.of("x"));
+        }
+
+        assertThat(cache.getWeight()).isLessThanOrEqualTo(16);
+        assertThat(cache.getEvictionCount()).isGreaterThanOrEqualTo(84);
+    }
+
+    @Test
+    void testExpiredEntriesAreNotReturned() {
+        final var now = new AtomicLong(1_000_000_000L);
+        var cache = new ResultCache<String, List<String>>(1000, 10, List::size, now::get);
+
+        cache.put("foo", List.of("a"));
+
+        now.addAndGet(10_000_000_000L);
+        assertThat(cache.get("foo")).isNotNull();
+
+        now.incrementAndGet();
+        assertThat(cache.get("foo")).isNull();
+        assertThat(cache.getExpirationCount()).isEqualTo(1);
+        assertThat(cache.getSize()).isZero();
+    }
+
+    @Test
+    void testNewGenerationDropsCache() {
+        var cache = makeCache(1000);
+
+        assertThat(cache.setGeneration("2024-01-01")).isTrue();
+        cache.put("foo", List.of("a"));
+
+        assertThat(cache.setGeneration("2024-01-01")).isFalse();
+        assertThat(cache.get("foo")).isNotNull();
+
+        assertThat(cache.setGeneration("2024-01-02")).isTrue();
+        assertThat(cache.get("foo")).isNull();
+        assertThat(cache.getInvalidationCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testResultsFromBeforeInvalidationAreNotStored() {
+        var cache = makeCache(1000);
+
+        final long version = cache.getVersion();
+        assertThat(cache.get("foo")).isNull();
+        cache.invalidateAll();
+        cache.put("foo", List.of("a"), version);
+
+        assertThat(cache.get("foo")).isNull();
+        assertThat(cache.getSize()).isZero();
+
+        cache.put("foo", List.of("a"), cache.getVersion());
+        assertThat(cache.get("foo")).containsExactly("a");
+    }
+}